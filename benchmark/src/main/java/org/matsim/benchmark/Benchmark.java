@@ -19,21 +19,34 @@
 
 package org.matsim.benchmark;
 
-import org.matsim.core.config.Config;
-import org.matsim.core.config.ConfigUtils;
-import org.matsim.core.controler.Controler;
-import org.matsim.core.utils.io.IOUtils;
-import org.matsim.examples.ExamplesUtils;
-
-import java.io.IOException;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
 
+/**
+ * Runs the JMH benchmarks of this module, i.e. the micro benchmarks of the hot paths and the
+ * {@link ControlerBenchmark}.
+ * <p></p>
+ * Accepts the usual JMH command line options, e.g. <code>Benchmark Routing -f 1</code> to only run the
+ * routing benchmarks in a single fork. Unless specified otherwise with <code>-rf</code> and <code>-rff</code>,
+ * the results are written as JSON to <code>jmh-result.json</code>, which can be compared between releases.
+ */
 public class Benchmark {
 
-	public static void main(String[] args) throws IOException {
-		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("benchmark"), "config.xml"));
-		Controler ctl = new Controler(config);
-        ctl.getConfig().controler().setCreateGraphs(false);
-        ctl.run();
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+		if (!commandLine.getResultFormat().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON);
+		}
+		if (!commandLine.getResult().hasValue()) {
+			options.result("jmh-result.json");
+		}
+		new Runner(options.build()).run();
 	}
 
 }
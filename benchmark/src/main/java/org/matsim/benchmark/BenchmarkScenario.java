@@ -0,0 +1,92 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * The input shared by the benchmarks: the "benchmark" test scenario, i.e. the Berlin network with a 1% sample
+ * of commuters, and synthetic events on its network.
+ */
+/* deliberately package */ final class BenchmarkScenario {
+
+	private BenchmarkScenario() {
+	}
+
+	static Config loadConfig() {
+		return ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("benchmark"), "config.xml"));
+	}
+
+	static Scenario loadScenario() {
+		return ScenarioUtils.loadScenario(loadConfig());
+	}
+
+	static Network loadNetwork() {
+		Config config = loadConfig();
+		config.plans().setInputFile(null);
+		return ScenarioUtils.loadScenario(config).getNetwork();
+	}
+
+	/**
+	 * Creates link enter and leave events of vehicles driving randomly through the network, sorted by time.
+	 *
+	 * @return exactly <code>numberOfEvents</code> events
+	 */
+	static List<Event> createLinkEvents(Network network, int numberOfEvents) {
+		Random random = new Random(4711);
+		Link[] links = network.getLinks().values().toArray(new Link[0]);
+		List<Event> events = new ArrayList<>(numberOfEvents + 100);
+		int vehicle = 0;
+		while (events.size() < numberOfEvents) {
+			Id<Vehicle> vehicleId = Id.create("benchmark" + vehicle++, Vehicle.class);
+			double time = 6 * 3600 + random.nextInt(4 * 3600);
+			Link link = links[random.nextInt(links.length)];
+			for (int i = 0; i < 50 && link != null; i++) {
+				events.add(new LinkEnterEvent(time, vehicleId, link.getId()));
+				time += Math.ceil(NetworkUtils.getFreespeedTravelTime(link));
+				events.add(new LinkLeaveEvent(time, vehicleId, link.getId()));
+				List<Link> outLinks = new ArrayList<>(link.getToNode().getOutLinks().values());
+				link = outLinks.isEmpty() ? null : outLinks.get(random.nextInt(outLinks.size()));
+			}
+		}
+		// the sort is stable, so the events of a vehicle stay in order
+		events.sort(Comparator.comparingDouble(Event::getTime));
+		return new ArrayList<>(events.subList(0, numberOfEvents));
+	}
+
+}
@@ -0,0 +1,130 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Dispatches events to handlers with the default events manager, and writes events as XML. The results are
+ * per event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class EventsBenchmark {
+
+	private static final int EVENTS = 200000;
+
+	private List<Event> events;
+	private EventsManager eventsManager;
+	private LinkCounter linkCounter;
+
+	@Setup
+	public void setup() {
+		this.events = BenchmarkScenario.createLinkEvents(BenchmarkScenario.loadNetwork(), EVENTS);
+		this.eventsManager = EventsUtils.createEventsManager();
+		// a typed handler for each event type, and one handling all events
+		this.linkCounter = new LinkCounter();
+		this.eventsManager.addHandler(this.linkCounter);
+		this.eventsManager.addHandler((BasicEventHandler) event -> this.linkCounter.all++);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public int dispatch() {
+		this.linkCounter.reset(0);
+		this.eventsManager.initProcessing();
+		for (Event event : this.events) {
+			this.eventsManager.processEvent(event);
+		}
+		this.eventsManager.finishProcessing();
+		return this.linkCounter.all;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public void writeXml() {
+		EventWriterXML writer = new EventWriterXML(new DiscardingOutputStream());
+		for (Event event : this.events) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+	}
+
+	private static final class LinkCounter implements LinkEnterEventHandler, LinkLeaveEventHandler {
+		private int enter = 0;
+		private int leave = 0;
+		private int all = 0;
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.enter++;
+		}
+
+		@Override
+		public void handleEvent(LinkLeaveEvent event) {
+			this.leave++;
+		}
+
+		@Override
+		public void reset(int iteration) {
+			this.enter = 0;
+			this.leave = 0;
+			this.all = 0;
+		}
+	}
+
+	private static final class DiscardingOutputStream extends OutputStream {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+
+}
@@ -0,0 +1,137 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationStopWatch;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.utils.io.IOUtils;
+
+/**
+ * Runs a complete simulation, typically of a scenario created by {@link SyntheticScenarioGenerator}, and reports
+ * the wall time of each iteration broken down into its main parts:
+ * <ul>
+ * <li>replanning: the replanning step of the controler</li>
+ * <li>mobsim: the mobsim, without the time spent in the events manager</li>
+ * <li>events: the time the mobsim spent in the events manager (see {@link TimedEventsManager})</li>
+ * <li>scoring: the scoring step of the controler; most of the scoring is done by event handlers during the
+ * mobsim, so this is mainly the time to finish the scores and to assign them to the plans</li>
+ * <li>other: everything else, e.g. the listeners at the start and end of the iteration and writing output</li>
+ * </ul>
+ * The table is logged at the end of the run and written to <code>macrobenchmark.txt</code> in the output
+ * directory.
+ * <p></p>
+ * Usage: <code>MacroBenchmark configFile [lastIteration]</code>
+ */
+public final class MacroBenchmark {
+
+	private static final Logger log = Logger.getLogger(MacroBenchmark.class);
+
+	/** The columns of the report, after the iteration number. */
+	private static final String[] COLUMNS = {"total", "replanning", "mobsim", "events", "scoring", "other"};
+
+	private MacroBenchmark() {
+	}
+
+	/**
+	 * Runs the controler for <code>config</code>.
+	 *
+	 * @return for every iteration, the iteration number followed by the durations of total,
+	 * replanning, mobsim, events, scoring and other in milliseconds
+	 */
+	public static List<long[]> run(final Config config) {
+		Controler controler = new Controler(config);
+		TimedEventsManager events = new TimedEventsManager(EventsUtils.createEventsManager(config));
+		controler.addOverridingModule(new AbstractModule() {
+			@Override
+			public void install() {
+				bind(EventsManager.class).toInstance(events);
+			}
+		});
+		controler.run();
+
+		IterationStopWatch stopWatch = controler.getStopwatch();
+		List<long[]> results = new ArrayList<>();
+		for (int iteration = config.controler().getFirstIteration(); iteration <= config.controler().getLastIteration(); iteration++) {
+			long total = getDuration(stopWatch, iteration, IterationStopWatch.OPERATION_ITERATION);
+			long replanning = getDuration(stopWatch, iteration, "replanning");
+			long eventsTime = events.getEventsTime(iteration);
+			long mobsim = Math.max(0, getDuration(stopWatch, iteration, "mobsim") - eventsTime);
+			long scoring = getDuration(stopWatch, iteration, "scoring");
+			long other = total - replanning - mobsim - eventsTime - scoring;
+			results.add(new long[] {iteration, total, replanning, mobsim, eventsTime, scoring, other});
+		}
+
+		String filename = controler.getControlerIO().getOutputFilename("macrobenchmark.txt");
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(filename)) {
+			writer.write("iteration\t" + String.join("\t", COLUMNS));
+			writer.newLine();
+			for (long[] row : results) {
+				StringBuilder line = new StringBuilder();
+				for (long value : row) {
+					if (line.length() > 0) {
+						line.append('\t');
+					}
+					line.append(value);
+				}
+				writer.write(line.toString());
+				writer.newLine();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		log.info(String.format("%9s %10s %10s %10s %10s %10s %10s  [ms]", "iteration", COLUMNS[0], COLUMNS[1], COLUMNS[2], COLUMNS[3],
+				COLUMNS[4], COLUMNS[5]));
+		for (long[] row : results) {
+			log.info(String.format("%9d %10d %10d %10d %10d %10d %10d", row[0], row[1], row[2], row[3], row[4], row[5], row[6]));
+		}
+		return results;
+	}
+
+	private static long getDuration(final IterationStopWatch stopWatch, final int iteration, final String operation) {
+		Long duration = stopWatch.getOperationDuration(iteration, operation);
+		return duration == null ? 0 : duration;
+	}
+
+	public static void main(final String[] args) {
+		if (args.length < 1 || args.length > 2) {
+			System.err.println("Usage: MacroBenchmark configFile [lastIteration]");
+			System.exit(1);
+		}
+		Config config = ConfigUtils.loadConfig(args[0]);
+		if (args.length > 1) {
+			config.controler().setLastIteration(Integer.parseInt(args[1]));
+		}
+		run(config);
+	}
+
+}
@@ -0,0 +1,102 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlansConfigGroup.PlanStorage;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.examples.ExamplesUtils;
+
+/**
+ * Measures the heap used by the agents' plan memory with the different {@link PlanStorage} modes.
+ * Every person gets a number of alternative plans which are copies of the selected plan with slightly
+ * shifted activity end times, similar to what time mutation produces during replanning.
+ * <p></p>
+ * Usage: <code>PlanMemoryBenchmark [scenario [alternatives]]</code>, e.g. <code>PlanMemoryBenchmark berlin 4</code>.
+ * Run with a fixed heap size (e.g. <code>-Xmx2g</code>) to get comparable numbers.
+ */
+public class PlanMemoryBenchmark {
+
+	public static void main(String[] args) {
+		String scenarioName = args.length > 0 ? args[0] : "equil";
+		int alternatives = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+		for (PlanStorage storage : PlanStorage.values()) {
+			Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL(scenarioName), "config.xml"));
+			long before = usedHeap();
+			Scenario scenario = ScenarioUtils.loadScenario(config);
+			createAlternativePlans(scenario, alternatives);
+			int compacted = 0;
+			for (Person person : scenario.getPopulation().getPersons().values()) {
+				compacted += PopulationUtils.compactNonSelectedPlans(person, storage);
+			}
+			long after = usedHeap();
+			System.out.println(scenarioName + ": storage=" + storage
+					+ " persons=" + scenario.getPopulation().getPersons().size()
+					+ " compactedPlans=" + compacted
+					+ " heap=" + ((after - before) / 1024) + "kB");
+		}
+	}
+
+	private static void createAlternativePlans(Scenario scenario, int alternatives) {
+		Random random = new Random(4711);
+		for (Person person : scenario.getPopulation().getPersons().values()) {
+			Plan selected = person.getSelectedPlan();
+			for (int i = 0; i < alternatives; i++) {
+				Plan plan = PopulationUtils.createPlan(person);
+				PopulationUtils.copyFromTo(selected, plan);
+				List<Activity> activities = new ArrayList<>();
+				for (PlanElement pe : plan.getPlanElements()) {
+					if (pe instanceof Activity && !Time.isUndefinedTime(((Activity) pe).getEndTime())) {
+						activities.add((Activity) pe);
+					}
+				}
+				if (!activities.isEmpty()) {
+					Activity act = activities.get(random.nextInt(activities.size()));
+					act.setEndTime(act.getEndTime() + random.nextInt(3600) - 1800);
+				}
+				person.addPlan(plan);
+			}
+			person.setSelectedPlan(selected);
+		}
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
@@ -0,0 +1,86 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.core.utils.collections.QuadTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Nearest neighbour and disk queries on a {@link QuadTree} of uniformly distributed points in a 100km square.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class QuadTreeBenchmark {
+
+	private static final double SIZE = 100000;
+	private static final int QUERIES = 1024;
+
+	@Param({"10000", "1000000"})
+	public int points;
+
+	private QuadTree<Integer> quadTree;
+	private final double[] x = new double[QUERIES];
+	private final double[] y = new double[QUERIES];
+	private int query = 0;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(4711);
+		this.quadTree = new QuadTree<>(0, 0, SIZE, SIZE);
+		for (int i = 0; i < this.points; i++) {
+			this.quadTree.put(random.nextDouble() * SIZE, random.nextDouble() * SIZE, i);
+		}
+		for (int i = 0; i < QUERIES; i++) {
+			this.x[i] = random.nextDouble() * SIZE;
+			this.y[i] = random.nextDouble() * SIZE;
+		}
+	}
+
+	@Benchmark
+	public Integer getClosest() {
+		this.query = (this.query + 1) % QUERIES;
+		return this.quadTree.getClosest(this.x[this.query], this.y[this.query]);
+	}
+
+	@Benchmark
+	public Collection<Integer> getDisk() {
+		this.query = (this.query + 1) % QUERIES;
+		return this.quadTree.getDisk(this.x[this.query], this.y[this.query], 1000);
+	}
+
+}
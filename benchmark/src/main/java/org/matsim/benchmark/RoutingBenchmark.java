@@ -0,0 +1,102 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.algorithms.NetworkCleaner;
+import org.matsim.core.router.FastAStarLandmarksFactory;
+import org.matsim.core.router.FastDijkstraFactory;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Least cost path queries between random nodes of the Berlin network, with free speed travel times.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RoutingBenchmark {
+
+	private static final int QUERIES = 1000;
+
+	@Param({"FastDijkstra", "FastAStarLandmarks"})
+	public String router;
+
+	private LeastCostPathCalculator pathCalculator;
+	private final Node[] fromNodes = new Node[QUERIES];
+	private final Node[] toNodes = new Node[QUERIES];
+	private int query = 0;
+
+	@Setup
+	public void setup() {
+		Network network = BenchmarkScenario.loadNetwork();
+		// only route within the biggest cluster, to not measure the search for unreachable nodes
+		new NetworkCleaner().run(network);
+
+		LeastCostPathCalculatorFactory factory;
+		switch (this.router) {
+			case "FastDijkstra":
+				factory = new FastDijkstraFactory();
+				break;
+			case "FastAStarLandmarks":
+				factory = new FastAStarLandmarksFactory();
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown router " + this.router);
+		}
+		FreespeedTravelTimeAndDisutility costs = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		this.pathCalculator = factory.createPathCalculator(network, costs, costs);
+
+		Random random = new Random(4711);
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		for (int i = 0; i < QUERIES; i++) {
+			this.fromNodes[i] = nodes[random.nextInt(nodes.length)];
+			this.toNodes[i] = nodes[random.nextInt(nodes.length)];
+		}
+	}
+
+	@Benchmark
+	public Path query() {
+		this.query = (this.query + 1) % QUERIES;
+		return this.pathCalculator.calcLeastCostPath(this.fromNodes[this.query], this.toNodes[this.query], 8 * 3600, null, null);
+	}
+
+}
@@ -0,0 +1,472 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.ConfigWriter;
+import org.matsim.core.config.groups.ControlerConfigGroup.RoutingAlgorithmType;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ActivityParams;
+import org.matsim.core.config.groups.StrategyConfigGroup.StrategySettings;
+import org.matsim.core.controler.OutputDirectoryHierarchy.OverwriteFileSetting;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.NetworkWriter;
+import org.matsim.core.population.io.StreamingPopulationWriter;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.replanning.strategies.DefaultPlanStrategiesModule.DefaultSelector;
+import org.matsim.core.replanning.strategies.DefaultPlanStrategiesModule.DefaultStrategy;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.core.utils.misc.Counter;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitScheduleWriter;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleCapacity;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleWriterV1;
+import org.matsim.vehicles.Vehicles;
+import org.matsim.vehicles.VehiclesFactory;
+
+/**
+ * Generates scenarios of arbitrary size for macro benchmarks, so that the scaling behaviour of a complete run can be
+ * measured without access to a real (and usually confidential) large scenario.
+ * <p></p>
+ * The network is a square grid of <code>gridSize</code> x <code>gridSize</code> nodes with two-way links.  The
+ * road class of a grid line depends on the largest power of two dividing its index, so every second line is a
+ * collector, every fourth a minor arterial and so on up to motorway-like roads; the hierarchy repeats itself at
+ * every scale, like in a fractal.  Optionally, bus lines run in both directions along every
+ * <code>ptLineSpacing</code>-th grid line.
+ * <p></p>
+ * Every person has a home-work-home or home-work-other-home plan, with a single mode for all legs: walk for
+ * short distances, otherwise car or pt according to the configured shares.  Homes are spread uniformly, work
+ * places are concentrated around the center.  The population is streamed to the plans file, so the generator
+ * itself needs hardly any memory for it, regardless of the number of persons.
+ * <p></p>
+ * Usage: <code>SyntheticScenarioGenerator outputDirectory gridSize numberOfPersons [ptLineSpacing]</code>
+ */
+public final class SyntheticScenarioGenerator {
+
+	private static final Logger log = Logger.getLogger(SyntheticScenarioGenerator.class);
+
+	public static final String CONFIG_FILE = "config.xml";
+	public static final String NETWORK_FILE = "network.xml.gz";
+	public static final String PLANS_FILE = "plans.xml.gz";
+	public static final String SCHEDULE_FILE = "transitSchedule.xml.gz";
+	public static final String VEHICLES_FILE = "transitVehicles.xml.gz";
+
+	private static final String HOME = "home";
+	private static final String WORK = "work";
+	private static final String OTHER = "other";
+
+	private int gridSize = 100;
+	private double linkLength = 250;
+	private int numberOfPersons = 10000;
+	private double carShare = 0.6;
+	private double ptShare = 0.3;
+	private double otherActivityShare = 0.4;
+	private int ptLineSpacing = 8;
+	private int ptStopSpacing = 2;
+	private double ptHeadway = 600;
+	private long seed = 4711;
+
+	/**
+	 * @param gridSize the number of nodes along each side of the network
+	 */
+	public void setGridSize(final int gridSize) {
+		if (gridSize < 2) {
+			throw new IllegalArgumentException("The grid needs at least 2x2 nodes, but was " + gridSize);
+		}
+		this.gridSize = gridSize;
+	}
+
+	public void setLinkLength(final double linkLength) {
+		this.linkLength = linkLength;
+	}
+
+	public void setNumberOfPersons(final int numberOfPersons) {
+		this.numberOfPersons = numberOfPersons;
+	}
+
+	/**
+	 * Sets the share of persons using car and pt; persons with short trips, and the rest of the persons, walk.
+	 * Without pt lines, the pt share is added to walk.
+	 */
+	public void setModeShares(final double carShare, final double ptShare) {
+		if (carShare < 0 || ptShare < 0 || carShare + ptShare > 1) {
+			throw new IllegalArgumentException("Invalid mode shares: car " + carShare + ", pt " + ptShare);
+		}
+		this.carShare = carShare;
+		this.ptShare = ptShare;
+	}
+
+	/**
+	 * @param share the share of persons with an additional activity between work and home
+	 */
+	public void setOtherActivityShare(final double share) {
+		this.otherActivityShare = share;
+	}
+
+	/**
+	 * @param ptLineSpacing a bus line runs along every <code>ptLineSpacing</code>-th grid line; 0 disables transit
+	 */
+	public void setPtLineSpacing(final int ptLineSpacing) {
+		this.ptLineSpacing = ptLineSpacing;
+	}
+
+	/**
+	 * @param ptStopSpacing the number of links between two stops of a bus line
+	 */
+	public void setPtStopSpacing(final int ptStopSpacing) {
+		this.ptStopSpacing = ptStopSpacing;
+	}
+
+	public void setPtHeadway(final double seconds) {
+		this.ptHeadway = seconds;
+	}
+
+	public void setSeed(final long seed) {
+		this.seed = seed;
+	}
+
+	private boolean hasTransit() {
+		return this.ptLineSpacing > 0 && this.ptLineSpacing < this.gridSize;
+	}
+
+	/**
+	 * Writes network, population, transit schedule and vehicles, and a config referencing them, to
+	 * <code>directory</code>.
+	 *
+	 * @return the config, with the files set relative to <code>directory</code>
+	 */
+	public Config write(final String directory) {
+		new File(directory).mkdirs();
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		createNetwork(scenario.getNetwork());
+		new NetworkWriter(scenario.getNetwork()).write(new File(directory, NETWORK_FILE).getPath());
+		if (hasTransit()) {
+			createTransit(scenario.getNetwork(), scenario.getTransitSchedule(), scenario.getTransitVehicles());
+			new TransitScheduleWriter(scenario.getTransitSchedule()).writeFile(new File(directory, SCHEDULE_FILE).getPath());
+			new VehicleWriterV1(scenario.getTransitVehicles()).writeFile(new File(directory, VEHICLES_FILE).getPath());
+		}
+		writePopulation(scenario.getPopulation().getFactory(), new File(directory, PLANS_FILE).getPath());
+
+		Config config = createConfig();
+		new ConfigWriter(config).write(new File(directory, CONFIG_FILE).getPath());
+		return config;
+	}
+
+	/**
+	 * Fills the grid network into <code>network</code>, which is expected to be empty.
+	 */
+	public void createNetwork(final Network network) {
+		NetworkFactory factory = network.getFactory();
+		Node[][] nodes = new Node[this.gridSize][this.gridSize];
+		for (int row = 0; row < this.gridSize; row++) {
+			for (int column = 0; column < this.gridSize; column++) {
+				Node node = factory.createNode(Id.createNodeId(nodeId(row, column)), new Coord(column * this.linkLength, row * this.linkLength));
+				network.addNode(node);
+				nodes[row][column] = node;
+			}
+		}
+		for (int row = 0; row < this.gridSize; row++) {
+			for (int column = 0; column < this.gridSize; column++) {
+				if (column + 1 < this.gridSize) {
+					addLinks(network, nodes[row][column], nodes[row][column + 1], getRoadClass(row));
+				}
+				if (row + 1 < this.gridSize) {
+					addLinks(network, nodes[row][column], nodes[row + 1][column], getRoadClass(column));
+				}
+			}
+		}
+		log.info("created a grid network with " + network.getNodes().size() + " nodes and " + network.getLinks().size() + " links");
+	}
+
+	/**
+	 * @return the road class of a grid line, from 0 (local roads on every odd line) to 4 (motorway-like roads,
+	 * also on the border lines)
+	 */
+	private int getRoadClass(final int line) {
+		if (line == 0 || line == this.gridSize - 1) {
+			return 4;
+		}
+		return Math.min(4, Integer.numberOfTrailingZeros(line));
+	}
+
+	private void addLinks(final Network network, final Node a, final Node b, final int roadClass) {
+		addLink(network, a, b, roadClass);
+		addLink(network, b, a, roadClass);
+	}
+
+	private void addLink(final Network network, final Node from, final Node to, final int roadClass) {
+		Link link = network.getFactory().createLink(Id.createLinkId(linkId(from, to)), from, to);
+		link.setLength(this.linkLength);
+		link.setFreespeed((30 + 15 * roadClass) / 3.6);
+		link.setNumberOfLanes(roadClass < 2 ? 1 : roadClass < 4 ? 2 : 3);
+		link.setCapacity(link.getNumberOfLanes() * (roadClass == 0 ? 600 : 1000 + 200 * roadClass));
+		link.setAllowedModes(Collections.singleton(TransportMode.car));
+		network.addLink(link);
+	}
+
+	private static String nodeId(final int row, final int column) {
+		return row + "_" + column;
+	}
+
+	private static String linkId(final Node from, final Node to) {
+		return from.getId() + "-" + to.getId();
+	}
+
+	/**
+	 * Creates bus lines in both directions along every <code>ptLineSpacing</code>-th row and column of the grid,
+	 * with departures every <code>ptHeadway</code> seconds between 5am and 11pm and a vehicle per departure.
+	 * The links used by buses additionally allow mode pt.
+	 */
+	public void createTransit(final Network network, final TransitSchedule schedule, final Vehicles vehicles) {
+		VehiclesFactory vehiclesFactory = vehicles.getFactory();
+		VehicleType busType = vehiclesFactory.createVehicleType(Id.create("bus", VehicleType.class));
+		VehicleCapacity capacity = vehiclesFactory.createVehicleCapacity();
+		capacity.setSeats(50);
+		capacity.setStandingRoom(50);
+		busType.setCapacity(capacity);
+		busType.setLength(12);
+		vehicles.addVehicleType(busType);
+
+		int routes = 0;
+		for (int line = this.ptLineSpacing; line < this.gridSize - 1; line += this.ptLineSpacing) {
+			List<Node> row = new ArrayList<>();
+			List<Node> column = new ArrayList<>();
+			for (int i = 0; i < this.gridSize; i++) {
+				row.add(network.getNodes().get(Id.createNodeId(nodeId(line, i))));
+				column.add(network.getNodes().get(Id.createNodeId(nodeId(i, line))));
+			}
+			TransitLine rowLine = schedule.getFactory().createTransitLine(Id.create("row" + line, TransitLine.class));
+			TransitLine columnLine = schedule.getFactory().createTransitLine(Id.create("column" + line, TransitLine.class));
+			schedule.addTransitLine(rowLine);
+			schedule.addTransitLine(columnLine);
+			addRoute(network, schedule, vehicles, busType, rowLine, "east", row);
+			addRoute(network, schedule, vehicles, busType, columnLine, "north", column);
+			Collections.reverse(row);
+			Collections.reverse(column);
+			addRoute(network, schedule, vehicles, busType, rowLine, "west", row);
+			addRoute(network, schedule, vehicles, busType, columnLine, "south", column);
+			routes += 4;
+		}
+		log.info("created " + schedule.getTransitLines().size() + " transit lines with " + routes + " routes, "
+				+ schedule.getFacilities().size() + " stops and " + vehicles.getVehicles().size() + " vehicles");
+	}
+
+	private void addRoute(final Network network, final TransitSchedule schedule, final Vehicles vehicles, final VehicleType busType,
+			final TransitLine line, final String direction, final List<Node> nodes) {
+		TransitScheduleFactory factory = schedule.getFactory();
+		List<Id<Link>> linkIds = new ArrayList<>();
+		List<TransitRouteStop> stops = new ArrayList<>();
+		double time = 0;
+		for (int i = 1; i < nodes.size(); i++) {
+			Link link = network.getLinks().get(Id.createLinkId(linkId(nodes.get(i - 1), nodes.get(i))));
+			Set<String> modes = new HashSet<>(link.getAllowedModes());
+			modes.add(TransportMode.pt);
+			link.setAllowedModes(modes);
+			linkIds.add(link.getId());
+			time += Math.ceil(NetworkUtils.getFreespeedTravelTime(link));
+			if (i == 1 || i % this.ptStopSpacing == 0 || i == nodes.size() - 1) {
+				Id<TransitStopFacility> stopId = Id.create(link.getId(), TransitStopFacility.class);
+				TransitStopFacility stop = schedule.getFacilities().get(stopId);
+				if (stop == null) {
+					stop = factory.createTransitStopFacility(stopId, link.getToNode().getCoord(), false);
+					stop.setLinkId(link.getId());
+					schedule.addStopFacility(stop);
+				}
+				stops.add(factory.createTransitRouteStop(stop, time, time + 20));
+				time += 20;
+			}
+		}
+		NetworkRoute networkRoute = RouteUtils.createNetworkRoute(linkIds, network);
+		TransitRoute route = factory.createTransitRoute(Id.create(line.getId() + "_" + direction, TransitRoute.class), networkRoute, stops, "bus");
+		int departures = 0;
+		for (double departureTime = 5 * 3600; departureTime < 23 * 3600; departureTime += this.ptHeadway) {
+			Id<Departure> departureId = Id.create(departures++, Departure.class);
+			Departure departure = factory.createDeparture(departureId, departureTime);
+			Vehicle vehicle = vehicles.getFactory().createVehicle(Id.createVehicleId(route.getId() + "_" + departureId), busType);
+			vehicles.addVehicle(vehicle);
+			departure.setVehicleId(vehicle.getId());
+			route.addDeparture(departure);
+		}
+		line.addRoute(route);
+	}
+
+	/**
+	 * Creates the persons one by one and passes them directly to a streaming writer.
+	 */
+	public void writePopulation(final PopulationFactory factory, final String filename) {
+		Random random = new Random(this.seed);
+		double extent = (this.gridSize - 1) * this.linkLength;
+		boolean transit = hasTransit();
+		StreamingPopulationWriter writer = new StreamingPopulationWriter();
+		writer.startStreaming(filename);
+		Counter counter = new Counter("person # ");
+		for (int i = 0; i < this.numberOfPersons; i++) {
+			writer.run(createPerson(factory, Id.createPersonId(i), random, extent, transit));
+			counter.incCounter();
+		}
+		counter.printCounter();
+		writer.closeStreaming();
+	}
+
+	private Person createPerson(final PopulationFactory factory, final Id<Person> personId, final Random random, final double extent,
+			final boolean transit) {
+		Coord home = new Coord(random.nextDouble() * extent, random.nextDouble() * extent);
+		Coord work = new Coord(clamp(extent / 2 + random.nextGaussian() * extent / 5, extent),
+				clamp(extent / 2 + random.nextGaussian() * extent / 5, extent));
+		Coord other = random.nextDouble() < this.otherActivityShare
+				? new Coord(clamp(home.getX() + random.nextGaussian() * 2000, extent), clamp(home.getY() + random.nextGaussian() * 2000, extent))
+				: null;
+
+		String mode;
+		double modeDraw = random.nextDouble();
+		if (CoordUtils.calcEuclideanDistance(home, work) < 1500) {
+			mode = TransportMode.walk;
+		} else if (modeDraw < this.carShare) {
+			mode = TransportMode.car;
+		} else if (modeDraw < this.carShare + this.ptShare && transit) {
+			mode = TransportMode.pt;
+		} else {
+			mode = TransportMode.walk;
+		}
+
+		Plan plan = factory.createPlan();
+		Activity morning = factory.createActivityFromCoord(HOME, home);
+		morning.setEndTime(6 * 3600 + random.nextInt(3 * 3600));
+		plan.addActivity(morning);
+		plan.addLeg(factory.createLeg(mode));
+		Activity workActivity = factory.createActivityFromCoord(WORK, work);
+		workActivity.setEndTime(morning.getEndTime() + 7 * 3600 + random.nextInt(2 * 3600));
+		plan.addActivity(workActivity);
+		if (other != null) {
+			plan.addLeg(factory.createLeg(mode));
+			Activity otherActivity = factory.createActivityFromCoord(OTHER, other);
+			otherActivity.setMaximumDuration(1800 + random.nextInt(5400));
+			plan.addActivity(otherActivity);
+		}
+		plan.addLeg(factory.createLeg(mode));
+		plan.addActivity(factory.createActivityFromCoord(HOME, home));
+
+		Person person = factory.createPerson(personId);
+		person.addPlan(plan);
+		return person;
+	}
+
+	private static double clamp(final double value, final double extent) {
+		return Math.max(0, Math.min(extent, value));
+	}
+
+	/**
+	 * Creates a config for the files written by {@link #write(String)}, with the usual strategies and scoring
+	 * parameters for the generated activity types.  Writing of events and plans and the creation of graphs are
+	 * switched off, so they do not dominate the iteration times; enable them as needed.
+	 */
+	public Config createConfig() {
+		Config config = ConfigUtils.createConfig();
+		config.network().setInputFile(NETWORK_FILE);
+		config.plans().setInputFile(PLANS_FILE);
+		if (hasTransit()) {
+			config.transit().setUseTransit(true);
+			config.transit().setTransitScheduleFile(SCHEDULE_FILE);
+			config.transit().setVehiclesFile(VEHICLES_FILE);
+		}
+
+		config.controler().setOutputDirectory("output");
+		config.controler().setOverwriteFileSetting(OverwriteFileSetting.deleteDirectoryIfExists);
+		config.controler().setLastIteration(10);
+		config.controler().setWriteEventsInterval(0);
+		config.controler().setWritePlansInterval(0);
+		config.controler().setCreateGraphs(false);
+		config.controler().setRoutingAlgorithmType(RoutingAlgorithmType.FastAStarLandmarks);
+
+		config.qsim().setEndTime(30 * 3600);
+		config.qsim().setMainModes(Arrays.asList(TransportMode.car));
+
+		addActivityParams(config, HOME, 12 * 3600);
+		addActivityParams(config, WORK, 8 * 3600);
+		addActivityParams(config, OTHER, 3600);
+
+		addStrategy(config, DefaultSelector.ChangeExpBeta, 0.8);
+		addStrategy(config, DefaultStrategy.ReRoute, 0.1);
+		addStrategy(config, DefaultStrategy.TimeAllocationMutator, 0.1);
+		config.strategy().setMaxAgentPlanMemorySize(5);
+		config.strategy().setFractionOfIterationsToDisableInnovation(0.8);
+		return config;
+	}
+
+	private static void addActivityParams(final Config config, final String type, final double typicalDuration) {
+		ActivityParams params = new ActivityParams(type);
+		params.setTypicalDuration(typicalDuration);
+		config.planCalcScore().addActivityParams(params);
+	}
+
+	private static void addStrategy(final Config config, final String name, final double weight) {
+		StrategySettings settings = new StrategySettings();
+		settings.setStrategyName(name);
+		settings.setWeight(weight);
+		config.strategy().addStrategySettings(settings);
+	}
+
+	public static void main(final String[] args) {
+		if (args.length < 3 || args.length > 4) {
+			System.err.println("Usage: SyntheticScenarioGenerator outputDirectory gridSize numberOfPersons [ptLineSpacing]");
+			System.exit(1);
+		}
+		SyntheticScenarioGenerator generator = new SyntheticScenarioGenerator();
+		generator.setGridSize(Integer.parseInt(args[1]));
+		generator.setNumberOfPersons(Integer.parseInt(args[2]));
+		if (args.length > 3) {
+			generator.setPtLineSpacing(Integer.parseInt(args[3]));
+		}
+		generator.write(args[0]);
+	}
+
+}
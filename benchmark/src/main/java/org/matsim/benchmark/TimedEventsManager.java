@@ -0,0 +1,101 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * Measures, per iteration, the time the mobsim spends inside the events manager: processing (or, for the
+ * parallel events managers, handing over) events, waiting for the handlers at the end of each time step, and
+ * draining the remaining events at the end of the mobsim.
+ * <p></p>
+ * The time is summed over all calling threads.  Note that a multi-threaded QSim wraps any events manager it
+ * does not know to be thread-safe into a synchronizing one, so the hand-over of events is serialized while
+ * this decorator is in place.
+ */
+/* deliberately package */ final class TimedEventsManager implements EventsManager {
+
+	private final EventsManager delegate;
+	private final Map<Integer, LongAdder> nanosPerIteration = new ConcurrentHashMap<>();
+	private volatile LongAdder current = new LongAdder();
+
+	TimedEventsManager(final EventsManager delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public void processEvent(final Event event) {
+		long start = System.nanoTime();
+		this.delegate.processEvent(event);
+		this.current.add(System.nanoTime() - start);
+	}
+
+	@Override
+	public void addHandler(final EventHandler handler) {
+		this.delegate.addHandler(handler);
+	}
+
+	@Override
+	public void removeHandler(final EventHandler handler) {
+		this.delegate.removeHandler(handler);
+	}
+
+	@Override
+	public void resetHandlers(final int iteration) {
+		this.current = this.nanosPerIteration.computeIfAbsent(iteration, i -> new LongAdder());
+		this.delegate.resetHandlers(iteration);
+	}
+
+	@Override
+	public void initProcessing() {
+		long start = System.nanoTime();
+		this.delegate.initProcessing();
+		this.current.add(System.nanoTime() - start);
+	}
+
+	@Override
+	public void afterSimStep(final double time) {
+		long start = System.nanoTime();
+		this.delegate.afterSimStep(time);
+		this.current.add(System.nanoTime() - start);
+	}
+
+	@Override
+	public void finishProcessing() {
+		long start = System.nanoTime();
+		this.delegate.finishProcessing();
+		this.current.add(System.nanoTime() - start);
+	}
+
+	/**
+	 * @return the time spent in the events manager in the given iteration in milliseconds
+	 */
+	long getEventsTime(final int iteration) {
+		LongAdder nanos = this.nanosPerIteration.get(iteration);
+		return nanos == null ? 0 : nanos.sum() / 1000000;
+	}
+
+}
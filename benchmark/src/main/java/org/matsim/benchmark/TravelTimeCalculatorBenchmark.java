@@ -0,0 +1,83 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Collects link travel times from link enter and leave events, as done after every mobsim run. The results
+ * are per event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TravelTimeCalculatorBenchmark {
+
+	private static final int EVENTS = 200000;
+
+	private List<Event> events;
+	private TravelTimeCalculator travelTimeCalculator;
+
+	@Setup
+	public void setup() {
+		Network network = BenchmarkScenario.loadNetwork();
+		this.events = BenchmarkScenario.createLinkEvents(network, EVENTS);
+		TravelTimeCalculator.Builder builder = new TravelTimeCalculator.Builder(network);
+		builder.configure(new TravelTimeCalculatorConfigGroup());
+		this.travelTimeCalculator = builder.build();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public TravelTimeCalculator handleEvents() {
+		this.travelTimeCalculator.reset(0);
+		for (Event event : this.events) {
+			if (event instanceof LinkEnterEvent) {
+				this.travelTimeCalculator.handleEvent((LinkEnterEvent) event);
+			} else {
+				this.travelTimeCalculator.handleEvent((LinkLeaveEvent) event);
+			}
+		}
+		return this.travelTimeCalculator;
+	}
+
+}
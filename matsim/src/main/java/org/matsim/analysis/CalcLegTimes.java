@@ -31,7 +31,6 @@ import org.matsim.api.core.v01.events.handler.ActivityStartEventHandler;
 import org.matsim.api.core.v01.events.handler.PersonArrivalEventHandler;
 import org.matsim.api.core.v01.events.handler.PersonDepartureEventHandler;
 import org.matsim.api.core.v01.population.Person;
-import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.io.UncheckedIOException;
 import org.matsim.core.utils.misc.Time;
@@ -67,8 +66,8 @@ public class CalcLegTimes implements PersonDepartureEventHandler, PersonArrivalE
 	private int sumTrips = 0;
 
 	@Inject
-	CalcLegTimes(EventsManager eventsManager) {
-		eventsManager.addHandler(this);
+	CalcLegTimes(FusedAnalysisHandler fusedAnalysisHandler) {
+		fusedAnalysisHandler.setLegTimes(this);
 	}
 
 	public CalcLegTimes() {
@@ -98,21 +97,27 @@ public class CalcLegTimes implements PersonDepartureEventHandler, PersonArrivalE
 		if (depTime != null) {
 			double travTime = arrTime - depTime;
 			String fromActType = previousActivityTypes.remove(event.getPersonId());
-			String toActType = event.getActType();
-			String legType = fromActType + "---" + toActType;
-			int[] stats = this.legStats.get(legType);
-			if (stats == null) {
-				stats = new int[MAXINDEX+1];
-				for (int i = 0; i <= MAXINDEX; i++) {
-					stats[i] = 0;
-				}
-				this.legStats.put(legType, stats);
-			}
-			stats[getTimeslotIndex(travTime)]++;
+			addLeg(fromActType, event.getActType(), travTime);
+		}
+	}
 
-			this.sumTripDurations += travTime;
-			this.sumTrips++;
+	/**
+	 * Called by {@link #handleEvent(ActivityStartEvent)}, or directly by the {@link FusedAnalysisHandler}.
+	 */
+	void addLeg(final String fromActType, final String toActType, final double travTime) {
+		String legType = fromActType + "---" + toActType;
+		int[] stats = this.legStats.get(legType);
+		if (stats == null) {
+			stats = new int[MAXINDEX+1];
+			for (int i = 0; i <= MAXINDEX; i++) {
+				stats[i] = 0;
+			}
+			this.legStats.put(legType, stats);
 		}
+		stats[getTimeslotIndex(travTime)]++;
+
+		this.sumTripDurations += travTime;
+		this.sumTrips++;
 	}
 
 	
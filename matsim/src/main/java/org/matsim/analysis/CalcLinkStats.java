@@ -58,7 +58,7 @@ public class CalcLinkStats {
 	private double volScaleFactor = 1.0;
 
 	private int count = 0;
-	private final Map<Id<Link>, LinkData> linkData;
+	private Map<Id<Link>, LinkData> linkData;
 	private final int nofHours;
 	private final Network network;
 
@@ -70,7 +70,6 @@ public class CalcLinkStats {
 	@Inject
 	public CalcLinkStats(final Network network) {
 		this.network = network;
-		this.linkData = new TreeMap<>();
 		this.nofHours = 24;
 		reset();
 	}
@@ -146,7 +145,8 @@ public class CalcLinkStats {
 	}
 
 	public void reset() {
-		this.linkData.clear();
+		// a new map instead of clearing the old one, as a writer created by createFileWriter() may still use it
+		this.linkData = new TreeMap<>();
 		this.count = 0;
 		log.info( " resetting `count' to zero.  This info is here since we want to check when this" +
 				" is happening during normal simulation runs.  kai, jan'11") ;
@@ -160,6 +160,21 @@ public class CalcLinkStats {
 	}
 
 	public void writeFile(final String filename) {
+		writeFile(filename, this.linkData, this.count);
+	}
+
+	/**
+	 * Returns a task that writes the data as it is now to the given file, like {@link #writeFile(String)}, e.g. to
+	 * write it in the background.  The task does not see any data added after the next {@link #reset()}, but it
+	 * must be run before more data is added without a reset.
+	 */
+	public Runnable createFileWriter(final String filename) {
+		final Map<Id<Link>, LinkData> data = this.linkData;
+		final int count = this.count;
+		return () -> writeFile(filename, data, count);
+	}
+
+	private void writeFile(final String filename, final Map<Id<Link>, LinkData> linkData, final int count) {
 		BufferedWriter out = null;
 		try {
 			out = IOUtils.getBufferedWriter(filename);
@@ -182,7 +197,7 @@ public class CalcLinkStats {
 			out.write("\n");
 
 			// write data
-			for (Map.Entry<Id<Link>, LinkData> entry : this.linkData.entrySet()) {
+			for (Map.Entry<Id<Link>, LinkData> entry : linkData.entrySet()) {
 				Id<Link> linkId = entry.getKey();
 				LinkData data = entry.getValue();
 				Link link = this.network.getLinks().get(linkId);
@@ -200,7 +215,7 @@ public class CalcLinkStats {
 				for (int i = 0; i < this.nofHours; i++) {
 					out.write("\t" + Double.toString(data.volumes[MIN][i]));
 //					sum[MIN] = sum[MIN] + data.volumes[MIN][i];
-					out.write("\t" + Double.toString((data.volumes[SUM][i]) / this.count));
+					out.write("\t" + Double.toString((data.volumes[SUM][i]) / count));
 //					sum[SUM] = sum[SUM] + data.volumes[SUM][i];
 					out.write("\t" + Double.toString(data.volumes[MAX][i]));
 //					sum[MAX] = sum[MAX] + data.volumes[MAX][i];
@@ -208,7 +223,7 @@ public class CalcLinkStats {
 
 				// HRS0-nofHours
 				out.write("\t" + Double.toString(data.volumes[MIN][this.nofHours]));
-				out.write("\t" + Double.toString((data.volumes[SUM][this.nofHours]) / this.count));
+				out.write("\t" + Double.toString((data.volumes[SUM][this.nofHours]) / count));
 				out.write("\t" + Double.toString(data.volumes[MAX][this.nofHours]));
 
 				// TRAVELTIME0-1, TRAVELTIME1-2, ... TRAVELTIME23-24
@@ -0,0 +1,212 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * FusedAnalysisHandler.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import java.util.Arrays;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.handler.ActivityEndEventHandler;
+import org.matsim.api.core.v01.events.handler.ActivityStartEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonArrivalEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonDepartureEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonStuckEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleEntersTrafficEventHandler;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.api.experimental.events.EventsManager;
+
+/**
+ * Feeds the event based analyses of the controler, i.e. the {@link VolumesAnalyzer}, the {@link LegHistogram} and the
+ * {@link CalcLegTimes}, from a single events handler, instead of registering each of them with the events manager.
+ * <p></p>
+ * The state of each person (whether it is part of the population, when it departed and arrived, and its last
+ * activity type) is tracked only once, here, in arrays indexed by {@link Id#index()} of the person, and the
+ * analyses are fed with the results.  The vehicles are only tracked by the {@link VolumesAnalyzer}, which stores its
+ * link volumes in arrays, too.  The analyses register themselves when they are created by the injector; they are
+ * reset together with this handler.
+ * <p></p>
+ * The other default analyses, e.g. the {@link TravelDistanceStats} or the mode statistics, are calculated from the
+ * plans, and the {@link CalcLinkStats} from the {@link VolumesAnalyzer}, so they are not handled here.
+ */
+@Singleton
+/* deliberately package */ final class FusedAnalysisHandler implements LinkLeaveEventHandler, VehicleEntersTrafficEventHandler,
+		PersonDepartureEventHandler, PersonArrivalEventHandler, PersonStuckEventHandler, ActivityEndEventHandler,
+		ActivityStartEventHandler {
+
+	private static final byte UNKNOWN = 0;
+	private static final byte IN_POPULATION = 1;
+	private static final byte NOT_IN_POPULATION = 2;
+
+	private final Population population;
+
+	private VolumesAnalyzer volumesAnalyzer = null;
+	private LegHistogram legHistogram = null;
+	private CalcLegTimes legTimes = null;
+
+	/* the following are indexed by Id.index() of the person */
+	private byte[] inPopulation = new byte[0];
+	private double[] departureTimes = new double[0];
+	private double[] arrivalTimes = new double[0];
+	private String[] previousActTypes = new String[0];
+
+	@Inject
+	FusedAnalysisHandler(final Population population, final EventsManager eventsManager) {
+		this.population = population;
+		eventsManager.addHandler(this);
+	}
+
+	void setVolumesAnalyzer(final VolumesAnalyzer volumesAnalyzer) {
+		checkNotSet(this.volumesAnalyzer);
+		this.volumesAnalyzer = volumesAnalyzer;
+	}
+
+	void setLegHistogram(final LegHistogram legHistogram) {
+		checkNotSet(this.legHistogram);
+		this.legHistogram = legHistogram;
+	}
+
+	void setLegTimes(final CalcLegTimes legTimes) {
+		checkNotSet(this.legTimes);
+		this.legTimes = legTimes;
+	}
+
+	private static void checkNotSet(final Object analysis) {
+		if (analysis != null) {
+			throw new IllegalStateException(analysis.getClass().getSimpleName() + " is already fed by this handler.  Is it not bound as singleton?");
+		}
+	}
+
+	@Override
+	public void handleEvent(final VehicleEntersTrafficEvent event) {
+		if (this.volumesAnalyzer != null) {
+			this.volumesAnalyzer.handleEvent(event);
+		}
+	}
+
+	@Override
+	public void handleEvent(final LinkLeaveEvent event) {
+		if (this.volumesAnalyzer != null) {
+			this.volumesAnalyzer.handleEvent(event);
+		}
+	}
+
+	@Override
+	public void handleEvent(final ActivityEndEvent event) {
+		if (this.legTimes != null) {
+			int index = ensureCapacity(event.getPersonId());
+			this.previousActTypes[index] = event.getActType();
+		}
+	}
+
+	@Override
+	public void handleEvent(final PersonDepartureEvent event) {
+		int index = ensureCapacity(event.getPersonId());
+		if (this.legHistogram != null && isInPopulation(event.getPersonId(), index)) {
+			this.legHistogram.countDeparture(event.getLegMode(), event.getTime());
+		}
+		this.departureTimes[index] = event.getTime();
+	}
+
+	@Override
+	public void handleEvent(final PersonArrivalEvent event) {
+		int index = ensureCapacity(event.getPersonId());
+		if (this.legHistogram != null && isInPopulation(event.getPersonId(), index)) {
+			this.legHistogram.countArrival(event.getLegMode(), event.getTime());
+		}
+		this.arrivalTimes[index] = event.getTime();
+	}
+
+	@Override
+	public void handleEvent(final PersonStuckEvent event) {
+		int index = ensureCapacity(event.getPersonId());
+		if (this.legHistogram != null && isInPopulation(event.getPersonId(), index)) {
+			this.legHistogram.countStuck(event.getLegMode(), event.getTime());
+		}
+	}
+
+	@Override
+	public void handleEvent(final ActivityStartEvent event) {
+		int index = ensureCapacity(event.getPersonId());
+		double departureTime = this.departureTimes[index];
+		double arrivalTime = this.arrivalTimes[index];
+		this.departureTimes[index] = Double.NaN;
+		this.arrivalTimes[index] = Double.NaN;
+		if (this.legTimes != null && !Double.isNaN(departureTime)) {
+			String fromActType = this.previousActTypes[index];
+			this.previousActTypes[index] = null;
+			this.legTimes.addLeg(fromActType, event.getActType(), arrivalTime - departureTime);
+		}
+	}
+
+	private boolean isInPopulation(final Id<Person> personId, final int index) {
+		byte state = this.inPopulation[index];
+		if (state == UNKNOWN) {
+			state = this.population.getPersons().containsKey(personId) ? IN_POPULATION : NOT_IN_POPULATION;
+			this.inPopulation[index] = state;
+		}
+		return state == IN_POPULATION;
+	}
+
+	private int ensureCapacity(final Id<Person> personId) {
+		int index = personId.index();
+		if (index >= this.inPopulation.length) {
+			int oldLength = this.inPopulation.length;
+			int length = Math.max(index + 1, 2 * oldLength);
+			this.inPopulation = Arrays.copyOf(this.inPopulation, length);
+			this.departureTimes = Arrays.copyOf(this.departureTimes, length);
+			this.arrivalTimes = Arrays.copyOf(this.arrivalTimes, length);
+			this.previousActTypes = Arrays.copyOf(this.previousActTypes, length);
+			Arrays.fill(this.departureTimes, oldLength, length, Double.NaN);
+			Arrays.fill(this.arrivalTimes, oldLength, length, Double.NaN);
+		}
+		return index;
+	}
+
+	@Override
+	public void reset(final int iteration) {
+		// the population may have changed between the iterations
+		Arrays.fill(this.inPopulation, UNKNOWN);
+		Arrays.fill(this.departureTimes, Double.NaN);
+		Arrays.fill(this.arrivalTimes, Double.NaN);
+		Arrays.fill(this.previousActTypes, null);
+		if (this.volumesAnalyzer != null) {
+			this.volumesAnalyzer.reset(iteration);
+		}
+		if (this.legHistogram != null) {
+			this.legHistogram.reset(iteration);
+		}
+		if (this.legTimes != null) {
+			this.legTimes.reset(iteration);
+		}
+	}
+
+}
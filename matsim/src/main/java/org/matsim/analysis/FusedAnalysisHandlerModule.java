@@ -1,10 +1,10 @@
 /* *********************************************************************** *
  * project: org.matsim.*
- * MapBasedDataContainerProvider.java
+ * FusedAnalysisHandlerModule.java
  *                                                                         *
  * *********************************************************************** *
  *                                                                         *
- * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
  *                   LICENSE and WARRANTY file.                            *
  * email           : info at matsim dot org                                *
  *                                                                         *
@@ -18,32 +18,31 @@
  *                                                                         *
  * *********************************************************************** */
 
-package org.matsim.withinday.trafficmonitoring;
+package org.matsim.analysis;
 
-import java.util.Map;
+import com.google.inject.AbstractModule;
+import com.google.inject.Singleton;
 
-import org.matsim.api.core.v01.Id;
-import org.matsim.api.core.v01.network.Link;
-import org.matsim.withinday.trafficmonitoring.WithinDayTravelTime.TravelTimeInfo;
+/**
+ * Binds the {@link FusedAnalysisHandler}.  It is installed by each module of an analysis that is fed by the handler,
+ * so that these modules also work on their own.  All instances of this module are equal, so Guice installs it, and
+ * binds the handler, only once.
+ */
+/* deliberately package */ final class FusedAnalysisHandlerModule extends AbstractModule {
 
-public class MapBasedTravelTimeInfoProvider implements TravelTimeInfoProvider {
-
-	private final Map<Id<Link>, TravelTimeInfo> linkData;
-	
-	public MapBasedTravelTimeInfoProvider(Map<Id<Link>, TravelTimeInfo> linkData) {
-		this.linkData = linkData;
+	@Override
+	protected void configure() {
+		bind(FusedAnalysisHandler.class).in(Singleton.class);
 	}
-	
-	@Override 
-	public TravelTimeInfo getTravelTimeInfo(final Id<Link> linkId) {
-		TravelTimeInfo data = this.linkData.get(linkId);
-		return data;
+
+	@Override
+	public boolean equals(final Object obj) {
+		return obj instanceof FusedAnalysisHandlerModule;
 	}
-		
+
 	@Override
-	public TravelTimeInfo getTravelTimeInfo(Link link) {
-		Id<Link> linkId = link.getId();
-		return this.getTravelTimeInfo(linkId);
+	public int hashCode() {
+		return FusedAnalysisHandlerModule.class.hashCode();
 	}
-	
-}
\ No newline at end of file
+
+}
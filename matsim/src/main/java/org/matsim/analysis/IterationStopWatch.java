@@ -183,6 +183,25 @@ public final class IterationStopWatch {
 		this.currentIterationValues.put(identifier, Long.valueOf(System.currentTimeMillis()));
 	}
 
+	/**
+	 * @param iteration
+	 * @param identifier The name of the operation.
+	 * @return the duration of the operation in the given iteration in milliseconds, or <code>null</code> if the
+	 * operation has not both begun and ended in that iteration
+	 */
+	public Long getOperationDuration(final int iteration, final String identifier) {
+		Map<String, Long> data = this.iterations.get(iteration);
+		if (data == null) {
+			return null;
+		}
+		Long startTime = data.get("BEGIN " + identifier);
+		Long endTime = data.get("END " + identifier);
+		if (startTime == null || endTime == null) {
+			return null;
+		}
+		return endTime - startTime;
+	}
+
 	/**
 	 * Writes the gathered data tab-separated into a text file.
 	 *
@@ -28,8 +28,6 @@ import org.matsim.api.core.v01.events.handler.PersonArrivalEventHandler;
 import org.matsim.api.core.v01.events.handler.PersonDepartureEventHandler;
 import org.matsim.api.core.v01.events.handler.PersonStuckEventHandler;
 import org.matsim.api.core.v01.population.Person;
-import org.matsim.api.core.v01.population.Population;
-import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.misc.Time;
 
@@ -58,14 +56,10 @@ public class LegHistogram implements PersonDepartureEventHandler, PersonArrivalE
 	private final Map<String, DataFrame> data = new TreeMap<>();
 
 	@Inject
-	LegHistogram(Population population, EventsManager eventsManager) {
+	LegHistogram(FusedAnalysisHandler fusedAnalysisHandler) {
 		this(300);
-		if (population == null) {
-			this.personIds = null;
-		} else {
-			this.personIds = population.getPersons().keySet();
-		}
-		eventsManager.addHandler(this);
+		// (the handler only passes on the legs of the persons in the population, so there is no need to filter them here)
+		fusedAnalysisHandler.setLegHistogram(this);
 	}
 
 	/**
@@ -94,28 +88,42 @@ public class LegHistogram implements PersonDepartureEventHandler, PersonArrivalE
 
 	@Override
 	public void handleEvent(final PersonDepartureEvent event) {
-		int index = getBinIndex(event.getTime());
-		if ((this.personIds == null || this.personIds.contains(event.getPersonId())) && event.getLegMode() != null) {
-			DataFrame dataFrame = getDataForMode(event.getLegMode());
-			dataFrame.countsDep[index]++;
+		if (this.personIds == null || this.personIds.contains(event.getPersonId())) {
+			countDeparture(event.getLegMode(), event.getTime());
 		}
 	}
 
 	@Override
 	public void handleEvent(final PersonArrivalEvent event) {
-		int index = getBinIndex(event.getTime());
-		if ((this.personIds == null || this.personIds.contains(event.getPersonId())) && event.getLegMode() != null) {
-			DataFrame dataFrame = getDataForMode(event.getLegMode());
-			dataFrame.countsArr[index]++;
+		if (this.personIds == null || this.personIds.contains(event.getPersonId())) {
+			countArrival(event.getLegMode(), event.getTime());
 		}
 	}
 
 	@Override
 	public void handleEvent(final PersonStuckEvent event) {
-		int index = getBinIndex(event.getTime());
-		if ((this.personIds == null || this.personIds.contains(event.getPersonId())) && event.getLegMode() != null) {
-			DataFrame dataFrame = getDataForMode(event.getLegMode());
-			dataFrame.countsStuck[index]++;
+		if (this.personIds == null || this.personIds.contains(event.getPersonId())) {
+			countStuck(event.getLegMode(), event.getTime());
+		}
+	}
+
+	/* the following are called by the event handling methods above, or directly by the FusedAnalysisHandler */
+
+	void countDeparture(final String legMode, final double time) {
+		if (legMode != null) {
+			getDataForMode(legMode).countsDep[getBinIndex(time)]++;
+		}
+	}
+
+	void countArrival(final String legMode, final double time) {
+		if (legMode != null) {
+			getDataForMode(legMode).countsArr[getBinIndex(time)]++;
+		}
+	}
+
+	void countStuck(final String legMode, final double time) {
+		if (legMode != null) {
+			getDataForMode(legMode).countsStuck[getBinIndex(time)]++;
 		}
 	}
 
@@ -237,6 +245,22 @@ public class LegHistogram implements PersonDepartureEventHandler, PersonArrivalE
 		return this.iteration;
 	}
 
+	/**
+	 * @return a copy of the data gathered so far, which is not affected by further events or a {@link #reset(int)},
+	 * e.g. to write it in the background
+	 */
+	LegHistogram createSnapshot() {
+		LegHistogram snapshot = new LegHistogram(this.binSize, this.nofBins);
+		snapshot.iteration = this.iteration;
+		for (Map.Entry<String, DataFrame> e : this.data.entrySet()) {
+			DataFrame copy = snapshot.getDataForMode(e.getKey());
+			System.arraycopy(e.getValue().countsDep, 0, copy.countsDep, 0, copy.countsDep.length);
+			System.arraycopy(e.getValue().countsArr, 0, copy.countsArr, 0, copy.countsArr.length);
+			System.arraycopy(e.getValue().countsStuck, 0, copy.countsStuck, 0, copy.countsStuck.length);
+		}
+		return snapshot;
+	}
+
 	DataFrame getAllModesData() {
 		DataFrame result = new DataFrame(this.binSize, this.nofBins + 1);
 		for (DataFrame byMode : this.data.values()) {
@@ -24,6 +24,7 @@ import org.apache.log4j.Logger;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.OutputWriterPool;
 import org.matsim.core.controler.events.IterationEndsEvent;
 import org.matsim.core.controler.events.IterationStartsEvent;
 import org.matsim.core.controler.listener.IterationEndsListener;
@@ -43,6 +44,7 @@ final class LegHistogramListener implements IterationEndsListener, IterationStar
 	@Inject private LegHistogram histogram;
 	@Inject private ControlerConfigGroup controlerConfigGroup;
 	@Inject private OutputDirectoryHierarchy controlerIO;
+	@Inject private OutputWriterPool outputWriterPool;
 
 	static private final Logger log = Logger.getLogger(LegHistogramListener.class);
 
@@ -53,15 +55,18 @@ final class LegHistogramListener implements IterationEndsListener, IterationStar
 
 	@Override
 	public void notifyIterationEnds(final IterationEndsEvent event) {
-		this.histogram.write(controlerIO.getIterationFilename(event.getIteration(), "legHistogram.txt"));
-		this.printStats();
-		if (controlerConfigGroup.isCreateGraphs()) {
-			LegHistogramChart.writeGraphic(this.histogram, controlerIO.getIterationFilename(event.getIteration(), "legHistogram_all.png"));
-			for (String legMode : this.histogram.getLegModes()) {
-				LegHistogramChart.writeGraphic(this.histogram, controlerIO.getIterationFilename(event.getIteration(), "legHistogram_" + legMode + ".png"), legMode);
+		final LegHistogram data = this.outputWriterPool.isWritingInBackground() ? this.histogram.createSnapshot() : this.histogram;
+		final boolean createGraphs = controlerConfigGroup.isCreateGraphs();
+		this.outputWriterPool.submit("leg histogram of iteration " + event.getIteration(), () -> {
+			data.write(controlerIO.getIterationFilename(event.getIteration(), "legHistogram.txt"));
+			if (createGraphs) {
+				LegHistogramChart.writeGraphic(data, controlerIO.getIterationFilename(event.getIteration(), "legHistogram_all.png"));
+				for (String legMode : data.getLegModes()) {
+					LegHistogramChart.writeGraphic(data, controlerIO.getIterationFilename(event.getIteration(), "legHistogram_" + legMode + ".png"), legMode);
+				}
 			}
-		}
-
+		});
+		this.printStats();
 	}
 
 	private void printStats() {
@@ -29,6 +29,7 @@ public class LegTimesModule extends AbstractModule {
     @Override
     public void install() {
         bind(CalcLegTimes.class).in(Singleton.class);
+        install(new FusedAnalysisHandlerModule());
         addControlerListenerBinding().to(LegTimesControlerListener.class);
     }
 }
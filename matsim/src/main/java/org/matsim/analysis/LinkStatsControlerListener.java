@@ -24,6 +24,7 @@ import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.LinkStatsConfigGroup;
 import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.OutputWriterPool;
 import org.matsim.core.controler.events.IterationEndsEvent;
 import org.matsim.core.controler.events.IterationStartsEvent;
 import org.matsim.core.controler.listener.IterationEndsListener;
@@ -44,6 +45,7 @@ final class LinkStatsControlerListener implements IterationEndsListener, Iterati
 	@Inject private CalcLinkStats linkStats;
 	@Inject private VolumesAnalyzer volumes;
 	@Inject private OutputDirectoryHierarchy controlerIO;
+	@Inject private OutputWriterPool outputWriterPool;
 	@Inject private Map<String, TravelTime> travelTime;
     private int iterationsUsed = 0;
 	private boolean doReset = false;
@@ -58,7 +60,9 @@ final class LinkStatsControlerListener implements IterationEndsListener, Iterati
 		}
 
 		if (createLinkStatsInIteration(iteration)) {
-			linkStats.writeFile(this.controlerIO.getIterationFilename(iteration, Controler.FILENAME_LINKSTATS));
+			// the data is reset (not modified) at the next iteration start, so it can be written in the background
+			this.outputWriterPool.submit("link stats of iteration " + iteration,
+					linkStats.createFileWriter(this.controlerIO.getIterationFilename(iteration, Controler.FILENAME_LINKSTATS)));
 			this.doReset = true;
 		}
 	}
@@ -0,0 +1,129 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * MetricsControlerListener.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.Locale;
+
+import javax.inject.Inject;
+
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.events.StartupEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.controler.listener.StartupListener;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.core.utils.metrics.CounterMetric;
+import org.matsim.core.utils.metrics.HistogramMetric;
+import org.matsim.core.utils.metrics.MetricsRegistry;
+
+/**
+ * Enables the {@link MetricsRegistry} for the run and writes all its metrics to <code>metrics.csv</code>, one line
+ * per metric and iteration.  Metrics recorded before the first iteration, e.g. by the initial routing, are counted
+ * to the first iteration.
+ * <p></p>
+ * Some steps of an iteration, e.g. the iteration ends listeners, run after all listeners of the iteration, so the
+ * metrics of an iteration are written only when the next iteration starts, or at shutdown for the last one.
+ */
+public final class MetricsControlerListener implements StartupListener, IterationStartsListener, ShutdownListener {
+
+	public static final String FILENAME_METRICS = "metrics.csv";
+
+	private static final String SEPARATOR = ";";
+
+	private final String filename;
+	private BufferedWriter out = null;
+	private int iteration = -1;
+
+	@Inject
+	MetricsControlerListener(OutputDirectoryHierarchy controlerIO) {
+		this.filename = controlerIO.getOutputFilename(FILENAME_METRICS);
+	}
+
+	@Override
+	public void notifyStartup(final StartupEvent event) {
+		MetricsRegistry.reset();
+		MetricsRegistry.setEnabled(true);
+		this.out = IOUtils.getBufferedWriter(this.filename);
+		write("iteration", "metric", "type", "value", "count", "min", "mean", "p50", "p90", "p99", "max");
+	}
+
+	@Override
+	public void notifyIterationStarts(final IterationStartsEvent event) {
+		if (this.iteration >= 0) {
+			writeMetrics();
+			MetricsRegistry.reset();
+		}
+		this.iteration = event.getIteration();
+	}
+
+	@Override
+	public void notifyShutdown(final ShutdownEvent event) {
+		MetricsRegistry.setEnabled(false);
+		if (this.iteration >= 0) {
+			writeMetrics();
+		}
+		try {
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		MetricsRegistry.reset();
+	}
+
+	private void writeMetrics() {
+		String it = Integer.toString(this.iteration);
+		for (CounterMetric counter : MetricsRegistry.getCounters()) {
+			write(it, counter.getName(), "counter", Long.toString(counter.get()), "", "", "", "", "", "", "");
+		}
+		for (HistogramMetric histogram : MetricsRegistry.getHistograms()) {
+			write(it, histogram.getName(), "histogram", Long.toString(histogram.getSum()), Long.toString(histogram.getCount()),
+					Long.toString(histogram.getMin()), String.format(Locale.ROOT, "%.2f", histogram.getMean()),
+					Long.toString(histogram.getPercentile(0.5)), Long.toString(histogram.getPercentile(0.9)),
+					Long.toString(histogram.getPercentile(0.99)), Long.toString(histogram.getMax()));
+		}
+		HistogramMetric queries = MetricsRegistry.histogram(MetricsRegistry.ROUTING_QUERY_NANOS);
+		if (queries.getCount() > 0) {
+			// the query times of parallel threads add up, so their sum is not the wall time and no rate can be derived from it
+			double meanQueryNanos = (double) queries.getSum() / queries.getCount();
+			write(it, "routing.meanQueryNanos", "mean", String.format(Locale.ROOT, "%.1f", meanQueryNanos), "", "", "", "", "", "", "");
+		}
+		try {
+			this.out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void write(final String... columns) {
+		try {
+			this.out.write(String.join(SEPARATOR, columns));
+			this.out.newLine();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
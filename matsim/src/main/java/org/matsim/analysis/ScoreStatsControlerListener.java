@@ -234,6 +234,26 @@ public class ScoreStatsControlerListener implements StartupListener, IterationEn
 
 	}
 
+	/**
+	 * Restores the statistics of earlier iterations, e.g. when the iterations are resumed from a checkpoint.  The restored
+	 * iterations are written to the scorestats file again, so that it is complete.
+	 */
+	public void restoreScoreHistory(final Map<ScoreItem, Map<Integer, Double>> history) {
+		for ( ScoreItem item : ScoreItem.values() ) {
+			this.scoreHistory.get( item ).putAll( history.get( item ) ) ;
+		}
+		try {
+			for (Integer iteration : history.get( ScoreItem.executed ).keySet()) {
+				this.out.write(iteration + "\t" + history.get( ScoreItem.executed ).get( iteration ) + "\t" +
+						history.get( ScoreItem.worst ).get( iteration ) + "\t" + history.get( ScoreItem.average ).get( iteration ) + "\t" +
+						history.get( ScoreItem.best ).get( iteration ) + "\n");
+			}
+			this.out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
 	@Override
 	public Map<ScoreItem, Map<Integer, Double>> getScoreHistory() {
 		return Collections.unmodifiableMap( this.scoreHistory ) ;
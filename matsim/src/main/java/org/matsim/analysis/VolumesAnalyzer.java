@@ -20,7 +20,10 @@
 
 package org.matsim.analysis;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
@@ -33,13 +36,14 @@ import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
 import org.matsim.api.core.v01.events.handler.VehicleEntersTrafficEventHandler;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
-import org.matsim.vehicles.Vehicle;
-import org.matsim.core.api.experimental.events.EventsManager;
 
 import javax.inject.Inject;
 
 /**
  * Counts the number of vehicles leaving a link, aggregated into time bins of a specified size.
+ * <p></p>
+ * The volumes are stored in arrays indexed by {@link Id#index()} of the links (and the index of the mode), so that
+ * counting a vehicle does not need any map lookup.
  *
  * @author mrieser
  */
@@ -49,17 +53,24 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 	private final int timeBinSize;
 	private final int maxTime;
 	private final int maxSlotIndex;
-	private final Map<Id<Link>, int[]> links;
+	/* indexed by Id.index() of the link, null if no vehicle left the link */
+	private int[][] links;
+	private final Set<Id<Link>> linkIds = new HashSet<>();
 	
 	// for multi-modal support
 	private final boolean observeModes;
-	private final Map<Id<Vehicle>, String> enRouteModes;
-	private final Map<Id<Link>, Map<String, int[]>> linksPerMode;
+	/* indexed by Id.index() of the vehicle, the index of its mode + 1, or 0 if the mode is not known */
+	private int[] enRouteModes;
+	/* indexed by Id.index() of the link and the index of the mode */
+	private int[][][] linksPerMode;
+	private final Map<String, Integer> modeIndices = new HashMap<>();
+	private String[] modesByIndex = new String[0];
+	private final Set<String> observedModes = new HashSet<>();
 
 	@Inject
-	VolumesAnalyzer(Network network, EventsManager eventsManager) {
+	VolumesAnalyzer(Network network, FusedAnalysisHandler fusedAnalysisHandler) {
 		this(3600, 24 * 3600 - 1, network);
-		eventsManager.addHandler(this);
+		fusedAnalysisHandler.setVolumesAnalyzer(this);
 	}
 
 	public VolumesAnalyzer(final int timeBinSize, final int maxTime, final Network network) {
@@ -70,12 +81,16 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 		this.timeBinSize = timeBinSize;
 		this.maxTime = maxTime;
 		this.maxSlotIndex = (this.maxTime/this.timeBinSize) + 1;
-		this.links = new HashMap<>((int) (network.getLinks().size() * 1.1), 0.95f);
+		int maxLinkIndex = -1;
+		for (Id<Link> linkId : network.getLinks().keySet()) {
+			maxLinkIndex = Math.max(maxLinkIndex, linkId.index());
+		}
+		this.links = new int[maxLinkIndex + 1][];
 		
 		this.observeModes = observeModes;
 		if (this.observeModes) {
-			this.enRouteModes = new HashMap<>();
-			this.linksPerMode = new HashMap<>((int) (network.getLinks().size() * 1.1), 0.95f);
+			this.enRouteModes = new int[0];
+			this.linksPerMode = new int[maxLinkIndex + 1][][];
 		} else {
 			this.enRouteModes = null;
 			this.linksPerMode = null;
@@ -85,36 +100,65 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 	@Override
 	public void handleEvent(VehicleEntersTrafficEvent event) {
 		if (observeModes) {
-			enRouteModes.put(event.getVehicleId(), event.getNetworkMode());
+			int vehicleIndex = event.getVehicleId().index();
+			if (vehicleIndex >= this.enRouteModes.length) {
+				this.enRouteModes = Arrays.copyOf(this.enRouteModes, Math.max(vehicleIndex + 1, 2 * this.enRouteModes.length));
+			}
+			this.enRouteModes[vehicleIndex] = getModeIndex(event.getNetworkMode()) + 1;
 		}
 	}
 	
 	@Override
 	public void handleEvent(final LinkLeaveEvent event) {
-		int[] volumes = this.links.get(event.getLinkId());
+		int linkIndex = event.getLinkId().index();
+		if (linkIndex >= this.links.length) {
+			this.links = Arrays.copyOf(this.links, Math.max(linkIndex + 1, 2 * this.links.length));
+			if (observeModes) {
+				this.linksPerMode = Arrays.copyOf(this.linksPerMode, this.links.length);
+			}
+		}
+		int[] volumes = this.links[linkIndex];
 		if (volumes == null) {
 			volumes = new int[this.maxSlotIndex + 1]; // initialized to 0 by default, according to JVM specs
-			this.links.put(event.getLinkId(), volumes);
+			this.links[linkIndex] = volumes;
+			this.linkIds.add(event.getLinkId());
 		}
 		int timeslot = getTimeSlotIndex(event.getTime());
 		volumes[timeslot]++;
 		
 		if (observeModes) {
-			Map<String, int[]> modeVolumes = this.linksPerMode.get(event.getLinkId());
-			if (modeVolumes == null) {
-				modeVolumes = new HashMap<>();
-				this.linksPerMode.put(event.getLinkId(), modeVolumes);
+			int vehicleIndex = event.getVehicleId().index();
+			int modeIndex = (vehicleIndex < this.enRouteModes.length ? this.enRouteModes[vehicleIndex] : 0) - 1;
+			if (modeIndex < 0) {
+				// the vehicle has not entered traffic, so its mode is not known
+				modeIndex = getModeIndex(null);
+			}
+			int[][] modeVolumes = this.linksPerMode[linkIndex];
+			if (modeVolumes == null || modeIndex >= modeVolumes.length) {
+				modeVolumes = modeVolumes == null ? new int[this.modesByIndex.length][] : Arrays.copyOf(modeVolumes, this.modesByIndex.length);
+				this.linksPerMode[linkIndex] = modeVolumes;
 			}
-			String mode = enRouteModes.get(event.getVehicleId());
-			volumes = modeVolumes.get(mode);
+			volumes = modeVolumes[modeIndex];
 			if (volumes == null) {
 				volumes = new int[this.maxSlotIndex + 1]; // initialized to 0 by default, according to JVM specs
-				modeVolumes.put(mode, volumes);
+				modeVolumes[modeIndex] = volumes;
+				this.observedModes.add(this.modesByIndex[modeIndex]);
 			}
 			volumes[timeslot]++;
 		}
 	}
 
+	private int getModeIndex(final String mode) {
+		Integer index = this.modeIndices.get(mode);
+		if (index == null) {
+			index = this.modesByIndex.length;
+			this.modeIndices.put(mode, index);
+			this.modesByIndex = Arrays.copyOf(this.modesByIndex, index + 1);
+			this.modesByIndex[index] = mode;
+		}
+		return index;
+	}
+
 	private int getTimeSlotIndex(final double time) {
 		if (time > this.maxTime) {
 			return this.maxSlotIndex;
@@ -128,7 +172,8 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 	 * 		starting with time bin 0 from 0 seconds to (timeBinSize-1)seconds.
 	 */
 	public int[] getVolumesForLink(final Id<Link> linkId) {
-		return this.links.get(linkId);
+		int linkIndex = linkId.index();
+		return linkIndex < this.links.length ? this.links[linkIndex] : null;
 	}
 	
 	/**
@@ -139,8 +184,12 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 	 */
 	public int[] getVolumesForLink(final Id<Link> linkId, String mode) {
 		if (observeModes) {
-			Map<String, int[]> modeVolumes = this.linksPerMode.get(linkId);
-			if (modeVolumes != null) return modeVolumes.get(mode);
+			int linkIndex = linkId.index();
+			Integer modeIndex = this.modeIndices.get(mode);
+			if (linkIndex < this.linksPerMode.length && modeIndex != null) {
+				int[][] modeVolumes = this.linksPerMode[linkIndex];
+				if (modeVolumes != null && modeIndex < modeVolumes.length) return modeVolumes[modeIndex];
+			}
 		} 
 		return null;
 	}
@@ -175,48 +224,52 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 	 * Thus, starting time = (hour = 0) * 3600.0
 	 */
 	public double[] getVolumesPerHourForLink(final Id<Link> linkId) {
-		if (3600.0 % this.timeBinSize != 0) log.error("Volumes per hour and per link probably not correct!");
-		
 		double[] volumes = new double[24];
-		
-		int[] volumesForLink = this.getVolumesForLink(linkId);
-		if (volumesForLink == null) return volumes;
-
-		int slotsPerHour = (int)(3600.0 / this.timeBinSize);
-		for (int hour = 0; hour < 24; hour++) {
-			double time = hour * 3600.0;
-			for (int i = 0; i < slotsPerHour; i++) {
-				volumes[hour] += volumesForLink[this.getTimeSlotIndex(time)];
-				time += this.timeBinSize;
-			}
-		}
+		this.addVolumesPerHourForLink(linkId, volumes);
 		return volumes;
 	}
 
 	public double[] getVolumesPerHourForLink(final Id<Link> linkId, String mode) {
 		if (observeModes) {
-			if (3600.0 % this.timeBinSize != 0) log.error("Volumes per hour and per link probably not correct!");
-			
 			double [] volumes = new double[24];
-			for (int hour = 0; hour < 24; hour++) {
-				volumes[hour] = 0.0;
-			}
-			
-			int[] volumesForLink = this.getVolumesForLink(linkId, mode);
-			if (volumesForLink == null) return volumes;
-	
-			int slotsPerHour = (int)(3600.0 / this.timeBinSize);
-			for (int hour = 0; hour < 24; hour++) {
-				double time = hour * 3600.0;
-				for (int i = 0; i < slotsPerHour; i++) {
-					volumes[hour] += volumesForLink[this.getTimeSlotIndex(time)];
-					time += this.timeBinSize;
-				}
-			}
+			this.addVolumesPerHourForLink(linkId, mode, volumes);
 			return volumes;
 		}
 		return null;
 	}
+
+	/**
+	 * Adds the number of vehicles leaving the link <code>linkId</code> per hour to <code>volumesPerHour</code>,
+	 * which must have at least 24 entries. Unlike {@link #getVolumesPerHourForLink(Id)}, no array is created, so
+	 * volumes can be summed up e.g. over several iterations.
+	 */
+	public void addVolumesPerHourForLink(final Id<Link> linkId, final double[] volumesPerHour) {
+		this.addVolumesPerHour(this.getVolumesForLink(linkId), volumesPerHour);
+	}
+
+	/**
+	 * Adds the number of vehicles using the specified mode leaving the link <code>linkId</code> per hour to
+	 * <code>volumesPerHour</code>. Nothing is added if modes are not observed.
+	 */
+	public void addVolumesPerHourForLink(final Id<Link> linkId, final String mode, final double[] volumesPerHour) {
+		if (observeModes) {
+			this.addVolumesPerHour(this.getVolumesForLink(linkId, mode), volumesPerHour);
+		}
+	}
+
+	private void addVolumesPerHour(final int[] volumesForLink, final double[] volumesPerHour) {
+		if (3600.0 % this.timeBinSize != 0) log.error("Volumes per hour and per link probably not correct!");
+		if (volumesForLink == null) return;
+
+		int slotsPerHour = (int)(3600.0 / this.timeBinSize);
+		for (int hour = 0; hour < 24; hour++) {
+			double time = hour * 3600.0;
+			for (int i = 0; i < slotsPerHour; i++) {
+				volumesPerHour[hour] += volumesForLink[this.getTimeSlotIndex(time)];
+				time += this.timeBinSize;
+			}
+		}
+	}
 	
 	/**
 	 * @return Set of Strings containing all modes for which counting-values are available.
@@ -224,8 +277,11 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 	public Set<String> getModes() {
 		Set<String> modes = new TreeSet<>();
 		
-		for (Map<String, int[]> map : this.linksPerMode.values()) {
-			modes.addAll(map.keySet());
+		for (String mode : this.observedModes) {
+			// vehicles without a known mode are not counted per mode
+			if (mode != null) {
+				modes.add(mode);
+			}
 		}
 		
 		return modes;
@@ -235,15 +291,22 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 	 * @return Set of Strings containing all link ids for which counting-values are available.
 	 */
 	public Set<Id<Link>> getLinkIds() {
-		return this.links.keySet();
+		return Collections.unmodifiableSet(this.linkIds);
 	}
 
 	@Override
 	public void reset(final int iteration) {
-		this.links.clear();
+		// new arrays are created in the next iteration, so arrays returned before are not modified anymore
+		for (Id<Link> linkId : this.linkIds) {
+			this.links[linkId.index()] = null;
+			if (observeModes) {
+				this.linksPerMode[linkId.index()] = null;
+			}
+		}
+		this.linkIds.clear();
 		if (observeModes) {
-			this.linksPerMode.clear();
-			this.enRouteModes.clear();
+			Arrays.fill(this.enRouteModes, 0);
+			this.observedModes.clear();
 		}
 	}
 }
@@ -29,6 +29,7 @@ public class VolumesAnalyzerModule extends AbstractModule {
     @Override
     public void install() {
         bind(VolumesAnalyzer.class).asEagerSingleton();
+        install(new FusedAnalysisHandlerModule());
     }
 
 }
@@ -20,6 +20,7 @@
 
 package org.matsim.api.core.v01;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -40,7 +41,7 @@ import org.matsim.vehicles.Vehicle;
  */
 public abstract class Id<T> implements Comparable<Id<T>> {
 
-	private final static Map<Class<?>, Map<String, Id<?>>> cache = new ConcurrentHashMap<Class<?>, Map<String, Id<?>>>();
+	private final static Map<Class<?>, IdCache> cache = new ConcurrentHashMap<Class<?>, IdCache>();
 	
 	
 	public static <T> Id<T> create(final long key, final Class<T> type) {
@@ -55,23 +56,47 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	}
 	
 	/**
-	 * This method supports a cache where ids are stored and re-used per type.   
+	 * This method supports a cache where ids are stored and re-used per type.  Every newly created id additionally
+	 * gets a dense, per-type index (see {@link #index()}), which allows to store data per id in plain arrays.
 	 */
 	public static <T> Id<T> create(final String key, final Class<T> type) {
-		Map<String, Id<?>> map = cache.get(type);
-		if (map == null) {
-			map = new ConcurrentHashMap<String, Id<?>>();
-			cache.put(type, map);
-		}
+		IdCache idCache = cache.computeIfAbsent(type, k -> new IdCache());
 		Gbl.assertNotNull(key);
-		Id<?> id = map.get(key);
+		Id<?> id = idCache.byKey.get(key);
 		if (id == null) {
-			id = new IdImpl<T>(key);
-			map.put(key, id);
+			id = idCache.add(key);
 		}
 		
 		return (Id<T>) id;
 	}
+
+	/**
+	 * @return the id of the given type that was created with the given index, or <code>null</code> if no such id exists.
+	 *
+	 * @see #index()
+	 */
+	public static <T> Id<T> get(final int index, final Class<T> type) {
+		IdCache idCache = cache.get(type);
+		if (idCache == null) {
+			return null;
+		}
+		return (Id<T>) idCache.get(index);
+	}
+
+	/**
+	 * @return the number of ids created so far for the given type. All ids of this type have an index between
+	 * <code>0</code> (inclusive) and this number (exclusive).
+	 */
+	public static <T> int getNumberOfIds(final Class<T> type) {
+		IdCache idCache = cache.get(type);
+		return idCache == null ? 0 : idCache.size;
+	}
+
+	/**
+	 * @return a dense index of this id, unique per type. Indices are assigned in creation order, starting at <code>0</code>.
+	 * They are only valid within the running JVM and must not be written to file.
+	 */
+	public abstract int index();
 	
 	/**
 	 * @return <code>0</code> when the two objects being compared are the same objects, other values according to their ids being compared to each other.
@@ -101,6 +126,45 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	}
 
 	
+	/**
+	 * The ids of one type, by key and by index.  Lookups do not lock:  a new id is added while holding the lock on the
+	 * cache, and the index array is replaced by a larger copy when it is full.  The id is stored in the array and
+	 * <code>size</code> is written before the id is put into <code>byKey</code>, so every thread that can see the id,
+	 * or reads a <code>size</code> that includes it, also sees it in the array.
+	 */
+	private static final class IdCache {
+
+		private final Map<String, Id<?>> byKey = new ConcurrentHashMap<String, Id<?>>();
+		private volatile Id<?>[] byIndex = new Id<?>[16];
+		private volatile int size = 0;
+
+		Id<?> get(final int index) {
+			// read size first, the array read afterwards is at least as new
+			int size = this.size;
+			if (index < 0 || index >= size) {
+				return null;
+			}
+			return this.byIndex[index];
+		}
+
+		synchronized Id<?> add(final String key) {
+			Id<?> id = this.byKey.get(key);
+			if (id == null) {
+				int index = this.size;
+				Id<?>[] ids = this.byIndex;
+				if (index == ids.length) {
+					ids = Arrays.copyOf(ids, 2 * ids.length);
+					this.byIndex = ids;
+				}
+				id = new IdImpl<Object>(key, index);
+				ids[index] = id;
+				this.size = index + 1;
+				this.byKey.put(key, id);
+			}
+			return id;
+		}
+	}
+
 	/**
 	 * The default implementation to be used for Ids.
 	 * Have this as a separate class instead of integrated into the Id class
@@ -113,9 +177,16 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	private static class IdImpl<T> extends Id<T> {
 
 		private final String id; 
+		private final int index;
 		
-		/*package*/ IdImpl(final String id) {
+		/*package*/ IdImpl(final String id, final int index) {
 			this.id = id;
+			this.index = index;
+		}
+
+		@Override
+		public int index() {
+			return this.index;
 		}
 
 		@Override
@@ -56,6 +56,10 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final String OVERWRITE_FILE = "overwriteFiles";
 	private static final String CREATE_GRAPHS = "createGraphs";
 	private static final String DUMP_DATA_AT_END = "dumpDataAtEnd";
+	private static final String WRITE_METRICS = "writeMetrics";
+	private static final String NUMBER_OF_OUTPUT_WRITER_THREADS = "numberOfOutputWriterThreads";
+	private static final String WRITE_CHECKPOINT_INTERVAL = "writeCheckpointInterval";
+	private static final String RESUME_FROM_CHECKPOINT = "resumeFromCheckpoint";
 
 	/*package*/ static final String MOBSIM = "mobsim";
 	public enum MobsimType {qsim, JDEQSim}
@@ -81,6 +85,10 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private int writeSnapshotsInterval = 1;
 	private boolean createGraphs = true;
 	private boolean dumpDataAtEnd = true;
+	private boolean writeMetrics = false;
+	private int numberOfOutputWriterThreads = 0;
+	private int writeCheckpointInterval = 0;
+	private String resumeFromCheckpoint = null;
 	private OverwriteFileSetting overwriteFileSetting = OverwriteFileSetting.failIfDirectoryExists;
 
 	public ControlerConfigGroup() {
@@ -120,6 +128,17 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		map.put(WRITE_SNAPSHOTS_INTERVAL, "iterationNumber % " + WRITE_SNAPSHOTS_INTERVAL + " == 0 defines in which iterations snapshots are written " +
 				"to a file. `0' disables snapshots writing completely");
 		map.put(DUMP_DATA_AT_END, "true if at the end of a run, plans, network, config etc should be dumped to a file");
+		map.put(WRITE_METRICS, "Default=false; true if detailed performance metrics (mobsim time per sim step, router queries, " +
+				"events queue depth, GC time per iteration phase etc.) should be recorded and written to metrics.csv.");
+		map.put(NUMBER_OF_OUTPUT_WRITER_THREADS, "Default=0; number of threads that write output files like plans dumps, link stats or " +
+				"leg histograms in the background while the iterations go on. `0' writes all output on the controler thread.");
+		map.put(WRITE_CHECKPOINT_INTERVAL, "Default=0; iterationNumber % " + WRITE_CHECKPOINT_INTERVAL + " == 0 defines in which iterations " +
+				"a checkpoint (population with all plans and scores, travel times and score statistics) is written to a binary file, " +
+				"the checkpoint of the last iteration is always written.  `0' disables checkpoints completely.");
+		map.put(RESUME_FROM_CHECKPOINT, "Default=null; a checkpoint file written by an earlier run with the same config.  If set, the " +
+				"population is not read from the plans file, but restored from the checkpoint before the startup listeners, and the iterations " +
+				"continue after the iteration of the checkpoint.  Existing files in the output directory are overwritten, whatever the " +
+				"overwrite setting is.  Can also be set with the command line option --resume of the Controler.");
 		return map;
 	}
 
@@ -342,6 +361,46 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public void setDumpDataAtEnd(boolean dumpDataAtEnd) {
 		this.dumpDataAtEnd = dumpDataAtEnd;
 	}
+
+	@StringGetter(WRITE_METRICS)
+	public boolean isWriteMetrics() {
+		return writeMetrics;
+	}
+
+	@StringSetter(WRITE_METRICS)
+	public void setWriteMetrics(boolean writeMetrics) {
+		this.writeMetrics = writeMetrics;
+	}
+
+	@StringGetter(NUMBER_OF_OUTPUT_WRITER_THREADS)
+	public int getNumberOfOutputWriterThreads() {
+		return numberOfOutputWriterThreads;
+	}
+
+	@StringSetter(NUMBER_OF_OUTPUT_WRITER_THREADS)
+	public void setNumberOfOutputWriterThreads(int numberOfOutputWriterThreads) {
+		this.numberOfOutputWriterThreads = numberOfOutputWriterThreads;
+	}
+
+	@StringGetter(WRITE_CHECKPOINT_INTERVAL)
+	public int getWriteCheckpointInterval() {
+		return writeCheckpointInterval;
+	}
+
+	@StringSetter(WRITE_CHECKPOINT_INTERVAL)
+	public void setWriteCheckpointInterval(int writeCheckpointInterval) {
+		this.writeCheckpointInterval = writeCheckpointInterval;
+	}
+
+	@StringGetter(RESUME_FROM_CHECKPOINT)
+	public String getResumeFromCheckpoint() {
+		return resumeFromCheckpoint;
+	}
+
+	@StringSetter(RESUME_FROM_CHECKPOINT)
+	public void setResumeFromCheckpoint(String resumeFromCheckpoint) {
+		this.resumeFromCheckpoint = resumeFromCheckpoint;
+	}
 	// ---
 	int writePlansUntilIteration = 1 ;
 	public int getWritePlansUntilIteration() {
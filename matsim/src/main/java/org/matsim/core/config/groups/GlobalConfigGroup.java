@@ -39,10 +39,12 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 
 	private static final String RANDOM_SEED = "randomSeed";
 	private static final String NUMBER_OF_THREADS = "numberOfThreads";
+	private static final String NUMBER_OF_READER_THREADS = "numberOfReaderThreads";
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
 
 	private long randomSeed = 4711L;
 	private int numberOfThreads = 2;
+	private int numberOfReaderThreads = 1;
 	private String coordinateSystem = "Atlantis" ;
 	// see https://matsim.atlassian.net/browse/MATSIM-898
 	
@@ -52,6 +54,9 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		map.put(NUMBER_OF_THREADS, "\"global\" number of threads.  "
 				+ "This number is used, e.g., for replanning, but NOT in the mobsim.  "
 				+ "This can typically be set to as many cores as you have available, or possibly even slightly more.") ;
+		map.put(NUMBER_OF_READER_THREADS, "number of threads used to build the persons, nodes, links and facilities when reading "
+				+ "population_v6, network_v2 and facilities_v1 files.  The default of 1 reads them sequentially.  "
+				+ "With more threads, the coordinate transformation of a file is used by several threads at once, so it must be thread-safe.") ;
 		return map ;
 	}
 
@@ -76,6 +81,15 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.numberOfThreads = numberOfThreads;
 	}
 
+	@StringGetter( NUMBER_OF_READER_THREADS )
+	public int getNumberOfReaderThreads() {
+		return this.numberOfReaderThreads;
+	}
+	@StringSetter( NUMBER_OF_READER_THREADS )
+	public void setNumberOfReaderThreads(final int numberOfReaderThreads) {
+		this.numberOfReaderThreads = numberOfReaderThreads;
+	}
+
 	@StringGetter( COORDINATE_SYSTEM )
 	public String getCoordinateSystem() {
 		return this.coordinateSystem;
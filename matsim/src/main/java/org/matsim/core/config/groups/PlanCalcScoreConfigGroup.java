@@ -65,6 +65,8 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 
 	private static final String WRITE_EXPERIENCED_PLANS = "writeExperiencedPlans";
 
+	private static final String NUMBER_OF_SCORING_THREADS = "numberOfScoringThreads";
+
 	private static final String MARGINAL_UTL_OF_MONEY = "marginalUtilityOfMoney";
 
 	private static final String UTL_OF_LINE_SWITCH = "utilityOfLineSwitch";
@@ -396,6 +398,9 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 				"[utils/unit_of_money] conversion of money (e.g. toll, distance cost) into utils. Normall positive (i.e. toll/cost/fare are processed as negative amounts of money).");
 		map.put(WRITE_EXPERIENCED_PLANS,
 				"write a plans file in each iteration directory which contains what each agent actually did, and the score it received.");
+		map.put(NUMBER_OF_SCORING_THREADS,
+				"number of threads the events are scored on. The persons are partitioned among the threads. 0 (default): the "
+						+ "events are scored on the events handling thread.");
 
 		return map;
 	}
@@ -641,6 +646,14 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 		return delegate.getLearningRate();
 	}
 
+	public int getNumberOfScoringThreads() {
+		return delegate.getNumberOfScoringThreads();
+	}
+
+	public void setNumberOfScoringThreads(int numberOfScoringThreads) {
+		delegate.setNumberOfScoringThreads(numberOfScoringThreads);
+	}
+
 	public void setLearningRate(double learningRate) {
 		delegate.setLearningRate(learningRate);
 	}
@@ -1518,6 +1531,8 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 
 		private boolean writeExperiencedPlans = false;
 
+		private int numberOfScoringThreads = 0;
+
 		private Double fractionOfIterationsToStartScoreMSA = null;
 
 		private boolean usingOldScoringBelowZeroUtilityDuration = false;
@@ -1591,5 +1606,16 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 			this.writeExperiencedPlans = writeExperiencedPlans;
 		}
 
+		@StringGetter(NUMBER_OF_SCORING_THREADS)
+		public int getNumberOfScoringThreads() {
+			return numberOfScoringThreads;
+		}
+
+		@StringSetter(NUMBER_OF_SCORING_THREADS)
+		public void setNumberOfScoringThreads(int numberOfScoringThreads) {
+			testForLocked();
+			this.numberOfScoringThreads = numberOfScoringThreads;
+		}
+
 	}
 }
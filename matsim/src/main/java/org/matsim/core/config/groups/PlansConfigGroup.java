@@ -37,6 +37,8 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 	}
 
 	public enum ActivityDurationInterpretation { minOfDurationAndEndTime, tryEndTimeThenDuration, @Deprecated endTimeOnly }
+	public enum PlanStorage { objects, compact, delta }
+	public enum PopulationStorage { heap, offHeap }
 	private static final String INPUT_FILE = "inputPlansFile";
 	private static final String INPUT_PERSON_ATTRIBUTES_FILE = "inputPersonAttributesFile";
 	private static final String NETWORK_ROUTE_TYPE = "networkRouteType";
@@ -87,6 +89,14 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		comments.put(REMOVING_UNNECESSARY_PLAN_ATTRIBUTES, "(not tested) will remove plan attributes that are presumably not used, such as " +
                 "activityStartTime. default=false. Use with Caution!");
 
+		comments.put(NON_SELECTED_PLAN_STORAGE, "Defines how the non-selected plans of a person are stored in memory between iterations. " +
+				PlanStorage.objects + " (default): as plain plan elements. " + PlanStorage.compact + ": encoded into primitive arrays " +
+				"at the end of each iteration, which is restored transparently when a plan is accessed. " + PlanStorage.delta +
+				": like " + PlanStorage.compact + ", but one non-selected plan is stored in full and the others only as their differences to it.");
+		comments.put(POPULATION_STORAGE, "Defines where the persons are stored. " + PopulationStorage.heap + " (default): as objects " +
+				"on the Java heap. " + PopulationStorage.offHeap + ": in a memory-mapped file in the temporary directory, persons are " +
+				"materialized when accessed and written back when many other persons were accessed since. Meant for very large scenarios.");
+
 		comments.put( INPUT_CRS , "The Coordinates Reference System in which the coordinates are expressed in the input file." +
 				" At import, the coordinates will be converted to the coordinate system defined in \"global\", and will" +
 				"be converted back at export. If not specified, no conversion happens." );
@@ -180,6 +190,29 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		this.removingUnneccessaryPlanAttributes = removingUnneccessaryPlanAttributes;
 	}
 
+	// ---
+
+	private static final String NON_SELECTED_PLAN_STORAGE = "nonSelectedPlanStorage";
+	private PlanStorage nonSelectedPlanStorage = PlanStorage.objects;
+	@StringGetter(NON_SELECTED_PLAN_STORAGE)
+	public PlanStorage getNonSelectedPlanStorage() {
+		return this.nonSelectedPlanStorage;
+	}
+	@StringSetter(NON_SELECTED_PLAN_STORAGE)
+	public void setNonSelectedPlanStorage(final PlanStorage nonSelectedPlanStorage) {
+		this.nonSelectedPlanStorage = nonSelectedPlanStorage;
+	}
+
+	private static final String POPULATION_STORAGE = "populationStorage";
+	private PopulationStorage populationStorage = PopulationStorage.heap;
+	@StringGetter(POPULATION_STORAGE)
+	public PopulationStorage getPopulationStorage() {
+		return this.populationStorage;
+	}
+	@StringSetter(POPULATION_STORAGE)
+	public void setPopulationStorage(final PopulationStorage populationStorage) {
+		this.populationStorage = populationStorage;
+	}
 
 	@StringGetter( INPUT_CRS )
 	public String getInputCRS() {
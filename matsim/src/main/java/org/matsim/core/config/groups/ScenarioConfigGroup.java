@@ -19,6 +19,8 @@
  * *********************************************************************** */
 package org.matsim.core.config.groups;
 
+import java.net.URL;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.apache.log4j.Logger;
@@ -38,11 +40,13 @@ public final class ScenarioConfigGroup extends ConfigGroup {
 	private static final String USE_TRANSIT = "useTransit";
 	private static final String USE_VEHICLES = "useVehicles";
 	private static final String SIMULATION_PERIOD_DAYS = "simulationPeriodInDays"; // is not yet written to log-output so we can still rename it internally
+	private static final String BINARY_INPUT_FILE = "binaryInputFile";
 	
 	@SuppressWarnings("unused")
 	private static final Logger log = Logger.getLogger( ScenarioConfigGroup.class ) ;
 
 	private double simulationPeriodInDays = 1.0;
+	private String binaryInputFile = null;
 	
 	public ScenarioConfigGroup() {
 		super(GROUP_NAME);
@@ -58,6 +62,9 @@ public final class ScenarioConfigGroup extends ConfigGroup {
 		map.put(USE_HOUSEHOLDS, message); // since jul'15
 		map.put(USE_VEHICLES, message); // since jul'15
 		map.put(USE_TRANSIT, "Deprecated, do not use.  See transit section of config file.") ; // since jul'15
+		map.put(BINARY_INPUT_FILE, "If set, the network, population, facilities, vehicles and transit schedule are loaded from this binary file, "
+				+ "which is much faster than reading the xml files.  The input files of the other sections are ignored then.  "
+				+ "The file can be created with org.matsim.core.scenario.BinaryScenarioWriter.");
 		
 		return map;
 	}
@@ -75,6 +82,8 @@ public final class ScenarioConfigGroup extends ConfigGroup {
 			this.setUseVehicles( Boolean.parseBoolean(value) );
 		} else if (USE_TRANSIT.equals(paramName)) {
 			this.setUseTransit( Boolean.parseBoolean(value) );
+		} else if (BINARY_INPUT_FILE.equals(paramName)) {
+			this.setBinaryInputFile( value );
 		} else {
 			throw new IllegalArgumentException("Parameter '" + paramName + "' is not supported by config group '" + GROUP_NAME + "'.");
 		}
@@ -86,7 +95,10 @@ public final class ScenarioConfigGroup extends ConfigGroup {
 
 	@Override
 	public final Map<String, String> getParams() {
-		Map<String, String> params = super.getParams();
+		Map<String, String> params = new LinkedHashMap<>(super.getParams());
+		if (this.binaryInputFile != null) {
+			params.put(BINARY_INPUT_FILE, this.binaryInputFile);
+		}
 		return params;
 	}
 
@@ -137,6 +149,21 @@ public final class ScenarioConfigGroup extends ConfigGroup {
 		return this.simulationPeriodInDays;
 	}
 
+
+	@StringSetter( BINARY_INPUT_FILE )
+	public void setBinaryInputFile(final String binaryInputFile) {
+		this.binaryInputFile = binaryInputFile;
+	}
+
+	@StringGetter( BINARY_INPUT_FILE )
+	public String getBinaryInputFile() {
+		return this.binaryInputFile;
+	}
+
+	public URL getBinaryInputFileURL(final URL context) {
+		return ConfigGroup.getInputFileURL(context, this.binaryInputFile);
+	}
+
 	
 	private static String getMessage( String module ) {
 		return "The " + module + " switch is no longer operational.  The file is loaded if the file name"
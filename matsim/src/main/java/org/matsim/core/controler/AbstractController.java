@@ -24,6 +24,7 @@ import org.matsim.analysis.IterationStopWatch;
 import org.matsim.core.config.Config;
 import org.matsim.core.controler.listener.ControlerListener;
 import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.utils.metrics.MetricsRegistry;
 
 /*package*/ abstract class AbstractController {
     // we already had one case where a method of this was removed, causing downstream failures; better just not
@@ -74,10 +75,12 @@ import org.matsim.core.gbl.MatsimRandom;
             @Override
             public void run() throws MatsimRuntimeModifications.UnexpectedShutdownException {
                 loadCoreListeners();
+                restorePopulation();
                 controlerListenerManagerImpl.fireControlerStartupEvent();
                 ControlerUtils.checkConfigConsistencyAndWriteToLog(config, "config dump before iterations start");
+                Integer restoredIteration = restoreIterations();
                 prepareForSim();
-                doIterations(config);
+                doIterations(config, restoredIteration == null ? config.controler().getFirstIteration() : restoredIteration + 1);
             }
 
             @Override
@@ -97,6 +100,25 @@ import org.matsim.core.gbl.MatsimRandom;
     
     protected abstract void prepareForMobsim() ;
 
+    /**
+     * Restores the population of an earlier run, e.g. from a checkpoint, before the startup listeners are called.
+     */
+    protected abstract void restorePopulation();
+
+    /**
+     * Restores the rest of the state of an earlier run after the startup listeners, before {@link #prepareForSim()} is called.
+     *
+     * @return the last iteration of the earlier run, so that the iterations continue with the next one, or null if the
+     * iterations start from the first iteration
+     */
+    protected abstract Integer restoreIterations();
+
+    /**
+     * Called at the end of every iteration, after the iteration ends listeners, to save the state of the iterations if
+     * required.
+     */
+    protected abstract void writeCheckpoint(int iteration);
+
     /**
      * Stopping criterion for iterations.  Design thoughts:<ul>
      * <li> AbstractController only controls process, not content.  Stopping iterations controls process based on content.
@@ -107,8 +129,9 @@ import org.matsim.core.gbl.MatsimRandom;
      */
     protected abstract boolean continueIterations(int iteration);
 
-    private void doIterations(Config config) throws MatsimRuntimeModifications.UnexpectedShutdownException {
-        for (int iteration = config.controler().getFirstIteration(); continueIterations(iteration); iteration++) {
+    private void doIterations(Config config, int startIteration) throws MatsimRuntimeModifications.UnexpectedShutdownException {
+        // replanning only depends on the configured first iteration, so it also takes place in the first resumed iteration
+        for (int iteration = startIteration; continueIterations(iteration); iteration++) {
             iteration(config, iteration);
         }
     }
@@ -159,6 +182,8 @@ import org.matsim.core.gbl.MatsimRandom;
             }
         });
 
+        writeCheckpoint(iteration);
+
         this.getStopwatch().endIteration();
         this.getStopwatch().writeTextFile(this.getControlerIO().getOutputFilename("stopwatch"));
         if (config.controler().isCreateGraphs()) {
@@ -226,7 +251,11 @@ import org.matsim.core.gbl.MatsimRandom;
 
     private void iterationStep(String iterationStepName, Runnable iterationStep) throws MatsimRuntimeModifications.UnexpectedShutdownException {
         this.getStopwatch().beginOperation(iterationStepName);
+        long gcTime = MetricsRegistry.isEnabled() ? MetricsRegistry.getGcTimeMillis() : 0;
         iterationStep.run();
+        if (MetricsRegistry.isEnabled()) {
+            MetricsRegistry.counter(MetricsRegistry.GC_MILLIS_PREFIX + iterationStepName).add(MetricsRegistry.getGcTimeMillis() - gcTime);
+        }
         this.getStopwatch().endOperation(iterationStepName);
         if (Thread.interrupted()) {
             throw new MatsimRuntimeModifications.UnexpectedShutdownException();
@@ -128,7 +128,7 @@ public final class Controler implements ControlerI, MatsimServices, AllowsConfig
 	public static void main(final String[] args) {
 		if ((args == null) || (args.length == 0)) {
 			System.out.println("No argument given!");
-			System.out.println("Usage: Controler config-file [dtd-file]");
+			System.out.println("Usage: Controler config-file [dtd-file] [--resume checkpoint-file]");
 			System.out.println();
 		} else {
 			final Controler controler = new Controler(args);
@@ -145,10 +145,20 @@ public final class Controler implements ControlerI, MatsimServices, AllowsConfig
 	 *            <code>args[0]</code> is expected to contain the path to a
 	 *            configuration file, <code>args[1]</code>, if set, is expected
 	 *            to contain the path to a local copy of the DTD file used in
-	 *            the configuration file.
+	 *            the configuration file.  <code>--resume checkpoint-file</code>
+	 *            after the configuration file continues the iterations from a
+	 *            checkpoint, see {@link org.matsim.core.config.groups.ControlerConfigGroup#setResumeFromCheckpoint(String)}.
 	 */
 	public Controler(final String[] args) {
 		this(args.length > 0 ? args[0] : null, null, null);
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].equals("--resume")) {
+				if (i + 1 == args.length) {
+					throw new IllegalArgumentException("--resume needs the checkpoint file as argument.");
+				}
+				this.config.controler().setResumeFromCheckpoint(args[++i]);
+			}
+		}
 	}
 
 	public Controler(final String configFileName) {
@@ -210,6 +220,10 @@ public final class Controler implements ControlerI, MatsimServices, AllowsConfig
 		// And this happens silently, leading to lots of time and hair lost.
 		// td, nov 16
 		this.injectorCreated = true;
+
+		if (this.config.controler().getResumeFromCheckpoint() != null) {
+			prepareConfigForResume();
+		}
 		
 		this.overrides = AbstractModule.override(Collections.singletonList(this.overrides), new AbstractModule() {
 			@Override
@@ -241,6 +255,21 @@ public final class Controler implements ControlerI, MatsimServices, AllowsConfig
 	}
 
 
+	private void prepareConfigForResume() {
+		if (this.scenario == null && this.config.plans().getInputFile() != null) {
+			log.info("resuming from a checkpoint, the plans file " + this.config.plans().getInputFile() + " is not read.");
+			this.config.plans().setInputFile(null);
+		}
+		// the output of the iterations before the checkpoint must be kept, and so must be the checkpoint itself
+		if (this.config.controler().getOverwriteFileSetting() != OutputDirectoryHierarchy.OverwriteFileSetting.overwriteExistingFiles) {
+			log.warn("resuming from a checkpoint, so the output directory must already exist. The overwrite file setting is changed from "
+					+ this.config.controler().getOverwriteFileSetting() + " to "
+					+ OutputDirectoryHierarchy.OverwriteFileSetting.overwriteExistingFiles + ", existing files are overwritten.");
+			this.config.controler().setOverwriteFileSetting(OutputDirectoryHierarchy.OverwriteFileSetting.overwriteExistingFiles);
+		}
+	}
+
+
 	// ******** --------- *******
 	// The following is the internal interface of the Controler, which
 	// is meant to be called while the Controler is running (not before)..
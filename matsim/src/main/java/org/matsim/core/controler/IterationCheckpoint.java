@@ -0,0 +1,437 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IterationCheckpoint.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.analysis.ScoreStats;
+import org.matsim.analysis.ScoreStatsControlerListener;
+import org.matsim.analysis.ScoreStatsControlerListener.ScoreItem;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.Config;
+import org.matsim.core.population.PersonBinaryCodec;
+import org.matsim.core.population.PersonBinaryCodec.IdAndStringReader;
+import org.matsim.core.population.PersonBinaryCodec.IdAndStringWriter;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+
+import com.google.inject.Binding;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.name.Named;
+
+/**
+ * Writes the state of the iterations to a binary file after an iteration, and restores it from such a file, so that
+ * a run can be continued after the iteration of the checkpoint without reading the plans file again.
+ * <p></p>
+ * A checkpoint contains the iteration, the population with all plans and scores (see {@link PersonBinaryCodec}),
+ * the travel times of all {@link TravelTimeCalculator}s and the score statistics.  The random numbers and the
+ * weights of the replanning strategies need not be stored, as they are derived from the iteration number.  Not
+ * restored are the statistics of other analyses (e.g. mode statistics, averaged link stats), which start again with
+ * the first resumed iteration.
+ * <p></p>
+ * See {@link org.matsim.core.config.groups.ControlerConfigGroup#setWriteCheckpointInterval(int)} and
+ * {@link org.matsim.core.config.groups.ControlerConfigGroup#setResumeFromCheckpoint(String)}.
+ */
+/* deliberately package */ final class IterationCheckpoint {
+	private static final Logger log = Logger.getLogger(IterationCheckpoint.class);
+
+	static final String FILENAME = "checkpoint.bin";
+
+	private static final int MAGIC = 0x4d534350; // "MSCP"
+	private static final int VERSION = 1;
+
+	private final Config config;
+	private final Scenario scenario;
+	private final OutputDirectoryHierarchy controlerIO;
+	private final Injector injector;
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+
+	/** set by restorePopulation(): the iteration of the checkpoint, and where the state after the population starts */
+	private Integer restoredIteration = null;
+	private long stateOffset = 0;
+
+	@Inject
+	IterationCheckpoint(final Config config, final Scenario scenario, final OutputDirectoryHierarchy controlerIO,
+			final Injector injector, final Map<Class<?>, AttributeConverter<?>> attributeConverters) {
+		this.config = config;
+		this.scenario = scenario;
+		this.controlerIO = controlerIO;
+		this.injector = injector;
+		this.attributesConverter.putAttributeConverters(attributeConverters);
+	}
+
+	boolean isCheckpointIteration(final int iteration) {
+		int interval = this.config.controler().getWriteCheckpointInterval();
+		return interval > 0 && (iteration % interval == 0 || iteration == this.config.controler().getLastIteration());
+	}
+
+	/**
+	 * Writes the checkpoint of <code>iteration</code> into the iteration directory.
+	 */
+	void write(final int iteration) {
+		String filename = this.controlerIO.getIterationFilename(iteration, FILENAME);
+		log.info("writing checkpoint of iteration " + iteration + " to " + filename);
+		long start = System.currentTimeMillis();
+		// write to a temporary file first, so that a crash while writing does not leave a broken checkpoint behind
+		Path path = Paths.get(filename);
+		Path tmpPath = Paths.get(filename + ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpPath.toFile()), 1 << 16))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(iteration);
+				out.writeLong(this.config.global().getRandomSeed());
+				writePopulation(out, this.scenario.getPopulation(), this.attributesConverter);
+				writeTravelTimes(out, this.injector);
+				writeScoreStats(out, this.injector);
+			}
+			Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		log.info("wrote checkpoint of iteration " + iteration + " in " + (System.currentTimeMillis() - start) + " ms.");
+	}
+
+	/**
+	 * Restores the population from the checkpoint set in the config, if any.  Called before the startup listeners, so
+	 * that they already see the restored population.  The rest of the state is restored by {@link #restore()}.
+	 */
+	void restorePopulation() {
+		String filename = this.config.controler().getResumeFromCheckpoint();
+		if (filename == null) {
+			return;
+		}
+		log.info("restoring the population from checkpoint " + filename);
+		long start = System.currentTimeMillis();
+		try (CountingInputStream counting = new CountingInputStream(new BufferedInputStream(new FileInputStream(filename), 1 << 16));
+				DataInputStream in = new DataInputStream(counting)) {
+			if (in.readInt() != MAGIC) {
+				throw new IllegalArgumentException(filename + " is not a checkpoint file.");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IllegalArgumentException(filename + " has version " + version + ", but only version " + VERSION
+						+ " is supported.");
+			}
+			int iteration = in.readInt();
+			if (iteration < this.config.controler().getFirstIteration()) {
+				throw new IllegalArgumentException("the checkpoint is of iteration " + iteration + ", which is before the first iteration "
+						+ this.config.controler().getFirstIteration() + ".");
+			}
+			long randomSeed = in.readLong();
+			if (randomSeed != this.config.global().getRandomSeed()) {
+				log.warn("the checkpoint was written with random seed " + randomSeed + ", but the random seed is now "
+						+ this.config.global().getRandomSeed() + ".  The resumed iterations will differ from the original run.");
+			}
+			readPopulation(in, this.scenario.getPopulation(), this.attributesConverter);
+			this.restoredIteration = iteration;
+			this.stateOffset = counting.getCount();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		log.info("restored " + this.scenario.getPopulation().getPersons().size() + " persons of iteration " + this.restoredIteration
+				+ " in " + (System.currentTimeMillis() - start) + " ms.");
+	}
+
+	/**
+	 * Restores the rest of the state of the iterations from the checkpoint set in the config, if any.  Must be called
+	 * after {@link #restorePopulation()} and after the startup listeners, as e.g. the score statistics are initialized there.
+	 *
+	 * @return the iteration of the checkpoint, or null if no checkpoint is set in the config
+	 */
+	Integer restore() {
+		String filename = this.config.controler().getResumeFromCheckpoint();
+		if (filename == null) {
+			return null;
+		}
+		if (this.restoredIteration == null) {
+			throw new IllegalStateException("the population must be restored from the checkpoint first.");
+		}
+		log.info("restoring the travel times and score statistics from checkpoint " + filename);
+		try (FileInputStream file = new FileInputStream(filename)) {
+			file.getChannel().position(this.stateOffset);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16));
+			readTravelTimes(in, this.injector);
+			readScoreStats(in, this.injector);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		log.info("restored iteration " + this.restoredIteration + ".");
+		return this.restoredIteration;
+	}
+
+	static void writePopulation(final DataOutput out, final Population population, final ObjectAttributesConverter attributesConverter)
+			throws IOException {
+		StringDictionary dictionary = new StringDictionary();
+		PersonBinaryCodec codec = new PersonBinaryCodec(population.getFactory(), attributesConverter, dictionary, null);
+		dictionary.writeString(out, population.getName());
+		codec.writeAttributes(out, population.getAttributes());
+		out.writeInt(population.getPersons().size());
+		for (Person person : population.getPersons().values()) {
+			codec.write(out, person);
+		}
+	}
+
+	/**
+	 * Replaces the persons of <code>population</code> by the ones of the checkpoint.
+	 */
+	static void readPopulation(final DataInput in, final Population population, final ObjectAttributesConverter attributesConverter)
+			throws IOException {
+		List<Id<Person>> oldIds = new ArrayList<>(population.getPersons().keySet());
+		for (Id<Person> id : oldIds) {
+			population.removePerson(id);
+		}
+		StringDictionary dictionary = new StringDictionary();
+		PersonBinaryCodec codec = new PersonBinaryCodec(population.getFactory(), attributesConverter, null, dictionary);
+		population.setName(dictionary.readString(in));
+		codec.readAttributes(in, population.getAttributes());
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			population.addPerson(codec.read(in));
+		}
+	}
+
+	private static void writeTravelTimes(final DataOutput out, final Injector injector) throws IOException {
+		Map<String, Key<TravelTimeCalculator>> calculators = getTravelTimeCalculators(injector);
+		out.writeInt(calculators.size());
+		for (Map.Entry<String, Key<TravelTimeCalculator>> e : calculators.entrySet()) {
+			out.writeUTF(e.getKey());
+			injector.getInstance(e.getValue()).writeTravelTimes(out);
+		}
+	}
+
+	private static void readTravelTimes(final DataInput in, final Injector injector) throws IOException {
+		Map<String, Key<TravelTimeCalculator>> calculators = getTravelTimeCalculators(injector);
+		int count = in.readInt();
+		if (count != calculators.size()) {
+			throw new IllegalArgumentException("the checkpoint has the travel times of " + count + " travel time calculators, but there are "
+					+ calculators.size() + ".  Was it written with a different config?");
+		}
+		for (int i = 0; i < count; i++) {
+			String name = in.readUTF();
+			Key<TravelTimeCalculator> key = calculators.get(name);
+			if (key == null) {
+				throw new IllegalArgumentException("there is no travel time calculator " + name + " for the travel times in the checkpoint.");
+			}
+			injector.getInstance(key).readTravelTimes(in);
+		}
+	}
+
+	/**
+	 * @return the bound travel time calculators, i.e. the one for all modes or one per network mode, by their name
+	 */
+	@SuppressWarnings("unchecked")
+	private static Map<String, Key<TravelTimeCalculator>> getTravelTimeCalculators(final Injector injector) {
+		Map<String, Key<TravelTimeCalculator>> calculators = new TreeMap<>();
+		for (Binding<?> binding : injector.getBindings().values()) {
+			Key<?> key = binding.getKey();
+			if (key.getTypeLiteral().getRawType() == TravelTimeCalculator.class) {
+				Annotation annotation = key.getAnnotation();
+				String name = annotation == null ? "" : annotation instanceof Named ? ((Named) annotation).value() : annotation.toString();
+				calculators.put(name, (Key<TravelTimeCalculator>) key);
+			}
+		}
+		return calculators;
+	}
+
+	private static void writeScoreStats(final DataOutput out, final Injector injector) throws IOException {
+		ScoreStatsControlerListener scoreStats = getScoreStats(injector);
+		if (scoreStats == null) {
+			out.writeBoolean(false);
+			return;
+		}
+		out.writeBoolean(true);
+		Map<ScoreItem, Map<Integer, Double>> history = scoreStats.getScoreHistory();
+		for (ScoreItem item : ScoreItem.values()) {
+			Map<Integer, Double> values = history.get(item);
+			out.writeInt(values.size());
+			for (Map.Entry<Integer, Double> e : values.entrySet()) {
+				out.writeInt(e.getKey());
+				out.writeDouble(e.getValue());
+			}
+		}
+	}
+
+	private static void readScoreStats(final DataInput in, final Injector injector) throws IOException {
+		if (!in.readBoolean()) {
+			return;
+		}
+		Map<ScoreItem, Map<Integer, Double>> history = new EnumMap<>(ScoreItem.class);
+		for (ScoreItem item : ScoreItem.values()) {
+			Map<Integer, Double> values = new TreeMap<>();
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				values.put(in.readInt(), in.readDouble());
+			}
+			history.put(item, values);
+		}
+		ScoreStatsControlerListener scoreStats = getScoreStats(injector);
+		if (scoreStats != null) {
+			scoreStats.restoreScoreHistory(Collections.unmodifiableMap(history));
+		}
+	}
+
+	private static ScoreStatsControlerListener getScoreStats(final Injector injector) {
+		Binding<ScoreStats> binding = injector.getExistingBinding(Key.get(ScoreStats.class));
+		if (binding == null) {
+			return null;
+		}
+		ScoreStats scoreStats = binding.getProvider().get();
+		return scoreStats instanceof ScoreStatsControlerListener ? (ScoreStatsControlerListener) scoreStats : null;
+	}
+
+	/**
+	 * Stores every id or string only once, the first time it is written, and later just its index.  Unlike the
+	 * string table of the binary scenario format, the strings are thus stored in the order they are needed, so
+	 * that the checkpoint can be written and read in a single pass.
+	 */
+	private static final class StringDictionary implements IdAndStringWriter, IdAndStringReader {
+		private static final int NULL = -1;
+		private static final int NEW = -2;
+
+		private final Map<String, Integer> indices = new HashMap<>();
+		private final List<String> strings = new ArrayList<>();
+
+		@Override
+		public void writeId(final DataOutput out, final Id<?> id) throws IOException {
+			writeString(out, id == null ? null : id.toString());
+		}
+
+		@Override
+		public <T> Id<T> readId(final DataInput in, final Class<T> type) throws IOException {
+			String s = readString(in);
+			return s == null ? null : Id.create(s, type);
+		}
+
+		@Override
+		public void writeString(final DataOutput out, final String s) throws IOException {
+			if (s == null) {
+				out.writeInt(NULL);
+				return;
+			}
+			Integer index = this.indices.get(s);
+			if (index != null) {
+				out.writeInt(index);
+				return;
+			}
+			this.indices.put(s, this.strings.size());
+			this.strings.add(s);
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(NEW);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+
+		@Override
+		public String readString(final DataInput in) throws IOException {
+			int index = in.readInt();
+			if (index == NULL) {
+				return null;
+			}
+			if (index != NEW) {
+				return this.strings.get(index);
+			}
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			String s = new String(bytes, StandardCharsets.UTF_8);
+			this.strings.add(s);
+			return s;
+		}
+	}
+
+	/**
+	 * Counts the bytes read, so that the state after the population can be read later without reading the population again.
+	 */
+	private static final class CountingInputStream extends FilterInputStream {
+		private long count = 0;
+
+		CountingInputStream(final InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				this.count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				this.count += n;
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			long skipped = super.skip(n);
+			this.count += skipped;
+			return skipped;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		long getCount() {
+			return this.count;
+		}
+	}
+
+}
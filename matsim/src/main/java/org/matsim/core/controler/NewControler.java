@@ -51,6 +51,8 @@ class NewControler extends AbstractController implements ControlerI {
 	private final Set<ControlerListener> controlerListenersDeclaredByModules;
 	private final ControlerConfigGroup controlerConfigGroup;
 	private final OutputDirectoryHierarchy outputDirectoryHierarchy;
+	private final OutputWriterPool outputWriterPool;
+	private final IterationCheckpoint iterationCheckpoint;
 	
 	@Inject
 	NewControler(Config config, ControlerListenerManagerImpl controlerListenerManager, MatsimServices matsimServices,
@@ -59,7 +61,7 @@ class NewControler extends AbstractController implements ControlerI {
 			 PlansScoring plansScoring, TerminationCriterion terminationCriterion, DumpDataAtEnd dumpDataAtEnd,
 			 Set<ControlerListener> controlerListenersDeclaredByModules, ControlerConfigGroup controlerConfigGroup,
 			 OutputDirectoryHierarchy outputDirectoryHierarchy
-			, PrepareForMobsim prepareForMobsim
+			, PrepareForMobsim prepareForMobsim, OutputWriterPool outputWriterPool, IterationCheckpoint iterationCheckpoint
  ) {
 		super(controlerListenerManager, stopWatch, matsimServices);
 		this.config = config;
@@ -76,6 +78,8 @@ class NewControler extends AbstractController implements ControlerI {
 		this.controlerListenersDeclaredByModules = controlerListenersDeclaredByModules;
 		this.controlerConfigGroup = controlerConfigGroup;
 		this.outputDirectoryHierarchy = outputDirectoryHierarchy;
+		this.outputWriterPool = outputWriterPool;
+		this.iterationCheckpoint = iterationCheckpoint;
 	}
 
 	@Override
@@ -95,6 +99,9 @@ class NewControler extends AbstractController implements ControlerI {
 		 * IMPORTANT: The execution order is reverse to the order the listeners
 		 * are added to the list.
 		 */
+		// must be first being added (=last being executed), so that it waits for all output written in the background
+		this.addCoreControlerListener(this.outputWriterPool);
+
 		if (controlerConfigGroup.getDumpDataAtEnd()) {
 			this.addCoreControlerListener(this.dumpDataAtEnd);
 		}
@@ -121,6 +128,25 @@ class NewControler extends AbstractController implements ControlerI {
 //		this.prepareForSim.run() ;
 	}
 
+	@Override
+	protected final void restorePopulation() {
+		this.iterationCheckpoint.restorePopulation();
+	}
+
+	@Override
+	protected final Integer restoreIterations() {
+		return this.iterationCheckpoint.restore();
+	}
+
+	@Override
+	protected final void writeCheckpoint(int iteration) {
+		if (this.iterationCheckpoint.isCheckpointIteration(iteration)) {
+			this.getStopwatch().beginOperation("writeCheckpoint");
+			this.iterationCheckpoint.write(iteration);
+			this.getStopwatch().endOperation("writeCheckpoint");
+		}
+	}
+
 	@Override
 	protected final void runMobSim() {
 		this.mobsimProvider.get().run();
@@ -11,6 +11,8 @@ public final class NewControlerModule extends AbstractModule {
 		
 		bind(IterationStopWatch.class).asEagerSingleton();
 		bind(OutputDirectoryHierarchy.class).asEagerSingleton();
+		bind(OutputWriterPool.class).asEagerSingleton();
+		bind(IterationCheckpoint.class);
 		bind(TerminationCriterion.class).to(TerminateAtFixedIterationNumber.class);
 		bind(MatsimServices.class).to(MatsimServicesImpl.class);
 
@@ -0,0 +1,169 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * OutputWriterPool.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.log4j.Logger;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.ShutdownListener;
+
+/**
+ * Writes output files in the background, so that the iterations can go on while e.g. a plans dump is written.
+ * <p></p>
+ * A task handed to {@link #submit(String, Runnable)} must only work on data that is not modified afterwards, i.e.
+ * on a snapshot or on data that the caller does not touch anymore (see e.g.
+ * {@link org.matsim.core.population.PopulationSnapshot}).  The pool has
+ * {@link ControlerConfigGroup#getNumberOfOutputWriterThreads()} threads and at most as many waiting tasks; if
+ * it is full, the submitting thread writes the output itself.  With 0 threads, which is the default, every task
+ * is run directly by the submitting thread.
+ * <p></p>
+ * The pool is flushed at shutdown.  Code that needs the output of an earlier iteration, e.g. to read a file again,
+ * has to call {@link #flush()} first.  If writing output fails, the exception is re-thrown by the next call to
+ * {@link #submit(String, Runnable)} or {@link #flush()}.
+ */
+@Singleton
+public final class OutputWriterPool implements ShutdownListener {
+	private static final Logger log = Logger.getLogger(OutputWriterPool.class);
+
+	private final ThreadPoolExecutor executor;
+	private final Queue<Future<?>> pending = new ArrayDeque<>();
+	private volatile Throwable failure = null;
+
+	@Inject
+	OutputWriterPool(final ControlerConfigGroup controlerConfigGroup) {
+		this(controlerConfigGroup.getNumberOfOutputWriterThreads());
+	}
+
+	/*package*/ OutputWriterPool(final int numberOfThreads) {
+		if (numberOfThreads > 0) {
+			final AtomicInteger threadCount = new AtomicInteger();
+			this.executor = new ThreadPoolExecutor(numberOfThreads, numberOfThreads, 0, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<>(numberOfThreads), runnable -> {
+						Thread thread = new Thread(runnable, "OutputWriter-" + threadCount.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}, new ThreadPoolExecutor.CallerRunsPolicy());
+		} else {
+			this.executor = null;
+		}
+	}
+
+	/**
+	 * @return true if submitted tasks are (usually) run in the background, i.e. if it is worth to take a snapshot of
+	 * the data to write
+	 */
+	public boolean isWritingInBackground() {
+		return this.executor != null && !this.executor.isShutdown();
+	}
+
+	/**
+	 * Runs <code>task</code> in the background, or directly if there are no writer threads or the pool is full.
+	 *
+	 * @param description what is written, used for logging
+	 */
+	public void submit(final String description, final Runnable task) {
+		checkFailure();
+		if (!isWritingInBackground()) {
+			task.run();
+			return;
+		}
+		Future<?> future = this.executor.submit(() -> {
+			long start = System.currentTimeMillis();
+			try {
+				task.run();
+			} catch (RuntimeException | Error e) {
+				log.error("writing " + description + " failed.", e);
+				if (this.failure == null) {
+					this.failure = e;
+				}
+				throw e;
+			}
+			log.info("finished writing " + description + " in the background after " + (System.currentTimeMillis() - start) + " ms.");
+		});
+		synchronized (this.pending) {
+			while (!this.pending.isEmpty() && this.pending.peek().isDone()) {
+				this.pending.poll();
+			}
+			this.pending.add(future);
+		}
+	}
+
+	/**
+	 * Waits until all output submitted so far is written.
+	 */
+	public void flush() {
+		while (true) {
+			Future<?> future;
+			synchronized (this.pending) {
+				future = this.pending.poll();
+			}
+			if (future == null) {
+				break;
+			}
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				// recorded as failure, re-thrown below
+			}
+		}
+		checkFailure();
+	}
+
+	private void checkFailure() {
+		Throwable e = this.failure;
+		if (e != null) {
+			throw new RuntimeException("writing output in the background failed.", e);
+		}
+	}
+
+	@Override
+	public void notifyShutdown(final ShutdownEvent event) {
+		if (this.executor == null) {
+			return;
+		}
+		log.info("waiting for the output writers to finish...");
+		try {
+			flush();
+		} catch (RuntimeException e) {
+			if (!event.isUnexpected()) {
+				throw e;
+			}
+		} finally {
+			this.executor.shutdown();
+		}
+	}
+
+}
@@ -12,11 +12,13 @@ import org.matsim.core.config.groups.FacilitiesConfigGroup;
 import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.gbl.Gbl;
+import org.matsim.core.network.NearestLinkIndex;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
 import org.matsim.core.population.algorithms.AbstractPersonAlgorithm;
 import org.matsim.core.population.algorithms.ParallelPersonAlgorithmUtils;
 import org.matsim.core.population.algorithms.PersonPrepareForSim;
+import org.matsim.core.population.algorithms.XY2Links;
 import org.matsim.core.router.PlanRouter;
 import org.matsim.core.router.TripRouter;
 import org.matsim.core.scenario.Lockable;
@@ -117,9 +119,15 @@ public final class PrepareForSimImpl implements PrepareForSim, PrepareForMobsim
 				throw new RuntimeException("Facilities source '"+this.facilitiesConfigGroup.getFacilitiesSource()+"' is not implemented.");
 		}
 
+		// the nearest link lookups of facilities and activities are shared by all threads
+		final NearestLinkIndex nearestLinkIndex = new NearestLinkIndex(carOnlyNetwork);
+
 		// get links for facilities
 		// using car only network to get the links for facilities. Amit July'18
-		XY2LinksForFacilities.run(carOnlyNetwork, this.activityFacilities);
+		XY2LinksForFacilities.run(nearestLinkIndex, this.activityFacilities, globalConfigGroup.getNumberOfThreads());
+		final XY2Links xy2links = new XY2Links(nearestLinkIndex, this.activityFacilities);
+		// look up the links of all activities without link at once, instead of one by one per person
+		xy2links.prepare(population, globalConfigGroup.getNumberOfThreads());
 
 		// make sure all routes are calculated.
 		// At least xy2links is needed here, i.e. earlier than PrepareForMobsimImpl.  It could, however, presumably be separated out
@@ -128,7 +136,7 @@ public final class PrepareForSimImpl implements PrepareForSim, PrepareForMobsim
 				new ParallelPersonAlgorithmUtils.PersonAlgorithmProvider() {
 					@Override
 					public AbstractPersonAlgorithm getPersonAlgorithm() {
-						return new PersonPrepareForSim(new PlanRouter(tripRouterProvider.get(), activityFacilities), scenario, carOnlyNetwork);
+						return new PersonPrepareForSim(new PlanRouter(tripRouterProvider.get(), activityFacilities), scenario, xy2links);
 					}
 				}
 		);
@@ -19,11 +19,15 @@
 
 package org.matsim.core.controler;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.gbl.Gbl;
-import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.NearestLinkIndex;
 import org.matsim.facilities.ActivityFacilities;
 import org.matsim.facilities.ActivityFacility;
 import org.matsim.facilities.ActivityFacilityImpl;
@@ -37,7 +41,17 @@ public class XY2LinksForFacilities {
     public static final Logger LOGGER = Logger.getLogger(XY2LinksForFacilities.class);
 
     public static void run(Network network, ActivityFacilities facilities){
+        run(new NearestLinkIndex(network), facilities, 1);
+    }
 
+    /**
+     * Collects the coordinates of all facilities without link first and looks up their links at once,
+     * using up to <code>numberOfThreads</code> threads.
+     */
+    public static void run(NearestLinkIndex index, ActivityFacilities facilities, int numberOfThreads){
+
+        List<ActivityFacility> withoutLink = new ArrayList<>();
+        List<Coord> coords = new ArrayList<>();
         int coordNullWarn = 0;
         int linkNullWarn = 0;
 
@@ -51,12 +65,8 @@ public class XY2LinksForFacilities {
                     LOGGER.warn(Gbl.ONLYONCE);
                     linkNullWarn++;
                 }
-                Link link = NetworkUtils.getNearestLink(network, activityFacility.getCoord());
-                if (link==null) {
-                    LOGGER.warn("No nearest link is found for coord "+activityFacility.getCoord());
-                } else{
-                    ((ActivityFacilityImpl)activityFacility).setLinkId(link.getId());
-                }
+                withoutLink.add(activityFacility);
+                coords.add(activityFacility.getCoord());
 
             } else if (activityFacility.getCoord()==null){
                 if (coordNullWarn==0) {
@@ -66,5 +76,15 @@ public class XY2LinksForFacilities {
                 }
             }
         }
+
+        List<Link> links = index.getNearestLinks(coords, numberOfThreads);
+        for (int i = 0; i < withoutLink.size(); i++) {
+            Link link = links.get(i);
+            if (link==null) {
+                LOGGER.warn("No nearest link is found for coord "+coords.get(i));
+            } else{
+                ((ActivityFacilityImpl)withoutLink.get(i)).setLinkId(link.getId());
+            }
+        }
     }
 }
@@ -33,6 +33,7 @@ import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.VspExperimentalConfigGroup;
 import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.OutputWriterPool;
 import org.matsim.core.controler.events.ShutdownEvent;
 import org.matsim.core.controler.listener.ShutdownListener;
 import org.matsim.core.network.NetworkUtils;
@@ -110,6 +111,9 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 	@Inject
 	private OutputDirectoryHierarchy controlerIO;
 
+	@Inject
+	private OutputWriterPool outputWriterPool;
+
 	@Inject
 	private Map<Class<?>,AttributeConverter<?>> attributeConverters = Collections.emptyMap();
 
@@ -118,24 +122,31 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 		if ( event.isUnexpected() ) {
 			return ;
 		}
-		dumpPlans();
-		dumpNetwork();
-		dumpConfig();
-		dumpFacilities();
-		dumpNetworkChangeEvents();
-
-		dumpTransitSchedule();
-		dumpTransitVehicles();
-		dumpVehicles();
-		dumpHouseholds();
-		dumpLanes();
-		dumpCounts();
+		// e.g. the events of the last iteration may still be written in the background
+		outputWriterPool.flush();
+
+		// the iterations are over, so the data is not modified anymore and the files can be written in parallel
+		outputWriterPool.submit("output plans", this::dumpPlans);
+		outputWriterPool.submit("output network", this::dumpNetwork);
+		outputWriterPool.submit("output config", this::dumpConfig);
+		outputWriterPool.submit("output facilities", this::dumpFacilities);
+		outputWriterPool.submit("output network change events", this::dumpNetworkChangeEvents);
+
+		outputWriterPool.submit("output transit schedule", this::dumpTransitSchedule);
+		outputWriterPool.submit("output transit vehicles", this::dumpTransitVehicles);
+		outputWriterPool.submit("output vehicles", this::dumpVehicles);
+		outputWriterPool.submit("output households", this::dumpHouseholds);
+		outputWriterPool.submit("output lanes", this::dumpLanes);
+		outputWriterPool.submit("output counts", this::dumpCounts);
 
 		if (!event.isUnexpected() && vspConfig.isWritingOutputEvents() && (controlerConfigGroup.getWriteEventsInterval()!=0)) {
-			dumpOutputEvents();
+			outputWriterPool.submit("output events", this::dumpOutputEvents);
 		}
 		
-		dumpExperiencedPlans() ;
+		outputWriterPool.submit("output experienced plans", this::dumpExperiencedPlans);
+
+		// other shutdown listeners may rely on the output files
+		outputWriterPool.flush();
 	}
 
 	private void dumpOutputEvents() {
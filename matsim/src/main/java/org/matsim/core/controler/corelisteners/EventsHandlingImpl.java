@@ -30,6 +30,7 @@ import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.ControlerConfigGroup.EventsFileFormat;
 import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.OutputWriterPool;
 import org.matsim.core.controler.events.BeforeMobsimEvent;
 import org.matsim.core.controler.events.IterationEndsEvent;
 import org.matsim.core.controler.events.ShutdownEvent;
@@ -58,18 +59,22 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 	
 	private OutputDirectoryHierarchy controlerIO ;
 
+	private final OutputWriterPool outputWriterPool;
+
 	private int writeMoreUntilIteration;
 
 	@Inject
 	EventsHandlingImpl(
 			final EventsManager eventsManager,
 			final ControlerConfigGroup config,
-			final OutputDirectoryHierarchy controlerIO) {
+			final OutputDirectoryHierarchy controlerIO,
+			final OutputWriterPool outputWriterPool) {
 		this.eventsManager = eventsManager;
 		this.writeEventsInterval = config.getWriteEventsInterval();
 		this.lastIteration = config.getLastIteration() ;
 		this.eventsFileFormats = config.getEventsFileFormats();
 		this.controlerIO = controlerIO;
+		this.outputWriterPool = outputWriterPool;
 		this.writeMoreUntilIteration = config.getWriteEventsUntilIteration() ;
 	}
 
@@ -105,8 +110,9 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 		 * module, should also be written to the events file.
 		 */
 		for (EventWriter writer : this.eventWriters) {
-			writer.closeFile();
 			this.eventsManager.removeHandler(writer);
+			// the writer does not get any more events, so the rest of the file can be written in the background
+			this.outputWriterPool.submit("events of iteration " + event.getIteration(), writer::closeFile);
 		}
 		this.eventWriters.clear();
 	}
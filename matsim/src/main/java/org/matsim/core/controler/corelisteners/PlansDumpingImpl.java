@@ -20,6 +20,9 @@
 
 package org.matsim.core.controler.corelisteners;
 
+import java.util.Collections;
+import java.util.Map;
+
 import org.apache.log4j.Logger;
 import org.matsim.analysis.IterationStopWatch;
 import org.matsim.api.core.v01.network.Network;
@@ -29,20 +32,25 @@ import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.OutputWriterPool;
 import org.matsim.core.controler.events.BeforeMobsimEvent;
 import org.matsim.core.controler.listener.BeforeMobsimListener;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import org.matsim.core.population.PopulationSnapshot;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.utils.objectattributes.AttributeConverter;
 
 /**
  * {@link org.matsim.core.controler.listener.ControlerListener} that dumps the
  * complete plans regularly at the start of an iteration
  * ({@link ControlerConfigGroup#getWritePlansInterval()} as well as in the first
  * iteration, just in case someone might check that the replanning worked
- * correctly in the first iteration.
+ * correctly in the first iteration.  If the {@link OutputWriterPool} writes
+ * in the background, only a snapshot of the plans is taken before the mobsim.
  *
  * @author mrieser
  */
@@ -56,6 +64,8 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 	@Inject private Population population;
 	@Inject private IterationStopWatch stopwatch;
 	@Inject private OutputDirectoryHierarchy controlerIO;
+	@Inject private OutputWriterPool outputWriterPool;
+	@Inject private Map<Class<?>, AttributeConverter<?>> attributeConverters = Collections.emptyMap();
 	private int writePlansInterval ;
 
 	private int writeMoreUntilIteration;
@@ -77,22 +87,40 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 			final String inputCRS = config.plans().getInputCRS();
 			final String internalCRS = config.global().getCoordinateSystem();
 
+			final String filename = controlerIO.getIterationFilename(event.getIteration(), Controler.FILENAME_POPULATION);
+
+			final CoordinateTransformation transformation;
 			if ( inputCRS == null ) {
-				new PopulationWriter(population, network).write(controlerIO.getIterationFilename(event.getIteration(), Controler.FILENAME_POPULATION));
+				transformation = new IdentityTransformation();
 			}
 			else {
 				log.info( "re-projecting population from "+internalCRS+" back to "+inputCRS+" for export" );
 
-				final CoordinateTransformation transformation =
+				transformation =
 						TransformationFactory.getCoordinateTransformation(
 								internalCRS,
 								inputCRS );
+			}
 
-				new PopulationWriter(transformation, population, network).write(controlerIO.getIterationFilename(event.getIteration(), Controler.FILENAME_POPULATION));
+			if ( outputWriterPool.isWritingInBackground() ) {
+				// the population is modified by the next iteration, so the background writer gets a copy of it
+				final Population snapshot = new PopulationSnapshot(population, attributeConverters);
+				outputWriterPool.submit("plans of iteration " + event.getIteration(),
+						() -> createWriter(transformation, snapshot).write(filename));
+				log.info("finished taking a snapshot of the plans; they are written in the background.");
+			}
+			else {
+				createWriter(transformation, population).write(filename);
+				log.info("finished plans dump.");
 			}
-			log.info("finished plans dump.");
 			stopwatch.endOperation("dump all plans");
 		}
 	}
 
+	private PopulationWriter createWriter(final CoordinateTransformation transformation, final Population population) {
+		PopulationWriter writer = new PopulationWriter(transformation, population, network);
+		writer.putAttributeConverters(attributeConverters);
+		return writer;
+	}
+
 }
@@ -26,6 +26,8 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
 import org.matsim.core.events.handler.EventHandler;
 import org.matsim.core.gbl.Gbl;
+import org.matsim.core.utils.metrics.HistogramMetric;
+import org.matsim.core.utils.metrics.MetricsRegistry;
 
 import javax.inject.Inject;
 import java.lang.Thread.UncaughtExceptionHandler;
@@ -50,6 +52,8 @@ import java.util.concurrent.atomic.AtomicReference;
 class SimStepParallelEventsManagerImpl implements EventsManager {
 
 	private final static Logger log = Logger.getLogger(SimStepParallelEventsManagerImpl.class);
+
+	private static final HistogramMetric QUEUE_DEPTH = MetricsRegistry.histogram(MetricsRegistry.EVENTS_QUEUE_DEPTH);
 	
 	private final int numOfThreads;
 	private CyclicBarrier simStepEndBarrier;
@@ -225,6 +229,13 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 			return;
 		}
 		
+		if (MetricsRegistry.isEnabled()) {
+			// events still to be passed to the handlers of (at least) one of the threads
+			long depth = 0;
+			for (ProcessEventsRunnable runnable : this.runnables) depth += runnable.eventsQueue.size();
+			QUEUE_DEPTH.record(depth);
+		}
+
 		try {
 			Gbl.assertNotNull( this.processedEventsChecker );
 			this.processedEventsChecker.setTime(time);
@@ -53,7 +53,23 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
-
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rebuilds the positions of the agents from the events and passes them to the {@link SnapshotWriter}s, every
+ * <code>snapshotPeriod</code> seconds.
+ * <p></p>
+ * If the {@link QSimConfigGroup#getNumberOfThreads() number of threads} of the qsim is larger than one, the links are
+ * split into shards whose positions are calculated in parallel, and the snapshots are passed to the writers by a
+ * separate thread, so the events processing only waits for the calculation of the positions, not for the writing.
+ * The order of the positions within a snapshot is the same as with a single thread.
+ */
 public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArrivalEventHandler, LinkEnterEventHandler,
 		LinkLeaveEventHandler, VehicleEntersTrafficEventHandler, PersonStuckEventHandler, VehicleLeavesTrafficEventHandler {
 
@@ -71,6 +87,13 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 	private double skipUntil = 0.0;
 	private final SnapshotLinkWidthCalculator linkWidthCalculator = new SnapshotLinkWidthCalculator();
 	private final AgentSnapshotInfoFactory snapshotInfoFactory = new AgentSnapshotInfoFactory(linkWidthCalculator);
+
+	private static final int SHARDS_PER_THREAD = 4;
+	private static final int WRITER_QUEUE_CAPACITY = 16;
+	private final int numberOfThreads;
+	private final List<List<EventLink>> linkShards = new ArrayList<>();
+	private ExecutorService pool = null;
+	private SnapshotWriterThread writerThread = null;
 	
 	private Vehicle2DriverEventHandler delegate = new Vehicle2DriverEventHandler();
 	
@@ -84,6 +107,7 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 		this.capCorrectionFactor = config.getFlowCapFactor() / network.getCapacityPeriod();
 		this.storageCapFactor = config.getStorageCapFactor();
 		this.snapshotStyle = config.getSnapshotStyle();
+		this.numberOfThreads = config.getNumberOfThreads();
 		
 		if (! Double.isNaN( config.getLinkWidthForVis() )){
 			this.linkWidthCalculator.setLinkWidthForVis( config.getLinkWidthForVis() );
@@ -153,6 +177,14 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 		}
 		this.linkList.clear();
 		this.linkList.addAll(eventLinks.values());
+		this.linkShards.clear();
+		if (this.numberOfThreads > 1) {
+			int numberOfShards = this.numberOfThreads * SHARDS_PER_THREAD;
+			int shardSize = (this.linkList.size() + numberOfShards - 1) / numberOfShards;
+			for (int from = 0; from < this.linkList.size(); from += shardSize) {
+				this.linkShards.add(this.linkList.subList(from, Math.min(from + shardSize, this.linkList.size())));
+			}
+		}
 		this.eventAgents.clear();
 		this.lastSnapshotIndex = -1;
 		
@@ -185,37 +217,92 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 		if (time >= skipUntil) {
 			if (!this.snapshotWriters.isEmpty()) {
 				Collection<AgentSnapshotInfo> positions = getVehiclePositions(time);
-				for (SnapshotWriter writer : this.snapshotWriters) {
-					writer.beginSnapshot(time);
-					for (AgentSnapshotInfo position : positions) {
-						writer.addAgent(position);
+				if (this.numberOfThreads > 1) {
+					if (this.writerThread == null) {
+						this.writerThread = new SnapshotWriterThread();
+						this.writerThread.start();
 					}
-					writer.endSnapshot();
+					this.writerThread.put(new Snapshot(time, positions, new ArrayList<>(this.snapshotWriters)));
+				} else {
+					writeSnapshot(time, positions, this.snapshotWriters);
 				}
 			}
 		}
 	}
 
+	private static void writeSnapshot(final double time, final Collection<AgentSnapshotInfo> positions, final List<SnapshotWriter> writers) {
+		for (SnapshotWriter writer : writers) {
+			writer.beginSnapshot(time);
+			for (AgentSnapshotInfo position : positions) {
+				writer.addAgent(position);
+			}
+			writer.endSnapshot();
+		}
+	}
+
 	private Collection<AgentSnapshotInfo> getVehiclePositions(final double time) {
-		Collection<AgentSnapshotInfo> positions = new ArrayList<>();
+		if (this.snapshotStyle != SnapshotStyle.queue && this.snapshotStyle != SnapshotStyle.equiDist) {
+			// log statement to clarify: why only two snapshot styles. Amit Mar'17
+			log.warn("Cannot generate snapshots offline (e.g., from events) for "+this.snapshotStyle
+					+ ". This snapshot style is supported during simulation only.");
+			throw new RuntimeException("The snapshotStyle \"" + this.snapshotStyle + "\" is not supported.");
+		}
+		if (this.linkShards.isEmpty()) {
+			return getVehiclePositions(this.linkList, time);
+		}
+
+		if (this.pool == null) {
+			AtomicInteger threadCount = new AtomicInteger();
+			this.pool = Executors.newFixedThreadPool(this.numberOfThreads, runnable -> {
+				Thread thread = new Thread(runnable, "SnapshotGenerator-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		List<Future<List<AgentSnapshotInfo>>> futures = new ArrayList<>(this.linkShards.size());
+		for (List<EventLink> shard : this.linkShards) {
+			futures.add(this.pool.submit(() -> getVehiclePositions(shard, time)));
+		}
+		List<AgentSnapshotInfo> positions = new ArrayList<>();
+		try {
+			for (Future<List<AgentSnapshotInfo>> future : futures) {
+				positions.addAll(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+		return positions;
+	}
+
+	private List<AgentSnapshotInfo> getVehiclePositions(final List<EventLink> links, final double time) {
+		List<AgentSnapshotInfo> positions = new ArrayList<>();
 		if (this.snapshotStyle == SnapshotStyle.queue) {
-			for (EventLink link : this.linkList) {
+			for (EventLink link : links) {
 				link.getVehiclePositionsQueue(positions, time, this.snapshotInfoFactory);
 			}
-		} else if (this.snapshotStyle == SnapshotStyle.equiDist) {
-			for (EventLink link : this.linkList) {
+		} else {
+			for (EventLink link : links) {
 				link.getVehiclePositionsEquil(positions, time, this.snapshotInfoFactory);
 			}
-		} else {
-			// log statement to clarify: why only two snapshot styles. Amit Mar'17
-			log.warn("Cannot generate snapshots offline (e.g., from events) for "+this.snapshotStyle
-					+ ". This snapshot style is supported during simulation only.");
-			throw new RuntimeException("The snapshotStyle \"" + this.snapshotStyle + "\" is not supported.");
 		}
 		return positions;
 	}
 
+	/**
+	 * Waits until all pending snapshots are written, and finishes the snapshot writers.
+	 */
 	public final void finish() {
+		if (this.writerThread != null) {
+			this.writerThread.finish();
+			this.writerThread = null;
+		}
+		if (this.pool != null) {
+			this.pool.shutdown();
+			this.pool = null;
+		}
 		for (SnapshotWriter writer : this.snapshotWriters) {
 			writer.finish();
 		}
@@ -325,10 +412,9 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 
 				int cmp = (int) (agent.time + this.freespeedTravelTime + this.inverseTimeCap + 2.0);
 				double speed = (time > cmp) ? 0.0 : this.link.getFreespeed(time);
-				agent.speed = speed;
 
 				AgentSnapshotInfo position = snapshotInfoFactory.createAgentSnapshotInfo(agent.id, this.link, queueEnd/* + NetworkLayer.CELL_LENGTH*/, lane);
-				position.setColorValueBetweenZeroAndOne( agent.speed) ;
+				position.setColorValueBetweenZeroAndOne(speed) ;
 				position.setAgentState(AgentSnapshotInfo.AgentState.PERSON_DRIVING_CAR);
 				positions.add(position);
 				queueEnd -= vehLen;
@@ -360,10 +446,9 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 				}
 				int cmp = (int) (agent.time + this.freespeedTravelTime + this.inverseTimeCap + 2.0);
 				double speed = (time > cmp) ? 0.0 : this.link.getFreespeed(time);
-				agent.speed = speed;
 				int lane = 1 + (agent.intId % NetworkUtils.getNumberOfLanesAsInt(Time.getUndefinedTime(), this.link));
 				AgentSnapshotInfo position = snapshotInfoFactory.createAgentSnapshotInfo(agent.id, this.link, distanceOnLink/* + NetworkLayer.CELL_LENGTH*/, lane);
-				position.setColorValueBetweenZeroAndOne( agent.speed) ;
+				position.setColorValueBetweenZeroAndOne(speed) ;
 				position.setAgentState(AgentSnapshotInfo.AgentState.PERSON_DRIVING_CAR);
 				positions.add(position);
 				lastDistance = distanceOnLink;
@@ -416,15 +501,11 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 
 					// the cars in the buffer
 					for (EventAgent agent : this.buffer) {
-						agent.lane = 1 + agent.intId % nLanes;
+						int lane = 1 + agent.intId % nLanes;
 						int cmp = (int) (agent.time + this.freespeedTravelTime + this.inverseTimeCap + 2.0);
-						if (time > cmp) {
-							agent.speed = 0.0;
-						} else {
-							agent.speed = freespeed;
-						}
-						AgentSnapshotInfo position = snapshotInfoFactory.createAgentSnapshotInfo(agent.id, this.link, distFromFromNode, agent.lane);
-						position.setColorValueBetweenZeroAndOne( agent.speed) ;
+						double speed = (time > cmp) ? 0.0 : freespeed;
+						AgentSnapshotInfo position = snapshotInfoFactory.createAgentSnapshotInfo(agent.id, this.link, distFromFromNode, lane);
+						position.setColorValueBetweenZeroAndOne(speed) ;
 						position.setAgentState(AgentSnapshotInfo.AgentState.PERSON_DRIVING_CAR);
 						positions.add(position);
 						distFromFromNode -= cellSize;
@@ -432,15 +513,11 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 
 					// the cars in the drivingQueue
 					for (EventAgent agent : this.drivingQueue) {
-						agent.lane = 1 + agent.intId % nLanes;
+						int lane = 1 + agent.intId % nLanes;
 						int cmp = (int) (agent.time + this.freespeedTravelTime + this.inverseTimeCap + 2.0);
-						if (time > cmp) {
-							agent.speed = 0.0;
-						} else {
-							agent.speed = freespeed;
-						}
-						AgentSnapshotInfo position = snapshotInfoFactory.createAgentSnapshotInfo(agent.id, this.link, distFromFromNode, agent.lane);
-						position.setColorValueBetweenZeroAndOne( agent.speed) ;
+						double speed = (time > cmp) ? 0.0 : freespeed;
+						AgentSnapshotInfo position = snapshotInfoFactory.createAgentSnapshotInfo(agent.id, this.link, distFromFromNode, lane);
+						position.setColorValueBetweenZeroAndOne(speed) ;
 						position.setAgentState(AgentSnapshotInfo.AgentState.PERSON_DRIVING_CAR);
 						positions.add(position);
 						distFromFromNode -= cellSize;
@@ -454,10 +531,8 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 					double cellSize = Math.min(this.effectiveCellSize, linkLength / waitingQueueSize);
 					double distFromFromNode = linkLength - cellSize / 2.0;
 					for (EventAgent agent : this.waitingQueue) {
-						agent.lane = lane;
-						agent.speed = 0.0;
-						AgentSnapshotInfo position = snapshotInfoFactory.createAgentSnapshotInfo(agent.id, this.link, distFromFromNode, agent.lane);
-						position.setColorValueBetweenZeroAndOne( agent.speed) ;
+						AgentSnapshotInfo position = snapshotInfoFactory.createAgentSnapshotInfo(agent.id, this.link, distFromFromNode, lane);
+						position.setColorValueBetweenZeroAndOne(0.0) ;
 						position.setAgentState(AgentSnapshotInfo.AgentState.PERSON_AT_ACTIVITY);
 						positions.add(position);
 						distFromFromNode -= cellSize;
@@ -471,10 +546,8 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 					double cellSize = linkLength / parkingQueueSize;
 					double distFromFromNode = linkLength - cellSize / 2.0;
 					for (EventAgent agent : this.parkingQueue) {
-						agent.lane = lane;
-						agent.speed = 0.0;
-						AgentSnapshotInfo position = snapshotInfoFactory.createAgentSnapshotInfo(agent.id, this.link, distFromFromNode, agent.lane);
-						position.setColorValueBetweenZeroAndOne( agent.speed) ;
+						AgentSnapshotInfo position = snapshotInfoFactory.createAgentSnapshotInfo(agent.id, this.link, distFromFromNode, lane);
+						position.setColorValueBetweenZeroAndOne(0.0) ;
 						position.setAgentState(AgentSnapshotInfo.AgentState.PERSON_AT_ACTIVITY);
 						positions.add(position);
 						distFromFromNode -= cellSize;
@@ -489,8 +562,6 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 		protected final int intId;
 		protected double time;
 		protected EventLink currentLink = null;
-		protected double speed = 0.0;
-		protected int lane = 1;
 
 		EventAgent(final Id<Person> id, final double time) {
 			this.id = id;
@@ -518,6 +589,76 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 
 	}
 
+	private static class Snapshot {
+		private final double time;
+		private final Collection<AgentSnapshotInfo> positions;
+		private final List<SnapshotWriter> writers;
+
+		Snapshot(final double time, final Collection<AgentSnapshotInfo> positions, final List<SnapshotWriter> writers) {
+			this.time = time;
+			this.positions = positions;
+			this.writers = writers;
+		}
+	}
+
+	/**
+	 * Passes the snapshots to the writers in the order they were calculated.  The queue is bounded, so the events
+	 * processing is only slowed down if the writers cannot keep up.
+	 */
+	private static class SnapshotWriterThread extends Thread {
+		private static final Snapshot END = new Snapshot(Double.NaN, null, null);
+		private final BlockingQueue<Snapshot> queue = new ArrayBlockingQueue<>(WRITER_QUEUE_CAPACITY);
+		private volatile Throwable failure = null;
+
+		SnapshotWriterThread() {
+			super("SnapshotWriter");
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			try {
+				Snapshot snapshot;
+				while ((snapshot = this.queue.take()) != END) {
+					writeSnapshot(snapshot.time, snapshot.positions, snapshot.writers);
+				}
+			} catch (InterruptedException e) {
+				this.failure = e;
+			} catch (RuntimeException | Error e) {
+				log.error("writing snapshots failed.", e);
+				this.failure = e;
+				this.queue.clear(); // unblock the events processing, the failure is reported with the next snapshot
+			}
+		}
+
+		void put(final Snapshot snapshot) {
+			checkFailure();
+			try {
+				this.queue.put(snapshot);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		}
+
+		void finish() {
+			put(END);
+			try {
+				join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+			checkFailure();
+		}
+
+		private void checkFailure() {
+			if (this.failure != null) {
+				throw new RuntimeException("writing snapshots failed.", this.failure);
+			}
+		}
+	}
+
 	@Override
 	public void handleEvent(VehicleLeavesTrafficEvent event) {
 		delegate.handleEvent(event);
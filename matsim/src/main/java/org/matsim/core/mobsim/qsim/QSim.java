@@ -45,6 +45,8 @@ import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicleFactory;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicleImpl;
 import org.matsim.core.network.NetworkChangeEvent;
+import org.matsim.core.utils.metrics.HistogramMetric;
+import org.matsim.core.utils.metrics.MetricsRegistry;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
@@ -123,6 +125,8 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 	private final Map<Id<Vehicle>,MobsimVehicle> vehicles = new LinkedHashMap<>() ;
 	private final List<AgentSource> agentSources = new ArrayList<>();
 
+	private static final HistogramMetric SIM_STEP_NANOS = MetricsRegistry.histogram(MetricsRegistry.MOBSIM_SIM_STEP_NANOS);
+
 	// for detailed run time analysis
 	public static boolean analyzeRunTimes = false;
 	private long startTime = 0;
@@ -149,15 +153,18 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 			return QSim.this;
 		}
 
+		// The additional agents are kept by the links, which guard them themselves.  So pt passengers boarding
+		// at different links, in different threads of the QNetsimEngine, do not wait for each other here.
+
 		@Override
-		public synchronized void registerAdditionalAgentOnLink(final MobsimAgent planAgent) {
+		public void registerAdditionalAgentOnLink(final MobsimAgent planAgent) {
 			if (QSim.this.netEngine != null) {
 				QSim.this.netEngine.registerAdditionalAgentOnLink(planAgent);
 			}
 		}
 
 		@Override
-		public synchronized MobsimAgent unregisterAdditionalAgentOnLink(Id<Person> agentId, Id<Link> linkId) {
+		public MobsimAgent unregisterAdditionalAgentOnLink(Id<Person> agentId, Id<Link> linkId) {
 			if (QSim.this.netEngine != null) {
 				return QSim.this.netEngine.unregisterAdditionalAgentOnLink(agentId, linkId);
 			}
@@ -235,7 +242,9 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 			// do iterations
 			boolean doContinue = true;
 			while (doContinue) {
+				long stepStart = MetricsRegistry.isEnabled() ? System.nanoTime() : 0;
 				doContinue = doSimStep();
+				if (MetricsRegistry.isEnabled()) SIM_STEP_NANOS.record(System.nanoTime() - stepStart);
 			}
 		} finally {
 			// We really want to perform that. For instance, with QNetsimEngine, threads are cleaned up in this method.
@@ -114,6 +114,18 @@ public final class TransitAgentImpl implements PTPassengerAgent {
 		ExperimentalTransitRoute route = (ExperimentalTransitRoute) basicAgentDelegate.getCurrentLeg().getRoute();
 		return route.getEgressStopId();
 	}
+
+	@Override
+	public final Id<TransitLine> getDesiredLineId() {
+		if (boardingAcceptance != BoardingAcceptance.checkLineAndStop) {
+			return null;
+		}
+		Leg leg = basicAgentDelegate.getCurrentLeg();
+		if (!(leg.getRoute() instanceof ExperimentalTransitRoute)) {
+			return null;
+		}
+		return ((ExperimentalTransitRoute) leg.getRoute()).getLineId();
+	}
 	@Override
 	public Id<Link> getCurrentLinkId() {
 		return basicAgentDelegate.getCurrentLinkId() ;
@@ -67,6 +67,18 @@ public interface PTPassengerAgent extends PassengerAgent {
 	
 	public Id<TransitStopFacility> getDesiredDestinationStopId();
 
+	/**
+	 * Asks a passenger which is departing on a transit leg about the line it is waiting for. The
+	 * {@link TransitStopAgentTracker} only offers a vehicle of a line to the passengers waiting for
+	 * that line and to those without a desired line, so an agent returning a line here must not
+	 * accept to board another line.
+	 *
+	 * @return The transit line id, or <code>null</code> if the passenger may board any line.
+	 */
+	public default Id<TransitLine> getDesiredLineId() {
+		return null;
+	}
+
 	/**
 	 * @return a statistical weight, how many "real" agents this agent represents, e.g. "5.0" if you simulate a 20%-sample.
 	 */
@@ -106,10 +106,16 @@ class PassengerAccessEgressImpl implements PassengerAccessEgress {
 	private List<PTPassengerAgent> findPassengersEntering(TransitRoute transitRoute, TransitLine transitLine, TransitVehicle vehicle, 
 			final TransitStopFacility stop, List<TransitRouteStop> stopsToCome, int freeCapacity, double now) {
 		ArrayList<PTPassengerAgent> passengersEntering = new ArrayList<>();
+		if (freeCapacity == 0 && !this.isGeneratingDeniedBoardingEvents) {
+			return passengersEntering;
+		}
+		// only the agents waiting for this line or for any line may want to enter
+		List<PTPassengerAgent> agentsAtStop = this.agentTracker.getAgentsAtFacility(stop.getId(),
+				transitLine == null ? null : transitLine.getId());
 		
 		if (this.isGeneratingDeniedBoardingEvents) {
 			
-			for (PTPassengerAgent agent : this.agentTracker.getAgentsAtFacility(stop.getId())) {
+			for (PTPassengerAgent agent : agentsAtStop) {
 				if (agent.getEnterTransitRoute(transitLine, transitRoute, stopsToCome, vehicle)) {
 					if (freeCapacity >= 1) {
 						passengersEntering.add(agent);
@@ -122,7 +128,7 @@ class PassengerAccessEgressImpl implements PassengerAccessEgress {
 
 		} else {
 		
-			for (PTPassengerAgent agent : this.agentTracker.getAgentsAtFacility(stop.getId())) {
+			for (PTPassengerAgent agent : agentsAtStop) {
 				if (freeCapacity == 0) {
 					break;
 				}
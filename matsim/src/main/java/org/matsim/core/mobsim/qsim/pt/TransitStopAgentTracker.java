@@ -25,15 +25,27 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.mobsim.qsim.AgentTracker;
+import org.matsim.pt.transitSchedule.api.TransitLine;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
+ * Keeps track of the agents waiting at transit stops.
+ * <p></p>
+ * The stops are kept in an array indexed by {@link Id#index()} and each stop is
+ * locked on its own, so agents arriving at or boarding from different stops, e.g.
+ * from different threads of the QNetsimEngine, do not block each other. At a stop,
+ * the agents are grouped by the line they are waiting for (see
+ * {@link PTPassengerAgent#getDesiredLineId()}), so a vehicle only has to look at
+ * the agents that may board it, and boarded agents are removed in constant time.
+ *
  * @author mrieser
  */
 public class TransitStopAgentTracker implements AgentTracker {
@@ -41,7 +53,7 @@ public class TransitStopAgentTracker implements AgentTracker {
 	private final static Logger log = Logger.getLogger(TransitStopAgentTracker.class);
 	
 	private final EventsManager events;
-	private final Map<Id<TransitStopFacility>, List<PTPassengerAgent>> agentsAtStops = new ConcurrentHashMap<>();
+	private volatile AtomicReferenceArray<AgentsAtStop> agentsAtStops = new AtomicReferenceArray<>(0);
 
 	public TransitStopAgentTracker(final EventsManager events) {
 		this.events = events;
@@ -51,13 +63,11 @@ public class TransitStopAgentTracker implements AgentTracker {
 		if (stopId == null) {
 			throw new NullPointerException("stop must not be null.");
 		}
-		List<PTPassengerAgent> agents = this.agentsAtStops.get(stopId);
-		if (agents == null) {
-			agents = new CopyOnWriteArrayList<>();// TODO check again. this might turn out to be slow, but we likely need something thread safe here. marcel/oct2014 
-			this.agentsAtStops.put(stopId, agents);
-		}
-		if ( !agents.add(agent) ) {
-			log.error("did NOT add agent " + agent.getId() + " since it was already there.");
+		AgentsAtStop agents = getOrCreateAgentsAtStop(stopId);
+		synchronized (agents) {
+			if ( !agents.add(agent) ) {
+				log.error("did NOT add agent " + agent.getId() + " since it was already there.");
+			}
 		}
 		Id<TransitStopFacility> destinationStopId = agent.getDesiredDestinationStopId();
 		events.processEvent(new AgentWaitingForPtEvent(now, agent.getId(), stopId, destinationStopId));
@@ -67,9 +77,13 @@ public class TransitStopAgentTracker implements AgentTracker {
 		if (stopId == null) {
 			throw new NullPointerException("stopId must not be null.");
 		}
-		List<PTPassengerAgent> agents = this.agentsAtStops.get(stopId);
+		AgentsAtStop agents = getAgentsAtStop(stopId);
 		if (agents != null) {
-			if (!agents.remove(agent)) {
+			boolean removed;
+			synchronized (agents) {
+				removed = agents.remove(agent);
+			}
+			if (!removed) {
 				log.error("Agent " + agent.getId() + " could not be removed from waiting at stop " + stopId);
 			}
 		} else {
@@ -77,16 +91,188 @@ public class TransitStopAgentTracker implements AgentTracker {
 		}
 	}
 
+	/**
+	 * @return a snapshot of the agents waiting at the stop, in the order they arrived
+	 */
 	@Override
 	public List<PTPassengerAgent> getAgentsAtFacility(final Id<TransitStopFacility> stopId) {
-		List<PTPassengerAgent> agents = this.agentsAtStops.get(stopId);
+		AgentsAtStop agents = getAgentsAtStop(stopId);
 		if (agents == null) {
 			return Collections.emptyList();
 		}
-		return Collections.unmodifiableList(agents);
+		synchronized (agents) {
+			return Collections.unmodifiableList(new ArrayList<>(agents.waitingAgents.keySet()));
+		}
 	}
 
+	/**
+	 * @return a snapshot of the agents waiting at the stop for the line or for any line, in the order they arrived
+	 */
+	public List<PTPassengerAgent> getAgentsAtFacility(final Id<TransitStopFacility> stopId, final Id<TransitLine> lineId) {
+		AgentsAtStop agents = getAgentsAtStop(stopId);
+		if (agents == null) {
+			return Collections.emptyList();
+		}
+		synchronized (agents) {
+			return Collections.unmodifiableList(agents.getAgentsWaitingFor(lineId));
+		}
+	}
+
+	/**
+	 * @return a snapshot of the agents waiting at the stops, in the order they arrived
+	 */
 	public Map<Id<TransitStopFacility>, List<PTPassengerAgent>> getAgentsAtStop() {
-		return this.agentsAtStops;
+		Map<Id<TransitStopFacility>, List<PTPassengerAgent>> agentsAtStop = new LinkedHashMap<>();
+		AtomicReferenceArray<AgentsAtStop> stops = this.agentsAtStops;
+		for (int i = 0; i < stops.length(); i++) {
+			AgentsAtStop agents = stops.get(i);
+			if (agents != null) {
+				synchronized (agents) {
+					if (!agents.waitingAgents.isEmpty()) {
+						agentsAtStop.put(agents.stopId, new ArrayList<>(agents.waitingAgents.keySet()));
+					}
+				}
+			}
+		}
+		return agentsAtStop;
+	}
+
+	private AgentsAtStop getAgentsAtStop(final Id<TransitStopFacility> stopId) {
+		AtomicReferenceArray<AgentsAtStop> stops = this.agentsAtStops;
+		int index = stopId.index();
+		return index < stops.length() ? stops.get(index) : null;
+	}
+
+	private AgentsAtStop getOrCreateAgentsAtStop(final Id<TransitStopFacility> stopId) {
+		AgentsAtStop agents = getAgentsAtStop(stopId);
+		if (agents != null) {
+			return agents;
+		}
+		synchronized (this) {
+			int index = stopId.index();
+			AtomicReferenceArray<AgentsAtStop> stops = this.agentsAtStops;
+			if (index >= stops.length()) {
+				AtomicReferenceArray<AgentsAtStop> grown = new AtomicReferenceArray<>(Math.max(index + 1, 2 * stops.length()));
+				for (int i = 0; i < stops.length(); i++) {
+					grown.set(i, stops.get(i));
+				}
+				this.agentsAtStops = grown;
+				stops = grown;
+			}
+			agents = stops.get(index);
+			if (agents == null) {
+				agents = new AgentsAtStop(stopId);
+				stops.set(index, agents);
+			}
+			return agents;
+		}
+	}
+
+	/**
+	 * The agents waiting at one stop. Has to be used while holding its lock.
+	 */
+	private static final class AgentsAtStop {
+		private final Id<TransitStopFacility> stopId;
+		private final Map<PTPassengerAgent, WaitingAgent> waitingAgents = new LinkedHashMap<>();
+		private final Map<Id<TransitLine>, WaitingQueue> queuesByLine = new HashMap<>();
+		private final WaitingQueue anyLineQueue = new WaitingQueue();
+		private long nextSequence = 0;
+
+		AgentsAtStop(final Id<TransitStopFacility> stopId) {
+			this.stopId = stopId;
+		}
+
+		boolean add(final PTPassengerAgent agent) {
+			if (this.waitingAgents.containsKey(agent)) {
+				return false;
+			}
+			Id<TransitLine> lineId = agent.getDesiredLineId();
+			WaitingQueue queue = lineId == null ? this.anyLineQueue : this.queuesByLine.computeIfAbsent(lineId, k -> new WaitingQueue());
+			WaitingAgent waitingAgent = new WaitingAgent(agent, this.nextSequence++, queue);
+			queue.add(waitingAgent);
+			this.waitingAgents.put(agent, waitingAgent);
+			return true;
+		}
+
+		boolean remove(final PTPassengerAgent agent) {
+			WaitingAgent waitingAgent = this.waitingAgents.remove(agent);
+			if (waitingAgent == null) {
+				return false;
+			}
+			waitingAgent.queue.remove(waitingAgent);
+			return true;
+		}
+
+		/*
+		 * Merges the agents waiting for the line with the ones waiting for any line,
+		 * so they are offered the vehicle in the order they arrived.
+		 */
+		List<PTPassengerAgent> getAgentsWaitingFor(final Id<TransitLine> lineId) {
+			if (lineId == null) {
+				return new ArrayList<>(this.waitingAgents.keySet());
+			}
+			WaitingQueue lineQueue = this.queuesByLine.get(lineId);
+			WaitingAgent line = lineQueue == null ? null : lineQueue.first;
+			WaitingAgent any = this.anyLineQueue.first;
+			List<PTPassengerAgent> agents = new ArrayList<>((lineQueue == null ? 0 : lineQueue.size) + this.anyLineQueue.size);
+			while (line != null || any != null) {
+				if (any == null || (line != null && line.sequence < any.sequence)) {
+					agents.add(line.agent);
+					line = line.next;
+				} else {
+					agents.add(any.agent);
+					any = any.next;
+				}
+			}
+			return agents;
+		}
+	}
+
+	/**
+	 * A doubly linked list of waiting agents in the order they arrived, so an agent can be removed in constant time.
+	 */
+	private static final class WaitingQueue {
+		private WaitingAgent first = null;
+		private WaitingAgent last = null;
+		private int size = 0;
+
+		void add(final WaitingAgent waitingAgent) {
+			waitingAgent.previous = this.last;
+			if (this.last == null) {
+				this.first = waitingAgent;
+			} else {
+				this.last.next = waitingAgent;
+			}
+			this.last = waitingAgent;
+			this.size++;
+		}
+
+		void remove(final WaitingAgent waitingAgent) {
+			if (waitingAgent.previous == null) {
+				this.first = waitingAgent.next;
+			} else {
+				waitingAgent.previous.next = waitingAgent.next;
+			}
+			if (waitingAgent.next == null) {
+				this.last = waitingAgent.previous;
+			} else {
+				waitingAgent.next.previous = waitingAgent.previous;
+			}
+			this.size--;
+		}
+	}
+
+	private static final class WaitingAgent {
+		private final PTPassengerAgent agent;
+		private final long sequence;
+		private final WaitingQueue queue;
+		private WaitingAgent previous = null;
+		private WaitingAgent next = null;
+
+		WaitingAgent(final PTPassengerAgent agent, final long sequence, final WaitingQueue queue) {
+			this.agent = agent;
+			this.sequence = sequence;
+			this.queue = queue;
+		}
 	}
 }
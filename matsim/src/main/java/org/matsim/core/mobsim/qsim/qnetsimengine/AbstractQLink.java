@@ -181,19 +181,32 @@ abstract class AbstractQLink implements QLinkI {
 		this.activateLink();
 	}
 
+	/*
+	 * The additional agents may be (un)registered from other threads than the one moving this link, e.g. by
+	 * departures, so the map guards itself instead of relying on a lock of the whole QSim.
+	 */
 	@Override
 	public void registerAdditionalAgentOnLink(MobsimAgent planAgent) {
-		this.additionalAgentsOnLink.put(planAgent.getId(), planAgent);
+		synchronized (this.additionalAgentsOnLink) {
+			this.additionalAgentsOnLink.put(planAgent.getId(), planAgent);
+		}
 	}
 
 	@Override
 	public MobsimAgent unregisterAdditionalAgentOnLink(Id<Person> mobsimAgentId) {
-		return this.additionalAgentsOnLink.remove(mobsimAgentId);
+		synchronized (this.additionalAgentsOnLink) {
+			return this.additionalAgentsOnLink.remove(mobsimAgentId);
+		}
 	}
 
+	/**
+	 * Returns a copy, so that the agents can be iterated while others are (un)registered on other threads.
+	 */
 	@Override
 	public Collection<MobsimAgent> getAdditionalAgentsOnLink() {
-		return Collections.unmodifiableCollection( this.additionalAgentsOnLink.values());
+		synchronized (this.additionalAgentsOnLink) {
+			return Collections.unmodifiableCollection( new ArrayList<>( this.additionalAgentsOnLink.values() ) );
+		}
 	}
 
 	@Override
@@ -43,6 +43,8 @@ import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimNetwork;
+import org.matsim.core.utils.metrics.HistogramMetric;
+import org.matsim.core.utils.metrics.MetricsRegistry;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
@@ -91,6 +93,8 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 
 	private static final Logger log = Logger.getLogger(QNetsimEngine.class);
 
+	private static final HistogramMetric RUNNER_IMBALANCE_NANOS = MetricsRegistry.histogram(MetricsRegistry.MOBSIM_RUNNER_IMBALANCE_NANOS);
+
 	private static final int INFO_PERIOD = 3600;
 
 	private QNetwork network;
@@ -335,6 +339,16 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 			this.startBarrier.arriveAndAwaitAdvance();
 			this.endBarrier.arriveAndAwaitAdvance();
 		}
+
+		if (MetricsRegistry.isEnabled() && this.engines.size() > 1) {
+			long min = Long.MAX_VALUE;
+			long max = Long.MIN_VALUE;
+			for (QNetsimEngineRunner engine : this.engines) {
+				min = Math.min(min, engine.stepNanos);
+				max = Math.max(max, engine.stepNanos);
+			}
+			RUNNER_IMBALANCE_NANOS.record(max - min);
+		}
 	}
 
 
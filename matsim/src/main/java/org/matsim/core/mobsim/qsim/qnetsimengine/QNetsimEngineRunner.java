@@ -22,6 +22,7 @@ package org.matsim.core.mobsim.qsim.qnetsimengine;
 
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.utils.metrics.MetricsRegistry;
 
 import java.util.*;
 import java.util.concurrent.Callable;
@@ -78,6 +79,9 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 
 	/*package*/ long[] runTimes;
 	private long startTime = 0;
+
+	/** time spent moving nodes and links in the current time step, only measured if the metrics are enabled */
+	/*package*/ long stepNanos = 0;
 	{	
 		if (QSim.analyzeRunTimes) runTimes = new long[QNetsimEngine.numObservedTimeSteps];
 		else runTimes = null;
@@ -98,6 +102,7 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 
 	/*package*/ void setTime(final double t) {
 		time = t;
+		stepNanos = 0;
 	}
 
 	public void afterSim() {
@@ -116,11 +121,13 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 			return false;
 		}
 
+		long start = MetricsRegistry.isEnabled() ? System.nanoTime() : 0;
 		if (this.movingNodes) {
 			moveNodes();
 		} else {
 			moveLinks();
 		}
+		if (MetricsRegistry.isEnabled()) this.stepNanos += System.nanoTime() - start;
 		return true ;
 	}
 
@@ -144,13 +151,22 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 				return;
 			}
 
+			boolean measure = MetricsRegistry.isEnabled();
+			long start = measure ? System.nanoTime() : 0;
+
 			moveNodes();
 
+			if (measure) this.stepNanos = System.nanoTime() - start;
+
 			// After moving the QNodes all we use a Phaser to synchronize the threads.
 			this.separationBarrier.arriveAndAwaitAdvance();
 
+			if (measure) start = System.nanoTime();
+
 			moveLinks();
 
+			if (measure) this.stepNanos += System.nanoTime() - start;
+
 			if (QSim.analyzeRunTimes) {
 				long end = System.nanoTime();
 				int bin = (int) this.time;
@@ -0,0 +1,220 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IncrementalRTree.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.utils.collections.PackedRTree;
+
+/**
+ * The spatial index of the nodes or links of a {@link NetworkImpl}.  A {@link PackedRTree} cannot be changed, so the
+ * elements added and removed after it was built are kept aside: removed elements are filtered out of the results of
+ * the tree, added ones are searched one by one.  Only when there are more than {@link #MAX_PENDING} such changes, the
+ * tree is dropped and packed again on the next query.  Like that, networks that are changed between queries, e.g. when
+ * nodes are inserted one by one at their nearest node, do not need to pack the whole tree again after each change.
+ * <p></p>
+ * The tree is built lazily, on the first query.  Queries can run on several threads at the same time, changes must not
+ * run concurrently to queries, as for the rest of the network.
+ */
+/* deliberately package */ abstract class IncrementalRTree<T> {
+	private final static Logger log = Logger.getLogger(IncrementalRTree.class);
+
+	static final int MAX_PENDING = 1024;
+
+	private final String name;
+	private volatile PackedRTree<T> tree = null;
+	/* the changes since the tree was built */
+	private final List<T> added = new ArrayList<>();
+	private final Set<T> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	IncrementalRTree(final String name) {
+		this.name = name;
+	}
+
+	/** @return all elements, used to pack the tree */
+	abstract Collection<T> getElements();
+
+	abstract void addTo(PackedRTree.Builder<T> builder, T element);
+
+	/** @return the distance in the x/y plane, like the one used by the tree */
+	abstract double getDistance(T element, double x, double y);
+
+	void add(final T element) {
+		if (this.tree != null) {
+			this.added.add(element);
+			checkPending();
+		}
+	}
+
+	void remove(final T element) {
+		if (this.tree != null) {
+			if (!this.added.remove(element)) {
+				this.removed.add(element);
+			}
+			checkPending();
+		}
+	}
+
+	T getNearest(final double x, final double y) {
+		PackedRTree<T> packed = getTree();
+		T nearest = this.removed.isEmpty() ? packed.getNearest(x, y) : packed.getNearest(x, y, e -> !this.removed.contains(e));
+		double nearestDistance = nearest == null ? Double.POSITIVE_INFINITY : getDistance(nearest, x, y);
+		for (T element : this.added) {
+			double distance = getDistance(element, x, y);
+			if (distance < nearestDistance) {
+				nearestDistance = distance;
+				nearest = element;
+			}
+		}
+		return nearest;
+	}
+
+	List<T> kNearest(final double x, final double y, final int k) {
+		PackedRTree<T> packed = getTree();
+		List<T> nearest = this.removed.isEmpty() ? packed.kNearest(x, y, k) : packed.kNearest(x, y, k, e -> !this.removed.contains(e));
+		if (this.added.isEmpty()) {
+			return nearest;
+		}
+		List<T> candidates = new ArrayList<>(nearest);
+		candidates.addAll(this.added);
+		// a stable sort, so that the elements of the tree come first if the distances are equal
+		candidates.sort((a, b) -> Double.compare(getDistance(a, x, y), getDistance(b, x, y)));
+		return candidates.size() > k ? new ArrayList<>(candidates.subList(0, k)) : candidates;
+	}
+
+	List<T> getDisk(final double x, final double y, final double distance) {
+		PackedRTree<T> packed = getTree();
+		List<T> disk = this.removed.isEmpty() ? packed.getDisk(x, y, distance) : packed.getDisk(x, y, distance, e -> !this.removed.contains(e));
+		if (this.added.isEmpty()) {
+			return disk;
+		}
+		List<T> result = new ArrayList<>(disk);
+		for (T element : this.added) {
+			if (getDistance(element, x, y) <= distance) {
+				result.add(element);
+			}
+		}
+		return result;
+	}
+
+	private void checkPending() {
+		if (this.added.size() + this.removed.size() > MAX_PENDING) {
+			this.tree = null;
+			this.added.clear();
+			this.removed.clear();
+		}
+	}
+
+	private PackedRTree<T> getTree() {
+		PackedRTree<T> packed = this.tree;
+		return packed != null ? packed : buildTree();
+	}
+
+	synchronized private PackedRTree<T> buildTree() {
+		/* synchronized to ensure we only build one tree in case that multiple threads query at the same time.
+		 * The tree is only assigned when it is complete. */
+		PackedRTree<T> packed = this.tree;
+		if (packed != null) {
+			return packed;
+		}
+		double startTime = System.currentTimeMillis();
+		PackedRTree.Builder<T> builder = new PackedRTree.Builder<>();
+		for (T element : getElements()) {
+			addTo(builder, element);
+		}
+		packed = builder.build();
+		this.tree = packed;
+		log.info("Building RTree for " + packed.size() + " " + this.name + " took " + ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds.");
+		return packed;
+	}
+
+	static final class Nodes extends IncrementalRTree<Node> {
+		private final Map<?, Node> nodes;
+
+		Nodes(final Map<?, Node> nodes) {
+			super("nodes");
+			this.nodes = nodes;
+		}
+
+		@Override
+		Collection<Node> getElements() {
+			return this.nodes.values();
+		}
+
+		@Override
+		void addTo(final PackedRTree.Builder<Node> builder, final Node node) {
+			builder.addPoint(node.getCoord().getX(), node.getCoord().getY(), node);
+		}
+
+		@Override
+		double getDistance(final Node node, final double x, final double y) {
+			double dx = node.getCoord().getX() - x;
+			double dy = node.getCoord().getY() - y;
+			return Math.sqrt(dx * dx + dy * dy);
+		}
+	}
+
+	static final class Links extends IncrementalRTree<Link> {
+		private final Map<?, Link> links;
+
+		Links(final Map<?, Link> links) {
+			super("links");
+			this.links = links;
+		}
+
+		@Override
+		Collection<Link> getElements() {
+			return this.links.values();
+		}
+
+		@Override
+		void addTo(final PackedRTree.Builder<Link> builder, final Link link) {
+			Coord from = link.getFromNode().getCoord();
+			Coord to = link.getToNode().getCoord();
+			builder.addSegment(from.getX(), from.getY(), to.getX(), to.getY(), link);
+		}
+
+		@Override
+		double getDistance(final Link link, final double x, final double y) {
+			Coord from = link.getFromNode().getCoord();
+			Coord to = link.getToNode().getCoord();
+			double dx = to.getX() - from.getX();
+			double dy = to.getY() - from.getY();
+			double lengthSq = dx * dx + dy * dy;
+			double t = lengthSq > 0 ? ((x - from.getX()) * dx + (y - from.getY()) * dy) / lengthSq : 0;
+			t = Math.max(0, Math.min(1, t));
+			double px = x - (from.getX() + t * dx);
+			double py = y - (from.getY() + t * dy);
+			return Math.sqrt(px * px + py * py);
+		}
+	}
+
+}
@@ -0,0 +1,108 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NearestLinkIndex.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.utils.collections.PackedRTree;
+import org.matsim.core.utils.geometry.CoordUtils;
+
+/**
+ * A read-only snapshot of a network to look up the nearest link of many coordinates, e.g. when assigning
+ * links to the activities of a freshly generated population.  The results are the same as the ones of
+ * {@link NetworkUtils#getNearestLink(Network, Coord)}, but the incident links of all nodes are collected
+ * only once, so a lookup does not allocate anything.  The index can be queried by several threads at the
+ * same time.  Changes to the network after the index was built are not reflected.
+ */
+public final class NearestLinkIndex {
+
+	private final static Logger log = Logger.getLogger(NearestLinkIndex.class);
+
+	private static final Link[] NO_LINKS = new Link[0];
+
+	/** the incident links of each node, in the order of {@link NetworkUtils#getIncidentLinks(Node)} */
+	private final PackedRTree<Link[]> nodes;
+
+	public NearestLinkIndex(final Network network) {
+		double startTime = System.currentTimeMillis();
+		PackedRTree.Builder<Link[]> builder = new PackedRTree.Builder<>();
+		int isolated = 0;
+		for (Node node : network.getNodes().values()) {
+			Link[] links = NetworkUtils.getIncidentLinks(node).values().toArray(NO_LINKS);
+			if (links.length == 0) {
+				isolated++;
+			}
+			builder.addPoint(node.getCoord().getX(), node.getCoord().getY(), links);
+		}
+		this.nodes = builder.build();
+		if (isolated > 0) {
+			log.warn(isolated + " nodes have no incident links.  Coordinates nearest to them will not get a link.  Maybe run NetworkCleaner?");
+		}
+		log.info("Building nearest link index for " + this.nodes.size() + " nodes took " + ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds.");
+	}
+
+	/**
+	 * @return the link nearest to <code>coord</code> among the links incident to the nearest node, or
+	 * <code>null</code> if the network is empty or the nearest node has no links
+	 */
+	public Link getNearestLink(final Coord coord) {
+		return getNearestLink(this.nodes.getNearest(coord.getX(), coord.getY()), coord);
+	}
+
+	/**
+	 * Looks up the nearest link for many coordinates at once.  The nearest nodes are searched on up to
+	 * <code>numberOfThreads</code> threads, see {@link PackedRTree#getNearest(List, int)}.
+	 *
+	 * @return the nearest link of each coordinate, in the same order as the coordinates.  Entries may be
+	 * <code>null</code>, see {@link #getNearestLink(Coord)}.
+	 */
+	public List<Link> getNearestLinks(final List<Coord> coords, final int numberOfThreads) {
+		List<Link[]> nearestNodes = this.nodes.getNearest(coords, numberOfThreads);
+		Link[] result = new Link[coords.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = getNearestLink(nearestNodes.get(i), coords.get(i));
+		}
+		return Arrays.asList(result);
+	}
+
+	private static Link getNearestLink(final Link[] links, final Coord coord) {
+		if (links == null) {
+			return null;
+		}
+		Link nearestLink = null;
+		double shortestDistance = Double.MAX_VALUE;
+		for (Link link : links) {
+			double dist = CoordUtils.distancePointLinesegment(link.getFromNode().getCoord(), link.getToNode().getCoord(), coord);
+			if (dist < shortestDistance) {
+				shortestDistance = dist;
+				nearestLink = link;
+			}
+		}
+		return nearestLink;
+	}
+
+}
@@ -66,6 +66,11 @@ import java.util.Queue;
 
 	private LinkQuadTree linkQuadTree = null;
 
+	/* used for the nearest node and link queries.  Built lazily, and updated when nodes or links are added or removed */
+	private final IncrementalRTree<Node> nodeRTree = new IncrementalRTree.Nodes(this.nodes);
+
+	private final IncrementalRTree<Link> linkRTree = new IncrementalRTree.Links(this.links);
+
 	private static final double DEFAULT_EFFECTIVE_CELL_SIZE = 7.5;
 
 	private double effectiveCellSize = DEFAULT_EFFECTIVE_CELL_SIZE;
@@ -129,6 +134,7 @@ import java.util.Queue;
 		toNode.addInLink(link);
 
 		links.put(link.getId(), link);
+		this.linkRTree.add(link);
 
 		if (this.linkQuadTree != null) {
 			double linkMinX = Math.min(link.getFromNode().getCoord().getX(), link.getToNode().getCoord().getX());
@@ -181,6 +187,7 @@ import java.util.Queue;
 					".\nNode is not added to the network.");
 		}
 		this.nodes.put(id, nn);
+		this.nodeRTree.add(nn);
 		if (this.nodeQuadTree != null) {
 			if (Double.isInfinite(this.nodeQuadTree.getMinEasting())) {
 				// looks like the quad tree was initialized with infinite bounds, see MATSIM-278.
@@ -226,6 +233,7 @@ import java.util.Queue;
 		if (this.nodeQuadTree != null) {
 			this.nodeQuadTree.remove(n.getCoord().getX(),n.getCoord().getY(),n);
 		}
+		this.nodeRTree.remove(n);
 		return n;
 	}
 
@@ -241,6 +249,7 @@ import java.util.Queue;
 		if (this.linkQuadTree != null) {
 			this.linkQuadTree.remove(l);
 		}
+		this.linkRTree.remove(l);
 
 		return l;
 	}
@@ -345,10 +354,7 @@ import java.util.Queue;
 	}
 
 	@Override public Link getNearestLinkExactly(final Coord coord) {
-		if (this.linkQuadTree == null) {
-			buildLinkQuadTree();
-		}
-		return this.linkQuadTree.getNearest(coord.getX(), coord.getY());
+		return this.linkRTree.getNearest(coord.getX(), coord.getY());
 	}
 
 	/**
@@ -358,8 +364,7 @@ import java.util.Queue;
 	 * @return the closest node found, null if none
 	 */
 	@Override public Node getNearestNode(final Coord coord) {
-		if (this.nodeQuadTree == null) { buildQuadTree(); }
-		return this.nodeQuadTree.getClosest(coord.getX(), coord.getY());
+		return this.nodeRTree.getNearest(coord.getX(), coord.getY());
 	}
 
 	/**
@@ -370,8 +375,16 @@ import java.util.Queue;
 	 * @return all nodes within distance to <code>coord</code>
 	 */
 	@Override public Collection<Node> getNearestNodes(final Coord coord, final double distance) {
-		if (this.nodeQuadTree == null) { buildQuadTree(); }
-		return this.nodeQuadTree.getDisk(coord.getX(), coord.getY(), distance);
+		return this.nodeRTree.getDisk(coord.getX(), coord.getY(), distance);
+	}
+
+	/**
+	 * finds the <code>k</code> nodes nearest to <code>coord</code>
+	 *
+	 * @return the nodes, ordered by increasing distance to <code>coord</code>
+	 */
+	List<Node> getNearestNodes(final Coord coord, final int k) {
+		return this.nodeRTree.kNearest(coord.getX(), coord.getY(), k);
 	}
 
 	@Override
@@ -767,6 +767,17 @@ public final class NetworkUtils {
 		}
 	}
 
+	/**
+	 * @return the <code>k</code> nodes nearest to <code>coord</code>, ordered by increasing distance
+	 */
+	public static List<Node> getNearestNodes(Network network, final Coord coord, final int k) {
+		if ( network instanceof NetworkImpl ) {
+			return ((NetworkImpl)network).getNearestNodes(coord, k);
+		} else {
+			throw new RuntimeException( Gbl.WRONG_IMPLEMENTATION + " Network, NetworkImpl" ) ;
+		}
+	}
+
 	@Deprecated // use network.getFactory() instead
 	public static LinkFactoryImpl createLinkFactory() {
 		// yyyyyy Make LinkFactoryImpl invisible outside package.  Does the LinkFactory interface have to be public at all?  kai, aug'16
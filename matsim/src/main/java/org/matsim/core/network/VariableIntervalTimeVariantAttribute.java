@@ -24,6 +24,14 @@ import java.util.*;
 import org.matsim.core.network.NetworkChangeEvent.ChangeValue;
 
 
+/**
+ * Stores the value valid from each change event on, at the exact start times of the events.
+ * <p></p>
+ * To look up a value in constant time, the range of change times is divided into as many bins as there
+ * are values, and for each bin the value valid at the start of the bin is remembered.  A look-up then only
+ * needs to search the events starting within the bin, which are about one on average; if the change times are
+ * clustered, a binary search keeps crowded bins cheap.
+ */
 final class VariableIntervalTimeVariantAttribute
 implements TimeVariantAttribute
 {
@@ -31,6 +39,11 @@ implements TimeVariantAttribute
 	private double[] aValues;
 	private double[] aTimes;
 
+	/** the value index at the start of each bin, only set if there are at least two change events */
+	private int[] binStartIndex;
+	private double binOrigin;
+	private double binSize;
+
 
 	@Override
 	public boolean isRecalcRequired()
@@ -91,16 +104,64 @@ implements TimeVariantAttribute
 			throw new RuntimeException("Expected number of change events (" + (this.aEvents - 1)
 					+ ") differs from the number of events found (" + numEvent + ")!");
 		}
+
+		buildBinIndex();
+	}
+
+
+	private void buildBinIndex()
+	{
+		this.binStartIndex = null;
+		int n = this.aTimes.length;
+		if (n < 3) {
+			// at most one change event, a single comparison is enough
+			return;
+		}
+		this.binOrigin = this.aTimes[1];
+		this.binSize = (this.aTimes[n - 1] - this.binOrigin) / n;
+		this.binStartIndex = new int[n];
+		int key = 1;
+		for (int bin = 0; bin < n; bin++) {
+			double binStart = this.binOrigin + bin * this.binSize;
+			while (key + 1 < n && this.aTimes[key + 1] <= binStart) {
+				key++;
+			}
+			this.binStartIndex[bin] = key;
+		}
 	}
 
 
 	@Override
 	public double getValue(final double time)
 	{
-		// after we have put everything into an array by recalc, we just need a binary search:
-		int key = Arrays.binarySearch(this.aTimes, time);
-		key = key >= 0 ? key : -key - 2;
-		return this.aValues[key];
+		int n = this.aTimes.length;
+		if (n == 1 || time < this.aTimes[1]) {
+			return this.aValues[0];
+		}
+		if (!(time < this.aTimes[n - 1])) {
+			return this.aValues[n - 1];
+		}
+		// the time is now between the first and the last change event, i.e. n > 2:
+		int bin = Math.min((int) ((time - this.binOrigin) / this.binSize), n - 1);
+		int low = this.binStartIndex[bin];
+		int high = bin + 1 < n ? this.binStartIndex[bin + 1] : n - 2;
+		// the bin could be off by rounding, so search all events if the time is not within the bin's events:
+		if (this.aTimes[low] > time) {
+			low = 1;
+		}
+		if (this.aTimes[high + 1] <= time) {
+			high = n - 2;
+		}
+		// binary search for the last change event starting at or before the time:
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (this.aTimes[mid] <= time) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return this.aValues[low];
 	}
 
 
@@ -116,6 +177,7 @@ implements TimeVariantAttribute
 	{
 		aTimes = null;
 		aValues = null;
+		binStartIndex = null;
 		aEvents = 1;
 	}
 }
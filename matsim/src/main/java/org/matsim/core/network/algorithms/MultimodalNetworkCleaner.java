@@ -21,13 +21,9 @@ package org.matsim.core.network.algorithms;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -110,8 +106,6 @@ public final class MultimodalNetworkCleaner {
 	public void run(final Set<String> cleaningModes, final Set<String> connectivityModes) {
 		final Set<String> combinedModes = new HashSet<>(cleaningModes);
 		combinedModes.addAll(connectivityModes);
-		final Map<Id<Link>, Link> visitedLinks = new TreeMap<>();
-		Map<Id<Link>, Link> biggestCluster = new TreeMap<>();
 
 		log.info("running " + this.getClass().getName() + " algorithm for modes " + Arrays.toString(cleaningModes.toArray())
 				+ " with connectivity modes " + Arrays.toString(connectivityModes.toArray()) + "...");
@@ -119,23 +113,27 @@ public final class MultimodalNetworkCleaner {
 		// search the biggest cluster of nodes in the network
 		log.info("  checking " + this.network.getNodes().size() + " nodes and " +
 				this.network.getLinks().size() + " links for dead-ends...");
-		boolean stillSearching = true;
-		Iterator<? extends Link> iter = this.network.getLinks().values().iterator();
-		while (iter.hasNext() && stillSearching) {
-			Link startLink = iter.next();
-			if ((!visitedLinks.containsKey(startLink.getId())) && (intersectingSets(combinedModes, startLink.getAllowedModes()))) {
-				Map<Id<Link>, Link> cluster = this.findCluster(startLink, combinedModes);
-				visitedLinks.putAll(cluster);
-				if (cluster.size() > biggestCluster.size()) {
-					biggestCluster = cluster;
-					if (biggestCluster.size() >= (this.network.getLinks().size() - visitedLinks.size())) {
-						// stop searching here, because we cannot find a bigger cluster in the lasting nodes
-						stillSearching = false;
-					}
-				}
+		/* A link belongs to a cluster if it can be used and both its nodes are in the same strongly connected
+		 * component of the usable links. The biggest cluster is the one with the most links; if several have
+		 * the same size, the one whose first link comes first in the network wins.
+		 */
+		final StronglyConnectedComponents components = new StronglyConnectedComponents(this.network,
+				link -> intersectingSets(combinedModes, link.getAllowedModes()));
+		int[] sizes = new int[components.getNumberOfComponents()];
+		for (Link link : this.network.getLinks().values()) {
+			int component = getCluster(link, combinedModes, components);
+			if (component >= 0) {
+				sizes[component]++;
 			}
 		}
-		log.info("    The biggest cluster consists of " + biggestCluster.size() + " links.");
+		int biggestCluster = -1;
+		for (Link link : this.network.getLinks().values()) {
+			int component = getCluster(link, combinedModes, components);
+			if (component >= 0 && (biggestCluster < 0 || sizes[component] > sizes[biggestCluster])) {
+				biggestCluster = component;
+			}
+		}
+		log.info("    The biggest cluster consists of " + (biggestCluster < 0 ? 0 : sizes[biggestCluster]) + " links.");
 		log.info("  done.");
 
 		/* Remove the modes from all links not being part of the cluster. If a link has no allowed mode
@@ -143,7 +141,7 @@ public final class MultimodalNetworkCleaner {
 		 */
 		List<Link> allLinks = new ArrayList<>(this.network.getLinks().values());
 		for (Link link : allLinks) {
-			if (!biggestCluster.containsKey(link.getId())) {
+			if (biggestCluster < 0 || getCluster(link, combinedModes, components) != biggestCluster) {
 				Set<String> reducedModes = new HashSet<>(link.getAllowedModes());
 				reducedModes.removeAll(cleaningModes);
 				link.setAllowedModes(reducedModes);
@@ -166,61 +164,15 @@ public final class MultimodalNetworkCleaner {
 	}
 
 	/**
-	 * Finds the cluster of links <pre>startLink</pre> is part of. The cluster
-	 * contains all links which can be reached starting at <code>startLink</code>
-	 * and from where it is also possible to return again to <code>startLink</code>.
-	 *
-	 * @param startLink the link to start building the cluster
-	 * @param modes the set of modes that are allowed to
-	 * @return cluster of links <pre>startLink</pre> is part of
+	 * @return the component of both nodes of the link, or -1 if the link cannot be used with the given modes or
+	 * its nodes are in different components
 	 */
-	private Map<Id<Link>, Link> findCluster(final Link startLink, final Set<String> modes) {
-
-		final Map<Id<Link>, DoubleFlagRole> linkRoles = new HashMap<>(this.network.getLinks().size());
-
-		ArrayList<Node> pendingForward = new ArrayList<>();
-		ArrayList<Node> pendingBackward = new ArrayList<>();
-
-		TreeMap<Id<Link>, Link> clusterLinks = new TreeMap<>();
-
-		pendingForward.add(startLink.getToNode());
-		pendingBackward.add(startLink.getFromNode());
-
-		// step through the network in forward mode
-		while (pendingForward.size() > 0) {
-			int idx = pendingForward.size() - 1;
-			Node currNode = pendingForward.remove(idx); // get the last element to prevent object shifting in the array
-			for (Link link : currNode.getOutLinks().values()) {
-				if (intersectingSets(modes, link.getAllowedModes())) {
-					DoubleFlagRole r = getDoubleFlag(link, linkRoles);
-					if (!r.forwardFlag) {
-						r.forwardFlag = true;
-						pendingForward.add(link.getToNode());
-					}
-				}
-			}
-		}
-
-		// now step through the network in backward mode
-		while (pendingBackward.size() > 0) {
-			int idx = pendingBackward.size()-1;
-			Node currNode = pendingBackward.remove(idx); // get the last element to prevent object shifting in the array
-			for (Link link : currNode.getInLinks().values()) {
-				if (intersectingSets(modes, link.getAllowedModes())) {
-					DoubleFlagRole r = getDoubleFlag(link, linkRoles);
-					if (!r.backwardFlag) {
-						r.backwardFlag = true;
-						pendingBackward.add(link.getFromNode());
-						if (r.forwardFlag) {
-							// the node can be reached forward and backward, add it to the cluster
-							clusterLinks.put(link.getId(), link);
-						}
-					}
-				}
-			}
+	private int getCluster(final Link link, final Set<String> modes, final StronglyConnectedComponents components) {
+		if (!intersectingSets(modes, link.getAllowedModes())) {
+			return -1;
 		}
-
-		return clusterLinks;
+		int component = components.getComponent(link.getFromNode());
+		return component == components.getComponent(link.getToNode()) ? component : -1;
 	}
 
 	/**
@@ -258,18 +210,4 @@ public final class MultimodalNetworkCleaner {
 		return false;
 	}
 
-	private static DoubleFlagRole getDoubleFlag(final Link l, final Map<Id<Link>, DoubleFlagRole> linkRoles) {
-		DoubleFlagRole r = linkRoles.get(l.getId());
-		if (null == r) {
-			r = new DoubleFlagRole();
-			linkRoles.put(l.getId(), r);
-		}
-		return r;
-	}
-
-	static class DoubleFlagRole {
-		boolean forwardFlag = false;
-		boolean backwardFlag = false;
-	}
-
 }
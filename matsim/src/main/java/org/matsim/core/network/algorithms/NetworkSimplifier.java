@@ -41,6 +41,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.Predicate;
 
 /**
  * Simplifies a given network, by merging links. All other criteria met, no 
@@ -51,7 +52,8 @@ import java.util.TreeSet;
  * shorter than the threshold with either of the links' mergeable neighbours.<br><br>
  * 
  * If no link threshold is given, an infinite threshold is assumed. This should
- * behave the same as a 'clean' network.
+ * behave the same as a 'clean' network. In that case, the simplification can
+ * also run on several threads, see {@link #setNumberOfThreads(int)}.
  *
  * @author aneumann, jwjoubert
  *
@@ -66,13 +68,19 @@ public final class NetworkSimplifier {
 
 	private final Map<Id<Link>,List<Node>> mergedLinksToIntermediateNodes = new HashMap<>();
 
+	private int numberOfThreads = 1;
+
 
 	/**
 	 * Merges all qualifying links, ignoring length threshold.
 	 * @param network
 	 */
 	public void run(final Network network){
-		run(network, Double.POSITIVE_INFINITY, ThresholdExceeded.EITHER);
+		if (this.numberOfThreads > 1) {
+			runParallel(network);
+		} else {
+			run(network, Double.POSITIVE_INFINITY, ThresholdExceeded.EITHER);
+		}
 	}
 	
 	
@@ -280,6 +288,247 @@ public final class NetworkSimplifier {
 		this.mergeLinksWithDifferentAttributes = mergeLinksWithDifferentAttributes;
 	}
 
+	/**
+	 * Sets the number of threads used by {@link #run(Network)}. With more than one thread, the links are not
+	 * merged pairwise node by node, but every chain of mergeable links is first collected (concurrently, as
+	 * this only reads the network) and then replaced by a single link. This results in the same links as
+	 * the sequential algorithm, except for the following cases, where the sequential result depends on the
+	 * sequence of the nodes:<ul>
+	 *     <li>a chain that would visit a node twice is split where the repeated node is reached first when
+	 *     walking along the chain, and a closed ring of mergeable nodes is opened at its link coming first
+	 *     in the network;</li>
+	 *     <li>nodes where an in-link could be merged with more than one out-link (e.g. parallel links) are
+	 *     kept.</li>
+	 * </ul>
+	 * The runs with a length threshold always use the sequential algorithm. Default is 1.
+	 */
+	public void setNumberOfThreads(int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	private void runParallel(final Network network) {
+		if(this.nodeTopoToMerge.size() == 0){
+			throw new RuntimeException("No types of node specified. Please use setNodesToMerge to specify which nodes should be merged");
+		}
+
+		log.info("running " + this.getClass().getName() + " algorithm on " + this.numberOfThreads + " threads...");
+
+		NetworkCalcTopoType nodeTopo = new NetworkCalcTopoType();
+		nodeTopo.run(network);
+		Predicate<Node> isMergeable = node -> this.nodeTopoToMerge.contains(nodeTopo.getTopoType(node))
+				&& !this.nodesNotToMerge.contains(node.getId());
+
+		final Link[] links = network.getLinks().values().toArray(new Link[0]);
+		final int[] linkIndexById = new int[Id.getNumberOfIds(Link.class)];
+		for (int i = 0; i < links.length; i++) {
+			linkIndexById[links[i].getId().index()] = i;
+		}
+		final boolean[] visited = new boolean[links.length];
+
+		/* Every worker walks the chains starting at the links of its own slice of the network. The chains are
+		 * disjoint, so the workers only read the network and mark distinct links as visited. */
+		final int threads = Math.max(1, Math.min(this.numberOfThreads, links.length / 1000 + 1));
+		final int sliceSize = (links.length + threads - 1) / threads;
+		final List<List<MergedChain>> chainsPerSlice = new ArrayList<>(threads);
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			final List<MergedChain> chains = new ArrayList<>();
+			chainsPerSlice.add(chains);
+			final int from = t * sliceSize;
+			final int to = Math.min(links.length, from + sliceSize);
+			workers[t] = new Thread(() -> {
+				for (int i = from; i < to; i++) {
+					Link previous = getPreviousLink(links[i], isMergeable);
+					if (previous == null || getNextLink(previous, isMergeable) != links[i]) {
+						walkChain(links[i], isMergeable, linkIndexById, visited, chains);
+					}
+				}
+			}, "NetworkSimplifier-" + t);
+			workers[t].start();
+		}
+		for (Thread worker : workers) {
+			try {
+				worker.join();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		/* What is left unvisited are rings of mergeable nodes, which are rare enough to be walked here. */
+		List<MergedChain> rings = new ArrayList<>();
+		for (int i = 0; i < links.length; i++) {
+			if (!visited[i]) {
+				walkChain(links[i], isMergeable, linkIndexById, visited, rings);
+			}
+		}
+		chainsPerSlice.add(rings);
+
+		/* Stitching: replace the chains in the order of the slices, so the result does not depend on the threads. */
+		int mergedLinks = 0;
+		for (List<MergedChain> chains : chainsPerSlice) {
+			for (MergedChain chain : chains) {
+				addMergedLink(network, chain);
+				mergedLinks += chain.links.size();
+			}
+		}
+		log.info("  merged " + mergedLinks + " links.");
+		log.info("  resulting network contains " + network.getNodes().size() + " nodes and " +
+				network.getLinks().size() + " links.");
+		log.info("done.");
+
+		// writes stats as a side effect
+		new NetworkCalcTopoType().run(network);
+	}
+
+	/**
+	 * Follows the links merged at the mergeable nodes, starting with <code>start</code>, and collects the
+	 * parts of the chain that do not visit a node twice.
+	 */
+	private void walkChain(Link start, Predicate<Node> isMergeable, int[] linkIndexById, boolean[] visited, List<MergedChain> chains) {
+		List<Link> part = new ArrayList<>();
+		Set<Node> partNodes = new HashSet<>();
+		Link link = start;
+		while (link != null && !visited[linkIndexById[link.getId().index()]]) {
+			visited[linkIndexById[link.getId().index()]] = true;
+			if (partNodes.contains(link.getToNode())) {
+				addChain(part, chains);
+				part = new ArrayList<>();
+				partNodes.clear();
+			}
+			if (part.isEmpty()) {
+				partNodes.add(link.getFromNode());
+			}
+			part.add(link);
+			partNodes.add(link.getToNode());
+			link = getNextLink(link, isMergeable);
+		}
+		addChain(part, chains);
+	}
+
+	private void addChain(List<Link> part, List<MergedChain> chains) {
+		if (part.size() > 1) {
+			chains.add(new MergedChain(part));
+		}
+	}
+
+	/**
+	 * @return the out-link which <code>inLink</code> is merged with at its to-node, or <code>null</code>
+	 */
+	private Link getNextLink(Link inLink, Predicate<Node> isMergeable) {
+		Node node = inLink.getToNode();
+		if (!isMergeable.test(node)) {
+			return null;
+		}
+		Link next = null;
+		for (Link outLink : node.getOutLinks().values()) {
+			if (outLink.getToNode() != inLink.getFromNode() && areLinkStatsMergeable(inLink, outLink)) {
+				if (next != null) {
+					return null;
+				}
+				next = outLink;
+			}
+		}
+		if (next == null || getPreviousLink(next, isMergeable) != inLink) {
+			return null;
+		}
+		return next;
+	}
+
+	/**
+	 * @return the in-link which <code>outLink</code> could be merged with at its from-node, or <code>null</code>.
+	 * The in-link is only merged if <code>outLink</code> is its only candidate, too; see {@link #getNextLink}.
+	 */
+	private Link getPreviousLink(Link outLink, Predicate<Node> isMergeable) {
+		Node node = outLink.getFromNode();
+		if (!isMergeable.test(node)) {
+			return null;
+		}
+		Link previous = null;
+		for (Link inLink : node.getInLinks().values()) {
+			if (inLink.getFromNode() != outLink.getToNode() && areLinkStatsMergeable(inLink, outLink)) {
+				if (previous != null) {
+					return null;
+				}
+				previous = inLink;
+			}
+		}
+		return previous;
+	}
+
+	private boolean areLinkStatsMergeable(Link inLink, Link outLink) {
+		return this.mergeLinksWithDifferentAttributes || bothLinksHaveSameLinkStats(inLink, outLink);
+	}
+
+	/**
+	 * Replaces the chain by a single link, with the same attributes as if the links were merged pairwise.
+	 */
+	private void addMergedLink(Network network, MergedChain chain) {
+		Link first = chain.links.get(0);
+		Link last = chain.links.get(chain.links.size() - 1);
+		Id<Link> id = Id.create(chain.id, Link.class);
+		Link newLink;
+		if (this.mergeLinksWithDifferentAttributes) {
+			newLink = network.getFactory().createLink(id, first.getFromNode(), last.getToNode());
+			newLink.setLength(chain.length);
+			newLink.setFreespeed(chain.length / chain.freespeedTravelTime);
+			newLink.setCapacity(chain.capacity);
+			newLink.setNumberOfLanes(chain.laneLength / chain.length);
+			network.addLink(newLink);
+		} else {
+			newLink = NetworkUtils.createAndAddLink(network, id, first.getFromNode(), last.getToNode(), chain.length, first.getFreespeed(), first.getCapacity(), first.getNumberOfLanes(), chain.origId, null);
+			newLink.setAllowedModes(first.getAllowedModes());
+		}
+		List<Node> intermediateNodes = new ArrayList<>();
+		for (Link link : chain.links) {
+			network.removeLink(link.getId());
+			if (link != last) {
+				intermediateNodes.add(link.getToNode());
+			}
+		}
+		this.mergedLinksToIntermediateNodes.put(newLink.getId(), intermediateNodes);
+	}
+
+	/**
+	 * The links to be merged into one, together with the merged values that can be computed by the workers.
+	 */
+	private static final class MergedChain {
+		private final List<Link> links;
+		private final String id;
+		private final String origId;
+		private final double length;
+		private final double freespeedTravelTime;
+		private final double capacity;
+		private final double laneLength;
+
+		MergedChain(List<Link> links) {
+			this.links = links;
+			StringBuilder id = new StringBuilder();
+			StringBuilder origId = new StringBuilder();
+			double length = 0;
+			double freespeedTravelTime = 0;
+			double capacity = Double.POSITIVE_INFINITY;
+			double laneLength = 0;
+			for (Link link : links) {
+				if (id.length() > 0) {
+					id.append('-');
+					origId.append('-');
+				}
+				id.append(link.getId());
+				origId.append(NetworkUtils.getOrigId(link));
+				length += link.getLength();
+				freespeedTravelTime += NetworkUtils.getFreespeedTravelTime(link);
+				capacity = Math.min(capacity, link.getCapacity());
+				laneLength += link.getLength() * link.getNumberOfLanes();
+			}
+			this.id = id.toString();
+			this.origId = origId.toString();
+			this.length = length;
+			this.freespeedTravelTime = freespeedTravelTime;
+			this.capacity = capacity;
+			this.laneLength = laneLength;
+		}
+	}
+
 	// helper
 
 	/**
@@ -0,0 +1,194 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * StronglyConnectedComponents.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.algorithms;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.Predicate;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Finds the strongly connected components of the sub-network formed by the links accepted by a filter.
+ * <p></p>
+ * The links are copied into int-indexed arrays (the out-links of node <code>i</code> are
+ * <code>targets[firstOut[i] .. firstOut[i+1]-1]</code>), on which an iterative variant of Tarjan's algorithm
+ * runs in linear time.  It follows Pearce's space-efficient formulation, which needs a single int per node for
+ * both the depth-first index and the resulting component, so apart from the adjacency arrays only a few ints
+ * per node are needed, and no objects are created per node or link.
+ */
+/* deliberately package */ final class StronglyConnectedComponents {
+
+	private final Node[] nodes;
+	/** node index by the index of the node's id, -1 for ids not in the network */
+	private final int[] nodeIndexById;
+	/** the component of each node, in <code>[0, numberOfComponents)</code> */
+	private final int[] components;
+	private final int numberOfComponents;
+
+	StronglyConnectedComponents(final Network network, final Predicate<Link> linkFilter) {
+		int n = network.getNodes().size();
+		this.nodes = network.getNodes().values().toArray(new Node[n]);
+		this.nodeIndexById = new int[Id.getNumberOfIds(Node.class)];
+		Arrays.fill(this.nodeIndexById, -1);
+		for (int i = 0; i < n; i++) {
+			this.nodeIndexById[this.nodes[i].getId().index()] = i;
+		}
+
+		// build the adjacency arrays, remembering which links passed the filter to evaluate it only once
+		BitSet accepted = new BitSet(network.getLinks().size());
+		int[] firstOut = new int[n + 1];
+		int l = 0;
+		int m = 0;
+		for (Link link : network.getLinks().values()) {
+			if (linkFilter.test(link)) {
+				accepted.set(l);
+				firstOut[getIndex(link.getFromNode()) + 1]++;
+				m++;
+			}
+			l++;
+		}
+		for (int i = 0; i < n; i++) {
+			firstOut[i + 1] += firstOut[i];
+		}
+		int[] targets = new int[m];
+		int[] fill = Arrays.copyOf(firstOut, n);
+		l = 0;
+		for (Link link : network.getLinks().values()) {
+			if (accepted.get(l)) {
+				targets[fill[getIndex(link.getFromNode())]++] = getIndex(link.getToNode());
+			}
+			l++;
+		}
+
+		this.components = new int[n];
+		this.numberOfComponents = findComponents(n, firstOut, targets, this.components);
+	}
+
+	/**
+	 * Pearce, D.J. (2016): A space-efficient algorithm for finding strongly connected components.
+	 * <code>rindex</code> holds the depth-first index of a node while it is being visited, and the
+	 * component (counting down from <code>n-1</code>) once its component is complete.
+	 *
+	 * @return the number of components; the components are written to <code>rindex</code>
+	 */
+	private static int findComponents(final int n, final int[] firstOut, final int[] targets, final int[] rindex) {
+		int[] stack = new int[n];
+		int sp = 0;
+		int[] callNodes = new int[n];
+		int[] callEdges = new int[n];
+		BitSet root = new BitSet(n);
+		int index = 1;
+		int component = n - 1;
+
+		for (int start = 0; start < n; start++) {
+			if (rindex[start] != 0) {
+				continue;
+			}
+			rindex[start] = index++;
+			root.set(start);
+			callNodes[0] = start;
+			callEdges[0] = firstOut[start];
+			int csp = 1;
+			while (csp > 0) {
+				int v = callNodes[csp - 1];
+				int e = callEdges[csp - 1];
+				if (e < firstOut[v + 1]) {
+					int w = targets[e];
+					if (rindex[w] == 0) {
+						// descend; the edge is handled again once w is finished
+						rindex[w] = index++;
+						root.set(w);
+						callNodes[csp] = w;
+						callEdges[csp] = firstOut[w];
+						csp++;
+					} else {
+						if (rindex[w] < rindex[v]) {
+							rindex[v] = rindex[w];
+							root.clear(v);
+						}
+						callEdges[csp - 1] = e + 1;
+					}
+				} else {
+					csp--;
+					if (root.get(v)) {
+						index--;
+						while (sp > 0 && rindex[v] <= rindex[stack[sp - 1]]) {
+							rindex[stack[--sp]] = component;
+							index--;
+						}
+						rindex[v] = component;
+						component--;
+					} else {
+						stack[sp++] = v;
+					}
+					if (csp > 0) {
+						int parent = callNodes[csp - 1];
+						if (rindex[v] < rindex[parent]) {
+							rindex[parent] = rindex[v];
+							root.clear(parent);
+						}
+						callEdges[csp - 1]++;
+					}
+				}
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			rindex[i] = n - 1 - rindex[i];
+		}
+		return n - 1 - component;
+	}
+
+	private int getIndex(final Node node) {
+		int index = node.getId().index();
+		if (index >= this.nodeIndexById.length || this.nodeIndexById[index] < 0) {
+			throw new IllegalArgumentException("Node " + node.getId() + " is not part of the network.");
+		}
+		return this.nodeIndexById[index];
+	}
+
+	int getNumberOfNodes() {
+		return this.nodes.length;
+	}
+
+	/**
+	 * @return the node at <code>index</code>, in the order of {@link Network#getNodes()}
+	 */
+	Node getNode(final int index) {
+		return this.nodes[index];
+	}
+
+	int getNumberOfComponents() {
+		return this.numberOfComponents;
+	}
+
+	int getComponent(final int nodeIndex) {
+		return this.components[nodeIndex];
+	}
+
+	int getComponent(final Node node) {
+		return this.components[getIndex(node)];
+	}
+
+}
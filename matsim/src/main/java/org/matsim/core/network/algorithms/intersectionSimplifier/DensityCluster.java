@@ -25,8 +25,10 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import org.apache.log4j.Logger;
@@ -183,16 +185,19 @@ public class DensityCluster {
 						 * Merge all the clusters. Use the DigicoreCluster with the smallest clusterId
 						 * value as the remaining DigicoreCluster.
 						 */
-						List<Cluster> localClusters = new ArrayList<Cluster>();
+						Set<Cluster> localClusters = new LinkedHashSet<Cluster>();
 						Cluster smallestCluster = cN.get(0).getCluster();
+						int smallestClusterId = Integer.parseInt(smallestCluster.getId().toString());
 						for(int i = 1; i < cN.size(); i++){
-							if(Integer.parseInt(cN.get(i).getCluster().getId().toString()) < 
-									Integer.parseInt(smallestCluster.getId().toString()) ){
-								smallestCluster = cN.get(i).getCluster();
-							}
-							if(!localClusters.contains(cN.get(i).getCluster())){
-								localClusters.add(cN.get(i).getCluster());
+							Cluster cluster = cN.get(i).getCluster();
+							if(cluster != smallestCluster){
+								int clusterId = Integer.parseInt(cluster.getId().toString());
+								if(clusterId < smallestClusterId){
+									smallestCluster = cluster;
+									smallestClusterId = clusterId;
+								}
 							}
+							localClusters.add(cluster);
 						}
 						for (Cluster DigicoreCluster : localClusters) {
 							if(!DigicoreCluster.equals(smallestCluster)){
@@ -106,15 +106,7 @@ public class IntersectionSimplifier {
 			for (ClusterActivity nodeInCluster : cluster.getPoints()) {
 				nodeIdsInCluster.add(nodeInCluster.getNode().getId().toString());
 			}
-			String clusteredNodeName = "";
-			for (String nodeInCluster : nodeIdsInCluster) {
-				/* Don't add "-" if no node id is in the clusteredNodeName yet */
-				if (! clusteredNodeName.equals("")) {
-					clusteredNodeName = clusteredNodeName + "-";
-				}
-				clusteredNodeName = clusteredNodeName + nodeInCluster;
-			}
-			Id<Node> newId = Id.createNodeId(clusteredNodeName);
+			Id<Node> newId = Id.createNodeId(String.join("-", nodeIdsInCluster));
 			
 			Node newNode = network.getFactory().createNode(newId, cluster.getCenterOfGravity());
 			Set<Id<Node>> includedNodes = new HashSet<>();
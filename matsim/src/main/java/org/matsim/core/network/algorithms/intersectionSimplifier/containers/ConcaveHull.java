@@ -26,8 +26,10 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import org.apache.log4j.Logger;
@@ -285,8 +287,9 @@ public class ConcaveHull {
 		 *   TODO find out what frame and border edges really are?!
 		 */
 		List<QuadEdge> qeFrameBorder = new ArrayList<>();
-		List<QuadEdge> qeFrame = new ArrayList<>();
-		List<QuadEdge> qeBorder = new ArrayList<>();
+		/* Sets, as membership is tested for every edge of the triangulation; ordered to keep the deletion order. */
+		Set<QuadEdge> qeFrame = new LinkedHashSet<>();
+		Set<QuadEdge> qeBorder = new LinkedHashSet<>();
 
 		for (QuadEdge qe : quadEdges) {
 			if (qes.isFrameBorderEdge(qe)) {
@@ -32,12 +32,15 @@ import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
 import org.matsim.core.utils.io.MatsimXmlParser;
+import org.matsim.core.utils.io.ParallelXmlElementBuilder;
 import org.matsim.core.utils.misc.StringUtils;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.attributable.Attributable;
 import org.matsim.utils.objectattributes.attributable.AttributesXmlReaderDelegate;
 import org.xml.sax.Attributes;
 
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -45,6 +48,9 @@ import java.util.Stack;
 
 /**
  * A reader for network-files of MATSim according to <code>network_v1.dtd</code>.
+ * <p></p>
+ * With more than one thread, the nodes and links are built on several threads (see {@link ParallelXmlElementBuilder}),
+ * and added to the network in the order of the file.
  *
  * @author mrieser
  */
@@ -66,12 +72,25 @@ final class NetworkReaderMatsimV2 extends MatsimXmlParser {
 	private final String targetCRS;
 	private CoordinateTransformation coordinateTransformation = new IdentityTransformation();
 
+	private final int numberOfThreads;
+	private final Map<Class<?>, AttributeConverter<?>> converters = new HashMap<>();
+	private ParallelXmlElementBuilder<Attributable> builder = null;
+
 	private final static Logger log = Logger.getLogger(NetworkReaderMatsimV2.class);
 
 	NetworkReaderMatsimV2(
 	        final String inputCRS,
 			final String targetCRS,
 			final Network network) {
+		this(inputCRS, targetCRS, network, 1);
+	}
+
+	NetworkReaderMatsimV2(
+	        final String inputCRS,
+			final String targetCRS,
+			final Network network,
+			final int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
 		this.externalInputCRS = inputCRS;
 		this.targetCRS = targetCRS;
 		if (externalInputCRS != null && targetCRS != null) {
@@ -83,17 +102,33 @@ final class NetworkReaderMatsimV2 extends MatsimXmlParser {
 
 	@Override
 	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+		if (this.builder != null && this.builder.isInElement()) {
+			this.builder.startTag(name, atts, context);
+			return;
+		}
 		switch( name ) {
 			case NODE:
-				startNode(atts);
+				if (this.numberOfThreads > 1) {
+					getBuilder().startTag(name, atts, context);
+				} else {
+					startNode(atts);
+				}
 				break;
 			case LINK:
-				startLink(atts);
+				if (this.numberOfThreads > 1) {
+					getBuilder().startTag(name, atts, context);
+				} else {
+					startLink(atts);
+				}
 				break;
 			case NETWORK:
 				startNetwork(atts);
 				break;
 			case LINKS:
+				if (this.builder != null) {
+					// the links refer to the nodes, so all nodes must be in the network before the first link is built
+					this.builder.flush();
+				}
 				startLinks(atts);
 				break;
 			case ATTRIBUTES:
@@ -105,7 +140,17 @@ final class NetworkReaderMatsimV2 extends MatsimXmlParser {
 
 	@Override
 	public void endTag(final String name, final String content, final Stack<String> context) {
+		if (this.builder != null && this.builder.isInElement()) {
+			this.builder.endTag(name, content, context);
+			return;
+		}
 		switch( name ) {
+			case NETWORK:
+				if (this.builder != null) {
+					this.builder.finish();
+					this.builder = null;
+				}
+				break;
 			case ATTRIBUTES:
                 if (context.peek().equals(NETWORK)) {
 					String inputCRS = (String) network.getAttributes().getAttribute(ProjectionUtils.INPUT_CRS_ATT);
@@ -175,12 +220,31 @@ final class NetworkReaderMatsimV2 extends MatsimXmlParser {
 		}
 	}
 
+	private ParallelXmlElementBuilder<Attributable> getBuilder() {
+		if (this.builder == null) {
+			// created with the first node, after the network attributes which may change the coordinate transformation
+			this.builder = new ParallelXmlElementBuilder<>(this.numberOfThreads, ElementBuilder::new, element -> {
+				if (element instanceof Node) {
+					this.network.addNode((Node) element);
+				} else {
+					this.network.addLink((Link) element);
+				}
+			});
+		}
+		return this.builder;
+	}
+
 	private void startNode(final Attributes atts) {
+		final Node node = createNode(atts);
+		this.network.addNode(node);
+		currentAttributes = node.getAttributes();
+	}
+
+	private Node createNode(final Attributes atts) {
 		final Node node =
 				this.network.getFactory().createNode(
 						Id.create(atts.getValue("id"), Node.class),
 						parseCoord(atts));
-		this.network.addNode(node);
 
 		NetworkUtils.setType(node,atts.getValue("type"));
 		// (did not have a null check when I found it.  kai, jul'16) 
@@ -188,8 +252,7 @@ final class NetworkReaderMatsimV2 extends MatsimXmlParser {
 		if (atts.getValue(NetworkUtils.ORIGID) != null) {
 			NetworkUtils.setOrigId( node, atts.getValue(NetworkUtils.ORIGID) ) ;
 		}
-
-		currentAttributes = node.getAttributes();
+		return node;
 	}
 
 	private Coord parseCoord(Attributes atts) {
@@ -205,6 +268,12 @@ final class NetworkReaderMatsimV2 extends MatsimXmlParser {
 	}
 
 	private void startLink(final Attributes atts) {
+		final Link l = createLink(atts);
+		this.network.addLink(l);
+		currentAttributes = l.getAttributes();
+	}
+
+	private Link createLink(final Attributes atts) {
 		final String fromNodeStr = atts.getValue("from");
 		Node fromNode = this.network.getNodes().get(Id.create(fromNodeStr, Node.class));
 		if ( fromNode==null ) {
@@ -220,7 +289,6 @@ final class NetworkReaderMatsimV2 extends MatsimXmlParser {
 		l.setFreespeed(Double.parseDouble(atts.getValue("freespeed")));
 		l.setCapacity(Double.parseDouble(atts.getValue("capacity")));
 		l.setNumberOfLanes(Double.parseDouble(atts.getValue("permlanes")));
-		this.network.addLink(l);
 		{
 			String value = atts.getValue(NetworkUtils.ORIGID);
 			if ( value != null ) {
@@ -246,11 +314,51 @@ final class NetworkReaderMatsimV2 extends MatsimXmlParser {
 				l.setAllowedModes(modes);
 			}
 		}
-
-		currentAttributes = l.getAttributes();
+		return l;
 	}
 
 	public void putAttributeConverters(Map<Class<?>, AttributeConverter<?>> converters) {
 		this.attributesDelegate.putAttributeConverters( converters );
+		this.converters.putAll( converters );
+	}
+
+	/**
+	 * Builds the nodes and links on the worker threads, without adding them to the network.
+	 */
+	private final class ElementBuilder implements ParallelXmlElementBuilder.ElementBuilder<Attributable> {
+		private final AttributesXmlReaderDelegate attributesDelegate = new AttributesXmlReaderDelegate();
+		private Attributable element = null;
+
+		ElementBuilder() {
+			this.attributesDelegate.putAttributeConverters(NetworkReaderMatsimV2.this.converters);
+		}
+
+		@Override
+		public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+			switch( name ) {
+				case NODE:
+					this.element = createNode(atts);
+					break;
+				case LINK:
+					this.element = createLink(atts);
+					break;
+				case ATTRIBUTES:
+				case ATTRIBUTE:
+					this.attributesDelegate.startTag(name, atts, context, this.element.getAttributes());
+					break;
+			}
+		}
+
+		@Override
+		public void endTag(final String name, final String content, final Stack<String> context) {
+			if (ATTRIBUTE.equals(name)) {
+				this.attributesDelegate.endTag(name, content, context);
+			}
+		}
+
+		@Override
+		public Attributable getElement() {
+			return this.element;
+		}
 	}
 }
@@ -0,0 +1,399 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlanElements.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Stores the plan elements of a plan in a few primitive arrays instead of one object graph per activity, leg and route.
+ * Link, facility and vehicle ids are stored by their {@link Id#index()}, link network routes as a slice of one shared
+ * <code>int[]</code>.  Types and modes are interned strings, so only a reference is kept for them.
+ * <p></p>
+ * The encoding is lossless: attributes of activities and legs are kept by reference, routes that are not
+ * link network routes are kept as they are.  {@link #inflate()} creates fresh {@link ActivityImpl} and {@link LegImpl}
+ * instances with the same content as the original ones; routes that are kept as they are are cloned, so an instance can
+ * be inflated several times.
+ */
+/* deliberately package */ final class CompactPlanElements implements PlanElementsStorage {
+
+	private static final int NO_ID = -1;
+
+	private static final Class<?> LINK_NETWORK_ROUTE_CLASS = RouteUtils.createLinkNetworkRouteImpl(null, null).getClass();
+
+	/** <code>true</code> for activities, <code>false</code> for legs, in plan order */
+	private final boolean[] isActivity;
+
+	// --- activities:
+	private final String[] actType;
+	private final int[] actLink;
+	private final int[] actFacility;
+	private final double[] actCoord; // x, y, z per activity; NaN if undefined
+	private final double[] actTimes; // startTime, endTime, maximumDuration per activity
+	private final Attributes[] actAttributes; // null if empty
+
+	// --- legs:
+	private final String[] legMode;
+	private final double[] legTimes; // departureTime, travelTime per leg
+	private final Attributes[] legAttributes; // null if empty
+
+	// --- routes (one per leg):
+	private final Route[] otherRoute; // routes that are not encoded, null otherwise
+	private final int[] routeStartLink; // NO_ID if leg has no encoded route
+	private final int[] routeEndLink;
+	private final int[] routeVehicle;
+	private final double[] routeValues; // distance, travelTime, travelCost per leg
+	private final int[] routeLinkOffsets; // legs+1 entries, slices into routeLinks
+	private final int[] routeLinks;
+
+	private CompactPlanElements(final int nOfActs, final int nOfLegs, final int nOfRouteLinks) {
+		this.isActivity = new boolean[nOfActs + nOfLegs];
+		this.actType = new String[nOfActs];
+		this.actLink = new int[nOfActs];
+		this.actFacility = new int[nOfActs];
+		this.actCoord = new double[3 * nOfActs];
+		this.actTimes = new double[3 * nOfActs];
+		this.actAttributes = new Attributes[nOfActs];
+		this.legMode = new String[nOfLegs];
+		this.legTimes = new double[2 * nOfLegs];
+		this.legAttributes = new Attributes[nOfLegs];
+		this.otherRoute = new Route[nOfLegs];
+		this.routeStartLink = new int[nOfLegs];
+		this.routeEndLink = new int[nOfLegs];
+		this.routeVehicle = new int[nOfLegs];
+		this.routeValues = new double[3 * nOfLegs];
+		this.routeLinkOffsets = new int[nOfLegs + 1];
+		this.routeLinks = new int[nOfRouteLinks];
+	}
+
+	/**
+	 * @return the compact representation of the given plan elements, or <code>null</code> if they contain
+	 * elements that cannot be encoded (i.e. other implementations than {@link ActivityImpl} and {@link LegImpl}, or
+	 * ids that were not created for their type).
+	 */
+	static CompactPlanElements deflate(final List<PlanElement> planElements) {
+		try {
+			return tryDeflate(planElements);
+		} catch (NotEncodableException e) {
+			return null;
+		}
+	}
+
+	private static CompactPlanElements tryDeflate(final List<PlanElement> planElements) {
+		int nOfActs = 0;
+		int nOfLegs = 0;
+		int nOfRouteLinks = 0;
+		for (PlanElement pe : planElements) {
+			if (pe instanceof ActivityImpl) {
+				nOfActs++;
+			} else if (pe instanceof LegImpl) {
+				nOfLegs++;
+				Route route = ((Leg) pe).getRoute();
+				if (isEncodable(route)) {
+					nOfRouteLinks += ((NetworkRoute) route).getLinkIds().size();
+				}
+			} else {
+				return null;
+			}
+		}
+
+		CompactPlanElements c = new CompactPlanElements(nOfActs, nOfLegs, nOfRouteLinks);
+		int a = 0;
+		int l = 0;
+		int r = 0;
+		for (int i = 0; i < planElements.size(); i++) {
+			PlanElement pe = planElements.get(i);
+			if (pe instanceof Activity) {
+				Activity act = (Activity) pe;
+				c.isActivity[i] = true;
+				c.actType[a] = act.getType();
+				c.actLink[a] = index(act.getLinkId(), Link.class);
+				c.actFacility[a] = index(act.getFacilityId(), ActivityFacility.class);
+				Coord coord = act.getCoord();
+				c.actCoord[3 * a] = coord == null ? Double.NaN : coord.getX();
+				c.actCoord[3 * a + 1] = coord == null ? Double.NaN : coord.getY();
+				c.actCoord[3 * a + 2] = coord == null || !coord.hasZ() ? Double.NaN : coord.getZ();
+				c.actTimes[3 * a] = act.getStartTime();
+				c.actTimes[3 * a + 1] = act.getEndTime();
+				c.actTimes[3 * a + 2] = act.getMaximumDuration();
+				c.actAttributes[a] = act.getAttributes().isEmpty() ? null : act.getAttributes();
+				a++;
+			} else {
+				Leg leg = (Leg) pe;
+				c.legMode[l] = leg.getMode();
+				c.legTimes[2 * l] = leg.getDepartureTime();
+				c.legTimes[2 * l + 1] = leg.getTravelTime();
+				c.legAttributes[l] = leg.getAttributes().isEmpty() ? null : leg.getAttributes();
+				Route route = leg.getRoute();
+				c.routeStartLink[l] = NO_ID;
+				c.routeLinkOffsets[l] = r;
+				if (isEncodable(route)) {
+					NetworkRoute netRoute = (NetworkRoute) route;
+					c.routeStartLink[l] = index(netRoute.getStartLinkId(), Link.class);
+					c.routeEndLink[l] = index(netRoute.getEndLinkId(), Link.class);
+					c.routeVehicle[l] = index(netRoute.getVehicleId(), Vehicle.class);
+					c.routeValues[3 * l] = netRoute.getDistance();
+					c.routeValues[3 * l + 1] = netRoute.getTravelTime();
+					c.routeValues[3 * l + 2] = netRoute.getTravelCost();
+					for (Id<Link> linkId : netRoute.getLinkIds()) {
+						c.routeLinks[r++] = index(linkId, Link.class);
+					}
+				} else {
+					c.otherRoute[l] = route;
+				}
+				l++;
+			}
+		}
+		c.routeLinkOffsets[nOfLegs] = r;
+		return c;
+	}
+
+	/**
+	 * @return a new list of new plan elements with the content of the encoded ones.
+	 */
+	@Override
+	public ArrayList<PlanElement> inflate() {
+		ArrayList<PlanElement> planElements = new ArrayList<>(this.isActivity.length);
+		int a = 0;
+		int l = 0;
+		for (boolean activity : this.isActivity) {
+			planElements.add(activity ? inflateActivity(a++) : inflateLeg(l++));
+		}
+		return planElements;
+	}
+
+	/**
+	 * @param position the index of the element among the activities or legs, see {@link #positions()}
+	 */
+	PlanElement inflate(final int i, final int position) {
+		return this.isActivity[i] ? inflateActivity(position) : inflateLeg(position);
+	}
+
+	/**
+	 * @return for every plan element its index among the activities (if it is an activity) or among the legs (if it is a leg)
+	 */
+	int[] positions() {
+		int[] positions = new int[this.isActivity.length];
+		int a = 0;
+		int l = 0;
+		for (int i = 0; i < positions.length; i++) {
+			positions[i] = this.isActivity[i] ? a++ : l++;
+		}
+		return positions;
+	}
+
+	/**
+	 * @return <code>true</code> if plan element <code>i</code> of this instance would be inflated to a plan element with the
+	 * same content as plan element <code>k</code> of <code>other</code>.  Attributes and routes that are not encoded are
+	 * compared by value.
+	 */
+	boolean isSameElement(final int i, final int position, final CompactPlanElements other, final int k, final int otherPosition) {
+		if (this.isActivity[i] != other.isActivity[k]) {
+			return false;
+		}
+		if (this.isActivity[i]) {
+			int a = position;
+			int b = otherPosition;
+			return this.actType[a].equals(other.actType[b])
+					&& this.actLink[a] == other.actLink[b]
+					&& this.actFacility[a] == other.actFacility[b]
+					&& rangeEquals(this.actCoord, other.actCoord, 3 * a, 3 * b, 3)
+					&& rangeEquals(this.actTimes, other.actTimes, 3 * a, 3 * b, 3)
+					&& isSameAttributes(this.actAttributes[a], other.actAttributes[b]);
+		}
+		int l = position;
+		int m = otherPosition;
+		if (!this.legMode[l].equals(other.legMode[m])
+				|| !rangeEquals(this.legTimes, other.legTimes, 2 * l, 2 * m, 2)
+				|| this.routeStartLink[l] != other.routeStartLink[m]
+				|| !isSameAttributes(this.legAttributes[l], other.legAttributes[m])) {
+			return false;
+		}
+		if (this.routeStartLink[l] == NO_ID) {
+			return isSameRoute(this.otherRoute[l], other.otherRoute[m]);
+		}
+		int length = this.routeLinkOffsets[l + 1] - this.routeLinkOffsets[l];
+		if (length != other.routeLinkOffsets[m + 1] - other.routeLinkOffsets[m]) {
+			return false;
+		}
+		for (int r = 0; r < length; r++) {
+			if (this.routeLinks[this.routeLinkOffsets[l] + r] != other.routeLinks[other.routeLinkOffsets[m] + r]) {
+				return false;
+			}
+		}
+		return this.routeEndLink[l] == other.routeEndLink[m]
+				&& this.routeVehicle[l] == other.routeVehicle[m]
+				&& rangeEquals(this.routeValues, other.routeValues, 3 * l, 3 * m, 3);
+	}
+
+	/**
+	 * @return a hash of the content of plan element <code>i</code>, consistent with {@link #isSameElement}.
+	 */
+	int elementHash(final int i, final int position) {
+		if (this.isActivity[i]) {
+			int a = position;
+			return 31 * (31 * this.actType[a].hashCode() + this.actLink[a]) + Double.hashCode(this.actTimes[3 * a + 1]);
+		}
+		int l = position;
+		int hash = 31 * (31 * this.legMode[l].hashCode() + this.routeStartLink[l]) + Double.hashCode(this.legTimes[2 * l]);
+		if (this.routeStartLink[l] == NO_ID) {
+			Route route = this.otherRoute[l];
+			return route == null ? hash : 31 * hash + Objects.hash(route.getClass(), route.getStartLinkId(), route.getEndLinkId());
+		}
+		return 31 * (31 * hash + this.routeEndLink[l]) + this.routeLinkOffsets[l + 1] - this.routeLinkOffsets[l];
+	}
+
+	private static boolean isSameAttributes(final Attributes a, final Attributes b) {
+		// null stands for empty attributes
+		if (a == null || b == null) {
+			return a == b;
+		}
+		return a == b || a.getAsMap().equals(b.getAsMap());
+	}
+
+	private static boolean isSameRoute(final Route a, final Route b) {
+		if (a == null || b == null || a == b) {
+			return a == b;
+		}
+		// other route types are written out by their description, so this covers their content
+		if (a.getClass() != b.getClass()
+				|| !Objects.equals(a.getRouteType(), b.getRouteType())
+				|| !Objects.equals(a.getStartLinkId(), b.getStartLinkId())
+				|| !Objects.equals(a.getEndLinkId(), b.getEndLinkId())
+				|| Double.compare(a.getDistance(), b.getDistance()) != 0
+				|| Double.compare(a.getTravelTime(), b.getTravelTime()) != 0
+				|| !Objects.equals(a.getRouteDescription(), b.getRouteDescription())) {
+			return false;
+		}
+		if (a instanceof NetworkRoute) {
+			NetworkRoute netA = (NetworkRoute) a;
+			NetworkRoute netB = (NetworkRoute) b;
+			return Objects.equals(netA.getVehicleId(), netB.getVehicleId())
+					&& Double.compare(netA.getTravelCost(), netB.getTravelCost()) == 0
+					&& netA.getLinkIds().equals(netB.getLinkIds());
+		}
+		return true;
+	}
+
+	private ActivityImpl inflateActivity(final int a) {
+		ActivityImpl act = new ActivityImpl(this.actType[a]);
+		act.setLinkId(Id.get(this.actLink[a], Link.class));
+		act.setFacilityId(Id.get(this.actFacility[a], ActivityFacility.class));
+		double x = this.actCoord[3 * a];
+		double y = this.actCoord[3 * a + 1];
+		double z = this.actCoord[3 * a + 2];
+		if (!Double.isNaN(x) || !Double.isNaN(y)) {
+			act.setCoord(Double.isNaN(z) ? new Coord(x, y) : new Coord(x, y, z));
+		}
+		act.setStartTime(this.actTimes[3 * a]);
+		act.setEndTime(this.actTimes[3 * a + 1]);
+		act.setMaximumDuration(this.actTimes[3 * a + 2]);
+		if (this.actAttributes[a] != null) {
+			AttributesUtils.copyTo(this.actAttributes[a], act.getAttributes());
+		}
+		return act;
+	}
+
+	private LegImpl inflateLeg(final int l) {
+		LegImpl leg = new LegImpl(this.legMode[l]);
+		leg.setDepartureTime(this.legTimes[2 * l]);
+		leg.setTravelTime(this.legTimes[2 * l + 1]);
+		if (this.legAttributes[l] != null) {
+			AttributesUtils.copyTo(this.legAttributes[l], leg.getAttributes());
+		}
+		if (this.routeStartLink[l] == NO_ID) {
+			leg.setRoute(this.otherRoute[l] == null ? null : this.otherRoute[l].clone());
+		} else {
+			leg.setRoute(inflateRoute(l));
+		}
+		return leg;
+	}
+
+	@Override
+	public int size() {
+		return this.isActivity.length;
+	}
+
+	private NetworkRoute inflateRoute(final int l) {
+		int from = this.routeLinkOffsets[l];
+		int to = this.routeLinkOffsets[l + 1];
+		List<Id<Link>> linkIds = new ArrayList<>(to - from);
+		for (int i = from; i < to; i++) {
+			linkIds.add(Id.get(this.routeLinks[i], Link.class));
+		}
+		NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(Id.get(this.routeStartLink[l], Link.class), linkIds,
+				Id.get(this.routeEndLink[l], Link.class));
+		route.setVehicleId(Id.get(this.routeVehicle[l], Vehicle.class));
+		route.setDistance(this.routeValues[3 * l]);
+		route.setTravelTime(this.routeValues[3 * l + 1]);
+		route.setTravelCost(this.routeValues[3 * l + 2]);
+		return route;
+	}
+
+	private static boolean rangeEquals(final double[] a, final double[] b, final int fromA, final int fromB, final int length) {
+		for (int i = 0; i < length; i++) {
+			if (Double.compare(a[fromA + i], b[fromB + i]) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isEncodable(final Route route) {
+		// only encode the default implementation; other route types may carry additional state
+		return route != null && route.getClass() == LINK_NETWORK_ROUTE_CLASS && route.getStartLinkId() != null
+				&& route.getEndLinkId() != null;
+	}
+
+	private static <T> int index(final Id<T> id, final Class<T> type) {
+		if (id == null) {
+			return NO_ID;
+		}
+		if (Id.get(id.index(), type) != id) {
+			// the id was created for another type and only cast to this one, so it cannot be restored from its index
+			throw new NotEncodableException();
+		}
+		return id.index();
+	}
+
+	private static final class NotEncodableException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		NotEncodableException() {
+			super(null, null, false, false);
+		}
+	}
+
+}
@@ -0,0 +1,157 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DeltaPlanElements.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.population.PlanElement;
+
+/**
+ * Stores the plan elements of a plan as differences to a base, which is the {@link CompactPlanElements} of another plan
+ * of the same person that is stored compactly anyway.  Plan elements that have the same content as some element of the
+ * base are only stored as a reference to that element; all other plan elements are stored in a {@link CompactPlanElements}
+ * of their own.  As most alternative plans of a person only differ from each other by one route or a few activity times,
+ * this needs much less memory than storing every plan on its own.
+ * <p></p>
+ * The base is immutable, so it stays valid if the plan it belongs to is inflated and modified later.  Several instances
+ * typically share the same base.  As the base is kept in memory as long as plans are stored against it, plans are encoded
+ * again when their person gets a new base, see {@link PopulationUtils#compactNonSelectedPlans}.
+ */
+/* deliberately package */ final class DeltaPlanElements implements PlanElementsStorage {
+
+	private final CompactPlanElements base;
+	/** per plan element: the index of the equal element in base if &gt;= 0, -(index in own + 1) otherwise */
+	private final int[] source;
+	/** the plan elements not found in base, null if there are none */
+	private final CompactPlanElements own;
+
+	private DeltaPlanElements(final CompactPlanElements base, final int[] source, final CompactPlanElements own) {
+		this.base = base;
+		this.source = source;
+		this.own = own;
+	}
+
+	/**
+	 * @return the plan elements encoded as differences to <code>base</code>, or <code>null</code> if they cannot be encoded
+	 * (see {@link CompactPlanElements#deflate(List)}).
+	 */
+	static DeltaPlanElements deflate(final List<PlanElement> planElements, final CompactPlanElements base) {
+		CompactPlanElements all = CompactPlanElements.deflate(planElements);
+		if (all == null) {
+			return null;
+		}
+		int[] positions = all.positions();
+		int[] basePositions = base.positions();
+		ElementIndex baseIndex = null;
+		int[] source = new int[planElements.size()];
+		List<PlanElement> ownElements = new ArrayList<>();
+		for (int i = 0; i < source.length; i++) {
+			int k;
+			// plans that differ only slightly mostly have equal elements at the same index, so look there first
+			if (i < base.size() && all.isSameElement(i, positions[i], base, i, basePositions[i])) {
+				k = i;
+			} else {
+				if (baseIndex == null) {
+					baseIndex = new ElementIndex(base, basePositions);
+				}
+				k = baseIndex.find(all, i, positions[i]);
+			}
+			if (k >= 0) {
+				source[i] = k;
+			} else {
+				ownElements.add(planElements.get(i));
+				source[i] = -ownElements.size();
+			}
+		}
+		CompactPlanElements own = ownElements.isEmpty() ? null : CompactPlanElements.deflate(ownElements);
+		return new DeltaPlanElements(base, source, own);
+	}
+
+	/**
+	 * Finds the elements of a base by their content: candidates are looked up by {@link CompactPlanElements#elementHash}
+	 * and then compared with {@link CompactPlanElements#isSameElement}.
+	 */
+	private static final class ElementIndex {
+		private final CompactPlanElements base;
+		private final int[] basePositions;
+		/** the lowest index of the base elements with the given hash */
+		private final Map<Integer, Integer> firstByHash = new HashMap<>();
+		/** per base element: the next higher index with the same hash, -1 if there is none */
+		private final int[] nextWithSameHash;
+
+		ElementIndex(final CompactPlanElements base, final int[] basePositions) {
+			this.base = base;
+			this.basePositions = basePositions;
+			this.nextWithSameHash = new int[base.size()];
+			for (int k = base.size() - 1; k >= 0; k--) {
+				Integer next = this.firstByHash.put(base.elementHash(k, basePositions[k]), k);
+				this.nextWithSameHash[k] = next == null ? -1 : next;
+			}
+		}
+
+		/**
+		 * @return the index of the first base element with the same content as element <code>i</code> of <code>c</code>,
+		 * -1 if there is none.
+		 */
+		int find(final CompactPlanElements c, final int i, final int position) {
+			Integer first = this.firstByHash.get(c.elementHash(i, position));
+			for (int k = first == null ? -1 : first; k >= 0; k = this.nextWithSameHash[k]) {
+				if (c.isSameElement(i, position, this.base, k, this.basePositions[k])) {
+					return k;
+				}
+			}
+			return -1;
+		}
+	}
+
+	@Override
+	public ArrayList<PlanElement> inflate() {
+		ArrayList<PlanElement> planElements = new ArrayList<>(this.source.length);
+		int[] basePositions = this.base.positions();
+		int[] ownPositions = this.own == null ? null : this.own.positions();
+		for (int s : this.source) {
+			if (s >= 0) {
+				planElements.add(this.base.inflate(s, basePositions[s]));
+			} else {
+				int j = -s - 1;
+				planElements.add(this.own.inflate(j, ownPositions[j]));
+			}
+		}
+		return planElements;
+	}
+
+	@Override
+	public int size() {
+		return this.source.length;
+	}
+
+	/* package */ CompactPlanElements getBase() {
+		return this.base;
+	}
+
+	/* package */ int getNumberOfOwnElements() {
+		return this.own == null ? 0 : this.own.size();
+	}
+
+}
@@ -0,0 +1,56 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NonSelectedPlansCompactor.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.population;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+
+import com.google.inject.Inject;
+
+/**
+ * Stores all non-selected plans compactly at the end of each iteration, i.e. after scoring, either each one on its own or
+ * as differences to one non-selected plan of the same person which is stored in full, see {@link PlansConfigGroup.PlanStorage}.
+ * When that plan is selected or removed, another plan becomes the base and the others are stored again as differences to
+ * it.  The plans are restored transparently as soon as their plan elements are accessed, e.g. when they are selected by
+ * replanning.  Plan selectors that only look at scores do not restore them.
+ */
+/* deliberately package */ final class NonSelectedPlansCompactor implements IterationEndsListener {
+	private static final Logger log = Logger.getLogger(NonSelectedPlansCompactor.class);
+
+	@Inject private Population population;
+	@Inject private PlansConfigGroup plansConfigGroup;
+
+	@Override
+	public void notifyIterationEnds(IterationEndsEvent event) {
+		long compacted = 0;
+		long total = 0;
+		PlansConfigGroup.PlanStorage storage = this.plansConfigGroup.getNonSelectedPlanStorage();
+		for (Person person : this.population.getPersons().values()) {
+			total += person.getPlans().size() - (person.getSelectedPlan() == null ? 0 : 1);
+			compacted += PopulationUtils.compactNonSelectedPlans(person, storage);
+		}
+		log.info("stored " + compacted + " of " + total + " non-selected plans compactly.");
+	}
+
+}
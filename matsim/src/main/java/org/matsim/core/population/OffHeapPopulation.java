@@ -0,0 +1,484 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * OffHeapPopulation.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.utils.objectattributes.ObjectAttributes;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * A population that keeps its persons outside of the Java heap, in a memory-mapped temporary file.
+ * <p></p>
+ * Persons are stored in a binary form (see {@link PersonBinaryCodec}) when they are added, and are materialized
+ * again when they are accessed through {@link #getPersons()}.  At most <code>maxMaterialized</code> persons are kept
+ * materialized; when more are accessed, the least recently accessed one is written back and released.  So code that
+ * accesses a person again soon (replanning, scoring, ...) sees the same instance and its modifications, while the heap
+ * never holds more than the given number of persons.  A written back person that is still referenced elsewhere is
+ * handed out again as the same instance, so there is never more than one instance per person.
+ * <p></p>
+ * Some differences to the default population need to be kept in mind:
+ * <ul>
+ * <li> A person is encoded when passed to {@link #addPerson(Person)}, so later changes to that instance are lost.  Complete
+ * the person first, or modify the instance returned by <code>getPersons().get(id)</code>. </li>
+ * <li> References to persons must not be kept for long: once a person is written back, later changes to that instance
+ * are not stored.  Such changes are detected when the person is accessed again through the population while the instance
+ * is still referenced, which then fails with an {@link IllegalStateException}.  Changes to an instance that is not accessed
+ * again are lost, so <code>maxMaterialized</code> must be well above the number of persons that are worked on at the same
+ * time. </li>
+ * <li> Custom attributes (see {@link org.matsim.utils.objectattributes.attributable.Attributable}) can only be stored if
+ * there is an {@link org.matsim.utils.objectattributes.AttributeConverter} for them; others lead to an
+ * {@link IllegalArgumentException} when the person is stored. </li>
+ * </ul>
+ * The heap still holds one {@link Id} per person, which MATSim caches anyway, and a few bytes of bookkeeping.
+ * {@link #close()} deletes the temporary file; when used in the controler, this happens at shutdown.
+ */
+/* deliberately package */ final class OffHeapPopulation implements Population {
+	private static final Logger log = Logger.getLogger(OffHeapPopulation.class);
+
+	static final int DEFAULT_SEGMENT_SIZE = 1 << 28;
+	static final int DEFAULT_MAX_MATERIALIZED = 100000;
+
+	private static final long NOT_STORED = -1;
+	private static final long REMOVED = -2;
+
+	private final Attributes attributes = new Attributes();
+	private final ObjectAttributes personAttributes = new ObjectAttributes();
+	private final PopulationFactory populationFactory;
+	private final PersonBinaryCodec codec;
+	private String name;
+
+	private final File directory;
+	private File file = null;
+	private FileChannel channel = null;
+	private boolean closed = false;
+	private final int segmentSize;
+	private final List<MappedByteBuffer> segments = new ArrayList<>();
+	private long writePosition = 0;
+
+	/* the following are indexed by Id.index() of the person */
+	private long[] positions = new long[0];
+	private int[] lengths = new int[0];
+	private int[] capacities = new int[0];
+
+	/** the person indices in the order the persons were added, including removed ones */
+	private int[] order = new int[1024];
+	private int orderSize = 0;
+	private int size = 0;
+
+	/** the materialized persons, least recently accessed first; guarded by this */
+	private final MaterializedPersons materialized;
+	/** the persons that were written back, as long as they are referenced elsewhere; guarded by this */
+	private final Map<Id<Person>, ReleasedPerson> released = new HashMap<>();
+	private final ReferenceQueue<Person> releasedQueue = new ReferenceQueue<>();
+	private final Map<Id<Person>, Person> personsView = new PersonsView();
+
+	OffHeapPopulation(final PopulationFactory populationFactory, final File directory, final int segmentSize,
+			final int maxMaterialized) {
+		this.populationFactory = populationFactory;
+		this.codec = new PersonBinaryCodec(populationFactory, new ObjectAttributesConverter(), true);
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.materialized = new MaterializedPersons(maxMaterialized);
+	}
+
+	@Override
+	public void addPerson(final Person p) {
+		if (this.personsView.containsKey(p.getId())) {
+			throw new IllegalArgumentException("Person with id = " + p.getId() + " already exists.");
+		}
+		byte[] data = this.codec.encode(p);
+		synchronized (this) {
+			int index = p.getId().index();
+			ensureCapacity(index);
+			if (this.positions[index] == NOT_STORED) {
+				if (this.orderSize == this.order.length) {
+					this.order = Arrays.copyOf(this.order, this.orderSize * 2);
+				}
+				this.order[this.orderSize++] = index;
+			}
+			store(index, data);
+			this.size++;
+		}
+	}
+
+	@Override
+	public Person removePerson(final Id<Person> personId) {
+		Person person = getPerson(personId);
+		if (person != null) {
+			synchronized (this) {
+				this.positions[personId.index()] = REMOVED;
+				this.materialized.remove(personId);
+				this.released.remove(personId);
+				this.size--;
+			}
+		}
+		return person;
+	}
+
+	@Override
+	public Map<Id<Person>, ? extends Person> getPersons() {
+		return this.personsView;
+	}
+
+	/**
+	 * Releases the materialized persons and deletes the temporary file.  The population must not be used afterwards.
+	 * The mapped segments are unmapped as soon as they are garbage collected.
+	 */
+	synchronized void close() {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		this.materialized.clear();
+		this.released.clear();
+		this.segments.clear();
+		if (this.channel != null) {
+			try {
+				this.channel.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			if (!this.file.delete()) {
+				log.warn("could not delete " + this.file.getAbsolutePath() + ", it will be deleted when the JVM exits.");
+			}
+		}
+	}
+
+	private Person getPerson(final Object key) {
+		if (!(key instanceof Id)) {
+			return null;
+		}
+		byte[] data;
+		synchronized (this) {
+			Person person = this.materialized.get(key);
+			if (person != null) {
+				return person;
+			}
+			person = rematerialize((Id<?>) key);
+			if (person != null) {
+				return person;
+			}
+			data = read((Id<?>) key);
+		}
+		if (data == null) {
+			return null;
+		}
+		// decode outside of the lock, so that several threads can materialize persons at the same time
+		Person person = this.codec.decode(data);
+		synchronized (this) {
+			Person other = this.materialized.get(key);
+			if (other == null) {
+				other = rematerialize((Id<?>) key);
+			}
+			if (other != null) {
+				return other;
+			}
+			if (!Arrays.equals(data, read((Id<?>) key))) {
+				// the person was materialized, modified and written back by another thread in the meantime
+				return getPerson(key);
+			}
+			this.materialized.put(person.getId(), person);
+			return person;
+		}
+	}
+
+	/**
+	 * Returns the written back instance of the person if it is still referenced elsewhere, after making sure that it was
+	 * not modified since.
+	 */
+	private Person rematerialize(final Id<?> id) {
+		ReleasedPerson reference = this.released.remove(id);
+		Person person = reference == null ? null : reference.get();
+		if (person == null) {
+			return null;
+		}
+		if (!Arrays.equals(this.codec.encode(person), read(id))) {
+			throw new IllegalStateException("person " + id + " was modified after it was written back, the modifications are "
+					+ "not stored.  References to persons of an off-heap population must not be kept while more than "
+					+ this.materialized.maxSize + " other persons are accessed.");
+		}
+		this.materialized.put(person.getId(), person);
+		return person;
+	}
+
+	private synchronized boolean contains(final Object key) {
+		if (!(key instanceof Id)) {
+			return false;
+		}
+		int index = ((Id<?>) key).index();
+		return index < this.positions.length && this.positions[index] >= 0 && Id.get(index, Person.class) == key;
+	}
+
+	private synchronized byte[] read(final Id<?> id) {
+		checkOpen();
+		if (!contains(id)) {
+			return null;
+		}
+		int index = id.index();
+		long position = this.positions[index];
+		byte[] data = new byte[this.lengths[index]];
+		ByteBuffer buffer = this.segments.get((int) (position / this.segmentSize)).duplicate();
+		buffer.position((int) (position % this.segmentSize));
+		buffer.get(data);
+		return data;
+	}
+
+	private void store(final int index, final byte[] data) {
+		long position = this.positions[index];
+		if (position < 0 || this.capacities[index] < data.length) {
+			// leave some room, as persons tend to grow a bit over the iterations
+			int capacity = data.length + data.length / 8;
+			if (capacity > this.segmentSize) {
+				throw new IllegalArgumentException("person " + Id.get(index, Person.class) + " needs " + capacity
+						+ " bytes, which is more than the segment size of " + this.segmentSize + " bytes.");
+			}
+			long segmentEnd = (this.writePosition / this.segmentSize + 1) * this.segmentSize;
+			if (this.writePosition + capacity > segmentEnd) {
+				this.writePosition = segmentEnd;
+			}
+			position = this.writePosition;
+			this.writePosition += capacity;
+			this.positions[index] = position;
+			this.capacities[index] = capacity;
+		}
+		this.lengths[index] = data.length;
+		ByteBuffer buffer = getSegment((int) (position / this.segmentSize)).duplicate();
+		buffer.position((int) (position % this.segmentSize));
+		buffer.put(data);
+	}
+
+	private MappedByteBuffer getSegment(final int segment) {
+		checkOpen();
+		try {
+			if (this.channel == null) {
+				// created lazily, as some code creates populations that are never filled
+				this.file = File.createTempFile("matsim-population", ".bin", this.directory);
+				this.file.deleteOnExit();
+				this.channel = new RandomAccessFile(this.file, "rw").getChannel();
+				log.info("storing population off-heap in " + this.file.getAbsolutePath());
+			}
+			while (this.segments.size() <= segment) {
+				this.segments.add(this.channel.map(FileChannel.MapMode.READ_WRITE, (long) this.segments.size() * this.segmentSize, this.segmentSize));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return this.segments.get(segment);
+	}
+
+	private void checkOpen() {
+		if (this.closed) {
+			throw new IllegalStateException("the off-heap population is closed.");
+		}
+	}
+
+	private void ensureCapacity(final int index) {
+		if (index >= this.positions.length) {
+			int length = Math.max(index + 1, this.positions.length * 2);
+			int oldLength = this.positions.length;
+			this.positions = Arrays.copyOf(this.positions, length);
+			Arrays.fill(this.positions, oldLength, length, NOT_STORED);
+			this.lengths = Arrays.copyOf(this.lengths, length);
+			this.capacities = Arrays.copyOf(this.capacities, length);
+		}
+	}
+
+	@Override
+	public ObjectAttributes getPersonAttributes() {
+		return this.personAttributes;
+	}
+
+	@Override
+	public PopulationFactory getFactory() {
+		return this.populationFactory;
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public void setName(final String name) {
+		this.name = name;
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		return this.attributes;
+	}
+
+	/**
+	 * The materialized persons in access order, which writes the least recently accessed person back when there are
+	 * too many.
+	 */
+	private final class MaterializedPersons extends LinkedHashMap<Id<Person>, Person> {
+		private static final long serialVersionUID = 1L;
+		private final int maxSize;
+
+		MaterializedPersons(final int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Id<Person>, Person> eldest) {
+			if (size() <= this.maxSize) {
+				return false;
+			}
+			store(eldest.getKey().index(), OffHeapPopulation.this.codec.encode(eldest.getValue()));
+			Reference<? extends Person> cleared;
+			while ((cleared = OffHeapPopulation.this.releasedQueue.poll()) != null) {
+				Id<Person> id = ((ReleasedPerson) cleared).id;
+				if (OffHeapPopulation.this.released.get(id) == cleared) {
+					OffHeapPopulation.this.released.remove(id);
+				}
+			}
+			OffHeapPopulation.this.released.put(eldest.getKey(),
+					new ReleasedPerson(eldest.getKey(), eldest.getValue(), OffHeapPopulation.this.releasedQueue));
+			return true;
+		}
+	}
+
+	private static final class ReleasedPerson extends WeakReference<Person> {
+		private final Id<Person> id;
+
+		ReleasedPerson(final Id<Person> id, final Person person, final ReferenceQueue<Person> queue) {
+			super(person, queue);
+			this.id = id;
+		}
+	}
+
+	/**
+	 * A read-only map view of the persons, which materializes a person only when its value is requested.
+	 */
+	private final class PersonsView extends AbstractMap<Id<Person>, Person> {
+
+		private final Set<Entry<Id<Person>, Person>> entrySet = new AbstractSet<Entry<Id<Person>, Person>>() {
+			@Override
+			public Iterator<Entry<Id<Person>, Person>> iterator() {
+				return new PersonsIterator();
+			}
+
+			@Override
+			public int size() {
+				return OffHeapPopulation.this.size;
+			}
+		};
+
+		@Override
+		public Person get(final Object key) {
+			return getPerson(key);
+		}
+
+		@Override
+		public boolean containsKey(final Object key) {
+			return contains(key);
+		}
+
+		@Override
+		public int size() {
+			return OffHeapPopulation.this.size;
+		}
+
+		@Override
+		public Set<Entry<Id<Person>, Person>> entrySet() {
+			return this.entrySet;
+		}
+	}
+
+	private final class PersonsIterator implements Iterator<Map.Entry<Id<Person>, Person>> {
+		private int next = 0;
+		private Id<Person> current = null;
+
+		@Override
+		public boolean hasNext() {
+			synchronized (OffHeapPopulation.this) {
+				while (this.next < OffHeapPopulation.this.orderSize && OffHeapPopulation.this.positions[OffHeapPopulation.this.order[this.next]] < 0) {
+					this.next++;
+				}
+				return this.next < OffHeapPopulation.this.orderSize;
+			}
+		}
+
+		@Override
+		public Map.Entry<Id<Person>, Person> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			final Id<Person> id = Id.get(OffHeapPopulation.this.order[this.next++], Person.class);
+			this.current = id;
+			return new Map.Entry<Id<Person>, Person>() {
+				@Override
+				public Id<Person> getKey() {
+					return id;
+				}
+
+				@Override
+				public Person getValue() {
+					return getPerson(id);
+				}
+
+				@Override
+				public Person setValue(final Person value) {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		@Override
+		public void remove() {
+			if (this.current == null) {
+				throw new IllegalStateException();
+			}
+			removePerson(this.current);
+			this.current = null;
+		}
+	}
+
+}
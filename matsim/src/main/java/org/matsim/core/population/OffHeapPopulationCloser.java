@@ -0,0 +1,44 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * OffHeapPopulationCloser.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.ShutdownListener;
+
+import com.google.inject.Inject;
+
+/**
+ * Deletes the temporary file of the {@link OffHeapPopulation} at shutdown.  It is bound with the controler defaults,
+ * so it is notified after the core listeners (which write the output plans) and after the listeners added later.
+ */
+/* deliberately package */ final class OffHeapPopulationCloser implements ShutdownListener {
+
+	@Inject private Population population;
+
+	@Override
+	public void notifyShutdown(ShutdownEvent event) {
+		if (this.population instanceof OffHeapPopulation) {
+			((OffHeapPopulation) this.population).close();
+		}
+	}
+
+}
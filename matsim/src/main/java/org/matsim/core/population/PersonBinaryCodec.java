@@ -0,0 +1,462 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PersonBinaryCodec.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.ObjectAttributes;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesUtils;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Converts a person with all its plans into a compact binary representation and back.  The encoding contains
+ * the same information as the plans file (format v6).  How ids and strings are stored is defined by an
+ * {@link IdAndStringWriter} and a matching {@link IdAndStringReader}; by default, ids are stored by their
+ * {@link Id#index()}, so the encoded data is only valid within the same JVM.
+ * <p></p>
+ * Attribute values are converted with an {@link ObjectAttributesConverter}, like when writing the plans file.
+ * Like the writer, attributes whose value cannot be converted are left out; a warning is logged once per class.
+ * Codecs whose encoding replaces the only copy of a person can be created to fail on them instead.
+ */
+public final class PersonBinaryCodec {
+	private static final Logger log = Logger.getLogger(PersonBinaryCodec.class);
+
+	/**
+	 * Defines how ids and strings are written to the binary representation.
+	 */
+	public interface IdAndStringWriter {
+		void writeId(DataOutput out, Id<?> id) throws IOException;
+
+		void writeString(DataOutput out, String s) throws IOException;
+	}
+
+	/**
+	 * Defines how ids and strings are read from the binary representation; the counterpart of an {@link IdAndStringWriter}.
+	 */
+	public interface IdAndStringReader {
+		<T> Id<T> readId(DataInput in, Class<T> type) throws IOException;
+
+		String readString(DataInput in) throws IOException;
+	}
+
+	/**
+	 * Stores ids by their index, which is only valid within the same JVM, and strings as they are.
+	 */
+	private static final class LocalCoding implements IdAndStringWriter, IdAndStringReader {
+		@Override
+		public void writeId(final DataOutput out, final Id<?> id) throws IOException {
+			out.writeInt(id == null ? -1 : id.index());
+		}
+
+		@Override
+		public <T> Id<T> readId(final DataInput in, final Class<T> type) throws IOException {
+			int index = in.readInt();
+			return index < 0 ? null : Id.get(index, type);
+		}
+
+		@Override
+		public void writeString(final DataOutput out, final String s) throws IOException {
+			// not writeUTF(), as route descriptions can be longer than 64k
+			if (s == null) {
+				out.writeInt(-1);
+			} else {
+				byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		}
+
+		@Override
+		public String readString(final DataInput in) throws IOException {
+			int length = in.readInt();
+			if (length < 0) {
+				return null;
+			}
+			byte[] bytes = new byte[length];
+			in.readFully(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+
+	private static final LocalCoding LOCAL_CODING = new LocalCoding();
+
+	private static final byte ACTIVITY = 0;
+	private static final byte LEG = 1;
+
+	private static final byte NO_ROUTE = 0;
+	private static final byte NETWORK_ROUTE = 1;
+	private static final byte OTHER_ROUTE = 2;
+
+	private static final byte NO_COORD = 0;
+	private static final byte COORD_XY = 1;
+	private static final byte COORD_XYZ = 2;
+
+	private final PopulationFactory factory;
+	private final ObjectAttributesConverter attributesConverter;
+	private final IdAndStringWriter idWriter;
+	private final IdAndStringReader idReader;
+	/** the classes of the attribute values that could not be converted so far; guarded by attributesConverter */
+	private final Set<String> unconvertibleClasses = new HashSet<>();
+	private final boolean failOnUnconvertibleAttributes;
+
+	PersonBinaryCodec(final PopulationFactory factory, final ObjectAttributesConverter attributesConverter) {
+		this(factory, attributesConverter, LOCAL_CODING, LOCAL_CODING, false);
+	}
+
+	/**
+	 * @param failOnUnconvertibleAttributes if <code>true</code>, an attribute whose value cannot be converted leads to an
+	 * {@link IllegalArgumentException} instead of being left out.  For codecs whose encoding replaces the only instance.
+	 */
+	PersonBinaryCodec(final PopulationFactory factory, final ObjectAttributesConverter attributesConverter,
+			final boolean failOnUnconvertibleAttributes) {
+		this(factory, attributesConverter, LOCAL_CODING, LOCAL_CODING, failOnUnconvertibleAttributes);
+	}
+
+	/**
+	 * @param idWriter writes the ids and strings in {@link #write}; may be <code>null</code> if the codec is only used to read.
+	 * @param idReader reads the ids and strings in {@link #read}; may be <code>null</code> if the codec is only used to write.
+	 */
+	public PersonBinaryCodec(final PopulationFactory factory, final ObjectAttributesConverter attributesConverter,
+			final IdAndStringWriter idWriter, final IdAndStringReader idReader) {
+		this(factory, attributesConverter, idWriter, idReader, false);
+	}
+
+	private PersonBinaryCodec(final PopulationFactory factory, final ObjectAttributesConverter attributesConverter,
+			final IdAndStringWriter idWriter, final IdAndStringReader idReader, final boolean failOnUnconvertibleAttributes) {
+		this.factory = factory;
+		this.attributesConverter = attributesConverter;
+		this.idWriter = idWriter;
+		this.idReader = idReader;
+		this.failOnUnconvertibleAttributes = failOnUnconvertibleAttributes;
+	}
+
+	byte[] encode(final Person person) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			write(out, person);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	Person decode(final byte[] data) {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+			return read(in);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void write(final DataOutput out, final Person person) throws IOException {
+		writeId(out, person.getId());
+		writeAttributes(out, person.getAttributes());
+		List<? extends Plan> plans = person.getPlans();
+		out.writeInt(plans.size());
+		out.writeInt(plans.indexOf(person.getSelectedPlan()));
+		for (Plan plan : plans) {
+			writeString(out, plan.getType());
+			Double score = plan.getScore();
+			out.writeBoolean(score != null);
+			if (score != null) {
+				out.writeDouble(score);
+			}
+			writeAttributes(out, plan.getAttributes());
+			List<PlanElement> planElements = plan.getPlanElements();
+			out.writeInt(planElements.size());
+			for (PlanElement pe : planElements) {
+				if (pe instanceof Activity) {
+					out.writeByte(ACTIVITY);
+					writeActivity(out, (Activity) pe);
+				} else {
+					out.writeByte(LEG);
+					writeLeg(out, (Leg) pe);
+				}
+			}
+		}
+	}
+
+	public Person read(final DataInput in) throws IOException {
+		Person person = this.factory.createPerson(readId(in, Person.class));
+		readAttributes(in, person.getAttributes());
+		int nofPlans = in.readInt();
+		int selected = in.readInt();
+		for (int p = 0; p < nofPlans; p++) {
+			Plan plan = this.factory.createPlan();
+			plan.setType(readString(in));
+			if (in.readBoolean()) {
+				plan.setScore(in.readDouble());
+			}
+			readAttributes(in, plan.getAttributes());
+			int nofElements = in.readInt();
+			for (int i = 0; i < nofElements; i++) {
+				if (in.readByte() == ACTIVITY) {
+					plan.addActivity(readActivity(in));
+				} else {
+					plan.addLeg(readLeg(in));
+				}
+			}
+			person.addPlan(plan);
+			if (p == selected) {
+				person.setSelectedPlan(plan);
+			}
+		}
+		return person;
+	}
+
+	private void writeActivity(final DataOutput out, final Activity act) throws IOException {
+		writeString(out, act.getType());
+		Coord coord = act.getCoord();
+		if (coord == null) {
+			out.writeByte(NO_COORD);
+		} else {
+			out.writeByte(coord.hasZ() ? COORD_XYZ : COORD_XY);
+			out.writeDouble(coord.getX());
+			out.writeDouble(coord.getY());
+			if (coord.hasZ()) {
+				out.writeDouble(coord.getZ());
+			}
+		}
+		writeId(out, act.getLinkId());
+		writeId(out, act.getFacilityId());
+		out.writeDouble(act.getStartTime());
+		out.writeDouble(act.getMaximumDuration());
+		out.writeDouble(act.getEndTime());
+		writeAttributes(out, act.getAttributes());
+	}
+
+	private Activity readActivity(final DataInput in) throws IOException {
+		String type = readString(in);
+		Coord coord = null;
+		byte coordType = in.readByte();
+		if (coordType != NO_COORD) {
+			double x = in.readDouble();
+			double y = in.readDouble();
+			coord = coordType == COORD_XYZ ? new Coord(x, y, in.readDouble()) : new Coord(x, y);
+		}
+		Activity act = this.factory.createActivityFromLinkId(type, readId(in, Link.class));
+		act.setCoord(coord);
+		act.setFacilityId(readId(in, ActivityFacility.class));
+		act.setStartTime(in.readDouble());
+		act.setMaximumDuration(in.readDouble());
+		act.setEndTime(in.readDouble());
+		readAttributes(in, act.getAttributes());
+		return act;
+	}
+
+	private void writeLeg(final DataOutput out, final Leg leg) throws IOException {
+		writeString(out, leg.getMode());
+		out.writeDouble(leg.getDepartureTime());
+		out.writeDouble(leg.getTravelTime());
+		writeAttributes(out, leg.getAttributes());
+		Route route = leg.getRoute();
+		if (route == null) {
+			out.writeByte(NO_ROUTE);
+			return;
+		}
+		out.writeByte(route instanceof NetworkRoute ? NETWORK_ROUTE : OTHER_ROUTE);
+		writeString(out, route.getRouteType());
+		writeId(out, route.getStartLinkId());
+		writeId(out, route.getEndLinkId());
+		out.writeDouble(route.getTravelTime());
+		out.writeDouble(route.getDistance());
+		if (route instanceof NetworkRoute) {
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			writeId(out, networkRoute.getVehicleId());
+			out.writeDouble(networkRoute.getTravelCost());
+			List<Id<Link>> linkIds = networkRoute.getLinkIds();
+			out.writeInt(linkIds.size());
+			for (Id<Link> linkId : linkIds) {
+				writeId(out, linkId);
+			}
+		} else {
+			writeString(out, route.getRouteDescription());
+		}
+	}
+
+	private Leg readLeg(final DataInput in) throws IOException {
+		Leg leg = this.factory.createLeg(readString(in));
+		leg.setDepartureTime(in.readDouble());
+		leg.setTravelTime(in.readDouble());
+		readAttributes(in, leg.getAttributes());
+		byte routeKind = in.readByte();
+		if (routeKind == NO_ROUTE) {
+			return leg;
+		}
+		Class<? extends Route> routeClass = this.factory.getRouteFactories().getRouteClassForType(readString(in));
+		Id<Link> startLinkId = readId(in, Link.class);
+		Id<Link> endLinkId = readId(in, Link.class);
+		Route route = this.factory.getRouteFactories().createRoute(routeClass, startLinkId, endLinkId);
+		route.setTravelTime(in.readDouble());
+		route.setDistance(in.readDouble());
+		if (routeKind == NETWORK_ROUTE) {
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			networkRoute.setVehicleId(readId(in, Vehicle.class));
+			networkRoute.setTravelCost(in.readDouble());
+			int nofLinks = in.readInt();
+			List<Id<Link>> linkIds = new ArrayList<>(nofLinks);
+			for (int i = 0; i < nofLinks; i++) {
+				linkIds.add(readId(in, Link.class));
+			}
+			networkRoute.setLinkIds(startLinkId, linkIds, endLinkId);
+		} else {
+			String description = readString(in);
+			if (description != null) {
+				route.setRouteDescription(description);
+			}
+		}
+		leg.setRoute(route);
+		return leg;
+	}
+
+	/**
+	 * Writes attributes in the same form as those of persons, plans and plan elements, so that containers
+	 * written together with persons can use it as well.
+	 */
+	public void writeAttributes(final DataOutput out, final Attributes attributes) throws IOException {
+		writeAttributes(out, attributes.getAsMap());
+	}
+
+	private void writeAttributes(final DataOutput out, final Map<String, Object> attributes) throws IOException {
+		String[] converted = new String[attributes.size()];
+		int cnt = 0;
+		int i = 0;
+		synchronized (this.attributesConverter) {
+			for (Map.Entry<String, Object> e : attributes.entrySet()) {
+				String className = e.getValue().getClass().getCanonicalName();
+				converted[i] = this.attributesConverter.convertToString(e.getValue());
+				if (converted[i] != null) {
+					cnt++;
+				} else if (this.failOnUnconvertibleAttributes) {
+					throw new IllegalArgumentException("attribute " + e.getKey() + " of class " + className + " cannot be stored "
+							+ "in binary form, as there is no AttributeConverter for it.");
+				} else if (this.unconvertibleClasses.add(className)) {
+					log.warn("attribute " + e.getKey() + " of class " + className + " is not stored in binary form, as there is no "
+							+ "AttributeConverter for it. Other attributes of this class are left out as well.");
+				}
+				i++;
+			}
+		}
+		out.writeInt(cnt);
+		i = 0;
+		for (Map.Entry<String, Object> e : attributes.entrySet()) {
+			if (converted[i] != null) {
+				writeString(out, e.getKey());
+				writeString(out, e.getValue().getClass().getCanonicalName());
+				writeString(out, converted[i]);
+			}
+			i++;
+		}
+	}
+
+	public void readAttributes(final DataInput in, final Attributes attributes) throws IOException {
+		int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			String name = readString(in);
+			String className = readString(in);
+			String value = readString(in);
+			synchronized (this.attributesConverter) {
+				attributes.putAttribute(name, this.attributesConverter.convert(className, value));
+			}
+		}
+	}
+
+	/**
+	 * Writes the (deprecated) object attributes, e.g. the person attributes of a population, with the same encoding
+	 * of the values as {@link #writeAttributes(DataOutput, Attributes)}.
+	 */
+	public void writeObjectAttributes(final DataOutput out, final ObjectAttributes attributes) throws IOException {
+		Collection<String> objectIds = ObjectAttributesUtils.getObjectIds(attributes);
+		out.writeInt(objectIds.size());
+		for (String objectId : objectIds) {
+			writeString(out, objectId);
+			Map<String, Object> values = new LinkedHashMap<>();
+			for (String name : ObjectAttributesUtils.getAllAttributeNames(attributes, objectId)) {
+				values.put(name, attributes.getAttribute(objectId, name));
+			}
+			writeAttributes(out, values);
+		}
+	}
+
+	public void readObjectAttributes(final DataInput in, final ObjectAttributes attributes) throws IOException {
+		int objects = in.readInt();
+		for (int o = 0; o < objects; o++) {
+			String objectId = readString(in);
+			int size = in.readInt();
+			for (int i = 0; i < size; i++) {
+				String name = readString(in);
+				String className = readString(in);
+				String value = readString(in);
+				synchronized (this.attributesConverter) {
+					attributes.putAttribute(objectId, name, this.attributesConverter.convert(className, value));
+				}
+			}
+		}
+	}
+
+	private void writeId(final DataOutput out, final Id<?> id) throws IOException {
+		this.idWriter.writeId(out, id);
+	}
+
+	private <T> Id<T> readId(final DataInput in, final Class<T> type) throws IOException {
+		return this.idReader.readId(in, type);
+	}
+
+	private void writeString(final DataOutput out, final String s) throws IOException {
+		this.idWriter.writeString(out, s);
+	}
+
+	private String readString(final DataInput in) throws IOException {
+		return this.idReader.readString(in);
+	}
+
+}
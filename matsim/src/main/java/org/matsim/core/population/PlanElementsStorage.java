@@ -0,0 +1,42 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PlanElementsStorage.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.ArrayList;
+
+import org.matsim.api.core.v01.population.PlanElement;
+
+/**
+ * A memory-saving representation of the plan elements of a {@link PlanImpl} that is not in use.
+ */
+/* deliberately package */ interface PlanElementsStorage {
+
+	/**
+	 * @return a new, modifiable list with new plan elements that have the content of the stored ones.
+	 */
+	ArrayList<PlanElement> inflate();
+
+	/**
+	 * @return the number of stored plan elements
+	 */
+	int size();
+
+}
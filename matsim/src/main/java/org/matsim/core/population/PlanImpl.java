@@ -37,6 +37,8 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 /* deliberately package */  final class PlanImpl implements Plan {
 
 	private ArrayList<PlanElement> actsLegs = new ArrayList<>();
+	/* volatile, as getPlanElements() checks it without taking the lock; inflate() sets actsLegs before clearing it */
+	private volatile PlanElementsStorage storedActsLegs = null;
 
 	private Double score = null;
 	private Person person = null;
@@ -122,17 +124,86 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 
 	@Override
 	public final List<PlanElement> getPlanElements() {
+		if (this.storedActsLegs != null) {
+			inflate();
+		}
 		return this.actsLegs;
 	}
 
 	@Override
 	public final void addLeg(final Leg leg) {
-		this.actsLegs.add(leg);
+		getPlanElements().add(leg);
 	}
 
 	@Override
 	public final void addActivity(final Activity act) {
-		this.actsLegs.add(act);
+		getPlanElements().add(act);
+	}
+
+	/**
+	 * Replaces the plan elements by a compact encoding until they are accessed the next time.  After that, the plan
+	 * contains new (but equal) plan elements, so references to the old plan elements or to the list returned by
+	 * {@link #getPlanElements()} must not be kept across a call to this method.
+	 *
+	 * @return <code>true</code> if the plan is stored compactly after the call
+	 */
+	/* package */ final synchronized boolean compact() {
+		return this.storedActsLegs != null || store(CompactPlanElements.deflate(this.actsLegs));
+	}
+
+	/**
+	 * Like {@link #compact()}, but only stores the differences to the given base.
+	 */
+	/* package */ final synchronized boolean compact(final CompactPlanElements base) {
+		return this.storedActsLegs != null || store(DeltaPlanElements.deflate(this.actsLegs, base));
+	}
+
+	/**
+	 * If the plan is stored as differences to another base than the given one, stores it again as differences to the
+	 * given base, or in full if the given base is <code>null</code>.  Like that, a base that is no longer in use can be
+	 * garbage collected.  If the plan cannot be encoded against the new base, it stays as it was.
+	 *
+	 * @return <code>true</code> if the plan was encoded again
+	 */
+	/* package */ final synchronized boolean rebase(final CompactPlanElements base) {
+		if (!(this.storedActsLegs instanceof DeltaPlanElements) || ((DeltaPlanElements) this.storedActsLegs).getBase() == base) {
+			return false;
+		}
+		List<PlanElement> planElements = this.storedActsLegs.inflate();
+		PlanElementsStorage storage = base == null ? CompactPlanElements.deflate(planElements) : DeltaPlanElements.deflate(planElements, base);
+		if (storage == null) {
+			return false;
+		}
+		this.storedActsLegs = storage;
+		return true;
+	}
+
+	/**
+	 * @return the compact encoding of all plan elements if the plan is stored by {@link #compact()}, <code>null</code>
+	 * otherwise.
+	 */
+	/* package */ final synchronized CompactPlanElements getCompactPlanElements() {
+		return this.storedActsLegs instanceof CompactPlanElements ? (CompactPlanElements) this.storedActsLegs : null;
+	}
+
+	private boolean store(final PlanElementsStorage storage) {
+		if (storage == null) {
+			return false;
+		}
+		this.storedActsLegs = storage;
+		this.actsLegs = null;
+		return true;
+	}
+
+	/* package */ final boolean isCompact() {
+		return this.storedActsLegs != null;
+	}
+
+	private synchronized void inflate() {
+		if (this.storedActsLegs != null) {
+			this.actsLegs = this.storedActsLegs.inflate();
+			this.storedActsLegs = null;
+		}
 	}
 
 	@Override
@@ -149,7 +220,7 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 
 		return "[score=" + scoreString + "]" +
 //				"[selected=" + PersonUtils.isSelected(this) + "]" +
-				"[nof_acts_legs=" + getPlanElements().size() + "]" +
+				"[nof_acts_legs=" + (this.storedActsLegs == null ? this.actsLegs.size() : this.storedActsLegs.size()) + "]" +
 				"[type=" + this.type + "]" +
 				"[personId=" + personIdString + "]" ;
 	}
@@ -0,0 +1,35 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PlanStorageModule.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.population;
+
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.controler.AbstractModule;
+
+public final class PlanStorageModule extends AbstractModule {
+	@Override
+	public void install() {
+		if (getConfig().plans().getNonSelectedPlanStorage() != PlansConfigGroup.PlanStorage.objects) {
+			addControlerListenerBinding().to(NonSelectedPlansCompactor.class);
+		}
+		if (getConfig().plans().getPopulationStorage() == PlansConfigGroup.PopulationStorage.offHeap) {
+			addControlerListenerBinding().to(OffHeapPopulationCloser.class);
+		}
+	}
+}
@@ -0,0 +1,224 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationSnapshot.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributes;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * A read-only copy of a population as it was at the time the snapshot was taken, e.g. to write the population
+ * to a file in the background while the original population is modified by the next iteration.
+ * <p></p>
+ * The persons are stored in their binary representation (see {@link PersonBinaryCodec}), sorted by id, and are
+ * decoded again one at a time while iterating over {@link #getPersons()}, so that a snapshot needs much less
+ * memory than a deep copy of the population.  Each call to {@link Map#get(Object)} or each iteration returns
+ * new person objects; modifying them has no effect on the snapshot.
+ * <p></p>
+ * The attributes of the population are copied shallowly, the deprecated person attributes are not copied at all.
+ * Attributes of persons, plans and plan elements are converted with the given {@link AttributeConverter}s; like in
+ * the plans file, attributes that cannot be converted are left out (see {@link PersonBinaryCodec}).
+ */
+public final class PopulationSnapshot implements Population {
+
+	private final PopulationFactory factory;
+	private final String name;
+	private final Attributes attributes = new Attributes();
+	private final ObjectAttributes personAttributes;
+	private final PersonBinaryCodec codec;
+
+	private final Id<Person>[] ids;
+	private final byte[][] data;
+
+	private final Map<Id<Person>, Person> personsView = new PersonsView();
+
+	public PopulationSnapshot(final Population population) {
+		this(population, Collections.<Class<?>, AttributeConverter<?>>emptyMap());
+	}
+
+	@SuppressWarnings("unchecked")
+	public PopulationSnapshot(final Population population, final Map<Class<?>, AttributeConverter<?>> attributeConverters) {
+		this.factory = population.getFactory();
+		this.name = population.getName();
+		this.personAttributes = population.getPersonAttributes();
+		for (Map.Entry<String, Object> e : population.getAttributes().getAsMap().entrySet()) {
+			this.attributes.putAttribute(e.getKey(), e.getValue());
+		}
+		ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+		attributesConverter.putAttributeConverters(attributeConverters);
+		this.codec = new PersonBinaryCodec(this.factory, attributesConverter);
+
+		List<Id<Person>> sortedIds = new ArrayList<>(population.getPersons().keySet());
+		Collections.sort(sortedIds);
+		this.ids = sortedIds.toArray(new Id[sortedIds.size()]);
+		this.data = new byte[this.ids.length][];
+		for (int i = 0; i < this.ids.length; i++) {
+			this.data[i] = this.codec.encode(population.getPersons().get(this.ids[i]));
+		}
+	}
+
+	/**
+	 * @return the persons of the snapshot, iterated in the order of their ids.  The map is read-only.
+	 */
+	@Override
+	public Map<Id<Person>, ? extends Person> getPersons() {
+		return this.personsView;
+	}
+
+	@Override
+	public PopulationFactory getFactory() {
+		return this.factory;
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public void setName(final String name) {
+		throw new UnsupportedOperationException("a population snapshot is read-only");
+	}
+
+	@Override
+	public void addPerson(final Person p) {
+		throw new UnsupportedOperationException("a population snapshot is read-only");
+	}
+
+	@Override
+	public Person removePerson(final Id<Person> personId) {
+		throw new UnsupportedOperationException("a population snapshot is read-only");
+	}
+
+	/**
+	 * @return the person attributes of the original population; they are <i>not</i> part of the snapshot
+	 */
+	@Override
+	@Deprecated
+	public ObjectAttributes getPersonAttributes() {
+		return this.personAttributes;
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		return this.attributes;
+	}
+
+	private int indexOf(final Object key) {
+		if (!(key instanceof Id)) {
+			return -1;
+		}
+		@SuppressWarnings("unchecked")
+		Id<Person> id = (Id<Person>) key;
+		int index = Arrays.binarySearch(this.ids, id);
+		// ids of other types may compare equal by their string representation
+		return index >= 0 && this.ids[index] == key ? index : -1;
+	}
+
+	/**
+	 * A read-only map view of the persons, which decodes a person only when its value is requested.
+	 */
+	private final class PersonsView extends AbstractMap<Id<Person>, Person> {
+
+		private final Set<Entry<Id<Person>, Person>> entrySet = new AbstractSet<Entry<Id<Person>, Person>>() {
+			@Override
+			public Iterator<Entry<Id<Person>, Person>> iterator() {
+				return new PersonsIterator();
+			}
+
+			@Override
+			public int size() {
+				return PopulationSnapshot.this.ids.length;
+			}
+		};
+
+		@Override
+		public Person get(final Object key) {
+			int index = indexOf(key);
+			return index < 0 ? null : PopulationSnapshot.this.codec.decode(PopulationSnapshot.this.data[index]);
+		}
+
+		@Override
+		public boolean containsKey(final Object key) {
+			return indexOf(key) >= 0;
+		}
+
+		@Override
+		public int size() {
+			return PopulationSnapshot.this.ids.length;
+		}
+
+		@Override
+		public Set<Entry<Id<Person>, Person>> entrySet() {
+			return this.entrySet;
+		}
+	}
+
+	private final class PersonsIterator implements Iterator<Map.Entry<Id<Person>, Person>> {
+		private int next = 0;
+
+		@Override
+		public boolean hasNext() {
+			return this.next < PopulationSnapshot.this.ids.length;
+		}
+
+		@Override
+		public Map.Entry<Id<Person>, Person> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			final int index = this.next++;
+			return new Map.Entry<Id<Person>, Person>() {
+				@Override
+				public Id<Person> getKey() {
+					return PopulationSnapshot.this.ids[index];
+				}
+
+				@Override
+				public Person getValue() {
+					return PopulationSnapshot.this.codec.decode(PopulationSnapshot.this.data[index]);
+				}
+
+				@Override
+				public Person setValue(final Person value) {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
+
+}
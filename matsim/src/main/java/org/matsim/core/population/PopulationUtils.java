@@ -127,7 +127,12 @@ public final class PopulationUtils {
 			throw new IllegalArgumentException("The type \"" + networkRouteType + "\" is not a supported type for network routes.");
 		}
 		routeFactory.setRouteFactory(NetworkRoute.class, factory);
-		return new PopulationImpl(new PopulationFactoryImpl(routeFactory));
+		PopulationFactory populationFactory = new PopulationFactoryImpl(routeFactory);
+		if (plansConfigGroup.getPopulationStorage() == PlansConfigGroup.PopulationStorage.offHeap) {
+			return new OffHeapPopulation(populationFactory, null, OffHeapPopulation.DEFAULT_SEGMENT_SIZE,
+					OffHeapPopulation.DEFAULT_MAX_MATERIALIZED);
+		}
+		return new PopulationImpl(populationFactory);
 	}
 
 	//	public static Population createStreamingPopulation(PlansConfigGroup plansConfigGroup, Network network) {
@@ -146,6 +151,58 @@ public final class PopulationUtils {
 	//		return new Population(new PopulationFactoryImpl(routeFactory));
 	//	}
 
+	/**
+	 * Stores all plans of the person except the selected one in a memory-saving way, see
+	 * {@link PlansConfigGroup.PlanStorage}.  The plans are restored transparently as soon as their plan elements are
+	 * accessed the next time.  Plans that are not created by the default population factory are left as they are.
+	 *
+	 * @return the number of plans that are stored in a memory-saving way after the call
+	 */
+	public static int compactNonSelectedPlans( final Person person, final PlansConfigGroup.PlanStorage storage ) {
+		if ( storage == PlansConfigGroup.PlanStorage.objects ) {
+			return 0 ;
+		}
+		Plan selected = person.getSelectedPlan() ;
+		// for delta storage, the differences are taken against a plan that is stored in full anyway, so no plan is kept twice.
+		// Prefer one that was stored in full before, so that plans which are still stored keep a base that is in use.
+		CompactPlanElements base = null ;
+		if ( storage == PlansConfigGroup.PlanStorage.delta ) {
+			for ( Plan plan : person.getPlans() ) {
+				if ( plan != selected && plan instanceof PlanImpl && base == null ) {
+					base = ((PlanImpl) plan).getCompactPlanElements() ;
+				}
+			}
+			// the plan of the former base was selected or removed: store one of the plans based on it in full, as the new base
+			for ( Plan plan : person.getPlans() ) {
+				if ( plan != selected && plan instanceof PlanImpl && base == null && ((PlanImpl) plan).rebase( null ) ) {
+					base = ((PlanImpl) plan).getCompactPlanElements() ;
+				}
+			}
+		}
+		int cnt = 0 ;
+		for ( Plan plan : person.getPlans() ) {
+			if ( plan != selected && plan instanceof PlanImpl ) {
+				PlanImpl planImpl = (PlanImpl) plan ;
+				boolean compacted = base == null ? planImpl.compact() : planImpl.compact( base ) ;
+				if ( compacted && base == null && storage == PlansConfigGroup.PlanStorage.delta ) {
+					base = planImpl.getCompactPlanElements() ;
+				}
+				if ( compacted ) {
+					cnt++ ;
+				}
+			}
+		}
+		if ( base != null ) {
+			// plans stored against a former base would keep that base in memory
+			for ( Plan plan : person.getPlans() ) {
+				if ( plan != selected && plan instanceof PlanImpl ) {
+					((PlanImpl) plan).rebase( base ) ;
+				}
+			}
+		}
+		return cnt ;
+	}
+
 	public static Leg unmodifiableLeg( Leg leg ) {
 		return new UnmodifiableLeg( leg ) ;
 	}
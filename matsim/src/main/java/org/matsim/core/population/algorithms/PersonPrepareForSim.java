@@ -53,7 +53,6 @@ public final class PersonPrepareForSim extends AbstractPersonAlgorithm {
 
 	private final PlanAlgorithm router;
 	private final XY2Links xy2links;
-	private final Network carOnlyNetwork;
 	private final ActivityFacilities activityFacilities;
 
 	private static final Logger log = Logger.getLogger(PersonPrepareForSim.class);
@@ -67,7 +66,6 @@ public final class PersonPrepareForSim extends AbstractPersonAlgorithm {
 	public PersonPrepareForSim(final PlanAlgorithm router, final Scenario scenario, final Network carOnlyNetwork) {
 		super();
 		this.router = router;
-		this.carOnlyNetwork = carOnlyNetwork ;
 		if (NetworkUtils.isMultimodal(carOnlyNetwork)) {
 			throw new RuntimeException("Expected carOnlyNetwork not to be multi-modal. Aborting!");
 		}
@@ -76,14 +74,25 @@ public final class PersonPrepareForSim extends AbstractPersonAlgorithm {
 		this.scenario = scenario ;
 	}
 	
+	/*
+	 * To be used with a thread-safe XY2Links, see XY2Links(NearestLinkIndex, ActivityFacilities), which is then shared by
+	 * all instances.  The caller is responsible for the XY2Links to only use car links.
+	 */
+	public PersonPrepareForSim(final PlanAlgorithm router, final Scenario scenario, final XY2Links xy2links) {
+		super();
+		this.router = router;
+		this.xy2links = xy2links;
+		this.activityFacilities = scenario.getActivityFacilities();
+		this.scenario = scenario ;
+	}
+
 	public PersonPrepareForSim(final PlanAlgorithm router, final Scenario scenario) {
 		super();
 		this.router = router;
-		this.carOnlyNetwork = scenario.getNetwork();
-		Network net = this.carOnlyNetwork;
-		if (NetworkUtils.isMultimodal( carOnlyNetwork )) {
+		Network net = scenario.getNetwork();
+		if (NetworkUtils.isMultimodal( net )) {
 			log.info("Network seems to be multimodal. XY2Links will only use car links.");
-			TransportModeNetworkFilter filter = new TransportModeNetworkFilter( carOnlyNetwork );
+			TransportModeNetworkFilter filter = new TransportModeNetworkFilter( net );
 			net = NetworkUtils.createNetwork();
 			HashSet<String> modes = new HashSet<String>();
 			modes.add(TransportMode.car);
@@ -20,6 +20,8 @@
 
 package org.matsim.core.population.algorithms;
 
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
@@ -27,13 +29,19 @@ import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.gbl.Gbl;
+import org.matsim.core.network.NearestLinkIndex;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.facilities.ActivityFacilities;
 import org.matsim.facilities.ActivityFacility;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Assigns each activity in a plan a link where the activity takes place
@@ -44,7 +52,12 @@ import java.util.Objects;
 public final class XY2Links extends AbstractPersonAlgorithm implements PlanAlgorithm {
 
 	private final Network network;
+	private final NearestLinkIndex index;
 	private final ActivityFacilities activityFacilities;
+	/** links of activities that take their coordinate from the facility, only used together with {@link #index} */
+	private final ConcurrentMap<Id<ActivityFacility>, Link> facilityLinks;
+	/** links of activity coordinates looked up in advance by {@link #prepare(Population, int)} */
+	private final ConcurrentMap<Coord, Link> coordLinks;
 
 	/**
 	 * When running XY2Links with given facilities, the linkIds of activities are
@@ -54,13 +67,77 @@ public final class XY2Links extends AbstractPersonAlgorithm implements PlanAlgor
 	public XY2Links(final Network network, final ActivityFacilities activityFacilities ) {
 		super();
 		this.network = network;
+		this.index = null;
 		this.activityFacilities = activityFacilities;
+		this.facilityLinks = null;
+		this.coordLinks = null;
+	}
+
+	/**
+	 * Looks up the links in a shared, read-only index.  In contrast to the other constructors, the resulting
+	 * instance is thread-safe and can be used by all threads preparing a population at the same time.  The
+	 * link of an activity without coordinate is looked up only once per facility.
+	 */
+	public XY2Links(final NearestLinkIndex index, final ActivityFacilities activityFacilities) {
+		super();
+		this.network = null;
+		this.index = index;
+		this.activityFacilities = activityFacilities;
+		this.facilityLinks = new ConcurrentHashMap<>();
+		this.coordLinks = new ConcurrentHashMap<>();
 	}
 
 	public XY2Links(final Scenario scenario) {
 		this(scenario.getNetwork(), scenario.getActivityFacilities());
 	}
 	
+	/**
+	 * Looks up the links of all activities in the population that do not have a link yet at once, on up to
+	 * <code>numberOfThreads</code> threads (see {@link NearestLinkIndex#getNearestLinks(List, int)}).  The activities
+	 * are not changed here, they get their links when their plans are processed, but then without further lookups.
+	 * Only possible with the constructor that takes a {@link NearestLinkIndex}.
+	 */
+	public void prepare(final Population population, final int numberOfThreads) {
+		Objects.requireNonNull( this.index, "only possible with a NearestLinkIndex" ) ;
+		LinkedHashSet<Coord> coords = new LinkedHashSet<>();
+		LinkedHashSet<ActivityFacility> facilities = new LinkedHashSet<>();
+		for (Person person : population.getPersons().values()) {
+			for (Plan plan : person.getPlans()) {
+				for (PlanElement planElement : plan.getPlanElements()) {
+					if (planElement instanceof Activity && ((Activity) planElement).getLinkId() == null) {
+						Activity act = (Activity) planElement;
+						if (act.getCoord() != null) {
+							coords.add(act.getCoord());
+						} else if (act.getFacilityId() != null) {
+							ActivityFacility facility = this.activityFacilities.getFacilities().get(act.getFacilityId());
+							if (facility != null && facility.getCoord() != null) {
+								facilities.add(facility);
+							}
+						}
+					}
+				}
+			}
+		}
+		List<Coord> queries = new ArrayList<>(coords);
+		for (ActivityFacility facility : facilities) {
+			queries.add(facility.getCoord());
+		}
+		List<Link> links = this.index.getNearestLinks(queries, numberOfThreads);
+		int i = 0;
+		for (Coord coord : coords) {
+			Link link = links.get(i++);
+			if (link != null) {
+				this.coordLinks.put(coord, link);
+			}
+		}
+		for (ActivityFacility facility : facilities) {
+			Link link = links.get(i++);
+			if (link != null) {
+				this.facilityLinks.put(facility.getId(), link);
+			}
+		}
+	}
+
 	/** Assigns links to each activity in all plans of the person. */
 	@Override
 	public void run(final Person person) {
@@ -109,16 +186,20 @@ public final class XY2Links extends AbstractPersonAlgorithm implements PlanAlgor
 					continue ;
 				}
 
+				Link link;
 				if ( act.getCoord() == null ) {
 					Gbl.assertNotNull( act.getFacilityId() );
 					final ActivityFacility activityFacility = this.activityFacilities.getFacilities().get( act.getFacilityId() );
 					Gbl.assertNotNull( activityFacility );
 					act.setCoord( activityFacility.getCoord() ) ;
+					link = this.facilityLinks == null ? getNearestLink( act.getCoord() )
+							: this.facilityLinks.computeIfAbsent( activityFacility.getId(), id -> getNearestLink( activityFacility.getCoord() ) );
+				} else {
+					link = getNearestLink( act.getCoord() );
 				}
 
 				// If the linkId is still null get nearest link from the network
 //				Link link = this.network.getNearestLinkExactly(act.getCoord());
-				Link link = NetworkUtils.getNearestLink(this.network, act.getCoord());
 				// getNearestLinkExactly not necessarily better than getNearestLink.  E.g.
 				// n--n-----------------------------n
 				// A home location slightly to the right of the middle node will take:
@@ -136,4 +217,12 @@ public final class XY2Links extends AbstractPersonAlgorithm implements PlanAlgor
 			}
 		}
 	}
+
+	private Link getNearestLink(final Coord coord) {
+		if (this.index == null) {
+			return NetworkUtils.getNearestLink(this.network, coord);
+		}
+		Link link = this.coordLinks.get(coord);
+		return link != null ? link : this.index.getNearestLink(coord);
+	}
 }
@@ -35,6 +35,7 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.PlansConfigGroup;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
 import org.matsim.facilities.ActivityFacilities;
@@ -89,6 +90,15 @@ import org.xml.sax.helpers.AttributesImpl;
 		if ( scenario.getPopulation() instanceof StreamingPopulationReader.StreamingPopulation ) {
 			log.warn("Population streaming is activated - cannot use " + ParallelPopulationReaderMatsimV4.class.getName() + "!");
 			
+			this.isPopulationStreaming = true;
+			this.numThreads = 1;
+			this.queue = null;
+			this.collectorPopulation = null;
+			this.collectorScenario = null;
+		} else if ( scenario.getConfig().plans().getPopulationStorage() == PlansConfigGroup.PopulationStorage.offHeap ) {
+			// persons are added before they are parsed completely, but the off-heap population stores them when they are added
+			log.warn("Population is stored off-heap - cannot use " + ParallelPopulationReaderMatsimV4.class.getName() + "!");
+
 			this.isPopulationStreaming = true;
 			this.numThreads = 1;
 			this.queue = null;
@@ -0,0 +1,138 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV6.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Stack;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.io.ParallelXmlElementBuilder;
+import org.matsim.core.utils.io.ParallelXmlElementBuilder.ElementBuilder;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.xml.sax.Attributes;
+
+import com.google.inject.Inject;
+
+/**
+ * Parallel implementation of the PopulationReaderMatsimV6.  The main thread only reads the file
+ * and collects the xml data of each person; the persons including their plans, routes and attributes
+ * are built on several threads.  Other than in the {@link ParallelPopulationReaderMatsimV4}, the persons
+ * are added to the population by the main thread once they are complete, in the order of the file.
+ * Thus, this reader also works with populations that process or store the persons when they are added.
+ */
+/* deliberately package */ class ParallelPopulationReaderMatsimV6 extends PopulationReaderMatsimV6 {
+	private static final Logger log = Logger.getLogger(ParallelPopulationReaderMatsimV6.class);
+
+	private final static String POPULATION = "population";
+	private final static String PERSON = "person";
+
+	private final Scenario scenario;
+	private final int numThreads;
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+
+	private ParallelXmlElementBuilder<Person> builder = null;
+
+	ParallelPopulationReaderMatsimV6(
+			final String inputCRS,
+			final String targetCRS,
+			final Scenario scenario,
+			final int numThreads) {
+		super(inputCRS, targetCRS, scenario);
+		this.scenario = scenario;
+		this.numThreads = numThreads;
+	}
+
+	@Override
+	public void putAttributeConverter(final Class<?> clazz, final AttributeConverter<?> converter) {
+		super.putAttributeConverter(clazz, converter);
+		this.attributeConverters.put(clazz, converter);
+	}
+
+	@Override
+	@Inject
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		super.putAttributeConverters(converters);
+		this.attributeConverters.putAll(converters);
+	}
+
+	@Override
+	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+		if (this.builder == null && PERSON.equals(name)) {
+			// the coordinate transformation may be set by the population attributes, so wait until they are read
+			log.info("Start parallel population reading with " + this.numThreads + " threads...");
+			final CoordinateTransformation transformation = getCoordinateTransformation();
+			final Map<Class<?>, AttributeConverter<?>> converters = new HashMap<>(this.attributeConverters);
+			this.builder = new ParallelXmlElementBuilder<>(this.numThreads,
+					() -> new PersonBuilder(this.scenario, transformation, converters),
+					this::addPerson);
+		}
+		if (PERSON.equals(name) || (this.builder != null && this.builder.isInElement())) {
+			this.builder.startTag(name, atts, context);
+		} else {
+			super.startTag(name, atts, context);
+		}
+	}
+
+	@Override
+	public void endTag(final String name, final String content, final Stack<String> context) {
+		if (this.builder != null && this.builder.isInElement()) {
+			this.builder.endTag(name, content, context);
+			return;
+		}
+		if (POPULATION.equals(name) && this.builder != null) {
+			this.builder.finish();
+			log.info("Finished parallel population reading...");
+		}
+		super.endTag(name, content, context);
+	}
+
+	/**
+	 * Builds the persons on the worker threads.  Uses the sequential reader, but keeps the
+	 * persons instead of adding them to the population.
+	 */
+	private static final class PersonBuilder extends PopulationReaderMatsimV6 implements ElementBuilder<Person> {
+		private Person person = null;
+
+		PersonBuilder(final Scenario scenario, final CoordinateTransformation transformation,
+				final Map<Class<?>, AttributeConverter<?>> converters) {
+			super(null, null, scenario);
+			setCoordinateTransformation(transformation);
+			putAttributeConverters(converters);
+		}
+
+		@Override
+		void addPerson(final Person person) {
+			this.person = person;
+		}
+
+		@Override
+		public Person getElement() {
+			Person p = this.person;
+			this.person = null;
+			return p;
+		}
+	}
+
+}
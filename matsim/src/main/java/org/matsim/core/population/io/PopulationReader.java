@@ -58,6 +58,7 @@ public final class PopulationReader extends MatsimXmlParser {
 	private final Scenario scenario;
 
 	private Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+	private int numberOfThreads = 1;
 
 	private static final Logger log = Logger.getLogger(PopulationReader.class);
 
@@ -83,6 +84,14 @@ public final class PopulationReader extends MatsimXmlParser {
 		this.scenario = scenario;
 	}
 
+	/**
+	 * Sets the number of threads used to build the persons of population_v6 files.  The default is one, i.e. the persons
+	 * are read sequentially.
+	 */
+	public void setNumberOfThreads( final int numberOfThreads ) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
 	public void putAttributeConverter( final Class<?> clazz , AttributeConverter<?> converter ) {
 		attributeConverters.put( clazz , converter );
 	}
@@ -114,11 +123,20 @@ public final class PopulationReader extends MatsimXmlParser {
 
 		switch ( doctype ) {
 			case POPULATION_V6:
-				this.delegate =
-						new PopulationReaderMatsimV6(
-						        inputCRS,
-						        targetCRS,
-								this.scenario);
+				if ( this.numberOfThreads > 1 ) {
+					this.delegate =
+							new ParallelPopulationReaderMatsimV6(
+									inputCRS,
+									targetCRS,
+									this.scenario,
+									this.numberOfThreads);
+				} else {
+					this.delegate =
+							new PopulationReaderMatsimV6(
+									inputCRS,
+									targetCRS,
+									this.scenario);
+				}
 				((PopulationReaderMatsimV6) delegate).putAttributeConverters( attributeConverters );
 				log.info("using population_v6-reader.");
 				break;
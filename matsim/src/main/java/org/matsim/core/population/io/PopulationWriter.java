@@ -31,6 +31,7 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.internal.MatsimWriter;
 import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.population.PopulationSnapshot;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
@@ -175,6 +176,13 @@ public final class PopulationWriter extends AbstractMatsimWriter implements Mats
 
 
 	private  final void writePersons() {
+		if (this.population instanceof PopulationSnapshot) {
+			// already sorted, and decoding the persons one by one keeps the memory footprint small
+			for (Person p : this.population.getPersons().values()) {
+				writePerson(p);
+			}
+			return;
+		}
 		for (Person p : PopulationUtils.getSortedPersons(this.population).values()) {
 			writePerson(p);
 		}
@@ -33,6 +33,8 @@ import org.matsim.core.router.util.PreProcessDijkstra;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.collections.RouterPriorityQueue;
+import org.matsim.core.utils.metrics.HistogramMetric;
+import org.matsim.core.utils.metrics.MetricsRegistry;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.vehicles.Vehicle;
 
@@ -87,6 +89,9 @@ import java.util.Set;
 
 	private final static Logger log = Logger.getLogger(Dijkstra.class);
 
+	private static final HistogramMetric QUERY_NANOS = MetricsRegistry.histogram(MetricsRegistry.ROUTING_QUERY_NANOS);
+	private static final HistogramMetric SETTLED_NODES = MetricsRegistry.histogram(MetricsRegistry.ROUTING_SETTLED_NODES);
+
 	/**
 	 * The network on which we find routes.
 	 */
@@ -222,6 +227,8 @@ import java.util.Set;
 		 */
 		checkNodeBelongToNetwork(fromNode);
 		checkNodeBelongToNetwork(toNode);
+
+		long queryStart = MetricsRegistry.isEnabled() ? System.nanoTime() : 0;
 		
 		augmentIterationId(); // this call makes the class not thread-safe
 		this.person = person2;
@@ -236,14 +243,16 @@ import java.util.Set;
 
 		Node foundToNode = searchLogic(fromNode, toNode, pendingNodes);
 		
-		if (foundToNode == null) return null;
-		else {
+		Path path = null;
+		if (foundToNode != null) {
 			DijkstraNodeData outData = getData(foundToNode);
 			double arrivalTime = outData.getTime();
 			
 			// now construct and return the path
-			return constructPath(fromNode, foundToNode, startTime, arrivalTime);			
+			path = constructPath(fromNode, foundToNode, startTime, arrivalTime);
 		}
+		if (MetricsRegistry.isEnabled()) QUERY_NANOS.record(System.nanoTime() - queryStart);
+		return path;
 	}
 
 	/*
@@ -299,11 +308,13 @@ import java.util.Set;
 	/*package*/ Node searchLogic(final Node fromNode, final Node toNode, final RouterPriorityQueue<Node> pendingNodes) {
 		
 		boolean stillSearching = true;
+		long settledNodes = 0;
 		
 		while (stillSearching) {
 			Node outNode = pendingNodes.poll();
 
 			if (outNode == null) {
+				if (MetricsRegistry.isEnabled()) SETTLED_NODES.record(settledNodes);
 				log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId() + ". Some possible reasons:");
 				log.warn("  * Network is not connected.  Run NetworkCleaner().") ;
 				log.warn("  * Network for considered mode does not even exist.  Modes need to be entered for each link in network.xml.");
@@ -312,12 +323,14 @@ import java.util.Set;
 				return null;
 			}
 
+			settledNodes++;
 			if (outNode == toNode) {
 				stillSearching = false;
 			} else {
 				relaxNode(outNode, toNode, pendingNodes);
 			}
 		}
+		if (MetricsRegistry.isEnabled()) SETTLED_NODES.record(settledNodes);
 		return toNode;
 	}
 	
@@ -0,0 +1,188 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinaryScenarioFormat.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scenario;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.core.population.PersonBinaryCodec.IdAndStringReader;
+import org.matsim.core.population.PersonBinaryCodec.IdAndStringWriter;
+
+/**
+ * Constants and helpers shared by the {@link BinaryScenarioWriter} and the {@link BinaryScenarioReader}.
+ * <p></p>
+ * A file consists of
+ * <ul>
+ * <li> a header with {@link #MAGIC}, {@link #VERSION} and the position of the string table, </li>
+ * <li> the sections, each starting with its tag, followed by {@link #END}, </li>
+ * <li> the string table. </li>
+ * </ul>
+ * Ids and other strings are not stored in the sections, but as their index in the string table.  Every string
+ * is thus stored only once, no matter if it is the id of a link referenced by thousands of routes or an activity type.
+ */
+/* deliberately package */ final class BinaryScenarioFormat {
+
+	static final int MAGIC = 0x4d534253; // "MSBS"
+	static final int VERSION = 2;
+	/** magic, version and the position of the string table */
+	static final int HEADER_SIZE = 4 + 4 + 8;
+
+	static final byte END = 0;
+	static final byte NETWORK = 1;
+	static final byte FACILITIES = 2;
+	static final byte VEHICLES = 3;
+	static final byte TRANSIT_VEHICLES = 4;
+	static final byte TRANSIT_SCHEDULE = 5;
+	static final byte POPULATION = 6;
+
+	private static final int NULL = -1;
+
+	private BinaryScenarioFormat() {
+	}
+
+	static void writeCoord(final DataOutput out, final Coord coord) throws IOException {
+		if (coord == null) {
+			out.writeByte(0);
+		} else if (coord.hasZ()) {
+			out.writeByte(3);
+			out.writeDouble(coord.getX());
+			out.writeDouble(coord.getY());
+			out.writeDouble(coord.getZ());
+		} else {
+			out.writeByte(2);
+			out.writeDouble(coord.getX());
+			out.writeDouble(coord.getY());
+		}
+	}
+
+	static Coord readCoord(final DataInput in) throws IOException {
+		byte dimensions = in.readByte();
+		if (dimensions == 0) {
+			return null;
+		}
+		double x = in.readDouble();
+		double y = in.readDouble();
+		return dimensions == 3 ? new Coord(x, y, in.readDouble()) : new Coord(x, y);
+	}
+
+	/**
+	 * Collects the strings while the sections are written, and writes them as table at the end.
+	 */
+	static final class StringTableWriter implements IdAndStringWriter {
+		private final Map<String, Integer> indices = new HashMap<>();
+		private final List<String> strings = new ArrayList<>();
+
+		@Override
+		public void writeId(final DataOutput out, final Id<?> id) throws IOException {
+			writeString(out, id == null ? null : id.toString());
+		}
+
+		@Override
+		public void writeString(final DataOutput out, final String s) throws IOException {
+			if (s == null) {
+				out.writeInt(NULL);
+				return;
+			}
+			Integer index = this.indices.get(s);
+			if (index == null) {
+				index = this.strings.size();
+				this.indices.put(s, index);
+				this.strings.add(s);
+			}
+			out.writeInt(index);
+		}
+
+		int size() {
+			return this.strings.size();
+		}
+
+		void writeTable(final DataOutput out) throws IOException {
+			out.writeInt(this.strings.size());
+			for (String s : this.strings) {
+				byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		}
+	}
+
+	/**
+	 * Resolves the indices in the sections with the string table read before.  Every entry is converted to an id at
+	 * most once per id type, when it is first referenced; all later references share that id.
+	 */
+	static final class StringTableReader implements IdAndStringReader {
+		private final String[] strings;
+		/** per id type: the ids of the entries referenced so far, indexed like the strings */
+		private final Map<Class<?>, Id<?>[]> idsByType = new HashMap<>();
+
+		StringTableReader(final DataInput in) throws IOException {
+			this.strings = new String[in.readInt()];
+			byte[] bytes = new byte[256];
+			for (int i = 0; i < this.strings.length; i++) {
+				int length = in.readInt();
+				if (length > bytes.length) {
+					bytes = new byte[Math.max(length, 2 * bytes.length)];
+				}
+				in.readFully(bytes, 0, length);
+				this.strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+			}
+		}
+
+		@Override
+		public <T> Id<T> readId(final DataInput in, final Class<T> type) throws IOException {
+			int index = in.readInt();
+			if (index == NULL) {
+				return null;
+			}
+			Id<?>[] ids = this.idsByType.get(type);
+			if (ids == null) {
+				ids = new Id<?>[this.strings.length];
+				this.idsByType.put(type, ids);
+			}
+			@SuppressWarnings("unchecked")
+			Id<T> id = (Id<T>) ids[index];
+			if (id == null) {
+				id = Id.create(this.strings[index], type);
+				ids[index] = id;
+			}
+			return id;
+		}
+
+		@Override
+		public String readString(final DataInput in) throws IOException {
+			int index = in.readInt();
+			return index == NULL ? null : this.strings[index];
+		}
+
+		int size() {
+			return this.strings.length;
+		}
+	}
+
+}
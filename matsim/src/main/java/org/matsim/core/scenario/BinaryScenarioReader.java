@@ -0,0 +1,366 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinaryScenarioReader.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scenario;
+
+import java.io.DataInput;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PersonBinaryCodec;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.scenario.BinaryScenarioFormat.StringTableReader;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.facilities.ActivityFacilityImpl;
+import org.matsim.facilities.ActivityOption;
+import org.matsim.facilities.OpeningTimeImpl;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopArea;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.vehicles.EngineInformation;
+import org.matsim.vehicles.FreightCapacity;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleCapacity;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.Vehicles;
+
+/**
+ * Reads a file written by the {@link BinaryScenarioWriter} into a scenario.  The file is read through a memory mapping,
+ * first the string table at its end, then the sections in the order they were written.
+ * <p></p>
+ * The coordinates are not transformed, the file must be written with the coordinate system of the scenario.
+ */
+public final class BinaryScenarioReader {
+	private static final Logger log = Logger.getLogger(BinaryScenarioReader.class);
+
+	private final Scenario scenario;
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+
+	public BinaryScenarioReader(final Scenario scenario) {
+		this.scenario = scenario;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+	}
+
+	public void readFile(final String filename) {
+		read(new File(filename));
+	}
+
+	/**
+	 * @param url must point to a file in the local file system, as the file is memory-mapped.
+	 */
+	public void readURL(final URL url) {
+		if (!"file".equals(url.getProtocol())) {
+			throw new IllegalArgumentException("binary scenario files can only be read from the local file system, but got " + url);
+		}
+		try {
+			read(new File(url.toURI()));
+		} catch (URISyntaxException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	private void read(final File file) {
+		log.info("reading binary scenario from " + file);
+		try (MappedDataInput in = new MappedDataInput(file)) {
+			if (in.readInt() != BinaryScenarioFormat.MAGIC) {
+				throw new IllegalArgumentException(file + " is not a binary scenario file.");
+			}
+			int version = in.readInt();
+			if (version != BinaryScenarioFormat.VERSION) {
+				throw new IllegalArgumentException(file + " has version " + version + ", but only version "
+						+ BinaryScenarioFormat.VERSION + " is supported.  Please write the file again from the xml files.");
+			}
+			long tablePosition = in.readLong();
+			in.seek(tablePosition);
+			StringTableReader table = new StringTableReader(in);
+			log.info("read " + table.size() + " distinct ids and strings.");
+			in.seek(BinaryScenarioFormat.HEADER_SIZE);
+
+			PersonBinaryCodec codec = new PersonBinaryCodec(this.scenario.getPopulation().getFactory(), this.attributesConverter, null, table);
+			byte section;
+			while ((section = in.readByte()) != BinaryScenarioFormat.END) {
+				switch (section) {
+					case BinaryScenarioFormat.NETWORK:
+						readNetwork(in, this.scenario.getNetwork(), codec, table);
+						break;
+					case BinaryScenarioFormat.FACILITIES:
+						readFacilities(in, this.scenario.getActivityFacilities(), codec, table);
+						break;
+					case BinaryScenarioFormat.VEHICLES:
+						readVehicles(in, this.scenario.getVehicles(), table);
+						break;
+					case BinaryScenarioFormat.TRANSIT_VEHICLES:
+						readVehicles(in, this.scenario.getTransitVehicles(), table);
+						break;
+					case BinaryScenarioFormat.TRANSIT_SCHEDULE:
+						readTransitSchedule(in, this.scenario.getTransitSchedule(), codec, table);
+						break;
+					case BinaryScenarioFormat.POPULATION:
+						readPopulation(in, this.scenario.getPopulation(), codec, table);
+						break;
+					default:
+						throw new IllegalArgumentException("unknown section " + section + " in " + file);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void readNetwork(final DataInput in, final Network network, final PersonBinaryCodec codec,
+			final StringTableReader table) throws IOException {
+		network.setName(table.readString(in));
+		network.setCapacityPeriod(in.readDouble());
+		network.setEffectiveCellSize(in.readDouble());
+		network.setEffectiveLaneWidth(in.readDouble());
+		codec.readAttributes(in, network.getAttributes());
+
+		int nodes = in.readInt();
+		for (int i = 0; i < nodes; i++) {
+			Node node = network.getFactory().createNode(table.readId(in, Node.class), BinaryScenarioFormat.readCoord(in));
+			NetworkUtils.setType(node, table.readString(in));
+			NetworkUtils.setOrigId(node, table.readString(in));
+			codec.readAttributes(in, node.getAttributes());
+			network.addNode(node);
+		}
+
+		int links = in.readInt();
+		for (int i = 0; i < links; i++) {
+			Id<Link> id = table.readId(in, Link.class);
+			Node fromNode = network.getNodes().get(table.readId(in, Node.class));
+			Node toNode = network.getNodes().get(table.readId(in, Node.class));
+			Link link = network.getFactory().createLink(id, fromNode, toNode);
+			link.setLength(in.readDouble());
+			link.setFreespeed(in.readDouble());
+			link.setCapacity(in.readDouble());
+			link.setNumberOfLanes(in.readDouble());
+			int modes = in.readInt();
+			Set<String> allowedModes = new HashSet<>();
+			for (int m = 0; m < modes; m++) {
+				allowedModes.add(table.readString(in));
+			}
+			link.setAllowedModes(allowedModes);
+			codec.readAttributes(in, link.getAttributes());
+			network.addLink(link);
+		}
+		log.info("read " + nodes + " nodes and " + links + " links.");
+	}
+
+	private static void readFacilities(final DataInput in, final ActivityFacilities facilities, final PersonBinaryCodec codec,
+			final StringTableReader table) throws IOException {
+		facilities.setName(table.readString(in));
+		codec.readAttributes(in, facilities.getAttributes());
+
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			Id<ActivityFacility> id = table.readId(in, ActivityFacility.class);
+			Coord coord = BinaryScenarioFormat.readCoord(in);
+			Id<Link> linkId = table.readId(in, Link.class);
+			ActivityFacility facility = facilities.getFactory().createActivityFacility(id, coord, linkId);
+			String desc = table.readString(in);
+			if (desc != null) {
+				((ActivityFacilityImpl) facility).setDesc(desc);
+			}
+			int options = in.readInt();
+			for (int o = 0; o < options; o++) {
+				ActivityOption option = facilities.getFactory().createActivityOption(table.readString(in));
+				option.setCapacity(in.readDouble());
+				int openingTimes = in.readInt();
+				for (int t = 0; t < openingTimes; t++) {
+					option.addOpeningTime(new OpeningTimeImpl(in.readDouble(), in.readDouble()));
+				}
+				facility.addActivityOption(option);
+			}
+			codec.readAttributes(in, facility.getAttributes());
+			facilities.addActivityFacility(facility);
+		}
+		codec.readObjectAttributes(in, facilities.getFacilityAttributes());
+		log.info("read " + count + " facilities.");
+	}
+
+	private static void readVehicles(final DataInput in, final Vehicles vehicles, final StringTableReader table) throws IOException {
+		int types = in.readInt();
+		for (int i = 0; i < types; i++) {
+			VehicleType type = vehicles.getFactory().createVehicleType(table.readId(in, VehicleType.class));
+			type.setDescription(table.readString(in));
+			type.setLength(in.readDouble());
+			type.setWidth(in.readDouble());
+			type.setMaximumVelocity(in.readDouble());
+			type.setAccessTime(in.readDouble());
+			type.setEgressTime(in.readDouble());
+			type.setDoorOperationMode(VehicleType.DoorOperationMode.valueOf(table.readString(in)));
+			type.setPcuEquivalents(in.readDouble());
+			type.setFlowEfficiencyFactor(in.readDouble());
+
+			if (in.readBoolean()) {
+				VehicleCapacity capacity = vehicles.getFactory().createVehicleCapacity();
+				capacity.setSeats(readInteger(in));
+				capacity.setStandingRoom(readInteger(in));
+				if (in.readBoolean()) {
+					FreightCapacity freightCapacity = vehicles.getFactory().createFreigthCapacity();
+					freightCapacity.setVolume(in.readDouble());
+					capacity.setFreightCapacity(freightCapacity);
+				}
+				type.setCapacity(capacity);
+			}
+			if (in.readBoolean()) {
+				EngineInformation.FuelType fuelType = EngineInformation.FuelType.valueOf(table.readString(in));
+				type.setEngineInformation(vehicles.getFactory().createEngineInformation(fuelType, in.readDouble()));
+			}
+			vehicles.addVehicleType(type);
+		}
+
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			Id<Vehicle> id = table.readId(in, Vehicle.class);
+			VehicleType type = vehicles.getVehicleTypes().get(table.readId(in, VehicleType.class));
+			vehicles.addVehicle(vehicles.getFactory().createVehicle(id, type));
+		}
+	}
+
+	private static Integer readInteger(final DataInput in) throws IOException {
+		return in.readBoolean() ? in.readInt() : null;
+	}
+
+	private void readTransitSchedule(final DataInput in, final TransitSchedule schedule, final PersonBinaryCodec codec,
+			final StringTableReader table) throws IOException {
+		TransitScheduleFactory factory = schedule.getFactory();
+		codec.readAttributes(in, schedule.getAttributes());
+
+		int stops = in.readInt();
+		for (int i = 0; i < stops; i++) {
+			Id<TransitStopFacility> id = table.readId(in, TransitStopFacility.class);
+			Coord coord = BinaryScenarioFormat.readCoord(in);
+			Id<Link> linkId = table.readId(in, Link.class);
+			String name = table.readString(in);
+			TransitStopFacility stop = factory.createTransitStopFacility(id, coord, in.readBoolean());
+			stop.setLinkId(linkId);
+			stop.setName(name);
+			stop.setStopAreaId(table.readId(in, TransitStopArea.class));
+			codec.readAttributes(in, stop.getAttributes());
+			schedule.addStopFacility(stop);
+		}
+
+		int lines = in.readInt();
+		for (int i = 0; i < lines; i++) {
+			TransitLine line = factory.createTransitLine(table.readId(in, TransitLine.class));
+			line.setName(table.readString(in));
+			codec.readAttributes(in, line.getAttributes());
+			int routes = in.readInt();
+			for (int r = 0; r < routes; r++) {
+				line.addRoute(readTransitRoute(in, schedule, codec, table));
+			}
+			schedule.addTransitLine(line);
+		}
+
+		while (in.readBoolean()) {
+			Id<TransitStopFacility> fromStopId = table.readId(in, TransitStopFacility.class);
+			Id<TransitStopFacility> toStopId = table.readId(in, TransitStopFacility.class);
+			schedule.getMinimalTransferTimes().set(fromStopId, toStopId, in.readDouble());
+		}
+
+		codec.readObjectAttributes(in, schedule.getTransitLinesAttributes());
+		codec.readObjectAttributes(in, schedule.getTransitStopsAttributes());
+		log.info("read " + stops + " transit stops and " + lines + " transit lines.");
+	}
+
+	private TransitRoute readTransitRoute(final DataInput in, final TransitSchedule schedule, final PersonBinaryCodec codec,
+			final StringTableReader table) throws IOException {
+		TransitScheduleFactory factory = schedule.getFactory();
+		Id<TransitRoute> id = table.readId(in, TransitRoute.class);
+		String mode = table.readString(in);
+		String description = table.readString(in);
+
+		NetworkRoute networkRoute = null;
+		if (in.readBoolean()) {
+			Id<Link> startLinkId = table.readId(in, Link.class);
+			int size = in.readInt();
+			List<Id<Link>> linkIds = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				linkIds.add(table.readId(in, Link.class));
+			}
+			Id<Link> endLinkId = table.readId(in, Link.class);
+			networkRoute = this.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, startLinkId, endLinkId);
+			networkRoute.setLinkIds(startLinkId, linkIds, endLinkId);
+		}
+
+		int size = in.readInt();
+		List<TransitRouteStop> stops = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			TransitStopFacility stopFacility = schedule.getFacilities().get(table.readId(in, TransitStopFacility.class));
+			TransitRouteStop stop = factory.createTransitRouteStop(stopFacility, in.readDouble(), in.readDouble());
+			stop.setAwaitDepartureTime(in.readBoolean());
+			stops.add(stop);
+		}
+
+		TransitRoute route = factory.createTransitRoute(id, networkRoute, stops, mode);
+		route.setDescription(description);
+		int departures = in.readInt();
+		for (int i = 0; i < departures; i++) {
+			Departure departure = factory.createDeparture(table.readId(in, Departure.class), in.readDouble());
+			departure.setVehicleId(table.readId(in, Vehicle.class));
+			codec.readAttributes(in, departure.getAttributes());
+			route.addDeparture(departure);
+		}
+		codec.readAttributes(in, route.getAttributes());
+		return route;
+	}
+
+	private static void readPopulation(final DataInput in, final Population population, final PersonBinaryCodec codec,
+			final StringTableReader table) throws IOException {
+		population.setName(table.readString(in));
+		codec.readAttributes(in, population.getAttributes());
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			population.addPerson(codec.read(in));
+		}
+		codec.readObjectAttributes(in, population.getPersonAttributes());
+		log.info("read " + count + " persons.");
+	}
+
+}
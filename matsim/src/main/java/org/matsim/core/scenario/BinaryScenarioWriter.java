@@ -0,0 +1,332 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinaryScenarioWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scenario;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PersonBinaryCodec;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.scenario.BinaryScenarioFormat.StringTableWriter;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.facilities.ActivityFacilityImpl;
+import org.matsim.facilities.ActivityOption;
+import org.matsim.facilities.OpeningTime;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.MinimalTransferTimes;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.vehicles.EngineInformation;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleCapacity;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.Vehicles;
+
+/**
+ * Writes the network, facilities, vehicles, transit schedule and population of a scenario into one binary file,
+ * which can be read much faster than the xml files, see {@link BinaryScenarioReader} and
+ * {@link org.matsim.core.config.groups.ScenarioConfigGroup#setBinaryInputFile(String)}.
+ * <p></p>
+ * The file is meant as a cache of the xml input files for large scenarios, not as a replacement:  It is not compressed, the
+ * format may change between MATSim versions, and coordinates are stored in the coordinate system of the scenario.  The
+ * (deprecated) object attributes of the persons, facilities, transit lines and transit stops are included, so e.g. the
+ * subpopulations are kept.  Not included are households and lanes.
+ */
+public final class BinaryScenarioWriter {
+	private static final Logger log = Logger.getLogger(BinaryScenarioWriter.class);
+
+	private final Scenario scenario;
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+
+	public BinaryScenarioWriter(final Scenario scenario) {
+		this.scenario = scenario;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+	}
+
+	public void write(final String filename) {
+		log.info("writing binary scenario to " + filename);
+		StringTableWriter table = new StringTableWriter();
+		PersonBinaryCodec codec = new PersonBinaryCodec(this.scenario.getPopulation().getFactory(), this.attributesConverter, table, null);
+		try (FileOutputStream file = new FileOutputStream(filename);
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+			out.writeInt(BinaryScenarioFormat.MAGIC);
+			out.writeInt(BinaryScenarioFormat.VERSION);
+			out.writeLong(0); // position of the string table, set once it is known
+
+			writeNetwork(out, this.scenario.getNetwork(), codec, table);
+			writeFacilities(out, this.scenario.getActivityFacilities(), codec, table);
+			writeVehicles(out, BinaryScenarioFormat.VEHICLES, this.scenario.getVehicles(), table);
+			writeVehicles(out, BinaryScenarioFormat.TRANSIT_VEHICLES, this.scenario.getTransitVehicles(), table);
+			writeTransitSchedule(out, this.scenario.getTransitSchedule(), codec, table);
+			writePopulation(out, this.scenario.getPopulation(), codec, table);
+			out.writeByte(BinaryScenarioFormat.END);
+			out.flush();
+
+			long tablePosition = file.getChannel().position();
+			table.writeTable(out);
+			out.flush();
+			ByteBuffer buffer = ByteBuffer.allocate(8);
+			buffer.putLong(0, tablePosition);
+			file.getChannel().write(buffer, BinaryScenarioFormat.HEADER_SIZE - 8);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		log.info("wrote binary scenario with " + table.size() + " distinct ids and strings.");
+	}
+
+	private static void writeNetwork(final DataOutput out, final Network network, final PersonBinaryCodec codec,
+			final StringTableWriter table) throws IOException {
+		out.writeByte(BinaryScenarioFormat.NETWORK);
+		table.writeString(out, network.getName());
+		out.writeDouble(network.getCapacityPeriod());
+		out.writeDouble(network.getEffectiveCellSize());
+		out.writeDouble(network.getEffectiveLaneWidth());
+		codec.writeAttributes(out, network.getAttributes());
+
+		out.writeInt(network.getNodes().size());
+		for (Node node : network.getNodes().values()) {
+			table.writeId(out, node.getId());
+			BinaryScenarioFormat.writeCoord(out, node.getCoord());
+			table.writeString(out, NetworkUtils.getType(node));
+			table.writeString(out, NetworkUtils.getOrigId(node));
+			codec.writeAttributes(out, node.getAttributes());
+		}
+
+		out.writeInt(network.getLinks().size());
+		for (Link link : network.getLinks().values()) {
+			table.writeId(out, link.getId());
+			table.writeId(out, link.getFromNode().getId());
+			table.writeId(out, link.getToNode().getId());
+			out.writeDouble(link.getLength());
+			out.writeDouble(link.getFreespeed());
+			out.writeDouble(link.getCapacity());
+			out.writeDouble(link.getNumberOfLanes());
+			out.writeInt(link.getAllowedModes().size());
+			for (String mode : link.getAllowedModes()) {
+				table.writeString(out, mode);
+			}
+			codec.writeAttributes(out, link.getAttributes());
+		}
+	}
+
+	private static void writeFacilities(final DataOutput out, final ActivityFacilities facilities, final PersonBinaryCodec codec,
+			final StringTableWriter table) throws IOException {
+		out.writeByte(BinaryScenarioFormat.FACILITIES);
+		table.writeString(out, facilities.getName());
+		codec.writeAttributes(out, facilities.getAttributes());
+
+		out.writeInt(facilities.getFacilities().size());
+		for (ActivityFacility facility : facilities.getFacilities().values()) {
+			table.writeId(out, facility.getId());
+			BinaryScenarioFormat.writeCoord(out, facility.getCoord());
+			table.writeId(out, facility.getLinkId());
+			table.writeString(out, facility instanceof ActivityFacilityImpl ? ((ActivityFacilityImpl) facility).getDesc() : null);
+			out.writeInt(facility.getActivityOptions().size());
+			for (ActivityOption option : facility.getActivityOptions().values()) {
+				table.writeString(out, option.getType());
+				out.writeDouble(option.getCapacity());
+				out.writeInt(option.getOpeningTimes().size());
+				for (OpeningTime openingTime : option.getOpeningTimes()) {
+					out.writeDouble(openingTime.getStartTime());
+					out.writeDouble(openingTime.getEndTime());
+				}
+			}
+			codec.writeAttributes(out, facility.getAttributes());
+		}
+		codec.writeObjectAttributes(out, facilities.getFacilityAttributes());
+	}
+
+	private static void writeVehicles(final DataOutput out, final byte section, final Vehicles vehicles, final StringTableWriter table) throws IOException {
+		out.writeByte(section);
+		out.writeInt(vehicles.getVehicleTypes().size());
+		for (VehicleType type : vehicles.getVehicleTypes().values()) {
+			table.writeId(out, type.getId());
+			table.writeString(out, type.getDescription());
+			out.writeDouble(type.getLength());
+			out.writeDouble(type.getWidth());
+			out.writeDouble(type.getMaximumVelocity());
+			out.writeDouble(type.getAccessTime());
+			out.writeDouble(type.getEgressTime());
+			table.writeString(out, type.getDoorOperationMode().name());
+			out.writeDouble(type.getPcuEquivalents());
+			out.writeDouble(type.getFlowEfficiencyFactor());
+
+			VehicleCapacity capacity = type.getCapacity();
+			out.writeBoolean(capacity != null);
+			if (capacity != null) {
+				writeInteger(out, capacity.getSeats());
+				writeInteger(out, capacity.getStandingRoom());
+				out.writeBoolean(capacity.getFreightCapacity() != null);
+				if (capacity.getFreightCapacity() != null) {
+					out.writeDouble(capacity.getFreightCapacity().getVolume());
+				}
+			}
+			EngineInformation engine = type.getEngineInformation();
+			out.writeBoolean(engine != null);
+			if (engine != null) {
+				table.writeString(out, engine.getFuelType().name());
+				out.writeDouble(engine.getGasConsumption());
+			}
+		}
+
+		out.writeInt(vehicles.getVehicles().size());
+		for (Vehicle vehicle : vehicles.getVehicles().values()) {
+			table.writeId(out, vehicle.getId());
+			table.writeId(out, vehicle.getType().getId());
+		}
+	}
+
+	private static void writeInteger(final DataOutput out, final Integer value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeInt(value);
+		}
+	}
+
+	private static void writeTransitSchedule(final DataOutput out, final TransitSchedule schedule, final PersonBinaryCodec codec,
+			final StringTableWriter table) throws IOException {
+		out.writeByte(BinaryScenarioFormat.TRANSIT_SCHEDULE);
+		codec.writeAttributes(out, schedule.getAttributes());
+
+		out.writeInt(schedule.getFacilities().size());
+		for (TransitStopFacility stop : schedule.getFacilities().values()) {
+			table.writeId(out, stop.getId());
+			BinaryScenarioFormat.writeCoord(out, stop.getCoord());
+			table.writeId(out, stop.getLinkId());
+			table.writeString(out, stop.getName());
+			out.writeBoolean(stop.getIsBlockingLane());
+			table.writeId(out, stop.getStopAreaId());
+			codec.writeAttributes(out, stop.getAttributes());
+		}
+
+		out.writeInt(schedule.getTransitLines().size());
+		for (TransitLine line : schedule.getTransitLines().values()) {
+			table.writeId(out, line.getId());
+			table.writeString(out, line.getName());
+			codec.writeAttributes(out, line.getAttributes());
+			out.writeInt(line.getRoutes().size());
+			for (TransitRoute route : line.getRoutes().values()) {
+				writeTransitRoute(out, route, codec, table);
+			}
+		}
+
+		MinimalTransferTimes.MinimalTransferTimesIterator iter = schedule.getMinimalTransferTimes().iterator();
+		while (iter.hasNext()) {
+			iter.next();
+			out.writeBoolean(true);
+			table.writeId(out, iter.getFromStopId());
+			table.writeId(out, iter.getToStopId());
+			out.writeDouble(iter.getSeconds());
+		}
+		out.writeBoolean(false);
+
+		codec.writeObjectAttributes(out, schedule.getTransitLinesAttributes());
+		codec.writeObjectAttributes(out, schedule.getTransitStopsAttributes());
+	}
+
+	private static void writeTransitRoute(final DataOutput out, final TransitRoute route, final PersonBinaryCodec codec,
+			final StringTableWriter table) throws IOException {
+		table.writeId(out, route.getId());
+		table.writeString(out, route.getTransportMode());
+		table.writeString(out, route.getDescription());
+
+		NetworkRoute networkRoute = route.getRoute();
+		out.writeBoolean(networkRoute != null);
+		if (networkRoute != null) {
+			table.writeId(out, networkRoute.getStartLinkId());
+			out.writeInt(networkRoute.getLinkIds().size());
+			for (Id<Link> linkId : networkRoute.getLinkIds()) {
+				table.writeId(out, linkId);
+			}
+			table.writeId(out, networkRoute.getEndLinkId());
+		}
+
+		out.writeInt(route.getStops().size());
+		for (TransitRouteStop stop : route.getStops()) {
+			table.writeId(out, stop.getStopFacility().getId());
+			out.writeDouble(stop.getArrivalOffset());
+			out.writeDouble(stop.getDepartureOffset());
+			out.writeBoolean(stop.isAwaitDepartureTime());
+		}
+
+		out.writeInt(route.getDepartures().size());
+		for (Departure departure : route.getDepartures().values()) {
+			table.writeId(out, departure.getId());
+			out.writeDouble(departure.getDepartureTime());
+			table.writeId(out, departure.getVehicleId());
+			codec.writeAttributes(out, departure.getAttributes());
+		}
+		codec.writeAttributes(out, route.getAttributes());
+	}
+
+	private static void writePopulation(final DataOutput out, final Population population, final PersonBinaryCodec codec,
+			final StringTableWriter table) throws IOException {
+		out.writeByte(BinaryScenarioFormat.POPULATION);
+		table.writeString(out, population.getName());
+		codec.writeAttributes(out, population.getAttributes());
+		out.writeInt(population.getPersons().size());
+		for (Person person : population.getPersons().values()) {
+			codec.write(out, person);
+		}
+		codec.writeObjectAttributes(out, population.getPersonAttributes());
+	}
+
+	/**
+	 * Converts the input files of a config into a binary scenario file.
+	 *
+	 * @param args the config file and the name of the binary file to write
+	 */
+	public static void main(final String[] args) {
+		if (args.length != 2) {
+			System.err.println("Usage: BinaryScenarioWriter config.xml scenario.bin");
+			System.exit(1);
+		}
+		Config config = ConfigUtils.loadConfig(args[0]);
+		new BinaryScenarioWriter(ScenarioUtils.loadScenario(config)).write(args[1]);
+	}
+
+}
@@ -0,0 +1,212 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * MappedDataInput.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scenario;
+
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a file sequentially through a memory-mapped window.  As a single mapping is limited to 2GB,
+ * the window is moved along the file whenever the remaining bytes do not suffice for the next value.
+ */
+/* deliberately package */ final class MappedDataInput implements DataInput, Closeable {
+
+	static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final long size;
+	private final int windowSize;
+
+	private MappedByteBuffer window = null;
+	private long windowStart = 0;
+
+	MappedDataInput(final File file) throws IOException {
+		this(file, DEFAULT_WINDOW_SIZE);
+	}
+
+	MappedDataInput(final File file, final int windowSize) throws IOException {
+		if (windowSize < 8) {
+			throw new IllegalArgumentException("the window must be large enough for the largest value, i.e. a long.");
+		}
+		this.file = new RandomAccessFile(file, "r");
+		this.channel = this.file.getChannel();
+		this.size = this.channel.size();
+		this.windowSize = windowSize;
+		seek(0);
+	}
+
+	long position() {
+		return this.windowStart + this.window.position();
+	}
+
+	void seek(final long position) throws IOException {
+		if (position < 0 || position > this.size) {
+			throw new EOFException("position " + position + " is outside of the file of size " + this.size);
+		}
+		this.windowStart = position;
+		this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(this.windowSize, this.size - position));
+	}
+
+	private void ensure(final int bytes) throws IOException {
+		if (this.window.remaining() < bytes) {
+			long position = position();
+			if (position + bytes > this.size) {
+				throw new EOFException();
+			}
+			seek(position);
+		}
+	}
+
+	@Override
+	public void readFully(final byte[] b) throws IOException {
+		readFully(b, 0, b.length);
+	}
+
+	@Override
+	public void readFully(final byte[] b, final int off, final int len) throws IOException {
+		int offset = off;
+		int remaining = len;
+		while (remaining > 0) {
+			if (!this.window.hasRemaining()) {
+				ensure(1);
+			}
+			int n = Math.min(remaining, this.window.remaining());
+			this.window.get(b, offset, n);
+			offset += n;
+			remaining -= n;
+		}
+	}
+
+	@Override
+	public int skipBytes(final int n) throws IOException {
+		int skipped = (int) Math.min(n, this.size - position());
+		seek(position() + skipped);
+		return skipped;
+	}
+
+	@Override
+	public boolean readBoolean() throws IOException {
+		return readByte() != 0;
+	}
+
+	@Override
+	public byte readByte() throws IOException {
+		ensure(1);
+		return this.window.get();
+	}
+
+	@Override
+	public int readUnsignedByte() throws IOException {
+		return readByte() & 0xff;
+	}
+
+	@Override
+	public short readShort() throws IOException {
+		ensure(2);
+		return this.window.getShort();
+	}
+
+	@Override
+	public int readUnsignedShort() throws IOException {
+		return readShort() & 0xffff;
+	}
+
+	@Override
+	public char readChar() throws IOException {
+		ensure(2);
+		return this.window.getChar();
+	}
+
+	@Override
+	public int readInt() throws IOException {
+		ensure(4);
+		return this.window.getInt();
+	}
+
+	@Override
+	public long readLong() throws IOException {
+		ensure(8);
+		return this.window.getLong();
+	}
+
+	@Override
+	public float readFloat() throws IOException {
+		ensure(4);
+		return this.window.getFloat();
+	}
+
+	@Override
+	public double readDouble() throws IOException {
+		ensure(8);
+		return this.window.getDouble();
+	}
+
+	/**
+	 * Reads the next line like {@link RandomAccessFile#readLine()}: every byte is taken as one character, and the line
+	 * ends with <code>\n</code>, <code>\r</code> or <code>\r\n</code>.
+	 *
+	 * @return the line without its terminator, or <code>null</code> at the end of the file.
+	 */
+	@Override
+	public String readLine() throws IOException {
+		if (position() >= this.size) {
+			return null;
+		}
+		StringBuilder line = new StringBuilder();
+		while (position() < this.size) {
+			int c = readUnsignedByte();
+			if (c == '\n') {
+				break;
+			}
+			if (c == '\r') {
+				if (position() < this.size) {
+					ensure(1);
+					if (this.window.get(this.window.position()) == '\n') {
+						this.window.get();
+					}
+				}
+				break;
+			}
+			line.append((char) c);
+		}
+		return line.toString();
+	}
+
+	@Override
+	public String readUTF() throws IOException {
+		return DataInputStream.readUTF(this);
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.window = null;
+		this.file.close();
+	}
+
+}
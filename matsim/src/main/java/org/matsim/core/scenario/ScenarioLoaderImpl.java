@@ -103,14 +103,19 @@ class ScenarioLoaderImpl {
 //		log.info("loading scenario from base directory: " + currentDir);
 		// the above is not used and thus only causing confusion in the log output.  kai, sep'18
 
-		this.loadNetwork();
-		this.loadActivityFacilities();
-		this.loadPopulation();
-		this.loadHouseholds(); // tests internally if the file is there
-		this.loadTransit(); // tests internally if the file is there
-		this.loadTransitVehicles(); // tests internally if the file is there
-		if (this.config.vehicles().getVehiclesFile()!=null ) {
-			this.loadVehicles() ;
+		if (this.config.scenario().getBinaryInputFile() != null) {
+			this.loadBinaryScenario(); // replaces the network, facilities, population, transit and vehicles files
+			this.loadHouseholds(); // tests internally if the file is there
+		} else {
+			this.loadNetwork();
+			this.loadActivityFacilities();
+			this.loadPopulation();
+			this.loadHouseholds(); // tests internally if the file is there
+			this.loadTransit(); // tests internally if the file is there
+			this.loadTransitVehicles(); // tests internally if the file is there
+			if (this.config.vehicles().getVehiclesFile()!=null ) {
+				this.loadVehicles() ;
+			}
 		}
 		if (this.config.network().getLaneDefinitionsFile()!=null ) {
 			this.loadLanes();
@@ -133,19 +138,39 @@ class ScenarioLoaderImpl {
 							config.global().getCoordinateSystem(),
 							this.scenario.getNetwork());
             reader.putAttributeConverters( attributeConverters );
+            reader.setNumberOfThreads( this.config.global().getNumberOfReaderThreads() );
             reader.parse(networkUrl);
 
-			if ((this.config.network().getChangeEventsInputFile()!= null) && this.config.network().isTimeVariantNetwork()) {
-				log.info("loading network change events from " + this.config.network().getChangeEventsInputFileUrl(this.config.getContext()).getFile());
-				Network network = this.scenario.getNetwork();
-				List<NetworkChangeEvent> changeEvents = new ArrayList<>() ;
-				NetworkChangeEventsParser parser = new NetworkChangeEventsParser(network,changeEvents);
-				parser.parse(this.config.network().getChangeEventsInputFileUrl(config.getContext()));
-				NetworkUtils.setNetworkChangeEvents(network,changeEvents);
-			}
+			this.loadNetworkChangeEvents();
+		}
+	}
+
+	private void loadNetworkChangeEvents() {
+		if ((this.config.network().getChangeEventsInputFile()!= null) && this.config.network().isTimeVariantNetwork()) {
+			log.info("loading network change events from " + this.config.network().getChangeEventsInputFileUrl(this.config.getContext()).getFile());
+			Network network = this.scenario.getNetwork();
+			List<NetworkChangeEvent> changeEvents = new ArrayList<>() ;
+			NetworkChangeEventsParser parser = new NetworkChangeEventsParser(network,changeEvents);
+			parser.parse(this.config.network().getChangeEventsInputFileUrl(config.getContext()));
+			NetworkUtils.setNetworkChangeEvents(network,changeEvents);
 		}
 	}
 
+	/**
+	 * Loads the network, facilities, population, transit schedule and vehicles, including their object attributes,
+	 * from the binary file written by the {@link BinaryScenarioWriter}.
+	 */
+	private void loadBinaryScenario() {
+		URL binaryUrl = this.config.scenario().getBinaryInputFileURL(this.config.getContext());
+		log.info("loading binary scenario from " + binaryUrl + "; the input files of the network, facilities, plans, transit and vehicles and their attribute files are ignored.");
+		BinaryScenarioReader reader = new BinaryScenarioReader(this.scenario);
+		reader.putAttributeConverters(attributeConverters);
+		reader.readURL(binaryUrl);
+		PopulationUtils.printPlansCount(this.scenario.getPopulation()) ;
+
+		this.loadNetworkChangeEvents();
+	}
+
 	private void loadActivityFacilities() {
 		if ((this.config.facilities() != null) && (this.config.facilities().getInputFile() != null)) {
 			URL facilitiesFileName = this.config.facilities().getInputFileURL(config.getContext());
@@ -156,6 +181,7 @@ class ScenarioLoaderImpl {
 
             MatsimFacilitiesReader reader = new MatsimFacilitiesReader(inputCRS, internalCRS, this.scenario.getActivityFacilities());
             reader.putAttributeConverters(attributeConverters);
+            reader.setNumberOfThreads(this.config.global().getNumberOfReaderThreads());
             reader.parse(facilitiesFileName);
 
 			log.info("loaded " + this.scenario.getActivityFacilities().getFacilities().size() + " facilities from " + facilitiesFileName);
@@ -185,6 +211,7 @@ class ScenarioLoaderImpl {
 
             final PopulationReader reader = new PopulationReader(targetCRS, internalCRS, this.scenario);
             reader.putAttributeConverters( attributeConverters );
+            reader.setNumberOfThreads( this.config.global().getNumberOfReaderThreads() );
             reader.parse( populationFileName );
 
 			PopulationUtils.printPlansCount(this.scenario.getPopulation()) ;
@@ -105,6 +105,16 @@ public final class EventsToActivities implements ActivityStartEventHandler, Acti
         this.activityHandlers.add(activityHandler);
     }
 
+    /**
+     * Passes an activity which was put together by another instance, e.g. by a partition of the scoring, to the activity
+     * handlers of this one.  Synchronized, as the partitions run on several threads.
+     */
+    /* package */ synchronized void passActivity(PersonExperiencedActivity activity) {
+        for (ActivityHandler activityHandler : activityHandlers) {
+            activityHandler.handleActivity(activity);
+        }
+    }
+
     public void finish() {
         for (Map.Entry<Id<Person>, Activity> entry : activities.entrySet()) {
             for (ActivityHandler activityHandler : activityHandlers) {
@@ -156,6 +156,15 @@ TeleportationArrivalEventHandler, TransitDriverStartsEventHandler, PersonEntersV
 		}
 	}
 
+	/**
+	 * @return a new instance for the same network and transit schedule, without any leg handlers
+	 */
+	/* package */ EventsToLegs createEmptyCopy() {
+		EventsToLegs copy = new EventsToLegs(this.network);
+		copy.transitSchedule = this.transitSchedule;
+		return copy;
+	}
+
 	@Override
 	public void reset(int iteration) {
 		legs.clear();
@@ -298,6 +307,16 @@ TeleportationArrivalEventHandler, TransitDriverStartsEventHandler, PersonEntersV
 		this.legHandlers.add(legHandler);
 	}
 
+	/**
+	 * Passes a leg which was put together by another instance, e.g. by a partition of the scoring, to the leg handlers
+	 * of this one.  Synchronized, as the partitions run on several threads.
+	 */
+	/* package */ synchronized void passLeg(PersonExperiencedLeg leg) {
+		for (LegHandler legHandler : legHandlers) {
+			legHandler.handleLeg(leg);
+		}
+	}
+
 	@Override
 	public void handleEvent(VehicleEntersTrafficEvent event) {
 		delegate.handleEvent(event);
@@ -7,6 +7,10 @@ public final class ExperiencedPlanElementsModule extends AbstractModule {
 	public void install() {
 		bind(EventsToActivities.class).asEagerSingleton();
 		bind(EventsToLegs.class).asEagerSingleton();
+		if (getConfig().planCalcScore().getNumberOfScoringThreads() > 0) {
+			// the partitions of ScoringFunctionsForPopulation handle the events and pass the legs and activities on
+			return;
+		}
 		bind(EventsToLegsAndActivities.class).asEagerSingleton();
 		addEventHandlerBinding().to(EventsToLegsAndActivities.class);
 	}
@@ -28,6 +28,7 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
 import org.matsim.api.core.v01.events.PersonMoneyEvent;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
 import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
@@ -39,9 +40,13 @@ import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.controler.ControlerListenerManager;
+import org.matsim.core.controler.events.AfterMobsimEvent;
 import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
 import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.algorithms.Vehicle2DriverEventHandler;
 import org.matsim.core.events.handler.BasicEventHandler;
 import org.matsim.core.population.PopulationUtils;
@@ -53,11 +58,14 @@ import org.matsim.vehicles.Vehicle;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.matsim.core.router.TripStructureUtils.Trip;
@@ -107,9 +115,31 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	@Inject(optional = true)
 	private TripRouter tripRouter;
 
-	@Inject
+	/*
+	 * With partitioned scoring, the persons are distributed among several partitions by their id index, each one
+	 * with its own thread and its own EventsToLegs/EventsToActivities. The per-person maps above are only read
+	 * while the partitions run, and the per-person values are only touched by the partition of that person.
+	 * The injected EventsToLegs/EventsToActivities are then not registered for events (see ExperiencedPlanElementsModule),
+	 * the partitions pass their legs and activities on to the handlers of these, e.g. for the experienced plans.
+	 */
+	private final int numberOfPartitions;
+	private final EventsToLegs eventsToLegs;
+	private final EventsToActivities eventsToActivities;
+	private Partition[] partitions = null;
+
 	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
 						 Population population, ScoringFunctionFactory scoringFunctionFactory) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, 0);
+	}
+
+	@Inject
+	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+						 Population population, ScoringFunctionFactory scoringFunctionFactory, PlanCalcScoreConfigGroup planCalcScoreConfigGroup) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, planCalcScoreConfigGroup.getNumberOfScoringThreads());
+	}
+
+	private ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+						 Population population, ScoringFunctionFactory scoringFunctionFactory, int numberOfPartitions) {
 		controlerListenerManager.addControlerListener(new IterationStartsListener() {
 			@Override
 			public void notifyIterationStarts(IterationStartsEvent event) {
@@ -118,12 +148,25 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		});
 		this.population = population;
 		this.scoringFunctionFactory = scoringFunctionFactory;
+		this.numberOfPartitions = numberOfPartitions;
+		this.eventsToLegs = eventsToLegs;
+		this.eventsToActivities = eventsToActivities;
 		eventsManager.addHandler(this);
-		eventsToActivities.addActivityHandler(this);
-		eventsToLegs.addLegHandler(this);
+		if (numberOfPartitions > 0) {
+			// the partitions have their own EventsToLegs/EventsToActivities
+			controlerListenerManager.addControlerListener(new AfterMobsimListener() {
+				@Override
+				public void notifyAfterMobsim(AfterMobsimEvent event) {
+					finishPartitions();
+				}
+			});
+		} else {
+			eventsToActivities.addActivityHandler(this);
+			eventsToLegs.addLegHandler(this);
 //		if ( passLinkEventsToPerson ) {
 			eventsManager.addHandler(this.vehicles2Drivers);
 //		}
+		}
 	}
 
 	private void init() {
@@ -133,6 +176,9 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 			this.partialScores.put(person.getId(), new TDoubleArrayList());
 			this.tripRecords.put(person.getId(), PopulationUtils.createPlan());
 		}
+		if (this.numberOfPartitions > 0) {
+			startPartitions();
+		}
 	}
 
 	private StageActivityTypes getStageActivities() {
@@ -158,6 +204,14 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 	@Override
 	synchronized public void handleEvent(Event o) {
+		if (this.partitions != null) {
+			dispatchToPartitions(o);
+		} else {
+			scoreEvent(o, this.vehicles2Drivers);
+		}
+	}
+
+	private void scoreEvent(Event o, Vehicle2DriverEventHandler vehicles2Drivers) {
 		// this is for the stuff that is directly based on events.
 		// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
 		// for the time being, not all PersonEvents may "implement HasPersonId".
@@ -182,15 +236,15 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 //		if ( passLinkEventsToPerson ) {
 			// Establish and end connection between driver and vehicle
 			if (o instanceof VehicleEntersTrafficEvent) {
-				this.vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
+				vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
 			}
 			if (o instanceof VehicleLeavesTrafficEvent) {
-				this.vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
+				vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
 			}
 			// Pass LinkEnterEvent to person scoring, required e.g. for bicycle where link attributes are observed in scoring
 			if ( o instanceof LinkEnterEvent ) {
 				Id<Vehicle> vehicleId = ((LinkEnterEvent)o).getVehicleId() ;
-				Id<Person> driverId = this.vehicles2Drivers.getDriverOfVehicle(vehicleId) ;
+				Id<Person> driverId = vehicles2Drivers.getDriverOfVehicle(vehicleId) ;
 				ScoringFunction scoringFunction = getScoringFunctionForAgent( driverId );
 				// (this will NOT do the scoring function lookup twice since LinkEnterEvent is not an instance of HasPersonId.  kai, mar'17)
 				if (scoringFunction != null) {
@@ -209,6 +263,10 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 	@Override
 	synchronized public void handleLeg(PersonExperiencedLeg o) {
+		scoreLeg(o);
+	}
+
+	private void scoreLeg(PersonExperiencedLeg o) {
 		Id<Person> agentId = o.getAgentId();
 		Leg leg = o.getLeg();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -225,6 +283,10 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 	@Override
 	synchronized public void handleActivity(PersonExperiencedActivity o) {
+		scoreActivity(o);
+	}
+
+	private void scoreActivity(PersonExperiencedActivity o) {
 		Id<Person> agentId = o.getAgentId();
 		Activity activity = o.getActivity();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -281,6 +343,10 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	}
 
 	public void finishScoringFunctions() {
+		if (this.partitions != null) {
+			// e.g. if the events were not produced by a mobsim
+			finishPartitions();
+		}
 		// Rethrow an exception in a scoring function (user code) if there was one.
 		Throwable throwable = this.exception.get();
 		if (throwable != null) {
@@ -318,6 +384,131 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 	}
 
+	private void startPartitions() {
+		getStageActivities(); // initialize it here, not concurrently in the partitions
+		this.vehicles2Drivers.reset(0);
+		this.partitions = new Partition[this.numberOfPartitions];
+		for (int i = 0; i < this.partitions.length; i++) {
+			this.partitions[i] = new Partition(i);
+		}
+	}
+
+	private void dispatchToPartitions(Event event) {
+		// the driver of a vehicle is needed to route link events to a partition
+		if (event instanceof VehicleEntersTrafficEvent) {
+			this.vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) event);
+		} else if (event instanceof VehicleLeavesTrafficEvent) {
+			this.vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) event);
+		}
+
+		Id<Person> personId = null;
+		if (event instanceof HasPersonId) {
+			personId = ((HasPersonId) event).getPersonId();
+		} else if (event instanceof LinkEnterEvent) {
+			personId = this.vehicles2Drivers.getDriverOfVehicle(((LinkEnterEvent) event).getVehicleId());
+		} else if (event instanceof LinkLeaveEvent) {
+			personId = this.vehicles2Drivers.getDriverOfVehicle(((LinkLeaveEvent) event).getVehicleId());
+		}
+
+		if (personId != null) {
+			this.partitions[personId.index() % this.partitions.length].add(event);
+		} else {
+			// e.g. transit events, which EventsToLegs needs in every partition
+			for (Partition partition : this.partitions) {
+				partition.add(event);
+			}
+		}
+	}
+
+	private synchronized void finishPartitions() {
+		if (this.partitions == null) {
+			return;
+		}
+		for (Partition partition : this.partitions) {
+			partition.finish();
+		}
+		for (Partition partition : this.partitions) {
+			partition.join();
+			// activities that have not ended yet, on this thread as the partition's thread is done
+			partition.eventsToActivities.finish();
+		}
+		this.partitions = null;
+	}
+
+	private final class Partition implements Runnable {
+		private static final int BATCH_SIZE = 1024;
+		private final List<Event> endMarker = new ArrayList<>();
+
+		private final BlockingQueue<List<Event>> queue = new ArrayBlockingQueue<>(64);
+		private final EventsManager events = EventsUtils.createEventsManager();
+		private final EventsToActivities eventsToActivities = new EventsToActivities();
+		private final Vehicle2DriverEventHandler partitionVehicles2Drivers = new Vehicle2DriverEventHandler();
+		private final Thread thread;
+		private List<Event> batch = new ArrayList<>(BATCH_SIZE);
+
+		Partition(int index) {
+			EventsToLegs partitionEventsToLegs = ScoringFunctionsForPopulation.this.eventsToLegs.createEmptyCopy();
+			partitionEventsToLegs.addLegHandler(ScoringFunctionsForPopulation.this::scoreLeg);
+			partitionEventsToLegs.addLegHandler(ScoringFunctionsForPopulation.this.eventsToLegs::passLeg);
+			this.eventsToActivities.addActivityHandler(ScoringFunctionsForPopulation.this::scoreActivity);
+			this.eventsToActivities.addActivityHandler(ScoringFunctionsForPopulation.this.eventsToActivities::passActivity);
+			this.events.addHandler((BasicEventHandler) event -> scoreEvent(event, this.partitionVehicles2Drivers));
+			this.events.addHandler(new EventsToLegsAndActivities(partitionEventsToLegs, this.eventsToActivities));
+			this.thread = new Thread(this, "ScoringPartition-" + index);
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+
+		void add(Event event) {
+			this.batch.add(event);
+			if (this.batch.size() == BATCH_SIZE) {
+				put(this.batch);
+				this.batch = new ArrayList<>(BATCH_SIZE);
+			}
+		}
+
+		void finish() {
+			put(this.batch);
+			this.batch = new ArrayList<>(BATCH_SIZE);
+			put(this.endMarker);
+		}
+
+		void join() {
+			try {
+				this.thread.join();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		private void put(List<Event> events) {
+			try {
+				this.queue.put(events);
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				List<Event> events;
+				while ((events = this.queue.take()) != this.endMarker) {
+					for (Event event : events) {
+						try {
+							this.events.processEvent(event);
+						} catch (Throwable t) {
+							// keep on consuming, so the events handling thread is not blocked; rethrown in finishScoringFunctions()
+							exception.compareAndSet(null, t);
+						}
+					}
+				}
+			} catch (InterruptedException e) {
+				exception.compareAndSet(null, e);
+			}
+		}
+	}
+
 //	public boolean isPassLinkEventsToPerson() {
 //		return passLinkEventsToPerson;
 //	}
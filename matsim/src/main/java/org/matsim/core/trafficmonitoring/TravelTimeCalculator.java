@@ -40,6 +40,9 @@ import org.matsim.core.utils.collections.Tuple;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vehicles.VehicleType;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -488,6 +491,97 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		}
 	}
 
+	/**
+	 * Writes the travel times collected so far, e.g. for a checkpoint of the iterations.  Only time bins with observed (or
+	 * consolidated) travel times are written; for the other bins, the free speed travel time is used again after
+	 * {@link #readTravelTimes(DataInput)}.
+	 */
+	public void writeTravelTimes(final DataOutput out) throws IOException {
+		out.writeInt(this.timeSlice);
+		out.writeInt(this.numSlots);
+		if (this.calculateLinkTravelTimes) {
+			out.writeInt(this.linkData.size());
+			for (Map.Entry<Id<Link>, TravelTimeData> e : this.linkData.entrySet()) {
+				out.writeUTF(e.getKey().toString());
+				writeTravelTimeData(out, e.getValue());
+			}
+		} else {
+			out.writeInt(-1);
+		}
+		if (this.calculateLinkToLinkTravelTimes) {
+			out.writeInt(this.linkToLinkData.size());
+			for (Map.Entry<Tuple<Id<Link>, Id<Link>>, TravelTimeData> e : this.linkToLinkData.entrySet()) {
+				out.writeUTF(e.getKey().getFirst().toString());
+				out.writeUTF(e.getKey().getSecond().toString());
+				writeTravelTimeData(out, e.getValue());
+			}
+		} else {
+			out.writeInt(-1);
+		}
+	}
+
+	private void writeTravelTimeData(final DataOutput out, final TravelTimeData data) throws IOException {
+		if (data.isNeedingConsolidation()) {
+			consolidateData(data);
+		}
+		int count = 0;
+		for (int i = 0; i < this.numSlots; i++) {
+			if (data.hasTravelTime(i)) {
+				count++;
+			}
+		}
+		out.writeInt(count);
+		for (int i = 0; i < this.numSlots; i++) {
+			if (data.hasTravelTime(i)) {
+				out.writeInt(i);
+				out.writeDouble(data.getTravelTime(i, i * this.timeSlice));
+			}
+		}
+	}
+
+	/**
+	 * Replaces the travel times collected so far by the ones written with {@link #writeTravelTimes(DataOutput)}.  The
+	 * calculator must have the same time bins and must calculate the same kind of travel times as the one that wrote them.
+	 */
+	public void readTravelTimes(final DataInput in) throws IOException {
+		int timeSlice = in.readInt();
+		int numSlots = in.readInt();
+		if (timeSlice != this.timeSlice || numSlots != this.numSlots) {
+			throw new IllegalArgumentException("the travel times were written with " + numSlots + " time bins of " + timeSlice
+					+ " seconds, but this calculator has " + this.numSlots + " time bins of " + this.timeSlice + " seconds.");
+		}
+		this.reset(0);
+		int linkCount = in.readInt();
+		if ((linkCount >= 0) != this.calculateLinkTravelTimes) {
+			throw new IllegalArgumentException("the calculation of link travel times is " + (this.calculateLinkTravelTimes ? "en" : "dis")
+					+ "abled, but it was not when the travel times were written.");
+		}
+		for (int i = 0; i < linkCount; i++) {
+			Id<Link> linkId = Id.createLinkId(in.readUTF());
+			readTravelTimeData(in, this.dataContainerProvider.getTravelTimeData(linkId, true));
+		}
+		int linkToLinkCount = in.readInt();
+		if ((linkToLinkCount >= 0) != this.calculateLinkToLinkTravelTimes) {
+			throw new IllegalArgumentException("the calculation of link to link travel times is " + (this.calculateLinkToLinkTravelTimes ? "en" : "dis")
+					+ "abled, but it was not when the travel times were written.");
+		}
+		for (int i = 0; i < linkToLinkCount; i++) {
+			Id<Link> fromLinkId = Id.createLinkId(in.readUTF());
+			Id<Link> toLinkId = Id.createLinkId(in.readUTF());
+			readTravelTimeData(in, this.getLinkToLinkTravelTimeData(new Tuple<>(fromLinkId, toLinkId)));
+		}
+	}
+
+	private static void readTravelTimeData(final DataInput in, final TravelTimeData data) throws IOException {
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			int slot = in.readInt();
+			data.setTravelTime(slot, in.readDouble());
+		}
+		// the travel times were consolidated before they were written
+		data.setNeedsConsolidation(false);
+	}
+
 //	public int getNumSlots() {
 //		return this.numSlots;
 //	}
@@ -59,6 +59,12 @@ abstract class TravelTimeData {
 	 */
 	abstract double getTravelTime(final int timeSlot, final double now);
 
+	/**
+	 * @return true if a travel time was added or set for the time slot, i.e. if {@link #getTravelTime(int, double)}
+	 * does not just return the free speed travel time
+	 */
+	abstract boolean hasTravelTime(final int timeSlot);
+
 	void setNeedsConsolidation( boolean flag ) {
 		this.needsConsolidation = flag ;
 	}
@@ -96,6 +96,11 @@ class TravelTimeDataArray extends TravelTimeData {
 		this.travelTimes[timeSlot] = sum / cnt;
 		return this.travelTimes[timeSlot];
 	}
+
+	@Override
+	boolean hasTravelTime(final int timeSlot) {
+		return this.timeCnt[timeSlot] > 0;
+	}
 	
 
 }
@@ -85,6 +85,11 @@ class TravelTimeDataHashMap extends TravelTimeData {
 		return ts.timeSum / ts.cnt;
 	}
 
+	@Override
+	boolean hasTravelTime(final int timeSlice) {
+		return this.travelTimes.containsKey(IntegerCache.getInteger(timeSlice));
+	}
+
 	private static class TimeStruct {
 		public double timeSum;
 		public int cnt;
@@ -0,0 +1,598 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PackedRTree.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.matsim.api.core.v01.Coord;
+
+/**
+ * A static spatial index for points and line segments, e.g. nodes and links.
+ * <p></p>
+ * Other than the {@link QuadTree}, the tree is built once from all elements (bulk-loaded with the
+ * Sort-Tile-Recursive algorithm) and cannot be changed afterwards.  The tree is stored in a few primitive
+ * arrays instead of one object per tree node, which makes building it fast and keeps it small, also for
+ * tens of millions of elements.  As it is never changed, it can be queried by several threads at the same time.
+ * <p></p>
+ * Distances are measured from the query point to the nearest point of an element.  Elements with the same
+ * distance are returned in the order they were added to the builder, so the results do not depend on the
+ * structure of the tree.
+ *
+ * @param <T> the type of the elements
+ */
+public final class PackedRTree<T> {
+
+	/* package */ static final int DEFAULT_NODE_CAPACITY = 16;
+
+	private final int size;
+
+	/* the elements, in the order of the leaves */
+	private final double[] x1;
+	private final double[] y1;
+	private final double[] x2;
+	private final double[] y2;
+	/** the index at which the element was added, to break ties */
+	private final int[] order;
+	private final Object[] values;
+
+	/* the tree nodes, by level.  Level 0 contains the leaves, whose children are elements.  The last level contains the root. */
+	private final double[][] minX;
+	private final double[][] minY;
+	private final double[][] maxX;
+	private final double[][] maxY;
+	private final int[][] firstChild;
+	private final int[][] endChild;
+
+	/**
+	 * Collects the elements of a tree.
+	 */
+	public static final class Builder<T> {
+		private double[] coords = new double[4 * 64];
+		private final List<T> values = new ArrayList<>();
+		private int nodeCapacity = DEFAULT_NODE_CAPACITY;
+
+		public Builder<T> addPoint(final double x, final double y, final T value) {
+			return addSegment(x, y, x, y, value);
+		}
+
+		public Builder<T> addSegment(final double fromX, final double fromY, final double toX, final double toY, final T value) {
+			int i = 4 * this.values.size();
+			if (i + 4 > this.coords.length) {
+				this.coords = Arrays.copyOf(this.coords, 2 * this.coords.length);
+			}
+			this.coords[i] = fromX;
+			this.coords[i + 1] = fromY;
+			this.coords[i + 2] = toX;
+			this.coords[i + 3] = toY;
+			this.values.add(value);
+			return this;
+		}
+
+		/**
+		 * @param nodeCapacity the maximum number of children of a tree node.  Mainly useful for tests.
+		 */
+		public Builder<T> setNodeCapacity(final int nodeCapacity) {
+			if (nodeCapacity < 2) {
+				throw new IllegalArgumentException("nodeCapacity must be at least 2, but is " + nodeCapacity);
+			}
+			this.nodeCapacity = nodeCapacity;
+			return this;
+		}
+
+		public PackedRTree<T> build() {
+			return new PackedRTree<>(this.coords, this.values, this.nodeCapacity);
+		}
+	}
+
+	private PackedRTree(final double[] coords, final List<T> values, final int nodeCapacity) {
+		this.size = values.size();
+		int n = this.size;
+
+		// sort the elements into the order of the leaves
+		double[] centerX = new double[n];
+		double[] centerY = new double[n];
+		for (int i = 0; i < n; i++) {
+			centerX[i] = (coords[4 * i] + coords[4 * i + 2]) / 2;
+			centerY[i] = (coords[4 * i + 1] + coords[4 * i + 3]) / 2;
+		}
+		int[] perm = sortTileRecursive(centerX, centerY, n, nodeCapacity);
+		this.x1 = new double[n];
+		this.y1 = new double[n];
+		this.x2 = new double[n];
+		this.y2 = new double[n];
+		this.order = perm;
+		this.values = new Object[n];
+		for (int i = 0; i < n; i++) {
+			int p = perm[i];
+			this.x1[i] = coords[4 * p];
+			this.y1[i] = coords[4 * p + 1];
+			this.x2[i] = coords[4 * p + 2];
+			this.y2[i] = coords[4 * p + 3];
+			this.values[i] = values.get(p);
+		}
+
+		// group the elements into leaves, then the nodes of each level into the nodes of the next one
+		List<double[]> minXs = new ArrayList<>();
+		List<double[]> minYs = new ArrayList<>();
+		List<double[]> maxXs = new ArrayList<>();
+		List<double[]> maxYs = new ArrayList<>();
+		List<int[]> firsts = new ArrayList<>();
+		List<int[]> ends = new ArrayList<>();
+
+		double[] childMinX = new double[n];
+		double[] childMinY = new double[n];
+		double[] childMaxX = new double[n];
+		double[] childMaxY = new double[n];
+		for (int i = 0; i < n; i++) {
+			childMinX[i] = Math.min(this.x1[i], this.x2[i]);
+			childMinY[i] = Math.min(this.y1[i], this.y2[i]);
+			childMaxX[i] = Math.max(this.x1[i], this.x2[i]);
+			childMaxY[i] = Math.max(this.y1[i], this.y2[i]);
+		}
+		int children = n;
+		while (children > 0) {
+			int nodes = (children + nodeCapacity - 1) / nodeCapacity;
+			double[] nMinX = new double[nodes];
+			double[] nMinY = new double[nodes];
+			double[] nMaxX = new double[nodes];
+			double[] nMaxY = new double[nodes];
+			int[] first = new int[nodes];
+			int[] end = new int[nodes];
+			for (int node = 0; node < nodes; node++) {
+				first[node] = node * nodeCapacity;
+				end[node] = Math.min(children, first[node] + nodeCapacity);
+				nMinX[node] = Double.POSITIVE_INFINITY;
+				nMinY[node] = Double.POSITIVE_INFINITY;
+				nMaxX[node] = Double.NEGATIVE_INFINITY;
+				nMaxY[node] = Double.NEGATIVE_INFINITY;
+				for (int c = first[node]; c < end[node]; c++) {
+					nMinX[node] = Math.min(nMinX[node], childMinX[c]);
+					nMinY[node] = Math.min(nMinY[node], childMinY[c]);
+					nMaxX[node] = Math.max(nMaxX[node], childMaxX[c]);
+					nMaxY[node] = Math.max(nMaxY[node], childMaxY[c]);
+				}
+			}
+			if (nodes > 1) {
+				// sort the nodes of this level, so that the nodes of the next level group nearby nodes
+				double[] cx = new double[nodes];
+				double[] cy = new double[nodes];
+				for (int node = 0; node < nodes; node++) {
+					cx[node] = (nMinX[node] + nMaxX[node]) / 2;
+					cy[node] = (nMinY[node] + nMaxY[node]) / 2;
+				}
+				int[] p = sortTileRecursive(cx, cy, nodes, nodeCapacity);
+				nMinX = permute(nMinX, p);
+				nMinY = permute(nMinY, p);
+				nMaxX = permute(nMaxX, p);
+				nMaxY = permute(nMaxY, p);
+				first = permute(first, p);
+				end = permute(end, p);
+			}
+			minXs.add(nMinX);
+			minYs.add(nMinY);
+			maxXs.add(nMaxX);
+			maxYs.add(nMaxY);
+			firsts.add(first);
+			ends.add(end);
+			if (nodes == 1) {
+				break;
+			}
+			childMinX = nMinX;
+			childMinY = nMinY;
+			childMaxX = nMaxX;
+			childMaxY = nMaxY;
+			children = nodes;
+		}
+		this.minX = minXs.toArray(new double[0][]);
+		this.minY = minYs.toArray(new double[0][]);
+		this.maxX = maxXs.toArray(new double[0][]);
+		this.maxY = maxYs.toArray(new double[0][]);
+		this.firstChild = firsts.toArray(new int[0][]);
+		this.endChild = ends.toArray(new int[0][]);
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return the element nearest to x/y, or <code>null</code> if the tree is empty
+	 */
+	public T getNearest(final double x, final double y) {
+		return getNearest(x, y, null);
+	}
+
+	/**
+	 * @return the element nearest to x/y among those accepted by <code>filter</code>, or <code>null</code> if there is none.
+	 * A <code>null</code> filter accepts all elements.
+	 */
+	public T getNearest(final double x, final double y, final Predicate<? super T> filter) {
+		int[] nearest = search(x, y, 1, filter);
+		return nearest.length == 0 ? null : value(nearest[0]);
+	}
+
+	/**
+	 * @return the <code>k</code> elements nearest to x/y, ordered by increasing distance.  Fewer elements are
+	 * returned if the tree does not contain <code>k</code> elements.
+	 */
+	public List<T> kNearest(final double x, final double y, final int k) {
+		return kNearest(x, y, k, null);
+	}
+
+	/**
+	 * Like {@link #kNearest(double, double, int)}, but only considers the elements accepted by <code>filter</code>.
+	 */
+	public List<T> kNearest(final double x, final double y, final int k, final Predicate<? super T> filter) {
+		int[] nearest = search(x, y, k, filter);
+		List<T> result = new ArrayList<>(nearest.length);
+		for (int e : nearest) {
+			result.add(value(e));
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the nearest element for many locations at once, using several threads.
+	 *
+	 * @return the nearest element of each coordinate, in the same order as the coordinates
+	 */
+	public List<T> getNearest(final List<Coord> coords, final int numberOfThreads) {
+		final Object[] result = new Object[coords.size()];
+		final int threads = Math.max(1, Math.min(numberOfThreads, coords.size() / 1000 + 1));
+		if (threads == 1) {
+			for (int i = 0; i < result.length; i++) {
+				result[i] = getNearest(coords.get(i).getX(), coords.get(i).getY());
+			}
+		} else {
+			Thread[] workers = new Thread[threads];
+			for (int t = 0; t < threads; t++) {
+				final int thread = t;
+				workers[t] = new Thread(() -> {
+					for (int i = thread; i < result.length; i += threads) {
+						result[i] = getNearest(coords.get(i).getX(), coords.get(i).getY());
+					}
+				}, "PackedRTree-" + t);
+				workers[t].start();
+			}
+			for (Thread worker : workers) {
+				try {
+					worker.join();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		}
+		@SuppressWarnings("unchecked")
+		List<T> list = (List<T>) Arrays.asList(result);
+		return list;
+	}
+
+	/**
+	 * @return all elements whose distance to x/y is at most <code>distance</code>, in the order they were added
+	 */
+	public List<T> getDisk(final double x, final double y, final double distance) {
+		return getDisk(x, y, distance, null);
+	}
+
+	/**
+	 * Like {@link #getDisk(double, double, double)}, but only returns the elements accepted by <code>filter</code>.
+	 */
+	public List<T> getDisk(final double x, final double y, final double distance, final Predicate<? super T> filter) {
+		if (this.size == 0) {
+			return Collections.emptyList();
+		}
+		double maxSq = distance * distance;
+		int[] found = new int[16];
+		int count = 0;
+		int top = this.minX.length - 1;
+		int[] stackLevel = new int[64];
+		int[] stackNode = new int[64];
+		int stackSize = 0;
+		stackLevel[stackSize] = top;
+		stackNode[stackSize++] = 0;
+		while (stackSize > 0) {
+			int level = stackLevel[--stackSize];
+			int node = stackNode[stackSize];
+			if (boxDistanceSq(level, node, x, y) > maxSq) {
+				continue;
+			}
+			for (int c = this.firstChild[level][node]; c < this.endChild[level][node]; c++) {
+				if (level == 0) {
+					if (elementDistanceSq(c, x, y) <= maxSq && (filter == null || filter.test(value(c)))) {
+						if (count == found.length) {
+							found = Arrays.copyOf(found, 2 * count);
+						}
+						found[count++] = c;
+					}
+				} else {
+					if (stackSize == stackLevel.length) {
+						stackLevel = Arrays.copyOf(stackLevel, 2 * stackSize);
+						stackNode = Arrays.copyOf(stackNode, 2 * stackSize);
+					}
+					stackLevel[stackSize] = level - 1;
+					stackNode[stackSize++] = c;
+				}
+			}
+		}
+		// return in the order of addition, like that the result does not depend on the tree structure
+		long[] sorted = new long[count];
+		for (int i = 0; i < count; i++) {
+			sorted[i] = ((long) this.order[found[i]] << 32) | found[i];
+		}
+		Arrays.sort(sorted);
+		List<T> result = new ArrayList<>(count);
+		for (long s : sorted) {
+			result.add(value((int) s));
+		}
+		return result;
+	}
+
+	/**
+	 * Best-first search:  tree nodes and elements are visited in the order of their distance, so the first
+	 * <code>k</code> elements taken from the queue are the nearest ones.
+	 */
+	private int[] search(final double x, final double y, final int k, final Predicate<? super T> filter) {
+		if (this.size == 0 || k <= 0) {
+			return new int[0];
+		}
+		int[] result = new int[Math.min(k, this.size)];
+		int found = 0;
+		Heap heap = new Heap();
+		int top = this.minX.length - 1;
+		heap.push(boxDistanceSq(top, 0, x, y), -1, top + 1, 0);
+		while (!heap.isEmpty() && found < result.length) {
+			int level = heap.topLevel();
+			int index = heap.topIndex();
+			heap.pop();
+			if (level == 0) {
+				if (filter == null || filter.test(value(index))) {
+					result[found++] = index;
+				}
+			} else {
+				int l = level - 1;
+				for (int c = this.firstChild[l][index]; c < this.endChild[l][index]; c++) {
+					if (l == 0) {
+						heap.push(elementDistanceSq(c, x, y), this.order[c], 0, c);
+					} else {
+						heap.push(boxDistanceSq(l - 1, c, x, y), -1, l, c);
+					}
+				}
+			}
+		}
+		return found == result.length ? result : Arrays.copyOf(result, found);
+	}
+
+	private double boxDistanceSq(final int level, final int node, final double x, final double y) {
+		double dx = Math.max(0, Math.max(this.minX[level][node] - x, x - this.maxX[level][node]));
+		double dy = Math.max(0, Math.max(this.minY[level][node] - y, y - this.maxY[level][node]));
+		return dx * dx + dy * dy;
+	}
+
+	private double elementDistanceSq(final int e, final double x, final double y) {
+		double ax = this.x1[e];
+		double ay = this.y1[e];
+		double dx = this.x2[e] - ax;
+		double dy = this.y2[e] - ay;
+		double lengthSq = dx * dx + dy * dy;
+		double px = x - ax;
+		double py = y - ay;
+		if (lengthSq > 0) {
+			double t = (px * dx + py * dy) / lengthSq;
+			if (t > 1) {
+				px = x - this.x2[e];
+				py = y - this.y2[e];
+			} else if (t > 0) {
+				px -= t * dx;
+				py -= t * dy;
+			}
+		}
+		return px * px + py * py;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T value(final int e) {
+		return (T) this.values[e];
+	}
+
+	/**
+	 * @return the permutation of the items that sorts them by x into vertical slices, and within each slice by y,
+	 * such that consecutive groups of <code>nodeCapacity</code> items form compact tiles.
+	 */
+	private static int[] sortTileRecursive(final double[] cx, final double[] cy, final int n, final int nodeCapacity) {
+		int[] perm = new int[n];
+		for (int i = 0; i < n; i++) {
+			perm[i] = i;
+		}
+		int tiles = (n + nodeCapacity - 1) / nodeCapacity;
+		int slices = (int) Math.ceil(Math.sqrt(tiles));
+		int sliceSize = slices * nodeCapacity;
+		sort(perm, 0, n, cx);
+		for (int from = 0; from < n; from += sliceSize) {
+			sort(perm, from, Math.min(n, from + sliceSize), cy);
+		}
+		return perm;
+	}
+
+	/**
+	 * Sorts <code>idx[from, to)</code> by <code>key[idx[i]]</code>, ties broken by the index itself.
+	 */
+	private static void sort(final int[] idx, final int from, final int to, final double[] key) {
+		int lo = from;
+		int hi = to - 1;
+		while (hi - lo > 16) {
+			// median of three as pivot
+			int mid = (lo + hi) >>> 1;
+			if (less(idx[mid], idx[lo], key)) swap(idx, mid, lo);
+			if (less(idx[hi], idx[lo], key)) swap(idx, hi, lo);
+			if (less(idx[hi], idx[mid], key)) swap(idx, hi, mid);
+			int pivot = idx[mid];
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (less(idx[i], pivot, key)) i++;
+				while (less(pivot, idx[j], key)) j--;
+				if (i <= j) {
+					swap(idx, i, j);
+					i++;
+					j--;
+				}
+			}
+			// recurse into the smaller part, so the stack depth stays logarithmic
+			if (j - lo < hi - i) {
+				sort(idx, lo, j + 1, key);
+				lo = i;
+			} else {
+				sort(idx, i, hi + 1, key);
+				hi = j;
+			}
+		}
+		for (int i = lo + 1; i <= hi; i++) {
+			int v = idx[i];
+			int j = i - 1;
+			while (j >= lo && less(v, idx[j], key)) {
+				idx[j + 1] = idx[j];
+				j--;
+			}
+			idx[j + 1] = v;
+		}
+	}
+
+	private static boolean less(final int a, final int b, final double[] key) {
+		int c = Double.compare(key[a], key[b]);
+		return c < 0 || (c == 0 && a < b);
+	}
+
+	private static void swap(final int[] a, final int i, final int j) {
+		int t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+	}
+
+	private static double[] permute(final double[] a, final int[] perm) {
+		double[] b = new double[a.length];
+		for (int i = 0; i < a.length; i++) {
+			b[i] = a[perm[i]];
+		}
+		return b;
+	}
+
+	private static int[] permute(final int[] a, final int[] perm) {
+		int[] b = new int[a.length];
+		for (int i = 0; i < a.length; i++) {
+			b[i] = a[perm[i]];
+		}
+		return b;
+	}
+
+	/**
+	 * A binary min-heap of tree nodes and elements, ordered by distance and then by the tie breaker.
+	 * Tree nodes use -1 as tie breaker, so they are expanded before elements with the same distance.
+	 */
+	private static final class Heap {
+		private double[] dist = new double[64];
+		private int[] tie = new int[64];
+		/** 0 for elements, level + 1 for tree nodes */
+		private int[] level = new int[64];
+		private int[] index = new int[64];
+		private int size = 0;
+
+		boolean isEmpty() {
+			return this.size == 0;
+		}
+
+		int topLevel() {
+			return this.level[0];
+		}
+
+		int topIndex() {
+			return this.index[0];
+		}
+
+		void push(final double d, final int t, final int l, final int i) {
+			if (this.size == this.dist.length) {
+				int capacity = 2 * this.size;
+				this.dist = Arrays.copyOf(this.dist, capacity);
+				this.tie = Arrays.copyOf(this.tie, capacity);
+				this.level = Arrays.copyOf(this.level, capacity);
+				this.index = Arrays.copyOf(this.index, capacity);
+			}
+			int pos = this.size++;
+			while (pos > 0) {
+				int parent = (pos - 1) >>> 1;
+				if (!less(d, t, this.dist[parent], this.tie[parent])) {
+					break;
+				}
+				set(pos, parent);
+				pos = parent;
+			}
+			this.dist[pos] = d;
+			this.tie[pos] = t;
+			this.level[pos] = l;
+			this.index[pos] = i;
+		}
+
+		void pop() {
+			int last = --this.size;
+			if (last == 0) {
+				return;
+			}
+			double d = this.dist[last];
+			int t = this.tie[last];
+			int l = this.level[last];
+			int i = this.index[last];
+			int pos = 0;
+			while (true) {
+				int child = 2 * pos + 1;
+				if (child >= last) {
+					break;
+				}
+				if (child + 1 < last && less(this.dist[child + 1], this.tie[child + 1], this.dist[child], this.tie[child])) {
+					child++;
+				}
+				if (!less(this.dist[child], this.tie[child], d, t)) {
+					break;
+				}
+				set(pos, child);
+				pos = child;
+			}
+			this.dist[pos] = d;
+			this.tie[pos] = t;
+			this.level[pos] = l;
+			this.index[pos] = i;
+		}
+
+		private void set(final int to, final int from) {
+			this.dist[to] = this.dist[from];
+			this.tie[to] = this.tie[from];
+			this.level[to] = this.level[from];
+			this.index[to] = this.index[from];
+		}
+
+		private static boolean less(final double d1, final int t1, final double d2, final int t2) {
+			return d1 < d2 || (d1 == d2 && t1 < t2);
+		}
+	}
+
+}
@@ -106,6 +106,8 @@ public class OsmNetworkReader implements MatsimSomeReader {
 	private boolean scaleMaxSpeed = false;
 
 	private boolean slowButLowMemory = false;
+
+	private int numberOfThreads = Runtime.getRuntime().availableProcessors();
 	
 	private boolean useVspAdjustments = false; // Adjustments discussed on 2018-04-30, kn,ik,dz. apr'18 (Might become default after testing)
 	
@@ -271,9 +273,63 @@ public class OsmNetworkReader implements MatsimSomeReader {
 			log.info("done loading data");
 		}
 		convert();
+		logStatistics(parser.nodeCounter.getCounter(), parser.wayCounter.getCounter());
+	}
+
+	/**
+	 * Parses the given file in the <a href="https://wiki.openstreetmap.org/wiki/PBF_Format">PBF format</a> and creates
+	 * a MATSim network from the data.  The file is read twice, see {@link #parsePbf(Supplier)}.
+	 *
+	 * @param pbfFilename
+	 * @throws UncheckedIOException
+	 */
+	public final void parsePbf(final String pbfFilename) throws UncheckedIOException {
+		parsePbf(() -> IOUtils.getInputStream(pbfFilename));
+	}
+
+	/**
+	 * Parses the given input stream in the PBF format and creates a MATSim network from the data.
+	 * The first pass only keeps the ways with {@link #setHighwayDefaults(int, String, double, double, double, double) defaults}
+	 * and collects the ids of the nodes they use, the second pass only stores the coordinates of these nodes.
+	 * The blocks of the file are decoded on {@link #setNumberOfThreads(int) several threads}.  The network is the same
+	 * as when parsing the same data as xml.
+	 *
+	 * @param streamSupplier must supply a new stream for each pass
+	 * @throws UncheckedIOException
+	 */
+	public final void parsePbf(final Supplier<InputStream> streamSupplier) throws UncheckedIOException {
+		if(this.hierarchyLayers.isEmpty()){
+			log.warn("No hierarchy layer specified. Will convert every highway specified by setHighwayDefaults.");
+		}
+
+		OsmPbfParser parser = new OsmPbfParser(this.highwayDefaults.keySet(), allTags, this.numberOfThreads);
+		log.info("parsing pbf file first time: reading ways and identifying nodes used by them");
+		parser.readWays(streamSupplier);
+		log.info("parsing pbf file second time: loading coordinates of the required nodes");
+		parser.readNodes(streamSupplier);
+		log.info("done loading data");
+
+		for (int i = 0, n = parser.getNodeCount(); i < n; i++) {
+			Coord coord = parser.getCoord(i);
+			if (coord != null) {
+				long nodeId = parser.getNodeId(i);
+				this.nodes.put(nodeId, new OsmNode(nodeId, this.transform.transform(coord)));
+			}
+		}
+		for (OsmWay way : parser.getWays()) {
+			way.hierarchy = this.highwayDefaults.get(way.tags.get(TAG_HIGHWAY)).hierarchy;
+			if (isInHierarchyLayers(way)) {
+				this.ways.put(way.id, way);
+			}
+		}
+		convert();
+		logStatistics(parser.nodeCounter.getCounter(), parser.wayCounter.getCounter());
+	}
+
+	private void logStatistics(final long nodesRead, final long waysRead) {
 		log.info("= conversion statistics: ==========================");
-		log.info("osm: # nodes read:       " + parser.nodeCounter.getCounter());
-		log.info("osm: # ways read:        " + parser.wayCounter.getCounter());
+		log.info("osm: # nodes read:       " + nodesRead);
+		log.info("osm: # ways read:        " + waysRead);
 		log.info("MATSim: # nodes created: " + this.network.getNodes().size());
 		log.info("MATSim: # links created: " + this.network.getLinks().size());
 
@@ -381,6 +437,17 @@ public class OsmNetworkReader implements MatsimSomeReader {
 		this.slowButLowMemory = memoryEnabled;
 	}
 	
+	/**
+	 * Sets the number of threads used to decode {@link #parsePbf(String) pbf files}.
+	 *
+	 * Defaults to the number of available processors.
+	 *
+	 * @param numberOfThreads
+	 */
+	public final void setNumberOfThreads(final int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
 	public final void setNodeIDsToKeep(Set<Long> nodeIDsToKeep){
 		if(nodeIDsToKeep != null && !nodeIDsToKeep.isEmpty()){
 			this.nodeIDsToKeep = nodeIDsToKeep;
@@ -556,6 +623,25 @@ public class OsmNetworkReader implements MatsimSomeReader {
 		this.ways.clear();
 	}
 
+	/**
+	 * @return <code>true</code> if at least one node of the way lies within a hierarchy layer of the way's hierarchy,
+	 * or if no layers are specified at all
+	 */
+	private boolean isInHierarchyLayers(final OsmWay way) {
+		if (this.hierarchyLayers.isEmpty()) {
+			return true;
+		}
+		for (OsmFilter osmFilter : this.hierarchyLayers) {
+			for (Long nodeId : way.nodes) {
+				OsmNode node = this.nodes.get(nodeId);
+				if(node != null && osmFilter.coordInFilter(node.coord, way.hierarchy)){
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
 	private void createLink(final Network network, final OsmWay way, final OsmNode fromNode, final OsmNode toNode, 
 			final double length) {
 		String highway = way.tags.get(TAG_HIGHWAY);
@@ -959,25 +1045,7 @@ public class OsmNetworkReader implements MatsimSomeReader {
 					if (osmHighwayDefaults != null) {
 						int hierarchy = osmHighwayDefaults.hierarchy;
 						this.currentWay.hierarchy = hierarchy;
-						if (OsmNetworkReader.this.hierarchyLayers.isEmpty()) {
-							used = true;
-						}
-						if (this.collectNodes) {
-							used = true;
-						} else {
-							for (OsmFilter osmFilter : OsmNetworkReader.this.hierarchyLayers) {
-								for (Long nodeId : this.currentWay.nodes) {
-									OsmNode node = this.nodes.get(nodeId);
-									if(node != null && osmFilter.coordInFilter(node.coord, this.currentWay.hierarchy)){
-										used = true;
-										break;
-									}
-								}
-								if (used) {
-									break;
-								}
-							}
-						}
+						used = this.collectNodes || isInHierarchyLayers(this.currentWay);
 					}
 					if (used) {
 						if (this.collectNodes) {
@@ -996,7 +1064,7 @@ public class OsmNetworkReader implements MatsimSomeReader {
 
 	}
 
-	private static class StringCache {
+	/*package*/ static class StringCache {
 		private static ConcurrentHashMap<String, String> cache = new ConcurrentHashMap<>(10000);
 		
 		/**
@@ -0,0 +1,625 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * OsmPbfParser.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.io.OsmNetworkReader.OsmWay;
+import org.matsim.core.utils.misc.Counter;
+
+/**
+ * Reads the ways and nodes required for a network from an OSM file in the
+ * <a href="https://wiki.openstreetmap.org/wiki/PBF_Format">PBF format</a>.
+ * <p></p>
+ * The file is read twice: {@link #readWays(Supplier)} keeps the highways and collects the ids of the nodes they
+ * reference, {@link #readNodes(Supplier)} then stores the coordinates of only these nodes, in arrays sorted by the
+ * node id.  The blocks of the file are independent, so they are decompressed and decoded on several threads, but
+ * handed over in the order of the file.  The protocol buffer messages are decoded directly, as only a handful of
+ * fields is needed.
+ */
+/* deliberately package */ final class OsmPbfParser {
+
+	private static final Set<String> SUPPORTED_FEATURES = new HashSet<>(Arrays.asList("OsmSchema-V0.6", "DenseNodes"));
+
+	private static final int MAX_HEADER_SIZE = 64 * 1024;
+	private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+
+	private static final AtomicInteger poolCounter = new AtomicInteger(0);
+
+	private final Set<String> highwayTypes;
+	private final Collection<String> wayTags;
+	private final int numberOfThreads;
+
+	/*package*/ final Counter nodeCounter = new Counter("node ");
+	/*package*/ final Counter wayCounter = new Counter("way ");
+
+	private final List<OsmWay> ways = new ArrayList<>();
+	private long[] nodeIds = new long[0];
+	private double[] lons = new double[0];
+	private double[] lats = new double[0];
+
+	/**
+	 * @param highwayTypes only ways with one of these values of the highway tag are kept
+	 * @param wayTags the tags of the ways to keep
+	 */
+	OsmPbfParser(final Set<String> highwayTypes, final Collection<String> wayTags, final int numberOfThreads) {
+		this.highwayTypes = highwayTypes;
+		this.wayTags = wayTags;
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+	}
+
+	/**
+	 * First pass: reads the highways and collects the ids of all nodes they reference.
+	 */
+	void readWays(final Supplier<InputStream> streamSupplier) {
+		final LongList refs = new LongList();
+		readBlocks(streamSupplier, this::decodeWays, blockWays -> {
+			for (OsmWay way : blockWays) {
+				this.ways.add(way);
+				this.wayCounter.incCounter();
+				for (Long ref : way.nodes) {
+					refs.add(ref);
+				}
+			}
+		});
+		this.nodeIds = refs.toSortedUniqueArray();
+		this.lons = new double[this.nodeIds.length];
+		this.lats = new double[this.nodeIds.length];
+		Arrays.fill(this.lons, Double.NaN);
+		Arrays.fill(this.lats, Double.NaN);
+	}
+
+	/**
+	 * Second pass: reads the coordinates of the nodes referenced by the ways from the first pass.
+	 */
+	void readNodes(final Supplier<InputStream> streamSupplier) {
+		// node ids are unique, so the workers write to distinct elements of the coordinate arrays
+		readBlocks(streamSupplier, this::decodeNodes, found -> {
+			for (int i = 0; i < found; i++) {
+				this.nodeCounter.incCounter();
+			}
+		});
+	}
+
+	/**
+	 * @return the highways, in the order of the file
+	 */
+	List<OsmWay> getWays() {
+		return this.ways;
+	}
+
+	/**
+	 * @return the number of nodes referenced by the ways
+	 */
+	int getNodeCount() {
+		return this.nodeIds.length;
+	}
+
+	long getNodeId(final int index) {
+		return this.nodeIds[index];
+	}
+
+	/**
+	 * @return the coordinate (WGS84, x = longitude, y = latitude) of the node at <code>index</code>, or <code>null</code>
+	 * if the node was not found in the file
+	 */
+	Coord getCoord(final int index) {
+		if (Double.isNaN(this.lons[index])) {
+			return null;
+		}
+		return new Coord(this.lons[index], this.lats[index]);
+	}
+
+	private <T> void readBlocks(final Supplier<InputStream> streamSupplier, final Function<byte[], T> decoder, final Consumer<T> consumer) {
+		final int pool = poolCounter.incrementAndGet();
+		final AtomicInteger threadCounter = new AtomicInteger(0);
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads, r -> {
+			Thread thread = new Thread(r, "OsmPbfParser-" + pool + "-" + threadCounter.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+		// enough to keep the workers busy, but limits the memory needed for blocks read but not yet decoded
+		final int maxPendingBlocks = 4 * this.numberOfThreads;
+		Deque<Future<T>> pending = new ArrayDeque<>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(streamSupplier.get()))) {
+			while (true) {
+				int headerSize;
+				try {
+					headerSize = in.readInt();
+				} catch (EOFException e) {
+					break;
+				}
+				if (headerSize < 0 || headerSize > MAX_HEADER_SIZE) {
+					throw new RuntimeException("Invalid size of block header: " + headerSize + ". Is this a pbf file?");
+				}
+				byte[] header = new byte[headerSize];
+				in.readFully(header);
+				String type = null;
+				int blobSize = -1;
+				ProtoReader r = new ProtoReader(header);
+				while (r.hasMore()) {
+					int tag = r.readTag();
+					switch (tag >>> 3) {
+						case 1: type = r.readString(); break;
+						case 3: blobSize = (int) r.readVarint(); break;
+						default: r.skip(tag);
+					}
+				}
+				if (blobSize < 0 || blobSize > MAX_BLOB_SIZE) {
+					throw new RuntimeException("Invalid size of block: " + blobSize + ".");
+				}
+				final byte[] blob = new byte[blobSize];
+				in.readFully(blob);
+				if ("OSMHeader".equals(type)) {
+					checkHeader(uncompress(blob));
+				} else if ("OSMData".equals(type)) {
+					pending.add(executor.submit(() -> decoder.apply(uncompress(blob))));
+					while (!pending.isEmpty() && (pending.size() > maxPendingBlocks || pending.peek().isDone())) {
+						consumer.accept(next(pending));
+					}
+				}
+				// other block types are to be skipped according to the specification
+			}
+			while (!pending.isEmpty()) {
+				consumer.accept(next(pending));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static <T> T next(final Deque<Future<T>> pending) {
+		try {
+			return pending.poll().get();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private static byte[] uncompress(final byte[] blob) {
+		ProtoReader r = new ProtoReader(blob);
+		byte[] raw = null;
+		int rawSize = -1;
+		int zlibOffset = -1;
+		int zlibLength = -1;
+		while (r.hasMore()) {
+			int tag = r.readTag();
+			switch (tag >>> 3) {
+				case 1:
+					int length = r.readLength();
+					raw = Arrays.copyOfRange(blob, r.pos, r.pos + length);
+					r.pos += length;
+					break;
+				case 2: rawSize = (int) r.readVarint(); break;
+				case 3:
+					zlibLength = r.readLength();
+					zlibOffset = r.pos;
+					r.pos += zlibLength;
+					break;
+				case 4: case 5: case 6: case 7:
+					throw new RuntimeException("Only uncompressed and zlib-compressed blocks are supported.");
+				default: r.skip(tag);
+			}
+		}
+		if (raw != null) {
+			return raw;
+		}
+		if (zlibOffset < 0 || rawSize < 0) {
+			throw new RuntimeException("Block without data.");
+		}
+		byte[] data = new byte[rawSize];
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(blob, zlibOffset, zlibLength);
+			int n = 0;
+			while (n < rawSize && !inflater.finished()) {
+				int inflated = inflater.inflate(data, n, rawSize - n);
+				if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				n += inflated;
+			}
+			if (n != rawSize) {
+				throw new RuntimeException("Block is shorter than announced: " + n + " instead of " + rawSize + " bytes.");
+			}
+		} catch (DataFormatException e) {
+			throw new RuntimeException(e);
+		} finally {
+			inflater.end();
+		}
+		return data;
+	}
+
+	private static void checkHeader(final byte[] data) {
+		ProtoReader r = new ProtoReader(data);
+		while (r.hasMore()) {
+			int tag = r.readTag();
+			if ((tag >>> 3) == 4) {
+				String feature = r.readString();
+				if (!SUPPORTED_FEATURES.contains(feature)) {
+					throw new RuntimeException("The file requires the feature '" + feature + "', which is not supported.");
+				}
+			} else {
+				r.skip(tag);
+			}
+		}
+	}
+
+	private List<OsmWay> decodeWays(final byte[] data) {
+		List<OsmWay> blockWays = new ArrayList<>();
+		ProtoReader stringTable = null;
+		String[] strings = null;
+		List<ProtoReader> groups = new ArrayList<>();
+		ProtoReader block = new ProtoReader(data);
+		while (block.hasMore()) {
+			int tag = block.readTag();
+			switch (tag >>> 3) {
+				case 1: stringTable = block.readMessage(); break;
+				case 2: groups.add(block.readMessage()); break;
+				default: block.skip(tag);
+			}
+		}
+		LongList keys = new LongList();
+		LongList vals = new LongList();
+		LongList refs = new LongList();
+		for (ProtoReader group : groups) {
+			while (group.hasMore()) {
+				int tag = group.readTag();
+				if ((tag >>> 3) != 3) {
+					group.skip(tag);
+					continue;
+				}
+				if (strings == null) {
+					strings = decodeStrings(stringTable);
+				}
+				ProtoReader way = group.readMessage();
+				long id = 0;
+				keys.clear();
+				vals.clear();
+				refs.clear();
+				while (way.hasMore()) {
+					int wayTag = way.readTag();
+					switch (wayTag >>> 3) {
+						case 1: id = way.readVarint(); break;
+						case 2: way.readVarints(wayTag, keys); break;
+						case 3: way.readVarints(wayTag, vals); break;
+						case 8: way.readSInts(wayTag, refs); break;
+						default: way.skip(wayTag);
+					}
+				}
+				OsmWay osmWay = createWay(id, keys, vals, refs, strings);
+				if (osmWay != null) {
+					blockWays.add(osmWay);
+				}
+			}
+		}
+		return blockWays;
+	}
+
+	private OsmWay createWay(final long id, final LongList keys, final LongList vals, final LongList refs, final String[] strings) {
+		if (refs.size() == 0) {
+			return null;
+		}
+		String highway = null;
+		for (int i = 0; i < keys.size(); i++) {
+			if ("highway".equals(strings[(int) keys.get(i)])) {
+				highway = strings[(int) vals.get(i)];
+			}
+		}
+		if (highway == null || !this.highwayTypes.contains(highway)) {
+			return null;
+		}
+		OsmWay way = new OsmWay(id);
+		for (int i = 0; i < keys.size(); i++) {
+			String key = strings[(int) keys.get(i)];
+			if (this.wayTags.contains(key)) {
+				way.tags.put(OsmNetworkReader.StringCache.get(key), OsmNetworkReader.StringCache.get(strings[(int) vals.get(i)]));
+			}
+		}
+		long ref = 0;
+		for (int i = 0; i < refs.size(); i++) {
+			ref += refs.get(i);
+			way.nodes.add(ref);
+		}
+		return way;
+	}
+
+	private static String[] decodeStrings(final ProtoReader stringTable) {
+		List<String> strings = new ArrayList<>();
+		if (stringTable != null) {
+			while (stringTable.hasMore()) {
+				int tag = stringTable.readTag();
+				if ((tag >>> 3) == 1) {
+					strings.add(stringTable.readString());
+				} else {
+					stringTable.skip(tag);
+				}
+			}
+		}
+		return strings.toArray(new String[0]);
+	}
+
+	/**
+	 * @return the number of referenced nodes found in the block
+	 */
+	private int decodeNodes(final byte[] data) {
+		long granularity = 100;
+		long latOffset = 0;
+		long lonOffset = 0;
+		List<ProtoReader> groups = new ArrayList<>();
+		ProtoReader block = new ProtoReader(data);
+		while (block.hasMore()) {
+			int tag = block.readTag();
+			switch (tag >>> 3) {
+				case 2: groups.add(block.readMessage()); break;
+				case 17: granularity = block.readVarint(); break;
+				case 19: latOffset = block.readVarint(); break;
+				case 20: lonOffset = block.readVarint(); break;
+				default: block.skip(tag);
+			}
+		}
+		int found = 0;
+		for (ProtoReader group : groups) {
+			while (group.hasMore()) {
+				int tag = group.readTag();
+				switch (tag >>> 3) {
+					case 1: {
+						ProtoReader node = group.readMessage();
+						long id = 0;
+						long lat = 0;
+						long lon = 0;
+						while (node.hasMore()) {
+							int nodeTag = node.readTag();
+							switch (nodeTag >>> 3) {
+								case 1: id = node.readSInt(); break;
+								case 8: lat = node.readSInt(); break;
+								case 9: lon = node.readSInt(); break;
+								default: node.skip(nodeTag);
+							}
+						}
+						if (setCoord(id, latOffset + granularity * lat, lonOffset + granularity * lon)) {
+							found++;
+						}
+						break;
+					}
+					case 2: {
+						ProtoReader dense = group.readMessage();
+						ProtoReader ids = null;
+						ProtoReader lats = null;
+						ProtoReader lons = null;
+						while (dense.hasMore()) {
+							int denseTag = dense.readTag();
+							switch (denseTag >>> 3) {
+								case 1: ids = dense.readMessage(); break;
+								case 8: lats = dense.readMessage(); break;
+								case 9: lons = dense.readMessage(); break;
+								default: dense.skip(denseTag);
+							}
+						}
+						if (ids == null) {
+							break;
+						}
+						long id = 0;
+						long lat = 0;
+						long lon = 0;
+						while (ids.hasMore()) {
+							id += ids.readSInt();
+							lat += lats.readSInt();
+							lon += lons.readSInt();
+							if (setCoord(id, latOffset + granularity * lat, lonOffset + granularity * lon)) {
+								found++;
+							}
+						}
+						break;
+					}
+					default:
+						group.skip(tag);
+				}
+			}
+		}
+		return found;
+	}
+
+	private boolean setCoord(final long id, final long nanoLat, final long nanoLon) {
+		int index = Arrays.binarySearch(this.nodeIds, id);
+		if (index < 0) {
+			return false;
+		}
+		this.lats[index] = 1e-9 * nanoLat;
+		this.lons[index] = 1e-9 * nanoLon;
+		return true;
+	}
+
+	/**
+	 * Decodes the wire format of protocol buffers.
+	 */
+	private static final class ProtoReader {
+		private final byte[] buf;
+		int pos;
+		private final int limit;
+
+		ProtoReader(final byte[] buf) {
+			this(buf, 0, buf.length);
+		}
+
+		ProtoReader(final byte[] buf, final int offset, final int length) {
+			this.buf = buf;
+			this.pos = offset;
+			this.limit = offset + length;
+		}
+
+		boolean hasMore() {
+			return this.pos < this.limit;
+		}
+
+		int readTag() {
+			return (int) readVarint();
+		}
+
+		long readVarint() {
+			long result = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				if (this.pos >= this.limit) {
+					throw new RuntimeException("Truncated message.");
+				}
+				byte b = this.buf[this.pos++];
+				result |= (long) (b & 0x7f) << shift;
+				if ((b & 0x80) == 0) {
+					return result;
+				}
+			}
+			throw new RuntimeException("Malformed varint.");
+		}
+
+		long readSInt() {
+			long n = readVarint();
+			return (n >>> 1) ^ -(n & 1);
+		}
+
+		int readLength() {
+			long length = readVarint();
+			if (length < 0 || length > this.limit - this.pos) {
+				throw new RuntimeException("Truncated message.");
+			}
+			return (int) length;
+		}
+
+		ProtoReader readMessage() {
+			int length = readLength();
+			ProtoReader message = new ProtoReader(this.buf, this.pos, length);
+			this.pos += length;
+			return message;
+		}
+
+		String readString() {
+			int length = readLength();
+			String s = new String(this.buf, this.pos, length, StandardCharsets.UTF_8);
+			this.pos += length;
+			return s;
+		}
+
+		/** reads a repeated field, which may or may not be packed */
+		void readVarints(final int tag, final LongList values) {
+			if ((tag & 7) == 2) {
+				ProtoReader packed = readMessage();
+				while (packed.hasMore()) {
+					values.add(packed.readVarint());
+				}
+			} else {
+				values.add(readVarint());
+			}
+		}
+
+		/** reads a repeated, zigzag-encoded field, which may or may not be packed */
+		void readSInts(final int tag, final LongList values) {
+			if ((tag & 7) == 2) {
+				ProtoReader packed = readMessage();
+				while (packed.hasMore()) {
+					values.add(packed.readSInt());
+				}
+			} else {
+				values.add(readSInt());
+			}
+		}
+
+		void skip(final int tag) {
+			switch (tag & 7) {
+				case 0: readVarint(); break;
+				case 1: this.pos += 8; break;
+				case 2: {
+					int length = readLength();
+					this.pos += length;
+					break;
+				}
+				case 5: this.pos += 4; break;
+				default: throw new RuntimeException("Unsupported wire type " + (tag & 7) + ".");
+			}
+		}
+	}
+
+	private static final class LongList {
+		private long[] values = new long[16];
+		private int size = 0;
+
+		void add(final long value) {
+			if (this.size == this.values.length) {
+				this.values = Arrays.copyOf(this.values, this.size * 2);
+			}
+			this.values[this.size++] = value;
+		}
+
+		long get(final int index) {
+			return this.values[index];
+		}
+
+		int size() {
+			return this.size;
+		}
+
+		void clear() {
+			this.size = 0;
+		}
+
+		long[] toSortedUniqueArray() {
+			long[] sorted = Arrays.copyOf(this.values, this.size);
+			Arrays.parallelSort(sorted);
+			int unique = 0;
+			for (int i = 0; i < sorted.length; i++) {
+				if (unique == 0 || sorted[i] != sorted[unique - 1]) {
+					sorted[unique++] = sorted[i];
+				}
+			}
+			return Arrays.copyOf(sorted, unique);
+		}
+	}
+
+}
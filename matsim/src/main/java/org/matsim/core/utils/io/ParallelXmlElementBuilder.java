@@ -0,0 +1,229 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelXmlElementBuilder.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Stack;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Helps xml readers to build the objects described by independent elements of a file (persons, links, facilities, ...)
+ * on several threads.
+ * <p></p>
+ * The reader passes all tags of such elements, including the nested ones, to {@link #startTag(String, Attributes, Stack)}
+ * and {@link #endTag(String, String, Stack)}, instead of handling them itself.  The tags are collected in batches, and each
+ * batch is replayed on a worker thread to an {@link ElementBuilder}, of which every worker has its own instance.  The built
+ * objects are handed to the consumer on the thread of the reader, in the order of the file, so the consumer can add them
+ * to a container that is not thread-safe.
+ * <p></p>
+ * Exceptions thrown by a builder are rethrown on the thread of the reader, at the latest from {@link #finish()}.
+ *
+ * @param <T> the type of objects built from the elements
+ */
+public final class ParallelXmlElementBuilder<T> {
+
+	/**
+	 * Builds one object from the tags of an element, with the same calls as the {@link MatsimXmlParser} would make.
+	 */
+	public interface ElementBuilder<T> {
+		void startTag(String name, Attributes atts, Stack<String> context);
+
+		void endTag(String name, String content, Stack<String> context);
+
+		/**
+		 * @return the object built from the element whose end tag was passed last.
+		 */
+		T getElement();
+	}
+
+	/* package */ static final int DEFAULT_BATCH_SIZE = 256;
+
+	private static final AtomicInteger poolCounter = new AtomicInteger(0);
+
+	private final ExecutorService executor;
+	private final ThreadLocal<ElementBuilder<T>> builders;
+	private final Consumer<T> consumer;
+	private final int batchSize;
+	private final int maxPendingBatches;
+
+	private final Deque<Future<List<T>>> pending = new ArrayDeque<>();
+	private List<List<Tag>> batch;
+	private List<Tag> element = null;
+	private int depth = 0;
+
+	/**
+	 * @param numberOfThreads the number of worker threads
+	 * @param builderFactory creates the builder for each worker thread
+	 * @param consumer receives the built objects in the order of the file
+	 */
+	public ParallelXmlElementBuilder(final int numberOfThreads, final Supplier<ElementBuilder<T>> builderFactory, final Consumer<T> consumer) {
+		this(numberOfThreads, DEFAULT_BATCH_SIZE, builderFactory, consumer);
+	}
+
+	/* package */ ParallelXmlElementBuilder(final int numberOfThreads, final int batchSize, final Supplier<ElementBuilder<T>> builderFactory,
+			final Consumer<T> consumer) {
+		final int pool = poolCounter.incrementAndGet();
+		final AtomicInteger threadCounter = new AtomicInteger(0);
+		this.executor = Executors.newFixedThreadPool(Math.max(1, numberOfThreads), r -> {
+			Thread thread = new Thread(r, "XmlElementBuilder-" + pool + "-" + threadCounter.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.builders = ThreadLocal.withInitial(builderFactory);
+		this.consumer = consumer;
+		this.batchSize = batchSize;
+		// enough to keep the workers busy, but limits the memory needed for parsed but not yet built elements
+		this.maxPendingBatches = 4 * Math.max(1, numberOfThreads);
+		this.batch = new ArrayList<>(batchSize);
+	}
+
+	/**
+	 * @return <code>true</code> if a start tag was passed whose element has not ended yet.  As long as this is the case,
+	 * all tags must be passed to this object.
+	 */
+	public boolean isInElement() {
+		return this.depth > 0;
+	}
+
+	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+		if (this.depth == 0) {
+			this.element = new ArrayList<>();
+			Stack<String> elementContext = new Stack<>();
+			elementContext.addAll(context);
+			this.element.add(new Tag(name, new AttributesImpl(atts), null, elementContext));
+		} else {
+			// the attributes object is re-used by the parser, so we need a copy
+			this.element.add(new Tag(name, new AttributesImpl(atts), null, null));
+		}
+		this.depth++;
+	}
+
+	public void endTag(final String name, final String content, final Stack<String> context) {
+		this.element.add(new Tag(name, null, content, null));
+		this.depth--;
+		if (this.depth == 0) {
+			this.batch.add(this.element);
+			this.element = null;
+			if (this.batch.size() >= this.batchSize) {
+				submitBatch();
+			}
+		}
+	}
+
+	/**
+	 * Waits until all elements passed so far are built and handed to the consumer.
+	 */
+	public void flush() {
+		if (!this.batch.isEmpty()) {
+			submitBatch();
+		}
+		while (!this.pending.isEmpty()) {
+			consumeNext();
+		}
+	}
+
+	/**
+	 * Flushes and stops the worker threads.  Must be called once the file is read completely.
+	 */
+	public void finish() {
+		try {
+			flush();
+		} finally {
+			this.executor.shutdown();
+		}
+	}
+
+	private void submitBatch() {
+		final List<List<Tag>> elements = this.batch;
+		this.batch = new ArrayList<>(this.batchSize);
+		this.pending.add(this.executor.submit(() -> build(elements)));
+		while (!this.pending.isEmpty() && (this.pending.size() > this.maxPendingBatches || this.pending.peek().isDone())) {
+			consumeNext();
+		}
+	}
+
+	private List<T> build(final List<List<Tag>> elements) {
+		ElementBuilder<T> builder = this.builders.get();
+		List<T> built = new ArrayList<>(elements.size());
+		for (List<Tag> tags : elements) {
+			Stack<String> context = tags.get(0).context;
+			for (Tag tag : tags) {
+				if (tag.atts != null) {
+					builder.startTag(tag.name, tag.atts, context);
+					context.push(tag.name);
+				} else {
+					context.pop();
+					builder.endTag(tag.name, tag.content, context);
+				}
+			}
+			built.add(builder.getElement());
+		}
+		return built;
+	}
+
+	private void consumeNext() {
+		List<T> built;
+		try {
+			built = this.pending.poll().get();
+		} catch (InterruptedException e) {
+			this.executor.shutdownNow();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			this.executor.shutdownNow();
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+		for (T t : built) {
+			this.consumer.accept(t);
+		}
+	}
+
+	private static final class Tag {
+		final String name;
+		/** <code>null</code> for end tags */
+		final Attributes atts;
+		final String content;
+		/** only set for the first tag of an element */
+		final Stack<String> context;
+
+		Tag(final String name, final Attributes atts, final String content, final Stack<String> context) {
+			this.name = name;
+			this.atts = atts;
+			this.content = content;
+			this.context = context;
+		}
+	}
+
+}
@@ -0,0 +1,59 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CounterMetric.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A counter that can be incremented concurrently from many threads with little contention.
+ *
+ * @see MetricsRegistry#counter(String)
+ */
+public final class CounterMetric {
+
+	private final String name;
+	private final LongAdder value = new LongAdder();
+
+	/*package*/ CounterMetric(final String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public void increment() {
+		this.value.increment();
+	}
+
+	public void add(final long delta) {
+		this.value.add(delta);
+	}
+
+	public long get() {
+		return this.value.sum();
+	}
+
+	/*package*/ void reset() {
+		this.value.reset();
+	}
+
+}
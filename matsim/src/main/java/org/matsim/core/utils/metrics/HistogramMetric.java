@@ -0,0 +1,127 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HistogramMetric.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the distribution of non-negative long values, e.g. durations in nanoseconds, concurrently from many
+ * threads.  Values are counted in buckets by their power of two, so recording a value costs a few increments
+ * and no allocation, and percentiles are exact to within a factor of two.
+ *
+ * @see MetricsRegistry#histogram(String)
+ */
+public final class HistogramMetric {
+
+	/** bucket <code>i</code> counts the values in <code>[2^(i-1), 2^i)</code>, bucket 0 counts zeros */
+	private static final int NUMBER_OF_BUCKETS = 64;
+
+	private final String name;
+	private final LongAdder[] buckets = new LongAdder[NUMBER_OF_BUCKETS];
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+	private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+	/*package*/ HistogramMetric(final String name) {
+		this.name = name;
+		for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+			this.buckets[i] = new LongAdder();
+		}
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * @param value negative values are recorded as 0
+	 */
+	public void record(final long value) {
+		long v = Math.max(0, value);
+		this.buckets[Long.SIZE - Long.numberOfLeadingZeros(v)].increment();
+		this.count.increment();
+		this.sum.add(v);
+		this.min.accumulate(v);
+		this.max.accumulate(v);
+	}
+
+	public long getCount() {
+		return this.count.sum();
+	}
+
+	public long getSum() {
+		return this.sum.sum();
+	}
+
+	/**
+	 * @return the smallest recorded value, or 0 if nothing was recorded
+	 */
+	public long getMin() {
+		return getCount() == 0 ? 0 : this.min.get();
+	}
+
+	/**
+	 * @return the largest recorded value, or 0 if nothing was recorded
+	 */
+	public long getMax() {
+		return getCount() == 0 ? 0 : this.max.get();
+	}
+
+	public double getMean() {
+		long n = getCount();
+		return n == 0 ? 0 : (double) getSum() / n;
+	}
+
+	/**
+	 * @param fraction e.g. 0.99 for the 99th percentile
+	 * @return an upper bound of the percentile, less than twice its actual value and never more than
+	 * {@link #getMax()}
+	 */
+	public long getPercentile(final double fraction) {
+		long n = getCount();
+		if (n == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(fraction * n));
+		long seen = 0;
+		for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+			seen += this.buckets[i].sum();
+			if (seen >= rank) {
+				long upperBound = i == 0 ? 0 : i == NUMBER_OF_BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+				return Math.min(upperBound, getMax());
+			}
+		}
+		return getMax();
+	}
+
+	/*package*/ void reset() {
+		for (LongAdder bucket : this.buckets) {
+			bucket.reset();
+		}
+		this.count.reset();
+		this.sum.reset();
+		this.min.reset();
+		this.max.reset();
+	}
+
+}
@@ -0,0 +1,130 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * MetricsRegistry.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A JVM-wide registry of counters and histograms for measurements on hot paths, e.g. in the mobsim or the
+ * router, that are too fine-grained for the {@link org.matsim.analysis.IterationStopWatch}.
+ * <p></p>
+ * Code that records a metric looks up the metric once, keeps it in a (static) field, and records only while the
+ * registry is enabled, so that the cost of a disabled registry is a single volatile read:
+ * <pre>
+ * private static final HistogramMetric QUERY_TIME = MetricsRegistry.histogram("routing.queryNanos");
+ * ...
+ * if (MetricsRegistry.isEnabled()) QUERY_TIME.record(System.nanoTime() - start);
+ * </pre>
+ * Metrics are never removed, {@link #reset()} only sets their values back to zero.  The registry is enabled and
+ * written out per iteration by the {@link org.matsim.analysis.MetricsControlerListener} if
+ * <code>controler.writeMetrics</code> is set.
+ */
+public final class MetricsRegistry {
+
+	/** histogram of the duration of each QSim sim step, in nanoseconds */
+	public static final String MOBSIM_SIM_STEP_NANOS = "mobsim.simStepNanos";
+	/** histogram of the difference between the slowest and the fastest QNetsimEngine runner per sim step, in nanoseconds */
+	public static final String MOBSIM_RUNNER_IMBALANCE_NANOS = "mobsim.runnerImbalanceNanos";
+	/** histogram of the number of events waiting for the parallel event handlers at the end of each sim step */
+	public static final String EVENTS_QUEUE_DEPTH = "events.queueDepth";
+	/** histogram of the duration of each least cost path query, in nanoseconds */
+	public static final String ROUTING_QUERY_NANOS = "routing.queryNanos";
+	/** histogram of the number of nodes settled by each least cost path query */
+	public static final String ROUTING_SETTLED_NODES = "routing.settledNodes";
+	/** prefix of the counters of the GC time per iteration step, in milliseconds */
+	public static final String GC_MILLIS_PREFIX = "gc.millis.";
+
+	private static volatile boolean enabled = false;
+
+	private static final ConcurrentMap<String, CounterMetric> counters = new ConcurrentSkipListMap<>();
+	private static final ConcurrentMap<String, HistogramMetric> histograms = new ConcurrentSkipListMap<>();
+
+	private MetricsRegistry() {
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(final boolean enabled) {
+		MetricsRegistry.enabled = enabled;
+	}
+
+	/**
+	 * @return the counter with the given name, created if it does not exist yet
+	 */
+	public static CounterMetric counter(final String name) {
+		return counters.computeIfAbsent(name, CounterMetric::new);
+	}
+
+	/**
+	 * @return the histogram with the given name, created if it does not exist yet
+	 */
+	public static HistogramMetric histogram(final String name) {
+		return histograms.computeIfAbsent(name, HistogramMetric::new);
+	}
+
+	/**
+	 * @return all counters, sorted by name
+	 */
+	public static Collection<CounterMetric> getCounters() {
+		return Collections.unmodifiableCollection(counters.values());
+	}
+
+	/**
+	 * @return all histograms, sorted by name
+	 */
+	public static Collection<HistogramMetric> getHistograms() {
+		return Collections.unmodifiableCollection(histograms.values());
+	}
+
+	/**
+	 * Sets all metrics back to zero.  Values recorded concurrently may or may not be lost.
+	 */
+	public static void reset() {
+		for (CounterMetric counter : counters.values()) {
+			counter.reset();
+		}
+		for (HistogramMetric histogram : histograms.values()) {
+			histogram.reset();
+		}
+	}
+
+	/**
+	 * @return the accumulated time of all garbage collectors of this JVM in milliseconds
+	 */
+	public static long getGcTimeMillis() {
+		long sum = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			long time = gc.getCollectionTime();
+			if (time > 0) {
+				sum += time;
+			}
+		}
+		return sum;
+	}
+
+}
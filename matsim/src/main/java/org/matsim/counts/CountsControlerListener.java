@@ -29,6 +29,7 @@ import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.CountsConfigGroup;
 import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.OutputWriterPool;
 import org.matsim.core.controler.events.IterationEndsEvent;
 import org.matsim.core.controler.events.StartupEvent;
 import org.matsim.core.controler.listener.IterationEndsListener;
@@ -46,6 +47,7 @@ import org.matsim.counts.algorithms.graphs.CountsSimRealPerHourGraphCreator;
 
 import javax.inject.Inject;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
@@ -68,6 +70,7 @@ class CountsControlerListener implements StartupListener, IterationEndsListener
     private final VolumesAnalyzer volumesAnalyzer;
     private final IterationStopWatch iterationStopwatch;
     private final OutputDirectoryHierarchy controlerIO;
+    private final OutputWriterPool outputWriterPool;
 
     @com.google.inject.Inject(optional=true)
     private Counts<Link> counts = null;
@@ -76,7 +79,7 @@ class CountsControlerListener implements StartupListener, IterationEndsListener
     private int iterationsUsed = 0;
 
     @Inject
-    CountsControlerListener(GlobalConfigGroup globalConfigGroup, Network network, ControlerConfigGroup controlerConfigGroup, CountsConfigGroup countsConfigGroup, VolumesAnalyzer volumesAnalyzer, IterationStopWatch iterationStopwatch, OutputDirectoryHierarchy controlerIO) {
+    CountsControlerListener(GlobalConfigGroup globalConfigGroup, Network network, ControlerConfigGroup controlerConfigGroup, CountsConfigGroup countsConfigGroup, VolumesAnalyzer volumesAnalyzer, IterationStopWatch iterationStopwatch, OutputDirectoryHierarchy controlerIO, OutputWriterPool outputWriterPool) {
         this.globalConfigGroup = globalConfigGroup;
         this.network = network;
         this.controlerConfigGroup = controlerConfigGroup;
@@ -85,6 +88,7 @@ class CountsControlerListener implements StartupListener, IterationEndsListener
 		this.analyzedModes = CollectionUtils.stringToSet(this.config.getAnalyzedModes());
         this.iterationStopwatch = iterationStopwatch;
         this.controlerIO = controlerIO;
+        this.outputWriterPool = outputWriterPool;
 	}
 
 	@Override
@@ -126,51 +130,61 @@ class CountsControlerListener implements StartupListener, IterationEndsListener
                 }
                 cca.setCountsScaleFactor(this.config.getCountsScaleFactor());
                 cca.run();
-
-                if (this.config.getOutputFormat().contains("html") ||
-                        this.config.getOutputFormat().contains("all")) {
-                    CountsHtmlAndGraphsWriter cgw = new CountsHtmlAndGraphsWriter(controlerIO.getIterationPath(event.getIteration()), cca.getComparison(), event.getIteration());
-                    cgw.addGraphsCreator(new CountsSimRealPerHourGraphCreator("sim and real volumes"));
-                    cgw.addGraphsCreator(new CountsErrorGraphCreator("errors"));
-                    cgw.addGraphsCreator(new CountsLoadCurveGraphCreator("link volumes"));
-                    cgw.addGraphsCreator(new CountsSimReal24GraphCreator("average working day sim and count volumes"));
-                    cgw.createHtmlAndGraphs();
-                }
-                if (this.config.getOutputFormat().contains("kml") ||
-                        this.config.getOutputFormat().contains("all")) {
-                    String filename = controlerIO.getIterationFilename(event.getIteration(), "countscompare.kmz");
-                    CountSimComparisonKMLWriter kmlWriter = new CountSimComparisonKMLWriter(
-                            cca.getComparison(), network, TransformationFactory.getCoordinateTransformation(globalConfigGroup.getCoordinateSystem(), TransformationFactory.WGS84));
-                    kmlWriter.setIterationNumber(event.getIteration());
-                    kmlWriter.writeFile(filename);
-                }
-                if (this.config.getOutputFormat().contains("txt") ||
-                        this.config.getOutputFormat().contains("all")) {
-                    String filename = controlerIO.getIterationFilename(event.getIteration(), "countscompare.txt");
-                    CountSimComparisonTableWriter ctw = new CountSimComparisonTableWriter(cca.getComparison(), Locale.ENGLISH);
-                    ctw.writeFile(filename);
-                }
-                if (this.config.getOutputFormat().contains("xml") ||
-                        this.config.getOutputFormat().contains("all")) {
-                    String filename = controlerIO.getIterationFilename(event.getIteration(), "simulatedCounts.xml.gz");
-                    Counts<Link> simCounts = new Counts<>();
-                    simCounts.setDescription("sim values from iteration " + event.getIteration()); simCounts.setName("sim values from iteration " + event.getIteration()); simCounts.setYear(event.getIteration());
-                    for (CountSimComparison countSimComparison : cca.getComparison()) {
-						if (simCounts.getCount(countSimComparison.getId()) == null) {
-							simCounts.createAndAddCount(countSimComparison.getId(), counts.getCount(countSimComparison.getId()).getCsLabel());
-							simCounts.getCount(countSimComparison.getId()).setCoord(counts.getCount(countSimComparison.getId()).getCoord());
-						}
-						simCounts.getCount(countSimComparison.getId()).createVolume(countSimComparison.getHour(), countSimComparison.getSimulationValue());
-					}
-                    CountsWriter countsWriter = new CountsWriter(TransformationFactory.getCoordinateTransformation(globalConfigGroup.getCoordinateSystem(), TransformationFactory.WGS84), simCounts);
-                    countsWriter.write(filename);
-                }
                 reset();
                 iterationStopwatch.endOperation(OPERATION_COMPARECOUNTS);
+
+                /*
+                 * The comparisons are not modified anymore, so the output files can be written in the background.
+                 */
+                final List<CountSimComparison> comparison = cca.getComparison();
+                final int iteration = event.getIteration();
+                this.outputWriterPool.submit("counts comparison of iteration " + iteration, () -> writeComparison(comparison, iteration));
             }
         }
 	}
 
+	private void writeComparison(final List<CountSimComparison> comparison, final int iteration) {
+        if (this.config.getOutputFormat().contains("html") ||
+                this.config.getOutputFormat().contains("all")) {
+            CountsHtmlAndGraphsWriter cgw = new CountsHtmlAndGraphsWriter(controlerIO.getIterationPath(iteration), comparison, iteration);
+            cgw.addGraphsCreator(new CountsSimRealPerHourGraphCreator("sim and real volumes"));
+            cgw.addGraphsCreator(new CountsErrorGraphCreator("errors"));
+            cgw.addGraphsCreator(new CountsLoadCurveGraphCreator("link volumes"));
+            cgw.addGraphsCreator(new CountsSimReal24GraphCreator("average working day sim and count volumes"));
+            cgw.createHtmlAndGraphs();
+        }
+        if (this.config.getOutputFormat().contains("kml") ||
+                this.config.getOutputFormat().contains("all")) {
+            String filename = controlerIO.getIterationFilename(iteration, "countscompare.kmz");
+            CountSimComparisonKMLWriter kmlWriter = new CountSimComparisonKMLWriter(
+                    comparison, network, TransformationFactory.getCoordinateTransformation(globalConfigGroup.getCoordinateSystem(), TransformationFactory.WGS84));
+            kmlWriter.setIterationNumber(iteration);
+            kmlWriter.setNumberOfThreads(globalConfigGroup.getNumberOfThreads());
+            kmlWriter.writeFile(filename);
+        }
+        if (this.config.getOutputFormat().contains("txt") ||
+                this.config.getOutputFormat().contains("all")) {
+            String filename = controlerIO.getIterationFilename(iteration, "countscompare.txt");
+            CountSimComparisonTableWriter ctw = new CountSimComparisonTableWriter(comparison, Locale.ENGLISH);
+            ctw.writeFile(filename);
+        }
+        if (this.config.getOutputFormat().contains("xml") ||
+                this.config.getOutputFormat().contains("all")) {
+            String filename = controlerIO.getIterationFilename(iteration, "simulatedCounts.xml.gz");
+            Counts<Link> simCounts = new Counts<>();
+            simCounts.setDescription("sim values from iteration " + iteration); simCounts.setName("sim values from iteration " + iteration); simCounts.setYear(iteration);
+            for (CountSimComparison countSimComparison : comparison) {
+				if (simCounts.getCount(countSimComparison.getId()) == null) {
+					simCounts.createAndAddCount(countSimComparison.getId(), counts.getCount(countSimComparison.getId()).getCsLabel());
+					simCounts.getCount(countSimComparison.getId()).setCoord(counts.getCount(countSimComparison.getId()).getCoord());
+				}
+				simCounts.getCount(countSimComparison.getId()).createVolume(countSimComparison.getHour(), countSimComparison.getSimulationValue());
+			}
+            CountsWriter countsWriter = new CountsWriter(TransformationFactory.getCoordinateTransformation(globalConfigGroup.getCoordinateSystem(), TransformationFactory.WGS84), simCounts);
+            countsWriter.write(filename);
+        }
+	}
+
 	/*package*/ boolean useVolumesOfIteration(final int iteration, final int firstIteration) {
 		int iterationMod = iteration % this.config.getWriteCountsInterval();
 		int effectiveIteration = iteration - firstIteration;
@@ -191,27 +205,15 @@ class CountsControlerListener implements StartupListener, IterationEndsListener
 		this.iterationsUsed++;
 		for (Map.Entry<Id<Link>, double[]> e : this.linkStats.entrySet()) {
 			Id<Link> linkId = e.getKey();
-			double[] volumesPerHour = e.getValue(); 
-			double[] newVolume = getVolumesPerHourForLink(volumes, linkId); 
-			for (int i = 0; i < 24; i++) {
-				volumesPerHour[i] += newVolume[i];
-			}
-		}
-	}
-	
-	private double[] getVolumesPerHourForLink(final VolumesAnalyzer volumes, final Id<Link> linkId) {
-		if (this.config.isFilterModes()) {
-			double[] newVolume = new double[24];
-			for (String mode : this.analyzedModes) {
-				double[] volumesForMode = volumes.getVolumesPerHourForLink(linkId, mode);
-				if (volumesForMode == null) continue;
-				for (int i = 0; i < 24; i++) {
-					newVolume[i] += volumesForMode[i];
+			double[] volumesPerHour = e.getValue();
+			// sum up directly from the analyzer's arrays instead of creating new arrays per link and iteration
+			if (this.config.isFilterModes()) {
+				for (String mode : this.analyzedModes) {
+					volumes.addVolumesPerHourForLink(linkId, mode, volumesPerHour);
 				}
+			} else {
+				volumes.addVolumesPerHourForLink(linkId, volumesPerHour);
 			}
-			return newVolume;
-		} else {
-			return volumes.getVolumesPerHourForLink(linkId);
 		}
 	}
 	
@@ -25,9 +25,15 @@ import java.io.File;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 import org.jfree.chart.ChartUtilities;
@@ -47,10 +53,8 @@ import org.matsim.counts.algorithms.graphs.BiasNormalizedErrorGraph;
 import org.matsim.counts.algorithms.graphs.BoxPlotErrorGraph;
 import org.matsim.counts.algorithms.graphs.BoxPlotNormalizedErrorGraph;
 import org.matsim.counts.algorithms.graphs.CountsGEHCurveGraph;
-import org.matsim.counts.algorithms.graphs.CountsGEHCurveGraphCreator;
 import org.matsim.counts.algorithms.graphs.CountsGraph;
 import org.matsim.counts.algorithms.graphs.CountsLoadCurveGraph;
-import org.matsim.counts.algorithms.graphs.CountsLoadCurveGraphCreator;
 import org.matsim.counts.algorithms.graphs.CountsSimReal24Graph;
 import org.matsim.counts.algorithms.graphs.CountsSimRealPerHourGraph;
 import org.matsim.vis.kml.KMZWriter;
@@ -62,6 +66,7 @@ import net.opengis.kml.v_2_2_0.FolderType;
 import net.opengis.kml.v_2_2_0.IconStyleType;
 import net.opengis.kml.v_2_2_0.KmlType;
 import net.opengis.kml.v_2_2_0.LinkType;
+import net.opengis.kml.v_2_2_0.NetworkLinkType;
 import net.opengis.kml.v_2_2_0.ObjectFactory;
 import net.opengis.kml.v_2_2_0.PlacemarkType;
 import net.opengis.kml.v_2_2_0.PointType;
@@ -154,6 +159,21 @@ public class CountSimComparisonKMLWriter<T> extends CountSimComparisonWriter {
 	private Map<String, String> countsLoadCurveGraphMap;
 	private Map<String, String> countsGEHCurveGraphMap;
 
+	/**
+	 * the styles used by the placemarks, they are added to every kml containing placemarks
+	 */
+	private StyleType[] placemarkStyles;
+
+	/**
+	 * the number of threads used to render the charts of the single links
+	 */
+	private int numberOfThreads = 1;
+
+	/**
+	 * the number of links whose charts are rendered per thread before they are written to the kmz
+	 */
+	private static final int CHARTS_PER_THREAD = 32;
+
 	/** The logging object for this class. */
 	private static final Logger log = Logger.getLogger(CountSimComparisonKMLWriter.class);
 
@@ -179,6 +199,13 @@ public class CountSimComparisonKMLWriter<T> extends CountSimComparisonWriter {
 		this.graphname = graphname;
 	}
 
+	/**
+	 * Sets the number of threads used to render the load curve and GEH charts of the single links.
+	 */
+	public void setNumberOfThreads(final int numberOfThreads) {
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+	}
+
 	/**
 	 * This method initializes the styles for the different icons used.
 	 */
@@ -230,9 +257,10 @@ public class CountSimComparisonKMLWriter<T> extends CountSimComparisonWriter {
 		hrefs.put(this.greyCrossStyle, CROSSICON);
 		hrefs.put(this.greyMinusStyle, MINUSICON);
 
-		for (StyleType styleType : new StyleType[]{
+		this.placemarkStyles = new StyleType[]{
 				this.redCircleStyle, this.redCrossStyle, this.redMinusStyle, this.yellowCircleStyle, this.yellowCrossStyle, this.yellowMinusStyle,
-				this.greenCircleStyle, this.greenCrossStyle, this.greenMinusStyle, this.greyCircleStyle, this.greyCrossStyle, this.greyMinusStyle}) {
+				this.greenCircleStyle, this.greenCrossStyle, this.greenMinusStyle, this.greyCircleStyle, this.greyCrossStyle, this.greyMinusStyle};
+		for (StyleType styleType : this.placemarkStyles) {
 
 			IconStyleType icon = this.kmlObjectFactory.createIconStyleType();
 			icon.setColor(
@@ -346,8 +374,7 @@ public class CountSimComparisonKMLWriter<T> extends CountSimComparisonWriter {
 		}
 
 		// link graphs
-		this.createCountsLoadCurveGraphs();
-		this.createCountsGEHCurveGraphs();
+		this.createCountsCurveGraphs();
 
 		// hourly data...
 		FolderType folderRelative = this.kmlObjectFactory.createFolderType();
@@ -377,25 +404,53 @@ public class CountSimComparisonKMLWriter<T> extends CountSimComparisonWriter {
 			FolderType subfolderRelative = this.kmlObjectFactory.createFolderType();
 			subfolderRelative.setName(createFolderName(h));
 			subfolderRelative.setAbstractTimePrimitiveGroup(this.kmlObjectFactory.createTimeSpan(timespan));
-			folderRelative.getAbstractFeatureGroup().add(this.kmlObjectFactory.createFolder(subfolderRelative));
 
 			FolderType subfolderNormalizedRelative = this.kmlObjectFactory.createFolderType();
 			subfolderNormalizedRelative.setName(createFolderName(h));
 			subfolderNormalizedRelative.setAbstractTimePrimitiveGroup(this.kmlObjectFactory.createTimeSpan(timespan));
-			folderNormalizedRelative.getAbstractFeatureGroup().add(this.kmlObjectFactory.createFolder(subfolderNormalizedRelative));
 			
 			FolderType subfolderGEH = this.kmlObjectFactory.createFolderType();
 			subfolderGEH.setName(createFolderName(h));
 			subfolderGEH.setAbstractTimePrimitiveGroup(this.kmlObjectFactory.createTimeSpan(timespan));
 			subfolderGEH.setVisibility(Boolean.FALSE);
-			folderGEH.getAbstractFeatureGroup().add(this.kmlObjectFactory.createFolder(subfolderGEH));
 			
 			writeLinkData(this.countComparisonFilter.getCountsForHour(Integer.valueOf(h)), subfolderRelative, subfolderNormalizedRelative, subfolderGEH);
+
+			// the placemarks of each hour go to their own kml in the kmz, so they are not kept in memory until the main kml is written
+			this.writeLinkedFolder(folderRelative, subfolderRelative, "relative_" + h + ".kml", timespan);
+			this.writeLinkedFolder(folderNormalizedRelative, subfolderNormalizedRelative, "normalizedRelative_" + h + ".kml", timespan);
+			this.writeLinkedFolder(folderGEH, subfolderGEH, "geh_" + h + ".kml", timespan);
 		}
 		
 		finish();
 	}
 
+	/**
+	 * Writes the folder with its placemarks to a separate kml in the kmz and adds a NetworkLink
+	 * to this kml to the parent folder.
+	 */
+	private void writeLinkedFolder(final FolderType parent, final FolderType folder, final String kmlFilename, final TimeSpanType timespan) {
+		DocumentType doc = this.kmlObjectFactory.createDocumentType();
+		for (StyleType styleType : this.placemarkStyles) {
+			doc.getAbstractStyleSelectorGroup().add(this.kmlObjectFactory.createStyle(styleType));
+		}
+		doc.getAbstractFeatureGroup().add(this.kmlObjectFactory.createFolder(folder));
+		KmlType kml = this.kmlObjectFactory.createKmlType();
+		kml.setAbstractFeatureGroup(this.kmlObjectFactory.createDocument(doc));
+		this.writer.writeLinkedKml(kmlFilename, kml);
+
+		NetworkLinkType networkLink = this.kmlObjectFactory.createNetworkLinkType();
+		networkLink.setName(folder.getName());
+		networkLink.setAbstractTimePrimitiveGroup(this.kmlObjectFactory.createTimeSpan(timespan));
+		if (Boolean.FALSE.equals(folder.isVisibility())) {
+			networkLink.setVisibility(Boolean.FALSE);
+		}
+		LinkType link = this.kmlObjectFactory.createLinkType();
+		link.setHref(kmlFilename);
+		networkLink.setLink(link);
+		parent.getAbstractFeatureGroup().add(this.kmlObjectFactory.createNetworkLink(networkLink));
+	}
+
 	/**
 	 * Creates the string for the foldername
 	 * @param timestep
@@ -772,54 +827,87 @@ public class CountSimComparisonKMLWriter<T> extends CountSimComparisonWriter {
 	}
 
 	/**
-	 * Creates CountsLoadCurveGraphs for each link and puts them in the kmz as pngs
+	 * Creates a CountsLoadCurveGraph and a CountsGEHCurveGraph for each link and puts them in the kmz as pngs.
+	 * The charts are rendered in parallel and written to the kmz in batches, so only the images of one
+	 * batch are kept in memory.
 	 */
-	private void createCountsLoadCurveGraphs() {
-		CountsLoadCurveGraphCreator cgc = new CountsLoadCurveGraphCreator("");
-		List<CountsGraph> graphs = cgc.createGraphs(this.countComparisonFilter.getCountsForHour(null), this.iterationNumber);
+	private void createCountsCurveGraphs() {
+		Map<String, List<CountSimComparison>> comparisonsPerLink = new LinkedHashMap<>();
+		for (CountSimComparison csc : this.countComparisonFilter.getCountsForHour(null)) {
+			comparisonsPerLink.computeIfAbsent(csc.getId().toString(), k -> new ArrayList<>()).add(csc);
+		}
+		this.countsLoadCurveGraphMap = new HashMap<>(comparisonsPerLink.size());
+		this.countsGEHCurveGraphMap = new HashMap<>(comparisonsPerLink.size());
 
-		this.countsLoadCurveGraphMap = new HashMap<>(graphs.size());
-		String linkid;
-		StringBuffer filename;
-		for (CountsGraph cg : graphs) {
-			try {
-				filename = new StringBuffer();
-				linkid = ((CountsLoadCurveGraph) cg).getLinkId();
-				filename.append(linkid);
-				filename.append(PNG);
-				writeChartToKmz(filename.toString(), cg.getChart());
-				this.countsLoadCurveGraphMap.put(linkid, filename.toString());
-			} catch (IOException e) {
-				e.printStackTrace();
+		List<String> linkIds = new ArrayList<>(comparisonsPerLink.keySet());
+		int batchSize = this.numberOfThreads * CHARTS_PER_THREAD;
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads);
+		try {
+			for (int from = 0; from < linkIds.size(); from += batchSize) {
+				int to = Math.min(from + batchSize, linkIds.size());
+				List<Future<byte[][]>> images = new ArrayList<>(to - from);
+				for (int i = from; i < to; i++) {
+					final String linkId = linkIds.get(i);
+					final List<CountSimComparison> comparisons = comparisonsPerLink.get(linkId);
+					images.add(executor.submit(() -> createCurveGraphImages(linkId, comparisons)));
+				}
+				for (int i = from; i < to; i++) {
+					String linkId = linkIds.get(i);
+					byte[][] image = images.get(i - from).get();
+					if (image == null) {
+						continue;
+					}
+					try {
+						this.writer.addNonKMLFile(image[0], linkId + PNG);
+						this.countsLoadCurveGraphMap.put(linkId, linkId + PNG);
+						this.writer.addNonKMLFile(image[1], linkId + "_GEH" + PNG);
+						this.countsGEHCurveGraphMap.put(linkId, linkId + "_GEH" + PNG);
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+				}
 			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdown();
 		}
 	}
 
 	/**
-	 * Creates CountsGEHCurveGraphs for each link and puts them in the kmz as pngs
+	 * Renders the load curve and the GEH curve of a single link as pngs. This is called by several
+	 * threads at the same time, so it must not touch any state shared with other links.
+	 *
+	 * @return the load curve and the GEH curve image, or null if encoding failed
 	 */
-	private void createCountsGEHCurveGraphs() {
-		CountsGEHCurveGraphCreator cgc = new CountsGEHCurveGraphCreator("");
-		List<CountsGraph> graphs = cgc.createGraphs(this.countComparisonFilter.getCountsForHour(null), this.iterationNumber);
-
-		this.countsGEHCurveGraphMap = new HashMap<>(graphs.size());
-		String linkId;
-		StringBuffer filename;
-		for (CountsGraph cg : graphs) {
-			try {
-				filename = new StringBuffer();
-				linkId = ((CountsGEHCurveGraph) cg).getLinkId();
-				filename.append(linkId);
-				filename.append("_GEH");
-				filename.append(PNG);
-				writeChartToKmz(filename.toString(), cg.getChart());
-				this.countsGEHCurveGraphMap.put(linkId, filename.toString());
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+	private byte[][] createCurveGraphImages(final String linkId, final List<CountSimComparison> comparisons) {
+		CountsLoadCurveGraph loadCurveGraph = new CountsLoadCurveGraph(comparisons, this.iterationNumber, "dummy");
+		CountsGEHCurveGraph gehCurveGraph = new CountsGEHCurveGraph(comparisons, this.iterationNumber, "dummy");
+		for (CountSimComparison csc : comparisons) {
+			loadCurveGraph.add2LoadCurveDataSets(csc);
+			gehCurveGraph.add2LoadCurveDataSets(csc);
+		}
+		loadCurveGraph.setChartTitle("Link " + linkId);
+		loadCurveGraph.setLinkId(linkId);
+		gehCurveGraph.setChartTitle("Link " + linkId);
+		gehCurveGraph.setLinkId(linkId);
+		try {
+			return new byte[][] {
+					encodeChart(loadCurveGraph.createChart(0)),
+					encodeChart(gehCurveGraph.createChart(0)) };
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
 		}
 	}
-	
+
+	private static byte[] encodeChart(final JFreeChart chart) throws IOException {
+		return ChartUtilities.encodeAsPNG(chart.createBufferedImage(CHARTWIDTH, CHARTHEIGHT));
+	}
+
 	/**
 	 * Writes the given JFreeChart to the kmz file specified for the kmz writer attribute of this class.
 	 * @param filename the filename to use in the kmz
@@ -827,9 +915,7 @@ public class CountSimComparisonKMLWriter<T> extends CountSimComparisonWriter {
 	 * @throws IOException
 	 */
 	private void writeChartToKmz(final String filename, final JFreeChart chart) throws IOException {
-		byte [] img;
-		img = ChartUtilities.encodeAsPNG(chart.createBufferedImage(CHARTWIDTH, CHARTHEIGHT));
-		this.writer.addNonKMLFile(img, filename);
+		this.writer.addNonKMLFile(encodeChart(chart), filename);
 	}
 
 	/**
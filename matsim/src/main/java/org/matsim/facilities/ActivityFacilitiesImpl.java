@@ -24,13 +24,14 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
-import org.matsim.core.utils.collections.QuadTree;
+import org.matsim.core.utils.collections.PackedRTree;
 import org.matsim.utils.objectattributes.ObjectAttributes;
 import org.matsim.utils.objectattributes.attributable.Attributes;
 
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
@@ -57,7 +58,7 @@ public class ActivityFacilitiesImpl implements ActivityFacilities, SearchableAct
 
 	private final ObjectAttributes facilityAttributes = new ObjectAttributes();
 
-	private QuadTree<ActivityFacility> facilitiesQuadTree;
+	private volatile PackedRTree<ActivityFacility> facilitiesRTree;
 
 	//////////////////////////////////////////////////////////////////////
 	// constructor
@@ -88,6 +89,7 @@ public class ActivityFacilitiesImpl implements ActivityFacilities, SearchableAct
 		}
 		ActivityFacilityImpl f = new ActivityFacilityImpl(id, center, linkId);
 		this.facilities.put(f.getId(),f);
+		this.facilitiesRTree = null;
 
 		// show counter
 		if (this.facilities.size() % this.nextMsg == 0) {
@@ -140,6 +142,7 @@ public class ActivityFacilitiesImpl implements ActivityFacilities, SearchableAct
 		}
 
 		this.facilities.put(facility.getId(),facility);
+		this.facilitiesRTree = null;
 	}
 
 	@Override
@@ -167,40 +170,26 @@ public class ActivityFacilitiesImpl implements ActivityFacilities, SearchableAct
 		return stb.toString();
 	}
 
-	synchronized private void buildQuadTree() {
-		/* the method must be synchronized to ensure we only build one quadTree
-		 * in case that multiple threads call a method that requires the quadTree.
+	synchronized private PackedRTree<ActivityFacility> buildRTree() {
+		/* the method must be synchronized to ensure we only build one tree
+		 * in case that multiple threads call a method that requires the tree.
 		 */
-		if (this.facilitiesQuadTree != null) {
-			return;
+		PackedRTree<ActivityFacility> tree = this.facilitiesRTree;
+		if (tree != null) {
+			return tree;
 		}
 		double startTime = System.currentTimeMillis();
-		double minx = Double.POSITIVE_INFINITY;
-		double miny = Double.POSITIVE_INFINITY;
-		double maxx = Double.NEGATIVE_INFINITY;
-		double maxy = Double.NEGATIVE_INFINITY;
-		for ( ActivityFacility n : this.facilities.values()) {
-			if (n.getCoord().getX() < minx) { minx = n.getCoord().getX(); }
-			if (n.getCoord().getY() < miny) { miny = n.getCoord().getY(); }
-			if (n.getCoord().getX() > maxx) { maxx = n.getCoord().getX(); }
-			if (n.getCoord().getY() > maxy) { maxy = n.getCoord().getY(); }
+		PackedRTree.Builder<ActivityFacility> builder = new PackedRTree.Builder<>();
+		for (ActivityFacility f : this.facilities.values()) {
+			builder.addPoint(f.getCoord().getX(), f.getCoord().getY(), f);
 		}
-		minx -= 1.0;
-		miny -= 1.0;
-		maxx += 1.0;
-		maxy += 1.0;
-		// yy the above four lines are problematic if the coordinate values are much smaller than one. kai, oct'15
-
-		log.info("building QuadTree for nodes: xrange(" + minx + "," + maxx + "); yrange(" + miny + "," + maxy + ")");
-		QuadTree<ActivityFacility> quadTree = new QuadTree<>(minx, miny, maxx, maxy);
-		for (ActivityFacility n : this.facilities.values()) {
-			quadTree.put(n.getCoord().getX(), n.getCoord().getY(), n);
-		}
-		/* assign the quadTree at the very end, when it is complete.
-		 * otherwise, other threads may already start working on an incomplete quadtree
+		tree = builder.build();
+		/* assign the tree at the very end, when it is complete.
+		 * otherwise, other threads may already start working on an incomplete tree
 		 */
-		this.facilitiesQuadTree = quadTree;
-		log.info("Building QuadTree took " + ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds.");
+		this.facilitiesRTree = tree;
+		log.info("Building RTree for " + tree.size() + " facilities took " + ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds.");
+		return tree;
 	}
 	
 
@@ -211,8 +200,9 @@ public class ActivityFacilitiesImpl implements ActivityFacilities, SearchableAct
 	 * @return the closest node found, null if none
 	 */
 	@Override public ActivityFacility getNearestFacility(final Coord coord) {
-		if (this.facilitiesQuadTree == null) { buildQuadTree(); }
-		return this.facilitiesQuadTree.getClosest(coord.getX(), coord.getY());
+		PackedRTree<ActivityFacility> tree = this.facilitiesRTree;
+		if (tree == null) { tree = buildRTree(); }
+		return tree.getNearest(coord.getX(), coord.getY());
 	}
 
 	/**
@@ -223,8 +213,20 @@ public class ActivityFacilitiesImpl implements ActivityFacilities, SearchableAct
 	 * @return all nodes within distance to <code>coord</code>
 	 */
 	@Override public Collection<ActivityFacility> getNearestFacilities(final Coord coord, final double distance) {
-		if (this.facilitiesQuadTree == null) { buildQuadTree(); }
-		return this.facilitiesQuadTree.getDisk(coord.getX(), coord.getY(), distance);
+		PackedRTree<ActivityFacility> tree = this.facilitiesRTree;
+		if (tree == null) { tree = buildRTree(); }
+		return tree.getDisk(coord.getX(), coord.getY(), distance);
+	}
+
+	/**
+	 * finds the <code>k</code> facilities nearest to <code>coord</code>
+	 *
+	 * @return the facilities, ordered by increasing distance to <code>coord</code>
+	 */
+	public List<ActivityFacility> getNearestFacilities(final Coord coord, final int k) {
+		PackedRTree<ActivityFacility> tree = this.facilitiesRTree;
+		if (tree == null) { tree = buildRTree(); }
+		return tree.kNearest(coord.getX(), coord.getY(), k);
 	}
 
 
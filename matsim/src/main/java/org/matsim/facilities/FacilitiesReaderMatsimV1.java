@@ -29,16 +29,21 @@ import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
 import org.matsim.core.utils.io.MatsimXmlParser;
+import org.matsim.core.utils.io.ParallelXmlElementBuilder;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.utils.objectattributes.AttributeConverter;
 import org.matsim.utils.objectattributes.attributable.AttributesXmlReaderDelegate;
 import org.xml.sax.Attributes;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Stack;
 
 /**
  * A reader for facilities-files of MATSim according to <code>facilities_v1.dtd</code>.
+ * <p></p>
+ * With more than one thread, the facilities are built on several threads (see {@link ParallelXmlElementBuilder}),
+ * and added to the container in the order of the file.
  *
  * @author mrieser
  * @author balmermi
@@ -57,10 +62,14 @@ final class FacilitiesReaderMatsimV1 extends MatsimXmlParser {
     private final ActivityFacilities facilities;
     private final ActivityFacilitiesFactory factory;
     private final AttributesXmlReaderDelegate attributesReader = new AttributesXmlReaderDelegate();
-    private ActivityFacility currfacility = null;
-    private ActivityOption curractivity = null;
+    private final Map<Class<?>, AttributeConverter<?>> converters = new HashMap<>();
     private org.matsim.utils.objectattributes.attributable.Attributes currAttributes = null;
 
+    private final int numberOfThreads;
+    /** builds the facilities on the main thread when reading sequentially */
+    private ElementBuilder sequentialBuilder = null;
+    private ParallelXmlElementBuilder<ActivityFacility> parallelBuilder = null;
+
     private final String externalInputCRS;
     private final String targetCRS;
     private CoordinateTransformation coordinateTransformation = new IdentityTransformation();
@@ -69,10 +78,19 @@ final class FacilitiesReaderMatsimV1 extends MatsimXmlParser {
             final String externalInputCRS,
             final String targetCRS,
             final ActivityFacilities facilities) {
+        this(externalInputCRS, targetCRS, facilities, 1);
+    }
+
+    FacilitiesReaderMatsimV1(
+            final String externalInputCRS,
+            final String targetCRS,
+            final ActivityFacilities facilities,
+            final int numberOfThreads) {
         this.externalInputCRS = externalInputCRS;
         this.targetCRS = targetCRS;
         this.facilities = facilities;
         this.factory = this.facilities.getFactory();
+        this.numberOfThreads = numberOfThreads;
         if (externalInputCRS != null && targetCRS != null) {
             this.coordinateTransformation = TransformationFactory.getCoordinateTransformation(externalInputCRS, targetCRS);
             ProjectionUtils.putCRS(this.facilities, targetCRS);
@@ -81,38 +99,55 @@ final class FacilitiesReaderMatsimV1 extends MatsimXmlParser {
 
     public void putAttributeConverter(Class<?> clazz, AttributeConverter<?> converter) {
         this.attributesReader.putAttributeConverter(clazz, converter);
+        this.converters.put(clazz, converter);
     }
 
     public void putAttributeConverters(Map<Class<?>, AttributeConverter<?>> converters) {
         this.attributesReader.putAttributeConverters(converters);
+        this.converters.putAll(converters);
     }
 
     @Override
     public void startTag(final String name, final org.xml.sax.Attributes atts, final Stack<String> context) {
-        if (FACILITIES.equals(name)) {
+        if (this.parallelBuilder != null && this.parallelBuilder.isInElement()) {
+            this.parallelBuilder.startTag(name, atts, context);
+        } else if (this.sequentialBuilder != null && this.sequentialBuilder.facility != null) {
+            this.sequentialBuilder.startTag(name, atts, context);
+        } else if (FACILITIES.equals(name)) {
             startFacilities(atts);
         } else if (FACILITY.equals(name)) {
-            startFacility(atts);
-        } else if (ACTIVITY.equals(name)) {
-            startActivity(atts);
-        } else if (CAPACITY.equals(name)) {
-            startCapacity(atts);
-        } else if (OPENTIME.equals(name)) {
-            startOpentime(atts);
+            // created with the first facility, after the container attributes which may change the coordinate transformation
+            if (this.numberOfThreads > 1) {
+                if (this.parallelBuilder == null) {
+                    this.parallelBuilder = new ParallelXmlElementBuilder<>(this.numberOfThreads, () -> new ElementBuilder(null),
+                            this.facilities::addActivityFacility);
+                }
+                this.parallelBuilder.startTag(name, atts, context);
+            } else {
+                if (this.sequentialBuilder == null) {
+                    this.sequentialBuilder = new ElementBuilder(this.facilities);
+                }
+                this.sequentialBuilder.startTag(name, atts, context);
+            }
         } else if (ATTRIBUTE.equals(name)) {
             this.attributesReader.startTag(name, atts, context, this.currAttributes);
         } else if (ATTRIBUTES.equals(name)) {
-            currAttributes = context.peek().equals(FACILITIES) ? this.facilities.getAttributes() : this.currfacility.getAttributes();
+            currAttributes = this.facilities.getAttributes();
             attributesReader.startTag(name, atts, context, currAttributes);
         }
     }
 
     @Override
     public void endTag(final String name, final String content, final Stack<String> context) {
-        if (FACILITY.equals(name)) {
-            this.currfacility = null;
-        } else if (ACTIVITY.equals(name)) {
-            this.curractivity = null;
+        if (this.parallelBuilder != null && this.parallelBuilder.isInElement()) {
+            this.parallelBuilder.endTag(name, content, context);
+        } else if (this.sequentialBuilder != null && this.sequentialBuilder.facility != null) {
+            this.sequentialBuilder.endTag(name, content, context);
+        } else if (FACILITIES.equals(name)) {
+            if (this.parallelBuilder != null) {
+                this.parallelBuilder.finish();
+                this.parallelBuilder = null;
+            }
         } else if (ATTRIBUTES.equalsIgnoreCase(name)) {
             if (context.peek().equals(FACILITIES)) {
                 String inputCRS = (String) currAttributes.getAttribute(ProjectionUtils.INPUT_CRS_ATT);
@@ -140,54 +175,104 @@ final class FacilitiesReaderMatsimV1 extends MatsimXmlParser {
         }
     }
 
-    private void startFacility(final Attributes atts) {
-        if ( atts.getValue("x") !=null && atts.getValue("y") !=null ) {
-            if (atts.getValue("linkId") !=null) { //both coord and link present
-                this.currfacility =
-                        this.factory.createActivityFacility(
+    /**
+     * Builds a facility including its activity options and attributes.
+     */
+    private final class ElementBuilder implements ParallelXmlElementBuilder.ElementBuilder<ActivityFacility> {
+        /** when reading sequentially, the facilities are added as soon as they are started, as they always were */
+        private final ActivityFacilities container;
+        private final AttributesXmlReaderDelegate attributesReader = new AttributesXmlReaderDelegate();
+        private ActivityFacility facility = null;
+        private ActivityOption curractivity = null;
+        private ActivityFacility lastFacility = null;
+
+        ElementBuilder(final ActivityFacilities container) {
+            this.container = container;
+            this.attributesReader.putAttributeConverters(FacilitiesReaderMatsimV1.this.converters);
+        }
+
+        @Override
+        public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+            if (FACILITY.equals(name)) {
+                startFacility(atts);
+            } else if (ACTIVITY.equals(name)) {
+                startActivity(atts);
+            } else if (CAPACITY.equals(name)) {
+                startCapacity(atts);
+            } else if (OPENTIME.equals(name)) {
+                startOpentime(atts);
+            } else if (ATTRIBUTES.equals(name) || ATTRIBUTE.equals(name)) {
+                this.attributesReader.startTag(name, atts, context, this.facility.getAttributes());
+            }
+        }
+
+        @Override
+        public void endTag(final String name, final String content, final Stack<String> context) {
+            if (FACILITY.equals(name)) {
+                this.lastFacility = this.facility;
+                this.facility = null;
+            } else if (ACTIVITY.equals(name)) {
+                this.curractivity = null;
+            } else if (ATTRIBUTE.equalsIgnoreCase(name)) {
+                this.attributesReader.endTag(name, content, context);
+            }
+        }
+
+        @Override
+        public ActivityFacility getElement() {
+            return this.lastFacility;
+        }
+
+        private void startFacility(final Attributes atts) {
+            if ( atts.getValue("x") !=null && atts.getValue("y") !=null ) {
+                if (atts.getValue("linkId") !=null) { //both coord and link present
+                    this.facility =
+                            factory.createActivityFacility(
+                                    Id.create(atts.getValue("id"), ActivityFacility.class),
+                                    coordinateTransformation.transform(
+                                            new Coord(
+                                                    Double.parseDouble(atts.getValue("x")),
+                                                    Double.parseDouble(atts.getValue("y")))),
+                                    Id.create(atts.getValue("linkId"),Link.class));
+                } else { // only coord present
+                    this.facility =
+                            factory.createActivityFacility(
+                                    Id.create(atts.getValue("id"), ActivityFacility.class),
+                                    coordinateTransformation.transform(
+                                            new Coord(
+                                                    Double.parseDouble(atts.getValue("x")),
+                                                    Double.parseDouble(atts.getValue("y")))));
+                }
+            } else {
+                if (atts.getValue("linkId") !=null) { //only link present
+                this.facility =
+                        factory.createActivityFacility(
                                 Id.create(atts.getValue("id"), ActivityFacility.class),
-                                coordinateTransformation.transform(
-                                        new Coord(
-                                                Double.parseDouble(atts.getValue("x")),
-                                                Double.parseDouble(atts.getValue("y")))),
                                 Id.create(atts.getValue("linkId"),Link.class));
-            } else { // only coord present
-                this.currfacility =
-                        this.factory.createActivityFacility(
-                                Id.create(atts.getValue("id"), ActivityFacility.class),
-                                coordinateTransformation.transform(
-                                        new Coord(
-                                                Double.parseDouble(atts.getValue("x")),
-                                                Double.parseDouble(atts.getValue("y")))));
+                } else { //neither coord nor link present
+                    throw new RuntimeException("Neither coordinate nor linkId are available for facility id "+ atts.getValue("id")+". Aborting....");
+                }
             }
-        } else {
-            if (atts.getValue("linkId") !=null) { //only link present
-            this.currfacility =
-                    this.factory.createActivityFacility(
-                            Id.create(atts.getValue("id"), ActivityFacility.class),
-                            Id.create(atts.getValue("linkId"),Link.class));
-            } else { //neither coord nor link present
-                throw new RuntimeException("Neither coordinate nor linkId are available for facility id "+ atts.getValue("id")+". Aborting....");
+
+            if (this.container != null) {
+                this.container.addActivityFacility(this.facility);
             }
+            ((ActivityFacilityImpl) this.facility).setDesc(atts.getValue("desc"));
         }
 
-        this.facilities.addActivityFacility(this.currfacility);
-        ((ActivityFacilityImpl) this.currfacility).setDesc(atts.getValue("desc"));
-    }
-
-    private void startActivity(final Attributes atts) {
-        this.curractivity = this.factory.createActivityOption(atts.getValue("type"));
-        this.currfacility.addActivityOption(this.curractivity);
-    }
+        private void startActivity(final Attributes atts) {
+            this.curractivity = factory.createActivityOption(atts.getValue("type"));
+            this.facility.addActivityOption(this.curractivity);
+        }
 
-    private void startCapacity(final Attributes atts) {
-        double cap = Double.parseDouble(atts.getValue("value"));
-        this.curractivity.setCapacity(cap);
-    }
+        private void startCapacity(final Attributes atts) {
+            double cap = Double.parseDouble(atts.getValue("value"));
+            this.curractivity.setCapacity(cap);
+        }
 
-    private void startOpentime(final Attributes atts) {
-        this.curractivity.addOpeningTime(new OpeningTimeImpl(Time.parseTime(atts.getValue("start_time")), Time.parseTime(atts.getValue("end_time"))));
+        private void startOpentime(final Attributes atts) {
+            this.curractivity.addOpeningTime(new OpeningTimeImpl(Time.parseTime(atts.getValue("start_time")), Time.parseTime(atts.getValue("end_time"))));
+        }
     }
 
-
 }
@@ -67,6 +67,7 @@ public class MatsimFacilitiesReader extends MatsimXmlParser {
     private final ActivityFacilities facilities;
     private MatsimXmlParser delegate = null;
     private Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+    private int numberOfThreads = 1;
 
     /**
      * Creates a new reader for MATSim facilities files.
@@ -109,6 +110,13 @@ public class MatsimFacilitiesReader extends MatsimXmlParser {
         this.facilities = facilities;
     }
 
+    /**
+     * Sets the number of threads used to build the facilities.  The default is one, i.e. the facilities are read sequentially.
+     */
+    public void setNumberOfThreads(int numberOfThreads) {
+        this.numberOfThreads = numberOfThreads;
+    }
+
     public void putAttributeConverter(Class<?> clazz, AttributeConverter<?> converter) {
         this.attributeConverters.put(clazz, converter);
     }
@@ -132,7 +140,7 @@ public class MatsimFacilitiesReader extends MatsimXmlParser {
         super.setDoctype(doctype);
         // Currently the only facilities-type is v1
         if (FACILITIES_V1.equals(doctype)) {
-            this.delegate = new FacilitiesReaderMatsimV1(this.externalInputCRS, this.targetCRS, this.facilities);
+            this.delegate = new FacilitiesReaderMatsimV1(this.externalInputCRS, this.targetCRS, this.facilities, this.numberOfThreads);
             ((FacilitiesReaderMatsimV1)this.delegate).putAttributeConverters(this.attributeConverters);
             log.info("using facilities_v1-reader.");
         } else {
@@ -208,7 +208,7 @@ public class Events2Snapshot {
 		Collection<String> snapshotFormat = this.config.controler().getSnapshotFormat();
 
 		if (snapshotFormat.contains("transims")) {
-			String snapshotFile = outputDir + "T.veh";
+			String snapshotFile = outputDir + "T.veh.gz";
 			this.visualizer.addSnapshotWriter(new TransimsSnapshotWriter(snapshotFile));
 		}
 		if (snapshotFormat.contains("googleearth")) {
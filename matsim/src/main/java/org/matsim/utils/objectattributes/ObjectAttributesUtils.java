@@ -45,6 +45,10 @@ public final class ObjectAttributesUtils {
 		}
 	}
 	
+	public static Collection<String> getObjectIds(ObjectAttributes attributes) {
+		return Collections.unmodifiableCollection(attributes.attributes.keySet());
+	}
+	
 	public static Collection<String> getAllAttributeNames(ObjectAttributes attributes, final String objectId) {
 		Map<String, Object> map = attributes.attributes.get(objectId);
 		if (map == null) {
@@ -25,6 +25,7 @@ import java.util.Set;
 import org.matsim.api.core.v01.Id;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.withinday.replanning.identifiers.interfaces.AgentSelector;
+import org.matsim.withinday.replanning.identifiers.interfaces.CandidateAgentSelector;
 import org.matsim.withinday.replanning.parallel.ParallelReplanner;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayReplanner;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayReplannerFactory;
@@ -40,6 +41,16 @@ public abstract class WithinDayReplanningModule<T extends WithinDayReplannerFact
 			Id<WithinDayReplanner> id = factory.getId();
 			
 			for (AgentSelector identifier : identifiers) {
+				/*
+				 * If the identifier provides its candidate agents, they are filtered
+				 * in parallel on the replanning threads.
+				 */
+				if (identifier instanceof CandidateAgentSelector) {
+					CandidateAgentSelector candidateAgentSelector = (CandidateAgentSelector) identifier;
+					this.parallelReplanner.addIdentificationTask(candidateAgentSelector, candidateAgentSelector.getCandidateAgentIds(time), id);
+					continue;
+				}
+				
 				for (MobsimAgent withinDayAgent : identifier.getAgentsToReplan(time)) {					
 					ReplanningTask replanningTask = new ReplanningTask(withinDayAgent, id);
 					this.parallelReplanner.addReplanningTask(replanningTask);
@@ -20,6 +20,7 @@
 
 package org.matsim.withinday.replanning.identifiers;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
@@ -28,10 +29,11 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.withinday.mobsim.MobsimDataProvider;
+import org.matsim.withinday.replanning.identifiers.interfaces.CandidateAgentSelector;
 import org.matsim.withinday.replanning.identifiers.interfaces.DuringLegAgentSelector;
 import org.matsim.withinday.replanning.identifiers.tools.LinkReplanningMap;
 
-public class LegPerformingIdentifier extends DuringLegAgentSelector {
+public class LegPerformingIdentifier extends DuringLegAgentSelector implements CandidateAgentSelector {
 
 	private final LinkReplanningMap linkReplanningMap;
 	private final MobsimDataProvider mobsimDataProvider;
@@ -51,11 +53,21 @@ public class LegPerformingIdentifier extends DuringLegAgentSelector {
 		 * Identify those leg performing agents that should be replanned.
 		 * Add them to a set of MobsimAgents.
 		 */
-		for (Id<Person> agentId : this.linkReplanningMap.getLegPerformingAgents()) {
+		for (Id<Person> agentId : this.getCandidateAgentIds(time)) {
 			if (this.applyFilters(agentId, time)) agentsToReplan.add(mapping.get(agentId));
 		}
 		
 		return agentsToReplan;
 	}
+	
+	@Override
+	public Collection<Id<Person>> getCandidateAgentIds(double time) {
+		return this.linkReplanningMap.getLegPerformingAgents();
+	}
+	
+	@Override
+	public MobsimAgent getAgent(Id<Person> agentId) {
+		return this.mobsimDataProvider.getAgent(agentId);
+	}
 
 }
@@ -30,6 +30,9 @@ import org.matsim.api.core.v01.population.Person;
  * structures. Therefore please ensure that the filter result does NOT depend
  * on the order in which agents are processed. If e.g. random numbers are drawn,
  * set a deterministic seed (e.g. agentId.hashCode() + (long) time).
+ * <p></p>
+ * Filters may also be applied by several within-day replanning threads at the
+ * same time, therefore they should not modify any state while filtering.
  *  
  * @author cdobler
  */
@@ -0,0 +1,54 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CandidateAgentSelector.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.withinday.replanning.identifiers.interfaces;
+
+import java.util.Collection;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+
+/**
+ * Implemented by {@link AgentSelector}s which keep the agents that might have to be replanned
+ * up to date by handling events. Their filters are applied on the within-day replanning threads,
+ * each thread handling a part of the candidates, instead of calling
+ * {@link AgentSelector#getAgentsToReplan(double)} on the mobsim thread. Therefore the filters
+ * of such selectors have to be thread-safe.
+ */
+public interface CandidateAgentSelector {
+
+	/**
+	 * Returns the agents which might have to be replanned at the given time before the
+	 * filters have been applied.
+	 */
+	public Collection<Id<Person>> getCandidateAgentIds(double time);
+
+	/**
+	 * Returns the agent with the given Id, which is one of the candidates.
+	 */
+	public MobsimAgent getAgent(Id<Person> agentId);
+
+	/**
+	 * Implemented by {@link AgentSelector#applyFilters(Id, double)}.
+	 */
+	public boolean applyFilters(Id<Person> agentId, double time);
+
+}
@@ -20,9 +20,10 @@
 
 package org.matsim.withinday.replanning.identifiers.tools;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Map.Entry;
+import java.util.NavigableMap;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
@@ -160,23 +161,22 @@ public class LinkReplanningMap implements PersonStuckEventHandler, ActivityStart
 		
 		Set<Id<Person>> set = new HashSet<>();
 		
-		Set<Entry<Double, Set<Id<Person>>>> entries = this.earliestLinkExitTimeProvider.getEarliestLinkExitTimesPerTimeStep().entrySet();
+		/*
+		 * The earliest link exit times are sorted, therefore only the time steps
+		 * matching the filter mode have to be visited.
+		 */
+		NavigableMap<Double, Set<Id<Person>>> earliestLinkExitTimes = this.earliestLinkExitTimeProvider.getEarliestLinkExitTimesPerTimeStep();
 		
-		for (Entry<Double, Set<Id<Person>>> entry : entries) {
-			double earliestLinkExitTime = entry.getKey();
-			
-			// check time
-			if (timeMode == TimeFilterMode.RESTRICTED) {
-				if (time <= earliestLinkExitTime) continue;
-			} else if (timeMode == TimeFilterMode.UNRESTRICTED) {
-				if (time > earliestLinkExitTime) continue;
-			} else {
-				throw new RuntimeException("Unexpected TimeFilterMode was found: " + timeMode.toString());
-			}
-			
-			// non of the checks fails therefore add agents to the set
-			set.addAll(entry.getValue());
+		Collection<Set<Id<Person>>> agents;
+		if (timeMode == TimeFilterMode.RESTRICTED) {
+			agents = earliestLinkExitTimes.headMap(time, false).values();
+		} else if (timeMode == TimeFilterMode.UNRESTRICTED) {
+			agents = earliestLinkExitTimes.tailMap(time, true).values();
+		} else {
+			throw new RuntimeException("Unexpected TimeFilterMode was found: " + timeMode.toString());
 		}
+		
+		for (Set<Id<Person>> agentsAtTime : agents) set.addAll(agentsAtTime);
 
 		return set;
 	}
@@ -0,0 +1,58 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdentificationTask.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.withinday.replanning.parallel;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.withinday.replanning.identifiers.interfaces.CandidateAgentSelector;
+import org.matsim.withinday.replanning.replanners.interfaces.WithinDayReplanner;
+
+/**
+ * The candidate agents of a {@link CandidateAgentSelector} in the current time step. Each
+ * replanning thread applies the selector's filters to its own part of the candidates
+ * and creates the replanning tasks for the agents that pass them.
+ */
+/*package*/ final class IdentificationTask {
+
+	private final CandidateAgentSelector identifier;
+	private final List<Id<Person>> candidateAgentIds;
+	private final Id<WithinDayReplanner> withinDayReplannerId;
+
+	/*package*/ IdentificationTask(CandidateAgentSelector identifier, List<Id<Person>> candidateAgentIds, Id<WithinDayReplanner> withinDayReplannerId) {
+		this.identifier = identifier;
+		this.candidateAgentIds = candidateAgentIds;
+		this.withinDayReplannerId = withinDayReplannerId;
+	}
+
+	/*package*/ CandidateAgentSelector getIdentifier() {
+		return this.identifier;
+	}
+
+	/*package*/ List<Id<Person>> getCandidateAgentIds() {
+		return this.candidateAgentIds;
+	}
+
+	/*package*/ Id<WithinDayReplanner> getWithinDayReplannerId() {
+		return this.withinDayReplannerId;
+	}
+}
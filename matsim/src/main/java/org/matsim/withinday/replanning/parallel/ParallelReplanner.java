@@ -21,9 +21,12 @@
 package org.matsim.withinday.replanning.parallel;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.BrokenBarrierException;
@@ -32,8 +35,11 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.withinday.replanning.identifiers.interfaces.AgentSelector;
+import org.matsim.withinday.replanning.identifiers.interfaces.CandidateAgentSelector;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayReplanner;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayReplannerFactory;
 import org.matsim.withinday.replanning.replanners.tools.ReplanningTask;
@@ -68,6 +74,13 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 	protected String replannerName;
 	protected int roundRobin = 0;
 	private int lastRoundRobin = 0;
+	
+	/*
+	 * Candidate agents of the current time step which are filtered on the replanning
+	 * threads. Only modified by the main thread while the replanning threads are waiting
+	 * at the TimeStepStartBarrier.
+	 */
+	private final List<IdentificationTask> identificationTasks = new ArrayList<>();
 	protected AtomicBoolean hadException;
 	protected ExceptionHandler uncaughtExceptionHandler;
 	protected CyclicBarrier timeStepStartBarrier;
@@ -98,6 +111,7 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 			replanningRunnable.setBetweenReplannerBarrier(betweenReplannerBarrier);
 			replanningRunnable.setCyclicTimeStepEndBarrier(this.timeStepEndBarrier);
 			replanningRunnable.setEventsManager(eventsManager);
+			replanningRunnable.setIdentificationTasks(this.identificationTasks, i, numOfThreads);
 			
 			replanningRunnables[i] = replanningRunnable;
 		}
@@ -171,7 +185,7 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 	 */
 	public final void run(double time) {
 		// no Agents to Replan
-		if (lastRoundRobin == roundRobin) return;
+		if (lastRoundRobin == roundRobin && this.identificationTasks.isEmpty()) return;
 		else lastRoundRobin = roundRobin;
 
 		/*
@@ -180,6 +194,7 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 		 * CyclicBarrier.
 		 */
 		if (hadException.get()) {
+			this.identificationTasks.clear();
 			return;
 		}
 		
@@ -193,6 +208,7 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 
 			this.timeStepEndBarrier.await();
 
+			this.identificationTasks.clear();
 		} catch (InterruptedException e) {
 			throw new RuntimeException(e);
 		} catch (BrokenBarrierException e) {
@@ -212,6 +228,7 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 		// reset counters
 		roundRobin = 0;
 		lastRoundRobin = 0;
+		this.identificationTasks.clear();
 		
 		/*
 		 * Calling the afterSim Method of the QSimEngineThreads
@@ -292,6 +309,17 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 		this.roundRobin++;
 	}
 
+	/**
+	 * The filters of the given identifier are applied to the candidate agents on the
+	 * replanning threads. Each thread handles a part of the candidates. The agents which
+	 * pass the filters are replanned in the same time step.
+	 */
+	public final void addIdentificationTask(CandidateAgentSelector identifier, Collection<Id<Person>> candidateAgentIds,
+			Id<WithinDayReplanner> withinDayReplannerId) {
+		if (candidateAgentIds.isEmpty()) return;
+		this.identificationTasks.add(new IdentificationTask(identifier, new ArrayList<>(candidateAgentIds), withinDayReplannerId));
+	}
+
 	private final void setNumberOfThreads(int numberOfThreads) {
 		numOfThreads = Math.max(numberOfThreads, 1); // it should be at least 1 here; we allow 0 in other places for "no threads"
 
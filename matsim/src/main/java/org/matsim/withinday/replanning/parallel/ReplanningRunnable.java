@@ -22,6 +22,7 @@ package org.matsim.withinday.replanning.parallel;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.mobsim.framework.MobsimAgent;
@@ -29,10 +30,13 @@ import org.matsim.core.utils.misc.Counter;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.withinday.events.ReplanningEvent;
 import org.matsim.withinday.replanning.identifiers.interfaces.AgentSelector;
+import org.matsim.withinday.replanning.identifiers.interfaces.CandidateAgentSelector;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayReplanner;
 import org.matsim.withinday.replanning.replanners.tools.ReplanningTask;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Queue;
@@ -71,6 +75,14 @@ public abstract class ReplanningRunnable implements Runnable {
 	protected Map<Id<WithinDayReplanner>, Queue<ReplanningTask>> replanningTasks = new TreeMap<>();
     protected EventsManager eventsManager;
 	
+	/*
+	 * Candidate agents which are filtered by all replanning threads in parallel. Each
+	 * thread handles the part of the candidates that belongs to its index.
+	 */
+	private List<IdentificationTask> identificationTasks = Collections.emptyList();
+	private int threadIndex = 0;
+	private int numOfThreads = 1;
+	
 	protected CyclicBarrier timeStepStartBarrier;
 	protected CyclicBarrier betweenReplannerBarrier;
 	protected CyclicBarrier timeStepEndBarrier;
@@ -83,6 +95,12 @@ public abstract class ReplanningRunnable implements Runnable {
 		this.eventsManager = eventsManager;
 	}
 	
+	/*package*/ final void setIdentificationTasks(List<IdentificationTask> identificationTasks, int threadIndex, int numOfThreads) {
+		this.identificationTasks = identificationTasks;
+		this.threadIndex = threadIndex;
+		this.numOfThreads = numOfThreads;
+	}
+	
 	public final void setTime(double time) {
 		this.time = time;
 	}
@@ -129,6 +147,35 @@ public abstract class ReplanningRunnable implements Runnable {
 		this.simulationRunning = false;
 	}
 	
+	/*
+	 * Applies the identifiers' filters to this thread's part of the candidate
+	 * agents and creates ReplanningTasks for the agents that pass them.
+	 */
+	private void identifyAgents() throws InterruptedException, BrokenBarrierException {
+
+		if (this.identificationTasks.isEmpty()) return;
+
+		for (IdentificationTask identificationTask : this.identificationTasks) {
+			CandidateAgentSelector identifier = identificationTask.getIdentifier();
+			List<Id<Person>> candidateAgentIds = identificationTask.getCandidateAgentIds();
+			int from = (int) ((long) candidateAgentIds.size() * this.threadIndex / this.numOfThreads);
+			int to = (int) ((long) candidateAgentIds.size() * (this.threadIndex + 1) / this.numOfThreads);
+
+			for (int i = from; i < to; i++) {
+				Id<Person> agentId = candidateAgentIds.get(i);
+				if (identifier.applyFilters(agentId, time)) {
+					this.addReplanningTask(new ReplanningTask(identifier.getAgent(agentId), identificationTask.getWithinDayReplannerId()));
+				}
+			}
+		}
+
+		/*
+		 * Wait here until all Threads have identified their agents. Otherwise an agent
+		 * could be replanned while another Thread is still checking it against its filters.
+		 */
+		this.betweenReplannerBarrier.await();
+	}
+
 	/*
 	 * Typical Replanner Implementations should be able to use 
 	 * this method without any Changes.
@@ -217,6 +264,7 @@ public abstract class ReplanningRunnable implements Runnable {
 					return;
 				}
 				
+				identifyAgents();
 				doReplanning();
 			} catch (InterruptedException | BrokenBarrierException e) {
 				throw new RuntimeException(e);
@@ -23,8 +23,10 @@ package org.matsim.withinday.trafficmonitoring;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -79,7 +81,11 @@ public class EarliestLinkExitTimeProvider implements LinkEnterEventHandler, Link
 	private final TravelTime freeSpeedTravelTime;
 
 	private final Map<Id<Person>, Double> earliestLinkExitTimes = new ConcurrentHashMap<>();
-	private final Map<Double, Set<Id<Person>>> earliestLinkExitTimesPerTimeStep = new ConcurrentHashMap<>();
+	/*
+	 * Sorted by time, so agents whose earliest link exit time is before or after a given
+	 * time can be looked up as a range instead of checking every time step.
+	 */
+	private final NavigableMap<Double, Set<Id<Person>>> earliestLinkExitTimesPerTimeStep = new ConcurrentSkipListMap<>();
 
 	private Vehicle2DriverEventHandler delegate = new Vehicle2DriverEventHandler();
 
@@ -118,8 +124,8 @@ public class EarliestLinkExitTimeProvider implements LinkEnterEventHandler, Link
 		else return null;
 	}
 
-	public Map<Double, Set<Id<Person>>> getEarliestLinkExitTimesPerTimeStep() {
-		return Collections.unmodifiableMap(this.earliestLinkExitTimesPerTimeStep);
+	public NavigableMap<Double, Set<Id<Person>>> getEarliestLinkExitTimesPerTimeStep() {
+		return Collections.unmodifiableNavigableMap(this.earliestLinkExitTimesPerTimeStep);
 	}
 
 	@Override
@@ -1,10 +1,10 @@
 /* *********************************************************************** *
  * project: org.matsim.*
- * TravelTimeInfoProvider.java
+ * LinkTravelTimeChangeListener.java
  *                                                                         *
  * *********************************************************************** *
  *                                                                         *
- * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
  *                   LICENSE and WARRANTY file.                            *
  * email           : info at matsim dot org                                *
  *                                                                         *
@@ -20,15 +20,22 @@
 
 package org.matsim.withinday.trafficmonitoring;
 
-import org.matsim.api.core.v01.Id;
+import java.util.Collection;
+
 import org.matsim.api.core.v01.network.Link;
-import org.matsim.withinday.trafficmonitoring.WithinDayTravelTime.TravelTimeInfo;
 
-public interface TravelTimeInfoProvider {
-	
-	/*package*/ TravelTimeInfo getTravelTimeInfo(final Id<Link> linkId);
-	
-	/*package*/ TravelTimeInfo getTravelTimeInfo(final Link link);
-	// needs to be available separately since sometimes calling
-	// with the link argument is faster. kai, dec'17
+/**
+ * Is told by {@link WithinDayTravelTime} which links got a different expected
+ * travel time.
+ */
+public interface LinkTravelTimeChangeListener {
+
+	/**
+	 * Called by the mobsim thread after the travel times have been updated.
+	 *
+	 * @param changedLinks the links whose travel time changed; only valid during the call
+	 * @param time the simulation time of the update
+	 */
+	void notifyLinkTravelTimesChanged(Collection<? extends Link> changedLinks, double time);
+
 }
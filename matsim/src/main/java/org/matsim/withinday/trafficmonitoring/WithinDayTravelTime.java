@@ -21,6 +21,7 @@
 package org.matsim.withinday.trafficmonitoring;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -31,8 +32,8 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -74,6 +75,16 @@ import org.matsim.vehicles.Vehicle;
 /**
  * Collects link travel times over a given time span (storedTravelTimesBinSize)
  * and calculates an average travel time over this time span.
+ * <p></p>
+ * The state is kept in arrays indexed by {@link Id#index()} of the links and
+ * vehicles, and the trips on a link in primitive ring buffers, so no objects
+ * are created per trip.  The expected travel times are published in an
+ * {@link AtomicLongArray}, so routing threads read them without locking and
+ * always see a complete value, while the update threads write them.
+ * <p></p>
+ * {@link LinkTravelTimeChangeListener}s are told after each update which links
+ * got a different expected travel time, so e.g. shortest path trees can be
+ * repaired instead of being rebuilt.
  * 
  * TODO:
  * - make storedTravelTimesBinSize configurable (e.g. via config)
@@ -91,11 +102,14 @@ public class WithinDayTravelTime implements TravelTime,
 
 	private Network network;
 
-	// Trips with no Activity on the current Link
-	private Map<Id<Vehicle>, TripBin> regularActiveTrips; // VehicleId
-	private Map<Id<Link>, TravelTimeInfo> travelTimeInfos; // LinkId
-	
-	private TravelTimeInfoProvider travelTimeInfoProvider;
+	// Trips with no Activity on the current Link: the time the vehicle entered the link, or NaN; indexed by Id.index() of the vehicle
+	private double[] linkEnterTimes;
+	private TravelTimeInfo[] travelTimeInfos; // indexed by Id.index() of the link
+	// the raw long bits of the expected travel times, indexed by Id.index() of the link
+	private AtomicLongArray travelTimes;
+	private Link[] links; // indexed by Id.index() of the link
+
+	private final List<LinkTravelTimeChangeListener> changeListeners = new ArrayList<>();
 
 	// Links that are changed by network change events
 	private TreeMap<Double, Map<Link,Double>> changedLinksByTime;
@@ -112,7 +126,7 @@ public class WithinDayTravelTime implements TravelTime,
 	private final int infoTimeStep = 3600;
 	private int nextInfoTime = 0;
 	
-	private Set<Id<Vehicle>> vehiclesToFilter;
+	private boolean[] vehiclesToFilter; // indexed by Id.index() of the vehicle
 	private final Set<String> analyzedModes;
 	private final boolean filterModes;
 
@@ -148,25 +162,25 @@ public class WithinDayTravelTime implements TravelTime,
 	}
 
 	private void init() {
-		this.regularActiveTrips = new HashMap<>();
-		this.travelTimeInfos = new ConcurrentHashMap<>();
+		this.linkEnterTimes = new double[0];
 		this.changedLinksByTime = new TreeMap<>();
-		this.vehiclesToFilter = new HashSet<>();
+		this.vehiclesToFilter = new boolean[0];
 		
 		// one TravelTimeInfo per link:
+		int maxLinkIndex = -1;
+		for (Id<Link> linkId : this.network.getLinks().keySet()) {
+			maxLinkIndex = Math.max(maxLinkIndex, linkId.index());
+		}
+		this.travelTimeInfos = new TravelTimeInfo[maxLinkIndex + 1];
+		this.travelTimes = new AtomicLongArray(maxLinkIndex + 1);
+		this.links = new Link[maxLinkIndex + 1];
 		for (Link link : this.network.getLinks().values()) {
-			TravelTimeInfo travelTimeInfo = new TravelTimeInfo();
-			this.travelTimeInfos.put(link.getId(), travelTimeInfo);
+			int index = link.getId().index();
+			this.links[index] = link;
+			this.travelTimeInfos[index] = new TravelTimeInfo(index, this.travelTimes);
+			this.travelTimeInfos[index].setTravelTime(Double.MAX_VALUE);
 		}
 		
-		/*
-		 * If no RoutingNetwork is used, ArrayBasedTravelTimeInfoProvider uses 
-		 * a MapBasedTravelTimeInfoProvider as fall back solution. This increases 
-		 * routing times of a AStarLandmarks router by ~5%.
-		 */
-//		this.travelTimeInfoProvider = new MapBasedTravelTimeInfoProvider(this.travelTimeInfos);
-		this.travelTimeInfoProvider = new ArrayBasedTravelTimeInfoProvider(this.travelTimeInfos, this.network);
-		
 		/*
 		 * If the network is time variant, we have to update the link parameters
 		 * according to the network change events.
@@ -226,10 +240,22 @@ public class WithinDayTravelTime implements TravelTime,
 		this.addNetworkChangeEventToLocalDataStructure(networkChangeEvent);
 	}
 
+	/**
+	 * The listeners are notified by the mobsim thread, when the free speed travel
+	 * times are set after the mobsim was initialized and after each update of the
+	 * travel times in which at least one link got a different travel time.
+	 */
+	public final void addLinkTravelTimeChangeListener(LinkTravelTimeChangeListener listener) {
+		this.changeListeners.add(listener);
+	}
+
+	public final void removeLinkTravelTimeChangeListener(LinkTravelTimeChangeListener listener) {
+		this.changeListeners.remove(listener);
+	}
+
 	@Override
 	public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
-		final double travelTime = this.travelTimeInfoProvider.getTravelTimeInfo(link).travelTime;
-		return travelTime;
+		return Double.longBitsToDouble(this.travelTimes.get(link.getId().index()));
 	}
 	
 	@Override
@@ -250,31 +276,26 @@ public class WithinDayTravelTime implements TravelTime,
 		 * If only some modes are analyzed, we check whether the vehicle
 		 * performs a trip with one of those modes. if not, we skip the event.
 		 */
-		if (filterModes && vehiclesToFilter.contains(event.getVehicleId())) return;
+		int vehicleIndex = event.getVehicleId().index();
+		if (filterModes && vehicleIndex < this.vehiclesToFilter.length && this.vehiclesToFilter[vehicleIndex]) return;
 		
-		Id<Vehicle> vehicleId = event.getVehicleId();
-		double time = event.getTime();
-
-		TripBin tripBin = new TripBin();
-		tripBin.enterTime = time;
-
-		this.regularActiveTrips.put(vehicleId, tripBin);
+		if (vehicleIndex >= this.linkEnterTimes.length) {
+			int oldLength = this.linkEnterTimes.length;
+			this.linkEnterTimes = Arrays.copyOf(this.linkEnterTimes, Math.max(vehicleIndex + 1, 2 * oldLength));
+			Arrays.fill(this.linkEnterTimes, oldLength, this.linkEnterTimes.length, Double.NaN);
+		}
+		this.linkEnterTimes[vehicleIndex] = event.getTime();
 	}
 
 	@Override
 	public void handleEvent(LinkLeaveEvent event) {
-		Id<Link> linkId = event.getLinkId();
-		Id<Vehicle> vehicleId = event.getVehicleId();
-		double time = event.getTime();
-
-		TripBin tripBin = this.regularActiveTrips.remove(vehicleId);
-		if (tripBin != null) {
-			tripBin.leaveTime = time;
+		double enterTime = removeActiveTrip(event.getVehicleId());
+		if (!Double.isNaN(enterTime)) {
+			double leaveTime = event.getTime();
+			double tripTime = leaveTime - enterTime;
 
-			double tripTime = tripBin.leaveTime - tripBin.enterTime;
-
-			TravelTimeInfo travelTimeInfo = this.travelTimeInfoProvider.getTravelTimeInfo(linkId);
-			travelTimeInfo.tripBins.add(tripBin);
+			TravelTimeInfo travelTimeInfo = this.travelTimeInfos[event.getLinkId().index()];
+			travelTimeInfo.addTrip(leaveTime, tripTime);
 			travelTimeInfo.addedTravelTimes += tripTime;
 			travelTimeInfo.addedTrips++;
 
@@ -299,12 +320,22 @@ public class WithinDayTravelTime implements TravelTime,
 	 */
 	@Override
 	public void handleEvent(VehicleLeavesTrafficEvent event) {
-		Id<Vehicle> vehicleId = event.getVehicleId();
-
-		this.regularActiveTrips.remove(vehicleId);
+		removeActiveTrip(event.getVehicleId());
 		
 		// try to remove vehicle from set with filtered vehicles
-		if (filterModes) this.vehiclesToFilter.remove(event.getVehicleId());
+		int vehicleIndex = event.getVehicleId().index();
+		if (filterModes && vehicleIndex < this.vehiclesToFilter.length) this.vehiclesToFilter[vehicleIndex] = false;
+	}
+
+	/**
+	 * @return the time the vehicle entered its current link, or NaN if it has no active trip
+	 */
+	private double removeActiveTrip(Id<Vehicle> vehicleId) {
+		int vehicleIndex = vehicleId.index();
+		if (vehicleIndex >= this.linkEnterTimes.length) return Double.NaN;
+		double enterTime = this.linkEnterTimes[vehicleIndex];
+		this.linkEnterTimes[vehicleIndex] = Double.NaN;
+		return enterTime;
 	}
 
 	@Override
@@ -314,7 +345,13 @@ public class WithinDayTravelTime implements TravelTime,
 		 * starts a leg on a non analyzed transport mode, add the vehicle
 		 * to the filtered vehicles set.
 		 */
-		if (filterModes && !analyzedModes.contains(event.getNetworkMode())) this.vehiclesToFilter.add(event.getVehicleId());
+		if (filterModes && !analyzedModes.contains(event.getNetworkMode())) {
+			int vehicleIndex = event.getVehicleId().index();
+			if (vehicleIndex >= this.vehiclesToFilter.length) {
+				this.vehiclesToFilter = Arrays.copyOf(this.vehiclesToFilter, Math.max(vehicleIndex + 1, 2 * this.vehiclesToFilter.length));
+			}
+			this.vehiclesToFilter[vehicleIndex] = true;
+		}
 	}
 	
 	/*
@@ -324,8 +361,9 @@ public class WithinDayTravelTime implements TravelTime,
 	public void notifyMobsimInitialized(MobsimInitializedEvent e) {
 		problem = false ;
 
+		double simStartTime = 0.0;
 		if (e.getQueueSimulation() instanceof QSim) {
-			double simStartTime = ((QSim) e.getQueueSimulation()).getSimTimer().getSimStartTime();
+			simStartTime = ((QSim) e.getQueueSimulation()).getSimTimer().getSimStartTime();
 
 			/*
 			 * infoTime may be < simStartTime, this ensures to print 
@@ -338,13 +376,18 @@ public class WithinDayTravelTime implements TravelTime,
 		for (Link link : this.network.getLinks().values()) {
 			double freeSpeedTravelTime = link.getLength() / link.getFreespeed(Time.UNDEFINED_TIME);
 
-			TravelTimeInfo travelTimeInfo = this.travelTimeInfoProvider.getTravelTimeInfo(link);
-			travelTimeInfo.travelTime = freeSpeedTravelTime;
+			TravelTimeInfo travelTimeInfo = this.travelTimeInfos[link.getId().index()];
+			travelTimeInfo.setTravelTime(freeSpeedTravelTime);
 			travelTimeInfo.init(freeSpeedTravelTime);
 		}
 
 		// Now initialize the Parallel Update Threads
 		initParallelThreads();
+
+		// all travel times have been reset to the free speed travel times
+		for (LinkTravelTimeChangeListener listener : this.changeListeners) {
+			listener.notifyLinkTravelTimesChanged(this.network.getLinks().values(), simStartTime);
+		}
 	}
 
 	// Update Link TravelTimeInfos if link attributes have changed
@@ -371,7 +414,7 @@ public class WithinDayTravelTime implements TravelTime,
 									  "; network change event for link=" + link.getId() +
 									  "; new ttime="+ freeSpeedTravelTime );
 				}
-				TravelTimeInfo travelTimeInfo = this.travelTimeInfoProvider.getTravelTimeInfo(link);
+				TravelTimeInfo travelTimeInfo = this.travelTimeInfos[link.getId().index()];
 				travelTimeInfo.init(freeSpeedTravelTime);
 				travelTimeInfo.checkActiveState();	// ensure that the estimated link travel time is updated
 			}
@@ -385,7 +428,7 @@ public class WithinDayTravelTime implements TravelTime,
 //									  ";\tnetwork change event for link=" + link.getId() +
 //									  ";\tnew ttime="+ freeSpeedTravelTime );
 //				}
-//				TravelTimeInfo travelTimeInfo = this.travelTimeInfoProvider.getTravelTimeInfo(link);
+//				TravelTimeInfo travelTimeInfo = this.travelTimeInfos[link.getId().index()];
 //				travelTimeInfo.init(freeSpeedTravelTime);
 //				travelTimeInfo.checkActiveState();	// ensure that the estimated link travel time is updated
 //			}
@@ -443,15 +486,20 @@ public class WithinDayTravelTime implements TravelTime,
 		}
 	}
 
-	private static class TripBin {
-		double enterTime;
-		double leaveTime;
-	}
-
 	/*package*/ static class TravelTimeInfo {
 
+		final int index;
+		final AtomicLongArray travelTimes;
 		UpdateMeanTravelTimesRunnable runnable;
-		List<TripBin> tripBins = new ArrayList<>();
+
+		/*
+		 * The trips on the link in the order they left it, as a ring buffer
+		 * of their leave times and travel times.
+		 */
+		double[] tripLeaveTimes = new double[4];
+		double[] tripTravelTimes = new double[4];
+		int firstTrip = 0;
+		int numberOfTrips = 0;
 
 		boolean isActive = false;
 		// int numActiveTrips = 0;
@@ -460,13 +508,55 @@ public class WithinDayTravelTime implements TravelTime,
 		double sumTravelTimes = 0.0; // We cache the sum of the TravelTimes
 
 		double freeSpeedTravelTime = Double.MAX_VALUE; // We cache the FreeSpeedTravelTimes
-		double travelTime = Double.MAX_VALUE; 
 
 		double dynamicBinSize = 0.0; // size of the time window that is taken into account
 
 		static Counter enlarge = new Counter("WithinDayTravelTime: enlarged time bin size: ");
 		static Counter shrink = new Counter("WithinDayTravelTime: shrunk time bin size: ");
 
+		/*package*/ TravelTimeInfo(int index, AtomicLongArray travelTimes) {
+			this.index = index;
+			this.travelTimes = travelTimes;
+		}
+
+		/*package*/ void setTravelTime(double travelTime) {
+			this.travelTimes.set(this.index, Double.doubleToRawLongBits(travelTime));
+		}
+
+		/**
+		 * @return whether the published travel time differs from the previous one
+		 */
+		/*package*/ boolean updateTravelTime(double travelTime) {
+			long bits = Double.doubleToRawLongBits(travelTime);
+			return this.travelTimes.getAndSet(this.index, bits) != bits;
+		}
+
+		/*package*/ void addTrip(double leaveTime, double tripTime) {
+			if (this.numberOfTrips == this.tripLeaveTimes.length) {
+				int length = 2 * this.tripLeaveTimes.length;
+				this.tripLeaveTimes = unwrap(this.tripLeaveTimes, length);
+				this.tripTravelTimes = unwrap(this.tripTravelTimes, length);
+				this.firstTrip = 0;
+			}
+			int i = (this.firstTrip + this.numberOfTrips) % this.tripLeaveTimes.length;
+			this.tripLeaveTimes[i] = leaveTime;
+			this.tripTravelTimes[i] = tripTime;
+			this.numberOfTrips++;
+		}
+
+		private double[] unwrap(double[] ring, int length) {
+			double[] array = new double[length];
+			int tail = Math.min(this.numberOfTrips, ring.length - this.firstTrip);
+			System.arraycopy(ring, this.firstTrip, array, 0, tail);
+			System.arraycopy(ring, 0, array, tail, this.numberOfTrips - tail);
+			return array;
+		}
+
+		/*package*/ void removeFirstTrip() {
+			this.firstTrip = (this.firstTrip + 1) % this.tripLeaveTimes.length;
+			this.numberOfTrips--;
+		}
+
 		/*package*/ void init(double freeSpeedTravelTime) {
 			this.freeSpeedTravelTime = freeSpeedTravelTime;
 			this.dynamicBinSize = freeSpeedTravelTime * 2.5;
@@ -508,8 +598,10 @@ public class WithinDayTravelTime implements TravelTime,
 
 		try {
 			// set current Time
+			boolean recordChanges = !this.changeListeners.isEmpty();
 			for (UpdateMeanTravelTimesRunnable updateMeanTravelTimesRunnable : updateMeanTravelTimesRunnables) {
 				updateMeanTravelTimesRunnable.setTime(time);
+				updateMeanTravelTimesRunnable.setRecordChanges(recordChanges);
 			}
 
 			this.startBarrier.await();
@@ -518,6 +610,27 @@ public class WithinDayTravelTime implements TravelTime,
 		} catch (InterruptedException | BrokenBarrierException e) {
 			throw new RuntimeException(e);
 		}
+
+		if (!this.changeListeners.isEmpty()) notifyChangeListeners(time);
+	}
+
+	/*
+	 * Collects the links whose travel time was changed by the update threads.
+	 * The endBarrier ensures that their lists are visible here.
+	 */
+	private void notifyChangeListeners(double time) {
+		List<Link> changedLinks = new ArrayList<>();
+		for (UpdateMeanTravelTimesRunnable runnable : this.updateMeanTravelTimesRunnables) {
+			for (TravelTimeInfo travelTimeInfo : runnable.changedTravelTimeInfos) {
+				changedLinks.add(this.links[travelTimeInfo.index]);
+			}
+			runnable.changedTravelTimeInfos.clear();
+		}
+		if (changedLinks.isEmpty()) return;
+
+		for (LinkTravelTimeChangeListener listener : this.changeListeners) {
+			listener.notifyLinkTravelTimesChanged(changedLinks, time);
+		}
 	}
 
 	private void initParallelThreads() {
@@ -547,7 +660,8 @@ public class WithinDayTravelTime implements TravelTime,
 		 * Assign the TravelTimeInfos to the Threads
 		 */
 		int roundRobin = 0;
-		for (TravelTimeInfo travelTimeInfo : this.travelTimeInfos.values()) {
+		for (TravelTimeInfo travelTimeInfo : this.travelTimeInfos) {
+			if (travelTimeInfo == null) continue;
 			travelTimeInfo.runnable = updateMeanTravelTimesRunnables[roundRobin % numOfThreads];
 			roundRobin++;
 		}
@@ -577,6 +691,10 @@ public class WithinDayTravelTime implements TravelTime,
 		private double time = Time.UNDEFINED_TIME;
 		private Collection<TravelTimeInfo> activeTravelTimeInfos;
 
+		// the infos whose travel time was changed in the current time step, only filled if recordChanges is set
+		private final List<TravelTimeInfo> changedTravelTimeInfos = new ArrayList<>();
+		private boolean recordChanges = false;
+
 		public UpdateMeanTravelTimesRunnable() {
 			activeTravelTimeInfos = new ArrayList<>();
 		}
@@ -593,6 +711,16 @@ public class WithinDayTravelTime implements TravelTime,
 			time = t;
 		}
 
+		public void setRecordChanges(final boolean recordChanges) {
+			this.recordChanges = recordChanges;
+		}
+
+		private void setTravelTime(TravelTimeInfo travelTimeInfo, double travelTime) {
+			if (travelTimeInfo.updateTravelTime(travelTime) && this.recordChanges) {
+				this.changedTravelTimeInfos.add(travelTimeInfo);
+			}
+		}
+
 		public void addTravelTimeInfo(TravelTimeInfo travelTimeInfo) {
 			this.activeTravelTimeInfos.add(travelTimeInfo);
 		}
@@ -642,9 +770,9 @@ public class WithinDayTravelTime implements TravelTime,
 						 * we deactivate the link and ensure that its expected
 						 * travel time is its free speed travel time.
 						 */
-						if (travelTimeInfo.tripBins.size() == 0) {
+						if (travelTimeInfo.numberOfTrips == 0) {
 							travelTimeInfo.isActive = false;
-							travelTimeInfo.travelTime = travelTimeInfo.freeSpeedTravelTime;
+							setTravelTime(travelTimeInfo, travelTimeInfo.freeSpeedTravelTime);
 							iter.remove();
 						}
 					}
@@ -658,17 +786,11 @@ public class WithinDayTravelTime implements TravelTime,
 		private void calcBinTravelTime(double time, TravelTimeInfo travelTimeInfo) {
 			double removedTravelTimes = 0.0;
 
-			List<TripBin> tripBins = travelTimeInfo.tripBins;
-
 			// first remove old TravelTimes
-			Iterator<TripBin> iter = tripBins.iterator();
-			while (iter.hasNext()) {
-				TripBin tripBin = iter.next();
-				if (tripBin.leaveTime + travelTimeInfo.dynamicBinSize < time) {
-					double travelTime = tripBin.leaveTime - tripBin.enterTime;
-					removedTravelTimes += travelTime;
-					iter.remove();
-				} else break;
+			while (travelTimeInfo.numberOfTrips > 0
+					&& travelTimeInfo.tripLeaveTimes[travelTimeInfo.firstTrip] + travelTimeInfo.dynamicBinSize < time) {
+				removedTravelTimes += travelTimeInfo.tripTravelTimes[travelTimeInfo.firstTrip];
+				travelTimeInfo.removeFirstTrip();
 			}
 
 			/*
@@ -688,14 +810,14 @@ public class WithinDayTravelTime implements TravelTime,
 			 * Ensure that we don't allow TravelTimes shorter than the FreeSpeedTravelTime.
 			 */
 			double meanTravelTime = travelTimeInfo.freeSpeedTravelTime;
-			if (!tripBins.isEmpty()) meanTravelTime = travelTimeInfo.sumTravelTimes / tripBins.size();
+			if (travelTimeInfo.numberOfTrips > 0) meanTravelTime = travelTimeInfo.sumTravelTimes / travelTimeInfo.numberOfTrips;
 
 			if (meanTravelTime < travelTimeInfo.freeSpeedTravelTime) {
 //				log.warn("Mean TravelTime too short?");
 				// can happen when network change event came in with lower speed. kai, feb'18
-				travelTimeInfo.travelTime = travelTimeInfo.freeSpeedTravelTime;
+				setTravelTime(travelTimeInfo, travelTimeInfo.freeSpeedTravelTime);
 			} else {
-				travelTimeInfo.travelTime = meanTravelTime;
+				setTravelTime(travelTimeInfo, meanTravelTime);
 			}
 		}
 
@@ -0,0 +1,350 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DynamicShortestPathTrees.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.withinday.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.priorityqueue.BinaryMinHeap;
+import org.matsim.core.router.priorityqueue.HasIndex;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.withinday.trafficmonitoring.LinkTravelTimeChangeListener;
+import org.matsim.withinday.trafficmonitoring.WithinDayTravelTime;
+
+/**
+ * A {@link LeastCostPathCalculator} for within-day replanning that keeps a
+ * shortest path tree towards each of the most recently used destinations.
+ * A query only follows the tree from the start node, and when it is registered
+ * at the {@link WithinDayTravelTime} (see {@link #addTo(WithinDayTravelTime)}),
+ * the trees are repaired incrementally for the links whose travel time
+ * changed, instead of routing every replanned agent from scratch.
+ * <p></p>
+ * The trees are built with the link costs of the time they were last changed,
+ * without a person or vehicle. This matches the within-day travel times, which
+ * only know the current state of the network, but not a time or person dependent
+ * travel disutility. The returned paths are evaluated with the given start time,
+ * person and vehicle, like the ones of the other routers.
+ * <p></p>
+ * Queries may run in parallel, e.g. from the threads of the
+ * {@link org.matsim.withinday.replanning.parallel.ParallelDuringLegReplanner},
+ * building and repairing trees is done exclusively.
+ */
+public final class DynamicShortestPathTrees implements LeastCostPathCalculator, LinkTravelTimeChangeListener {
+
+	/*
+	 * If more links changed, the trees are dropped and rebuilt when they are
+	 * queried, since repairing them would touch most of the nodes anyway.
+	 */
+	private static final double REBUILD_SHARE = 0.25;
+
+	private final TravelTime travelTime;
+	private final TravelDisutility travelDisutility;
+	private final int maxNumberOfTrees;
+	private final int numberOfLinks;
+
+	// the network as arrays, indexed by Id.index() of the nodes respectively links
+	private final Link[][] inLinks;
+	private final Link[][] outLinks;
+	private final double[] linkCosts;
+	private boolean linkCostsInitialized = false;
+
+	private final Map<Id<Node>, Tree> trees = new HashMap<>();
+	private final AtomicLong clock = new AtomicLong();
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// only used while holding the write lock
+	private final BinaryMinHeap<NodeEntry> heap;
+	private final NodeEntry[] nodeEntries;
+	private final boolean[] affected;
+
+	public DynamicShortestPathTrees(Network network, TravelDisutility travelDisutility, TravelTime travelTime, int maxNumberOfTrees) {
+		this.travelDisutility = travelDisutility;
+		this.travelTime = travelTime;
+		if (maxNumberOfTrees < 1) throw new IllegalArgumentException("at least one tree has to be kept, but got " + maxNumberOfTrees);
+		this.maxNumberOfTrees = maxNumberOfTrees;
+		this.numberOfLinks = network.getLinks().size();
+
+		int maxNodeIndex = -1;
+		for (Id<Node> nodeId : network.getNodes().keySet()) {
+			maxNodeIndex = Math.max(maxNodeIndex, nodeId.index());
+		}
+		int maxLinkIndex = -1;
+		for (Id<Link> linkId : network.getLinks().keySet()) {
+			maxLinkIndex = Math.max(maxLinkIndex, linkId.index());
+		}
+
+		this.inLinks = new Link[maxNodeIndex + 1][];
+		this.outLinks = new Link[maxNodeIndex + 1][];
+		this.nodeEntries = new NodeEntry[maxNodeIndex + 1];
+		for (Node node : network.getNodes().values()) {
+			int index = node.getId().index();
+			this.inLinks[index] = toArray(node.getInLinks().values());
+			this.outLinks[index] = toArray(node.getOutLinks().values());
+			this.nodeEntries[index] = new NodeEntry(index);
+		}
+		this.linkCosts = new double[maxLinkIndex + 1];
+		this.affected = new boolean[maxNodeIndex + 1];
+		this.heap = new BinaryMinHeap<>(maxNodeIndex + 1);
+	}
+
+	private static Link[] toArray(Collection<? extends Link> links) {
+		Link[] array = new Link[links.size()];
+		int i = 0;
+		for (Link link : links) {
+			array[i++] = link;
+		}
+		return array;
+	}
+
+	/**
+	 * Registers the trees at the travel time, so they are repaired whenever
+	 * travel times change.
+	 */
+	public DynamicShortestPathTrees addTo(WithinDayTravelTime withinDayTravelTime) {
+		withinDayTravelTime.addLinkTravelTimeChangeListener(this);
+		return this;
+	}
+
+	@Override
+	public Path calcLeastCostPath(Node fromNode, Node toNode, double starttime, Person person, Vehicle vehicle) {
+		Tree tree = getTree(toNode, starttime);
+		try {
+			tree.lastUsed = this.clock.incrementAndGet();
+
+			int index = fromNode.getId().index();
+			if (tree.costs[index] == Double.POSITIVE_INFINITY) return null;
+
+			List<Node> nodes = new ArrayList<>();
+			List<Link> links = new ArrayList<>();
+			nodes.add(fromNode);
+			double time = starttime;
+			double cost = 0.0;
+			Link link = tree.nextLinks[index];
+			while (link != null) {
+				cost += this.travelDisutility.getLinkTravelDisutility(link, time, person, vehicle);
+				time += this.travelTime.getLinkTravelTime(link, time, person, vehicle);
+				links.add(link);
+				nodes.add(link.getToNode());
+				link = tree.nextLinks[link.getToNode().getId().index()];
+			}
+			return new Path(nodes, links, time - starttime, cost);
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/*
+	 * Returns the tree towards the node while holding the read lock.
+	 */
+	private Tree getTree(Node toNode, double time) {
+		this.lock.readLock().lock();
+		Tree tree = this.trees.get(toNode.getId());
+		if (tree != null) return tree;
+
+		this.lock.readLock().unlock();
+		this.lock.writeLock().lock();
+		try {
+			tree = this.trees.get(toNode.getId());
+			if (tree == null) {
+				if (!this.linkCostsInitialized) updateAllLinkCosts(time);
+				if (this.trees.size() >= this.maxNumberOfTrees) removeLeastRecentlyUsedTree();
+				tree = new Tree(toNode.getId().index(), this.nodeEntries.length);
+				buildTree(tree);
+				this.trees.put(toNode.getId(), tree);
+			}
+			// downgrade
+			this.lock.readLock().lock();
+			return tree;
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	private void removeLeastRecentlyUsedTree() {
+		Id<Node> leastRecentlyUsed = null;
+		long lastUsed = Long.MAX_VALUE;
+		for (Map.Entry<Id<Node>, Tree> entry : this.trees.entrySet()) {
+			if (entry.getValue().lastUsed < lastUsed) {
+				leastRecentlyUsed = entry.getKey();
+				lastUsed = entry.getValue().lastUsed;
+			}
+		}
+		this.trees.remove(leastRecentlyUsed);
+	}
+
+	@Override
+	public void notifyLinkTravelTimesChanged(Collection<? extends Link> changedLinks, double time) {
+		this.lock.writeLock().lock();
+		try {
+			if (!this.linkCostsInitialized || changedLinks.size() > REBUILD_SHARE * this.numberOfLinks) {
+				updateAllLinkCosts(time);
+				this.trees.clear();
+				return;
+			}
+
+			List<Link> increased = new ArrayList<>();
+			List<Link> decreased = new ArrayList<>();
+			for (Link link : changedLinks) {
+				int index = link.getId().index();
+				double cost = this.travelDisutility.getLinkTravelDisutility(link, time, null, null);
+				if (cost > this.linkCosts[index]) increased.add(link);
+				else if (cost < this.linkCosts[index]) decreased.add(link);
+				this.linkCosts[index] = cost;
+			}
+			if (increased.isEmpty() && decreased.isEmpty()) return;
+
+			for (Tree tree : this.trees.values()) {
+				repairTree(tree, increased, decreased);
+			}
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	private void updateAllLinkCosts(double time) {
+		for (Link[] links : this.outLinks) {
+			if (links == null) continue;
+			for (Link link : links) {
+				this.linkCosts[link.getId().index()] = this.travelDisutility.getLinkTravelDisutility(link, time, null, null);
+			}
+		}
+		this.linkCostsInitialized = true;
+	}
+
+	private void buildTree(Tree tree) {
+		Arrays.fill(tree.costs, Double.POSITIVE_INFINITY);
+		tree.costs[tree.destination] = 0.0;
+		this.heap.add(this.nodeEntries[tree.destination], 0.0);
+		expand(tree);
+	}
+
+	/*
+	 * Increased costs of tree links invalidate the subtrees behind them: their
+	 * nodes are reset and get the best label via a link to a node outside of
+	 * the invalidated subtrees.  Decreased costs can only improve the node
+	 * the link starts at.  Both then are propagated with a backward Dijkstra.
+	 */
+	private void repairTree(Tree tree, List<Link> increased, List<Link> decreased) {
+		List<Integer> affectedNodes = new ArrayList<>();
+		List<Integer> stack = new ArrayList<>();
+		for (Link link : increased) {
+			int from = link.getFromNode().getId().index();
+			if (tree.nextLinks[from] == link) stack.add(from);
+		}
+		while (!stack.isEmpty()) {
+			int node = stack.remove(stack.size() - 1);
+			if (this.affected[node]) continue;
+			this.affected[node] = true;
+			affectedNodes.add(node);
+			for (Link inLink : this.inLinks[node]) {
+				int from = inLink.getFromNode().getId().index();
+				if (tree.nextLinks[from] == inLink) stack.add(from);
+			}
+		}
+
+		for (int node : affectedNodes) {
+			tree.costs[node] = Double.POSITIVE_INFINITY;
+			tree.nextLinks[node] = null;
+		}
+		for (int node : affectedNodes) {
+			for (Link outLink : this.outLinks[node]) {
+				int to = outLink.getToNode().getId().index();
+				if (this.affected[to]) continue;
+				relax(tree, node, outLink, tree.costs[to]);
+			}
+		}
+		for (int node : affectedNodes) {
+			this.affected[node] = false;
+		}
+
+		for (Link link : decreased) {
+			int to = link.getToNode().getId().index();
+			relax(tree, link.getFromNode().getId().index(), link, tree.costs[to]);
+		}
+
+		expand(tree);
+	}
+
+	private void expand(Tree tree) {
+		while (!this.heap.isEmpty()) {
+			int node = this.heap.poll().index;
+			double cost = tree.costs[node];
+			for (Link inLink : this.inLinks[node]) {
+				relax(tree, inLink.getFromNode().getId().index(), inLink, cost);
+			}
+		}
+	}
+
+	private void relax(Tree tree, int node, Link link, double costOfNextNode) {
+		double cost = costOfNextNode + this.linkCosts[link.getId().index()];
+		if (cost < tree.costs[node]) {
+			tree.costs[node] = cost;
+			tree.nextLinks[node] = link;
+			this.heap.decreaseKey(this.nodeEntries[node], cost);
+		}
+	}
+
+	/*package*/ int getNumberOfTrees() {
+		return this.trees.size();
+	}
+
+	private static final class Tree {
+		final int destination;
+		// the costs to the destination and the first link of the path towards it, indexed by Id.index() of the nodes
+		final double[] costs;
+		final Link[] nextLinks;
+		volatile long lastUsed = 0;
+
+		Tree(int destination, int numberOfNodes) {
+			this.destination = destination;
+			this.costs = new double[numberOfNodes];
+			this.nextLinks = new Link[numberOfNodes];
+		}
+	}
+
+	private static final class NodeEntry implements HasIndex {
+		final int index;
+
+		NodeEntry(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public int getArrayIndex() {
+			return this.index;
+		}
+	}
+
+}
@@ -0,0 +1,120 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * FusedAnalysisHandlerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class FusedAnalysisHandlerTest {
+
+	private static final Id<Link> LINK_ID = Id.create("1", Link.class);
+
+	@Test
+	public void testFeedsAllAnalyses() {
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		NetworkUtils.createAndAddLink(network, LINK_ID, node1, node2, 1000, 10, 3600, 1);
+
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		Id<Person> memberId = Id.create("member", Person.class);
+		Id<Person> transitDriverId = Id.create("transitDriver", Person.class);
+		population.addPerson(population.getFactory().createPerson(memberId));
+
+		EventsManager events = EventsUtils.createEventsManager();
+		FusedAnalysisHandler handler = new FusedAnalysisHandler(population, events);
+		VolumesAnalyzer volumes = new VolumesAnalyzer(network, handler);
+		LegHistogram legHistogram = new LegHistogram(handler);
+		CalcLegTimes legTimes = new CalcLegTimes(handler);
+
+		try {
+			new CalcLegTimes(handler);
+			Assert.fail("expected exception, an analysis must only be fed once.");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+
+		events.initProcessing();
+		drive(events, memberId, Id.create("car", Vehicle.class), 7 * 3600, 7 * 3600 + 600);
+		drive(events, transitDriverId, Id.create("bus", Vehicle.class), 7 * 3600 + 300, 7 * 3600 + 1200);
+		events.processEvent(new PersonDepartureEvent(8 * 3600, memberId, LINK_ID, TransportMode.walk));
+		events.processEvent(new PersonStuckEvent(9 * 3600, memberId, LINK_ID, TransportMode.walk));
+		events.finishProcessing();
+
+		// link volumes count all vehicles
+		Assert.assertEquals(2, volumes.getVolumesForLink(LINK_ID)[7]);
+		Assert.assertEquals(2, volumes.getVolumesForLink(LINK_ID, TransportMode.car)[7]);
+
+		// the leg histogram only counts the persons of the population
+		Assert.assertEquals(1, legHistogram.getDepartures(TransportMode.car)[7 * 12]);
+		Assert.assertEquals(1, legHistogram.getArrivals(TransportMode.car)[7 * 12 + 2]);
+		Assert.assertEquals(1, legHistogram.getStuck(TransportMode.walk)[9 * 12]);
+		Assert.assertEquals(2, legHistogram.getDepartures()[7 * 12] + legHistogram.getDepartures()[8 * 12]);
+
+		// the leg times count all persons, but only completed legs
+		int[] homeToWork = legTimes.getLegStats().get("home---work");
+		Assert.assertEquals(1, homeToWork[CalcLegTimes.getTimeslotIndex(600)]);
+		Assert.assertEquals(1, homeToWork[CalcLegTimes.getTimeslotIndex(900)]);
+		Assert.assertEquals(1, legTimes.getLegStats().size());
+		Assert.assertEquals((600.0 + 900.0) / 2, legTimes.getAverageTripDuration(), 1e-9);
+
+		events.resetHandlers(1);
+		Assert.assertTrue(volumes.getLinkIds().isEmpty());
+		Assert.assertEquals(0, legHistogram.getDepartures()[7 * 12]);
+		Assert.assertTrue(legTimes.getLegStats().isEmpty());
+
+		// the stuck walk leg of the previous iteration must not be completed by an activity start
+		events.processEvent(new ActivityStartEvent(10 * 3600, memberId, LINK_ID, null, "work"));
+		Assert.assertTrue(legTimes.getLegStats().isEmpty());
+	}
+
+	private static void drive(final EventsManager events, final Id<Person> personId, final Id<Vehicle> vehicleId,
+			final double departureTime, final double arrivalTime) {
+		events.processEvent(new ActivityEndEvent(departureTime, personId, LINK_ID, null, "home"));
+		events.processEvent(new PersonDepartureEvent(departureTime, personId, LINK_ID, TransportMode.car));
+		events.processEvent(new VehicleEntersTrafficEvent(departureTime, personId, LINK_ID, vehicleId, TransportMode.car, 1.0));
+		events.processEvent(new LinkLeaveEvent(departureTime + 60, vehicleId, LINK_ID));
+		events.processEvent(new PersonArrivalEvent(arrivalTime, personId, LINK_ID, TransportMode.car));
+		events.processEvent(new ActivityStartEvent(arrivalTime, personId, LINK_ID, null, "work"));
+	}
+
+}
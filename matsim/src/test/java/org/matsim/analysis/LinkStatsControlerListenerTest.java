@@ -71,6 +71,7 @@ public class LinkStatsControlerListenerTest {
 				install(new ScenarioByInstanceModule(scenario));
 				bind(OutputDirectoryHierarchy.class).asEagerSingleton();
 				bind(IterationStopWatch.class).asEagerSingleton();
+				bind(OutputWriterPool.class).asEagerSingleton();
 			}
 		});
 		LinkStatsControlerListener lscl = injector.getInstance(LinkStatsControlerListener.class);
@@ -67,7 +67,66 @@ public class IdTest {
 //		} // FIXME temporarily deactivated
 	}
 	
+	@Test
+	public void testIndex() {
+		Id<TIndexed> id1 = Id.create("1", TIndexed.class);
+		Id<TIndexed> id2 = Id.create("2", TIndexed.class);
+		Id<TIndexed> id1again = Id.create("1", TIndexed.class);
+		Id<TNode> nodeId1 = Id.create("1", TNode.class);
+
+		Assert.assertEquals(0, id1.index());
+		Assert.assertEquals(1, id2.index());
+		Assert.assertEquals(0, id1again.index());
+		Assert.assertEquals(2, Id.getNumberOfIds(TIndexed.class));
+
+		Assert.assertSame(id1, Id.get(0, TIndexed.class));
+		Assert.assertSame(id2, Id.get(1, TIndexed.class));
+		Assert.assertSame(nodeId1, Id.get(nodeId1.index(), TNode.class));
+		Assert.assertNull(Id.get(2, TIndexed.class));
+		Assert.assertNull(Id.get(-1, TIndexed.class));
+	}
+	
+	@Test
+	public void testIndexWithConcurrentCreation() throws InterruptedException {
+		final int numberOfThreads = 4;
+		final int numberOfIds = 10000;
+		final Id<?>[][] created = new Id<?>[numberOfThreads][numberOfIds];
+		final boolean[] consistent = new boolean[numberOfThreads];
+		Thread[] threads = new Thread[numberOfThreads];
+		for (int t = 0; t < numberOfThreads; t++) {
+			final int thread = t;
+			threads[t] = new Thread(() -> {
+				boolean ok = true;
+				for (int i = 0; i < numberOfIds; i++) {
+					// all threads create the same ids, in different orders
+					int key = (thread % 2 == 0) ? i : numberOfIds - 1 - i;
+					Id<TConcurrent> id = Id.create(key, TConcurrent.class);
+					created[thread][key] = id;
+					ok &= Id.get(id.index(), TConcurrent.class) == id;
+				}
+				consistent[thread] = ok;
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Assert.assertEquals(numberOfIds, Id.getNumberOfIds(TConcurrent.class));
+		for (int t = 0; t < numberOfThreads; t++) {
+			Assert.assertTrue(consistent[t]);
+			for (int i = 0; i < numberOfIds; i++) {
+				Assert.assertSame(created[0][i], created[t][i]);
+			}
+		}
+		for (int i = 0; i < numberOfIds; i++) {
+			Assert.assertEquals(i, Id.get(i, TConcurrent.class).index());
+		}
+	}
+	
 	private static class TLink {}
+	private static class TIndexed {}
+	private static class TConcurrent {}
 	private static class TNode {}
 	
 }
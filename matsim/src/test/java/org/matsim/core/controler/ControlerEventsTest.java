@@ -121,6 +121,19 @@ public class ControlerEventsTest extends MatsimTestCase {
 		@Override
 		protected void prepareForMobsim() {
 		}
+
+		@Override
+		protected void restorePopulation() {
+		}
+
+		@Override
+		protected Integer restoreIterations() {
+			return null;
+		}
+
+		@Override
+		protected void writeCheckpoint(int iteration) {
+		}
 		
 		@Override
 		protected boolean continueIterations(int iteration) {
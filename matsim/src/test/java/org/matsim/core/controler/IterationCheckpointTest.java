@@ -0,0 +1,108 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IterationCheckpointTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.listener.StartupListener;
+import org.matsim.core.population.PopulationTestUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.io.PopulationWriter;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+
+public class IterationCheckpointTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testResume_populationRestoredBeforeStartup() {
+		Config config = this.utils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.controler().setLastIteration(1);
+		config.controler().setWriteCheckpointInterval(1);
+		new Controler(config).run();
+
+		Config resumed = this.utils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		resumed.controler().setLastIteration(2);
+		resumed.controler().setResumeFromCheckpoint(this.utils.getOutputDirectory() + "ITERS/it.1/1." + IterationCheckpoint.FILENAME);
+		Controler controler = new Controler(resumed);
+		final int[] personsAtStartup = { -1 };
+		controler.addControlerListener((StartupListener) event ->
+				personsAtStartup[0] = event.getServices().getScenario().getPopulation().getPersons().size());
+		controler.run();
+
+		Assert.assertEquals("the startup listeners must see the restored population", 100, personsAtStartup[0]);
+		Assert.assertTrue(new File(this.utils.getOutputDirectory() + "ITERS/it.0").exists());
+		Assert.assertTrue(new File(this.utils.getOutputDirectory() + "ITERS/it.2").exists());
+	}
+
+	@Test
+	public void testWriteAndReadPopulation() throws IOException {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		population.setName("checkpoint test");
+		population.getAttributes().putAttribute("description", "checkpoint test");
+		for (int i = 0; i < 10; i++) {
+			population.addPerson(PopulationTestUtils.createPerson(population, Integer.toString(i)));
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		IterationCheckpoint.writePopulation(new DataOutputStream(bytes), population, new ObjectAttributesConverter());
+
+		Population restored = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		restored.addPerson(PopulationTestUtils.createPerson(restored, "unrelated"));
+		IterationCheckpoint.readPopulation(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), restored,
+				new ObjectAttributesConverter());
+
+		Assert.assertEquals(10, restored.getPersons().size());
+		Assert.assertFalse("existing persons must be replaced", restored.getPersons().containsKey(Id.create("unrelated", Person.class)));
+		Assert.assertEquals("checkpoint test", restored.getName());
+		Assert.assertEquals(write(population), write(restored));
+
+		Person person = restored.getPersons().get(Id.create("3", Person.class));
+		Assert.assertSame(person.getPlans().get(1), person.getSelectedPlan());
+		Assert.assertEquals(42.0, person.getSelectedPlan().getScore(), 0.0);
+		Assert.assertNull(person.getPlans().get(0).getScore());
+	}
+
+	private static String write(final Population population) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new PopulationWriter(population).write(out);
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,143 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SnapshotGeneratorTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
+import org.matsim.vis.snapshotwriters.SnapshotWriter;
+
+public class SnapshotGeneratorTest {
+
+	@Test
+	public void testParallelSnapshotsEqualSequentialSnapshots() {
+		Network network = NetworkUtils.createNetwork();
+		int numberOfLinks = 50;
+		Node previous = NetworkUtils.createAndAddNode(network, Id.create(0, Node.class), new Coord(0, 0));
+		for (int i = 1; i <= numberOfLinks; i++) {
+			Node node = NetworkUtils.createAndAddNode(network, Id.create(i, Node.class), new Coord(i * 1000, (i % 2) * 100));
+			NetworkUtils.createAndAddLink(network, Id.create(i, Link.class), previous, node, 1000, 10, 1800, 1 + i % 3);
+			previous = node;
+		}
+
+		for (QSimConfigGroup.SnapshotStyle style : new QSimConfigGroup.SnapshotStyle[] { QSimConfigGroup.SnapshotStyle.queue,
+				QSimConfigGroup.SnapshotStyle.equiDist }) {
+			List<String> sequential = generateSnapshots(network, style, 1);
+			List<String> parallel = generateSnapshots(network, style, 4);
+			Assert.assertFalse(sequential.isEmpty());
+			Assert.assertEquals(sequential, parallel);
+		}
+	}
+
+	private static List<String> generateSnapshots(final Network network, final QSimConfigGroup.SnapshotStyle style, final int numberOfThreads) {
+		QSimConfigGroup config = ConfigUtils.createConfig().qsim();
+		config.setSnapshotStyle(style);
+		config.setNumberOfThreads(numberOfThreads);
+		SnapshotGenerator generator = new SnapshotGenerator(network, 10, config);
+		RecordingSnapshotWriter writer = new RecordingSnapshotWriter();
+		generator.addSnapshotWriter(writer);
+
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(generator);
+		events.initProcessing();
+		for (int p = 0; p < 20; p++) {
+			Id<Person> personId = Id.create(p, Person.class);
+			Id<Vehicle> vehicleId = Id.create(p, Vehicle.class);
+			double time = 6 * 3600 + p * 7;
+			Id<Link> firstLinkId = Id.create(1 + p % 5, Link.class);
+			events.processEvent(new PersonDepartureEvent(time, personId, firstLinkId, TransportMode.car));
+			events.processEvent(new VehicleEntersTrafficEvent(time, personId, firstLinkId, vehicleId, TransportMode.car, 1.0));
+		}
+		for (int step = 1; step <= 30; step++) {
+			for (int p = 0; p < 20; p++) {
+				Id<Vehicle> vehicleId = Id.create(p, Vehicle.class);
+				double time = 6 * 3600 + p * 7 + step * 60;
+				Id<Link> fromLinkId = Id.create(step + p % 5, Link.class);
+				Id<Link> toLinkId = Id.create(step + 1 + p % 5, Link.class);
+				events.processEvent(new LinkLeaveEvent(time, vehicleId, fromLinkId));
+				events.processEvent(new LinkEnterEvent(time, vehicleId, toLinkId));
+			}
+		}
+		for (int p = 0; p < 20; p++) {
+			Id<Person> personId = Id.create(p, Person.class);
+			Id<Vehicle> vehicleId = Id.create(p, Vehicle.class);
+			double time = 6 * 3600 + p * 7 + 31 * 60;
+			Id<Link> lastLinkId = Id.create(31 + p % 5, Link.class);
+			events.processEvent(new VehicleLeavesTrafficEvent(time, personId, lastLinkId, vehicleId, TransportMode.car, 1.0));
+			events.processEvent(new PersonArrivalEvent(time, personId, lastLinkId, TransportMode.car));
+		}
+		events.finishProcessing();
+		generator.finish();
+
+		Assert.assertTrue(writer.finished);
+		return writer.lines;
+	}
+
+	private static class RecordingSnapshotWriter implements SnapshotWriter {
+		private final List<String> lines = new ArrayList<>();
+		private double time = Double.NaN;
+		private boolean finished = false;
+
+		@Override
+		public void beginSnapshot(final double time) {
+			this.time = time;
+		}
+
+		@Override
+		public void endSnapshot() {
+			this.time = Double.NaN;
+		}
+
+		@Override
+		public void addAgent(final AgentSnapshotInfo position) {
+			this.lines.add(this.time + " " + position.getId() + " " + position.getEasting() + " " + position.getNorthing() + " "
+					+ position.getColorValueBetweenZeroAndOne() + " " + position.getAgentState());
+		}
+
+		@Override
+		public void finish() {
+			this.finished = true;
+		}
+	}
+
+}
@@ -20,6 +20,8 @@
 
 package org.matsim.core.mobsim.qsim.pt;
 
+import java.util.Arrays;
+
 import junit.framework.TestCase;
 
 import org.apache.log4j.Logger;
@@ -29,6 +31,7 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.pt.fakes.FakeAgent;
 import org.matsim.pt.transitSchedule.TransitScheduleFactoryImpl;
+import org.matsim.pt.transitSchedule.api.TransitLine;
 import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 
@@ -114,4 +117,53 @@ public class TransitStopAgentTrackerTest extends TestCase {
 			log.info("catched expected exception.", e);
 		}
 	}
+
+	public void testGetAgentsAtStopForLine() {
+		EventsManager events = EventsUtils.createEventsManager();
+		TransitStopAgentTracker tracker = new TransitStopAgentTracker(events);
+		TransitScheduleFactory builder = new TransitScheduleFactoryImpl();
+		Id<TransitLine> line1 = Id.create(1, TransitLine.class);
+		Id<TransitLine> line2 = Id.create(2, TransitLine.class);
+		PTPassengerAgent agent1 = new LineAgent(line1);
+		PTPassengerAgent agent2 = new LineAgent(null);
+		PTPassengerAgent agent3 = new LineAgent(line2);
+		PTPassengerAgent agent4 = new LineAgent(line1);
+		PTPassengerAgent agent5 = new LineAgent(null);
+		TransitStopFacility stop1 = builder.createTransitStopFacility(Id.create(1, TransitStopFacility.class), new Coord((double) 2, (double) 3), false);
+
+		tracker.addAgentToStop(10, agent1, stop1.getId());
+		tracker.addAgentToStop(11, agent2, stop1.getId());
+		tracker.addAgentToStop(12, agent3, stop1.getId());
+		tracker.addAgentToStop(13, agent4, stop1.getId());
+		tracker.addAgentToStop(14, agent5, stop1.getId());
+
+		// agents waiting for the line or for any line, in the order they arrived
+		assertEquals(Arrays.asList(agent1, agent2, agent4, agent5), tracker.getAgentsAtFacility(stop1.getId(), line1));
+		assertEquals(Arrays.asList(agent2, agent3, agent5), tracker.getAgentsAtFacility(stop1.getId(), line2));
+		assertEquals(Arrays.asList(agent2, agent5), tracker.getAgentsAtFacility(stop1.getId(), Id.create(3, TransitLine.class)));
+		assertEquals(Arrays.asList(agent1, agent2, agent3, agent4, agent5), tracker.getAgentsAtFacility(stop1.getId()));
+
+		tracker.removeAgentFromStop(agent2, stop1.getId());
+		tracker.removeAgentFromStop(agent4, stop1.getId());
+		assertEquals(Arrays.asList(agent1, agent5), tracker.getAgentsAtFacility(stop1.getId(), line1));
+		assertEquals(Arrays.asList(agent1, agent3, agent5), tracker.getAgentsAtFacility(stop1.getId()));
+		assertEquals(Arrays.asList(agent1, agent3, agent5), tracker.getAgentsAtStop().get(stop1.getId()));
+
+		tracker.addAgentToStop(15, agent4, stop1.getId());
+		assertEquals(Arrays.asList(agent1, agent5, agent4), tracker.getAgentsAtFacility(stop1.getId(), line1));
+	}
+
+	private static class LineAgent extends FakeAgent {
+		private final Id<TransitLine> lineId;
+
+		LineAgent(final Id<TransitLine> lineId) {
+			super(null, null);
+			this.lineId = lineId;
+		}
+
+		@Override
+		public Id<TransitLine> getDesiredLineId() {
+			return this.lineId;
+		}
+	}
 }
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.log4j.Logger;
 import org.junit.Test;
@@ -49,6 +50,7 @@ import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.controler.PrepareForSimUtils;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.QSimBuilder;
 import org.matsim.core.mobsim.qsim.agents.PersonDriverAgentImpl;
@@ -127,6 +129,46 @@ public final class QLinkTest extends MatsimTestCase {
 		assertTrue(f.qlink1.isNotOfferingVehicle());
 	}
 
+	@Test
+	public void testGetAdditionalAgentsOnLink_concurrentRegistration() throws InterruptedException {
+		final Fixture f = new Fixture(isUsingFastCapacityUpdate);
+		final List<MobsimAgent> agents = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			Person p = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			p.addPlan(PopulationUtils.createPlan());
+			agents.add(createAndInsertPersonDriverAgentImpl(p, f.sim));
+		}
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread registering = new Thread(() -> {
+			try {
+				for (int round = 0; round < 200; round++) {
+					for (MobsimAgent agent : agents) {
+						f.qlink1.registerAdditionalAgentOnLink(agent);
+					}
+					for (MobsimAgent agent : agents) {
+						f.qlink1.unregisterAdditionalAgentOnLink(agent.getId());
+					}
+				}
+			} catch (Throwable e) {
+				failure.set(e);
+			}
+		});
+		registering.start();
+		while (registering.isAlive()) {
+			for (MobsimAgent agent : f.qlink1.getAdditionalAgentsOnLink()) {
+				assertNotNull(agent);
+			}
+		}
+		registering.join();
+		assertNull(failure.get());
+		assertTrue(f.qlink1.getAdditionalAgentsOnLink().isEmpty());
+
+		f.qlink1.registerAdditionalAgentOnLink(agents.get(0));
+		Collection<MobsimAgent> additional = f.qlink1.getAdditionalAgentsOnLink();
+		f.qlink1.registerAdditionalAgentOnLink(agents.get(1));
+		assertEquals("the returned collection should not change", 1, additional.size());
+		assertEquals(2, f.qlink1.getAdditionalAgentsOnLink().size());
+	}
 
 	private static PersonDriverAgentImpl createAndInsertPersonDriverAgentImpl(Person p, QSim simulation) {
 		PersonDriverAgentImpl agent = new PersonDriverAgentImpl(p.getSelectedPlan(), simulation);
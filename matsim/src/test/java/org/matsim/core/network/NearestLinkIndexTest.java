@@ -0,0 +1,180 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NearestLinkIndexTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.algorithms.XY2Links;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacility;
+
+/**
+ * Test for {@link NearestLinkIndex}.
+ */
+public class NearestLinkIndexTest {
+
+	@Test
+	public void testGetNearestLink_sameAsNetworkUtils() {
+		Network network = createGrid(20, 100);
+		NearestLinkIndex index = new NearestLinkIndex(network);
+
+		Random r = new Random(4711);
+		List<Coord> coords = new ArrayList<>();
+		for (int i = 0; i < 3000; i++) {
+			Coord coord = new Coord(r.nextDouble() * 2200 - 100, r.nextDouble() * 2200 - 100);
+			coords.add(coord);
+			Assert.assertEquals(NetworkUtils.getNearestLink(network, coord), index.getNearestLink(coord));
+		}
+
+		List<Link> links = index.getNearestLinks(coords, 4);
+		Assert.assertEquals(coords.size(), links.size());
+		for (int i = 0; i < coords.size(); i++) {
+			Assert.assertEquals(NetworkUtils.getNearestLink(network, coords.get(i)), links.get(i));
+		}
+	}
+
+	@Test
+	public void testGetNearestLink_empty() {
+		NearestLinkIndex index = new NearestLinkIndex(NetworkUtils.createNetwork());
+		Assert.assertNull(index.getNearestLink(new Coord(0, 0)));
+
+		Network network = NetworkUtils.createNetwork();
+		NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Assert.assertNull(new NearestLinkIndex(network).getNearestLink(new Coord(10, 10)));
+	}
+
+	@Test
+	public void testXY2Links_withIndex() {
+		Network network = createGrid(5, 100);
+		ActivityFacilities facilities = ScenarioUtils.createScenario(ConfigUtils.createConfig()).getActivityFacilities();
+		ActivityFacility facility = facilities.getFactory().createActivityFacility(Id.create("f", ActivityFacility.class), new Coord(140, 205));
+		facilities.addActivityFacility(facility);
+		XY2Links xy2links = new XY2Links(new NearestLinkIndex(network), facilities);
+
+		Person person = PopulationUtils.getFactory().createPerson(Id.create("1", Person.class));
+		Plan plan = PopulationUtils.createPlan(person);
+		Activity home = PopulationUtils.createAndAddActivityFromCoord(plan, "h", new Coord(310, 95));
+		PopulationUtils.createAndAddLeg(plan, "car");
+		Activity work = PopulationUtils.createAndAddActivity(plan, "w");
+		work.setFacilityId(facility.getId());
+		person.addPlan(plan);
+		xy2links.run(person);
+
+		Assert.assertEquals(NetworkUtils.getNearestLink(network, new Coord(310, 95)).getId(), home.getLinkId());
+		Assert.assertEquals(NetworkUtils.getNearestLink(network, facility.getCoord()).getId(), work.getLinkId());
+		Assert.assertEquals(facility.getCoord(), work.getCoord());
+		Assert.assertNull("the facility itself should not be changed", facility.getLinkId());
+	}
+
+	@Test
+	public void testXY2Links_prepare_sameAsSequential() {
+		Network network = createGrid(20, 100);
+		ActivityFacilities facilities = ScenarioUtils.createScenario(ConfigUtils.createConfig()).getActivityFacilities();
+		Random r = new Random(4711);
+		for (int i = 0; i < 50; i++) {
+			facilities.addActivityFacility(facilities.getFactory().createActivityFacility(Id.create(i, ActivityFacility.class),
+					new Coord(r.nextDouble() * 2000, r.nextDouble() * 2000)));
+		}
+		Population sequential = createPopulation(facilities, new Random(42));
+		Population batched = createPopulation(facilities, new Random(42));
+
+		new XY2Links(network, facilities).run(sequential);
+		XY2Links xy2links = new XY2Links(new NearestLinkIndex(network), facilities);
+		xy2links.prepare(batched, 4);
+		xy2links.run(batched);
+
+		for (Person person : sequential.getPersons().values()) {
+			List<PlanElement> expected = person.getSelectedPlan().getPlanElements();
+			List<PlanElement> actual = batched.getPersons().get(person.getId()).getSelectedPlan().getPlanElements();
+			for (int i = 0; i < expected.size(); i += 2) {
+				Assert.assertNotNull(((Activity) expected.get(i)).getLinkId());
+				Assert.assertEquals(((Activity) expected.get(i)).getLinkId(), ((Activity) actual.get(i)).getLinkId());
+				Assert.assertEquals(((Activity) expected.get(i)).getCoord(), ((Activity) actual.get(i)).getCoord());
+			}
+		}
+	}
+
+	private static Population createPopulation(final ActivityFacilities facilities, final Random r) {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		for (int i = 0; i < 500; i++) {
+			Person person = population.getFactory().createPerson(Id.create(i, Person.class));
+			Plan plan = PopulationUtils.createPlan(person);
+			for (int j = 0; j < 3; j++) {
+				if (j > 0) {
+					PopulationUtils.createAndAddLeg(plan, "car");
+				}
+				if (r.nextBoolean()) {
+					PopulationUtils.createAndAddActivityFromCoord(plan, "a", new Coord(r.nextDouble() * 2200 - 100, r.nextDouble() * 2200 - 100));
+				} else {
+					Activity act = PopulationUtils.createAndAddActivity(plan, "f");
+					act.setFacilityId(Id.create(r.nextInt(50), ActivityFacility.class));
+				}
+			}
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+		return population;
+	}
+
+	private static Network createGrid(final int size, final double spacing) {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				nodes[i][j] = NetworkUtils.createAndAddNode(network, Id.create(i + "_" + j, Node.class), new Coord(i * spacing, j * spacing));
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				if (i + 1 < size) {
+					addLinks(network, nodes[i][j], nodes[i + 1][j]);
+				}
+				if (j + 1 < size) {
+					addLinks(network, nodes[i][j], nodes[i][j + 1]);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLinks(final Network network, final Node a, final Node b) {
+		network.addLink(network.getFactory().createLink(Id.create(a.getId() + "-" + b.getId(), Link.class), a, b));
+		network.addLink(network.getFactory().createLink(Id.create(b.getId() + "-" + a.getId(), Link.class), b, a));
+	}
+
+}
@@ -20,6 +20,12 @@
 
 package org.matsim.core.network;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
@@ -31,6 +37,7 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.NetworkFactory;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.gbl.Gbl;
+import org.matsim.core.utils.geometry.CoordUtils;
 
 /**
  * @author mrieser
@@ -320,4 +327,57 @@ public class NetworkImplTest extends AbstractNetworkTest {
 		Assert.assertEquals(link1, NetworkUtils.getNearestLink(network, new Coord(300, 200)));
 		Assert.assertEquals(link1, NetworkUtils.getNearestLinkExactly(network, new Coord(300, 200))); // this will force the LinkQuadTree to be built
 	}
+
+	@Test
+	public void testNearestQueries_alternatingWithChanges() {
+		NetworkImpl network = new NetworkImpl();
+		Random r = new Random(4711);
+		List<Node> nodes = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			Node node = NetworkUtils.createNode(Id.create("n" + i, Node.class), new Coord(r.nextDouble() * 1000, r.nextDouble() * 1000));
+			network.addNode(node);
+			nodes.add(node);
+		}
+		// more changes than are kept aside, so that the tree is packed again in between
+		for (int step = 0; step < 3 * IncrementalRTree.MAX_PENDING; step++) {
+			if (r.nextBoolean() || nodes.size() < 10) {
+				Node node = NetworkUtils.createNode(Id.create("s" + step, Node.class), new Coord(r.nextDouble() * 1000, r.nextDouble() * 1000));
+				network.addNode(node);
+				nodes.add(node);
+				if (step % 2 == 0) {
+					Node other = nodes.get(r.nextInt(nodes.size() - 1));
+					network.addLink(NetworkUtils.createLink(Id.create("l" + step, Link.class), other, node, network, 100, 10, 1000, 1));
+				}
+			} else {
+				Assert.assertNotNull(network.removeNode(nodes.remove(r.nextInt(nodes.size())).getId()));
+			}
+			Coord coord = new Coord(r.nextDouble() * 1000, r.nextDouble() * 1000);
+
+			double nearest = Double.POSITIVE_INFINITY;
+			Set<Node> within = new HashSet<>();
+			for (Node node : nodes) {
+				double distance = CoordUtils.calcEuclideanDistance(node.getCoord(), coord);
+				nearest = Math.min(nearest, distance);
+				if (distance <= 100) {
+					within.add(node);
+				}
+			}
+			Assert.assertEquals(nearest, CoordUtils.calcEuclideanDistance(network.getNearestNode(coord).getCoord(), coord), 1e-9);
+			Assert.assertEquals(within, new HashSet<>(network.getNearestNodes(coord, 100.0)));
+			List<Node> kNearest = network.getNearestNodes(coord, 3);
+			Assert.assertEquals(3, kNearest.size());
+			Assert.assertEquals(nearest, CoordUtils.calcEuclideanDistance(kNearest.get(0).getCoord(), coord), 1e-9);
+
+			double nearestLink = Double.POSITIVE_INFINITY;
+			for (Link link : network.getLinks().values()) {
+				nearestLink = Math.min(nearestLink, CoordUtils.distancePointLinesegment(link.getFromNode().getCoord(), link.getToNode().getCoord(), coord));
+			}
+			Link link = network.getNearestLinkExactly(coord);
+			if (link == null) {
+				Assert.assertTrue(network.getLinks().isEmpty());
+			} else {
+				Assert.assertEquals(nearestLink, CoordUtils.distancePointLinesegment(link.getFromNode().getCoord(), link.getToNode().getCoord(), coord), 1e-9);
+			}
+		}
+	}
 }
@@ -20,6 +20,8 @@
 
 package org.matsim.core.network;
 
+import java.util.Random;
+
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
@@ -352,6 +354,45 @@ public class TimeVariantLinkImplTest extends MatsimTestCase {
 	}
 
 
+	/**
+	 * Tests the look-up of many change events with irregular start times, including queries at and around the
+	 * start times.
+	 */
+	public void testManyChangeEvents() {
+		final Network network = NetworkUtils.createNetwork();
+		network.getFactory().setLinkFactory(new VariableIntervalTimeVariantLinkFactory());
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord((double) 0, (double) 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord((double) 100, (double) 0));
+		TimeVariantLinkImpl link = (TimeVariantLinkImpl)NetworkUtils.createAndAddLink(network,Id.create("1", Link.class), node1, node2, (double) 100, (double) 10, (double) 3600, (double) 1 );
+
+		Random random = new Random(4711);
+		double[] times = new double[200];
+		double[] values = new double[200];
+		double time = 0;
+		for (int i = 0; i < times.length; i++) {
+			// mostly short gaps, with some long ones, to get bins with many and with no events
+			time += random.nextInt(10) == 0 ? 1000 + random.nextInt(20000) : random.nextDouble() * 60;
+			times[i] = time;
+			values[i] = 1 + random.nextInt(30);
+			NetworkChangeEvent change = new NetworkChangeEvent(time);
+			change.addLink(link);
+			change.setFreespeedChange(new ChangeValue(ChangeType.ABSOLUTE_IN_SI_UNITS, values[i]));
+			link.applyEvent(change);
+		}
+
+		assertEquals(10.0, link.getFreespeed(Time.getUndefinedTime()), EPSILON);
+		assertEquals(10.0, link.getFreespeed(times[0] - 0.1), EPSILON);
+		for (int i = 0; i < times.length; i++) {
+			assertEquals(values[i], link.getFreespeed(times[i]), EPSILON);
+			double before = i == 0 ? 10.0 : values[i - 1];
+			assertEquals(before, link.getFreespeed(Math.nextDown(times[i])), EPSILON);
+			double next = i + 1 < times.length ? times[i + 1] : times[i] + 100;
+			assertEquals(values[i], link.getFreespeed((times[i] + next) / 2), EPSILON);
+		}
+		assertEquals(values[values.length - 1], link.getFreespeed(time + 3600), EPSILON);
+	}
+
+
     static LinkFactory[] linkFactories(int interval, int maxTime)
     {
         return new LinkFactory[] {
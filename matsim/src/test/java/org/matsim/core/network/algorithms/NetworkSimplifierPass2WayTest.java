@@ -86,6 +86,22 @@ public class NetworkSimplifierPass2WayTest {
 //        }
     }
 
+    @Test
+    public void testSimplifyingParallel(){
+        for (Network network : buildNetworks()) {
+            NetworkSimplifier networkSimplifier = new NetworkSimplifier();
+            networkSimplifier.setMergeLinkStats(false);
+            networkSimplifier.setNumberOfThreads(2);
+            networkSimplifier.run(network);
+
+            assertEquals("Wrong number of links", 4, network.getLinks().size());
+            assertNotNull("Expected link not found.", network.getLinks().get(Id.createLinkId("AB-BC-CD-DE-EF")));
+            assertNotNull("Expected link not found.", network.getLinks().get(Id.createLinkId("CB")));
+            assertNotNull("Expected link not found.", network.getLinks().get(Id.createLinkId("BA")));
+            assertNotNull("Expected link not found.", network.getLinks().get(Id.createLinkId("FE-ED-DC")));
+        }
+    }
+
     /**
      * Builds a test network like the following diagram.
      *
@@ -23,8 +23,11 @@ package org.matsim.core.network.algorithms;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import java.util.Random;
+
 import org.junit.Test;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.network.NetworkUtils;
@@ -75,6 +78,105 @@ public class NetworkSimplifierTest {
 	}
 	
 	
+	@Test
+	public void testRunParallel_sameAsSequential() {
+		for (boolean mergeLinkStats : new boolean[] {false, true}) {
+			Network sequential = buildGridNetwork();
+			NetworkSimplifier nst = new NetworkSimplifier();
+			nst.setMergeLinkStats(mergeLinkStats);
+			nst.run(sequential);
+
+			Network parallel = buildGridNetwork();
+			nst = new NetworkSimplifier();
+			nst.setMergeLinkStats(mergeLinkStats);
+			nst.setNumberOfThreads(4);
+			nst.run(parallel);
+
+			assertEquals("Wrong number of links", sequential.getLinks().size(), parallel.getLinks().size());
+			for (Link link : sequential.getLinks().values()) {
+				Link other = parallel.getLinks().get(link.getId());
+				assertNotNull("Expected link not found: " + link.getId(), other);
+				assertEquals(link.getFromNode().getId(), other.getFromNode().getId());
+				assertEquals(link.getToNode().getId(), other.getToNode().getId());
+				assertEquals(link.getLength(), other.getLength(), 1e-6);
+				assertEquals(link.getFreespeed(), other.getFreespeed(), 1e-6);
+				assertEquals(link.getCapacity(), other.getCapacity(), 1e-6);
+				assertEquals(link.getNumberOfLanes(), other.getNumberOfLanes(), 1e-6);
+				assertEquals(link.getAllowedModes(), other.getAllowedModes());
+				assertEquals(NetworkUtils.getOrigId(link), NetworkUtils.getOrigId(other));
+			}
+		}
+	}
+
+	@Test
+	public void testRunParallel_ring() {
+		Network network = NetworkUtils.createNetwork();
+		int n = 10;
+		Node[] nodes = new Node[n];
+		for (int i = 0; i < n; i++) {
+			nodes[i] = NetworkUtils.createAndAddNode(network, Id.createNodeId("r" + i), CoordUtils.createCoord(i, 0.0));
+		}
+		for (int i = 0; i < n; i++) {
+			NetworkUtils.createAndAddLink(network, Id.createLinkId("r" + i), nodes[i], nodes[(i + 1) % n], 10.0, 60.0/3.6, 1000.0, 1);
+		}
+
+		NetworkSimplifier nst = new NetworkSimplifier();
+		nst.setNumberOfThreads(2);
+		nst.run(network);
+		assertEquals("Wrong number of links", 2, network.getLinks().size());
+		assertNotNull("Expected link not found.", network.getLinks().get(Id.createLinkId("r0-r1-r2-r3-r4-r5-r6-r7-r8")));
+		assertNotNull("Expected link not found.", network.getLinks().get(Id.createLinkId("r9")));
+	}
+
+	/**
+	 * Builds a grid of intersections, connected by two-way roads of three links each. Some of the roads change
+	 * their number of lanes halfway, and some are one-way only.
+	 */
+	private Network buildGridNetwork() {
+		Random random = new Random(4711);
+		Network network = NetworkUtils.createNetwork();
+		int size = 20;
+		Node[][] grid = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				grid[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId("g" + x + "_" + y), CoordUtils.createCoord(x * 100.0, y * 100.0));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addRoad(network, random, grid[x][y], grid[x + 1][y]);
+				}
+				if (y + 1 < size) {
+					addRoad(network, random, grid[x][y], grid[x][y + 1]);
+				}
+			}
+		}
+		return network;
+	}
+
+	private void addRoad(Network network, Random random, Node from, Node to) {
+		String name = from.getId() + "_" + to.getId();
+		Node[] nodes = new Node[] {from, null, null, to};
+		for (int i = 1; i < 3; i++) {
+			nodes[i] = NetworkUtils.createAndAddNode(network, Id.createNodeId(name + "_" + i), CoordUtils.createCoord(
+					from.getCoord().getX() + i * (to.getCoord().getX() - from.getCoord().getX()) / 3,
+					from.getCoord().getY() + i * (to.getCoord().getY() - from.getCoord().getY()) / 3));
+		}
+		boolean oneWay = random.nextInt(5) == 0;
+		double lanesChange = random.nextInt(4) == 0 ? 2 : 1;
+		for (int i = 0; i < 3; i++) {
+			double length = 10.0 + random.nextInt(50);
+			double lanes = i == 2 ? lanesChange : 1;
+			Link link = NetworkUtils.createAndAddLink(network, Id.createLinkId(name + "_" + i), nodes[i], nodes[i + 1], length, 50.0/3.6, 1000.0, lanes);
+			NetworkUtils.setOrigId(link, "o" + i);
+			if (!oneWay) {
+				NetworkUtils.createAndAddLink(network, Id.createLinkId(name + "_r" + i), nodes[i + 1], nodes[i], length, 50.0/3.6, 1000.0, lanes);
+			}
+		}
+	}
+
+
 	/**
 	 * Builds a test network like the following diagram.
 	 * 
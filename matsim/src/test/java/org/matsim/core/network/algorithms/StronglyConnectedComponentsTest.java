@@ -0,0 +1,116 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * StronglyConnectedComponentsTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.algorithms;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+/**
+ * Test for {@link StronglyConnectedComponents}.
+ */
+public class StronglyConnectedComponentsTest {
+
+	@Test
+	public void testRandom_sameAsReachability() {
+		Random r = new Random(4711);
+		for (int round = 0; round < 20; round++) {
+			Network network = NetworkUtils.createNetwork();
+			int n = 5 + r.nextInt(60);
+			for (int i = 0; i < n; i++) {
+				NetworkUtils.createAndAddNode(network, Id.create("scc" + i, Node.class), new Coord(i, 0));
+			}
+			int m = r.nextInt(3 * n);
+			for (int l = 0; l < m; l++) {
+				Node from = network.getNodes().get(Id.create("scc" + r.nextInt(n), Node.class));
+				Node to = network.getNodes().get(Id.create("scc" + r.nextInt(n), Node.class));
+				Link link = network.getFactory().createLink(Id.create("scc" + l, Link.class), from, to);
+				link.setCapacity(r.nextBoolean() ? 1000 : 0);
+				network.addLink(link);
+			}
+
+			StronglyConnectedComponents components = new StronglyConnectedComponents(network, link -> link.getCapacity() > 0);
+			Set<Integer> distinct = new HashSet<>();
+			for (Node a : network.getNodes().values()) {
+				distinct.add(components.getComponent(a));
+				Set<Node> fromA = reachable(a, true);
+				Set<Node> toA = reachable(a, false);
+				for (Node b : network.getNodes().values()) {
+					boolean expected = fromA.contains(b) && toA.contains(b);
+					Assert.assertEquals(expected, components.getComponent(a) == components.getComponent(b));
+				}
+			}
+			Assert.assertEquals(distinct.size(), components.getNumberOfComponents());
+		}
+	}
+
+	@Test
+	public void testLongCycle_noStackOverflow() {
+		Network network = NetworkUtils.createNetwork();
+		int n = 200000;
+		Node first = NetworkUtils.createAndAddNode(network, Id.create("cycle0", Node.class), new Coord(0, 0));
+		Node prev = first;
+		for (int i = 1; i < n; i++) {
+			Node node = NetworkUtils.createAndAddNode(network, Id.create("cycle" + i, Node.class), new Coord(i, 0));
+			network.addLink(network.getFactory().createLink(Id.create("cycle" + i, Link.class), prev, node));
+			prev = node;
+		}
+		Node dangling = NetworkUtils.createAndAddNode(network, Id.create("dangling", Node.class), new Coord(-1, 0));
+		network.addLink(network.getFactory().createLink(Id.create("cycle0", Link.class), prev, first));
+		network.addLink(network.getFactory().createLink(Id.create("dangling", Link.class), first, dangling));
+
+		StronglyConnectedComponents components = new StronglyConnectedComponents(network, link -> true);
+		Assert.assertEquals(2, components.getNumberOfComponents());
+		Assert.assertEquals(components.getComponent(first), components.getComponent(prev));
+		Assert.assertNotEquals(components.getComponent(first), components.getComponent(dangling));
+	}
+
+	private static Set<Node> reachable(final Node start, final boolean forward) {
+		Set<Node> visited = new HashSet<>();
+		Deque<Node> pending = new ArrayDeque<>();
+		visited.add(start);
+		pending.add(start);
+		while (!pending.isEmpty()) {
+			Node node = pending.poll();
+			for (Link link : (forward ? node.getOutLinks() : node.getInLinks()).values()) {
+				if (link.getCapacity() > 0 || link.getId().toString().startsWith("cycle")) {
+					Node next = forward ? link.getToNode() : link.getFromNode();
+					if (visited.add(next)) {
+						pending.add(next);
+					}
+				}
+			}
+		}
+		return visited;
+	}
+
+}
@@ -0,0 +1,96 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetworkWriterReaderV2ParallelTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.io;
+
+import java.util.ArrayList;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.AbstractNetworkWriterReaderTest;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+/**
+ * Runs the writer/reader tests with a network_v2 reader that builds the nodes and links on several threads.
+ */
+public class NetworkWriterReaderV2ParallelTest extends AbstractNetworkWriterReaderTest {
+
+	@Override
+	protected void writeNetwork(final Network network, final String filename) {
+		new NetworkWriter(network).writeFileV2(filename);
+	}
+
+	@Override
+	protected void readNetwork(final Scenario scenario, final String filename) {
+		MatsimNetworkReader reader = new MatsimNetworkReader(scenario.getNetwork());
+		reader.setNumberOfThreads(3);
+		reader.readFile(filename);
+	}
+
+	public void testManyElements_sameOrderAndAttributes() {
+		Network network = NetworkUtils.createNetwork();
+		NetworkFactory factory = network.getFactory();
+		Node previous = null;
+		for (int i = 0; i < 1000; i++) {
+			Node node = factory.createNode(Id.create("n" + ((i * 7919) % 1000), Node.class), new Coord(i, 0));
+			node.getAttributes().putAttribute("index", i);
+			network.addNode(node);
+			if (previous != null) {
+				Link link = factory.createLink(Id.create("l" + i, Link.class), previous, node);
+				link.setLength(10 + i);
+				link.getAttributes().putAttribute("index", i);
+				network.addLink(link);
+			}
+			previous = node;
+		}
+		String filename = getOutputDirectory() + "network.xml";
+		writeNetwork(network, filename);
+
+		Network sequentialNetwork = NetworkUtils.createNetwork();
+		new MatsimNetworkReader(sequentialNetwork).readFile(filename);
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		readNetwork(scenario, filename);
+		Network readNetwork = scenario.getNetwork();
+
+		assertEquals(new ArrayList<>(sequentialNetwork.getNodes().keySet()), new ArrayList<>(readNetwork.getNodes().keySet()));
+		assertEquals(new ArrayList<>(sequentialNetwork.getLinks().keySet()), new ArrayList<>(readNetwork.getLinks().keySet()));
+		assertEquals(network.getNodes().size(), readNetwork.getNodes().size());
+		assertEquals(network.getLinks().size(), readNetwork.getLinks().size());
+		for (Node node : network.getNodes().values()) {
+			Node readNode = readNetwork.getNodes().get(node.getId());
+			assertEquals(node.getAttributes().getAttribute("index"), readNode.getAttributes().getAttribute("index"));
+			assertEquals(node.getInLinks().keySet(), readNode.getInLinks().keySet());
+			assertEquals(node.getOutLinks().keySet(), readNode.getOutLinks().keySet());
+		}
+		for (Link link : network.getLinks().values()) {
+			Link readLink = readNetwork.getLinks().get(link.getId());
+			assertEquals(link.getLength(), readLink.getLength(), 0.0);
+			assertEquals(link.getAttributes().getAttribute("index"), readLink.getAttributes().getAttribute("index"));
+		}
+	}
+
+}
@@ -0,0 +1,105 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlanElementsTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.vehicles.Vehicle;
+
+public class CompactPlanElementsTest {
+
+	@Test
+	public void testCompactAndInflate() {
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(1, Person.class));
+		Plan plan = PopulationTestUtils.createPlan(person);
+		PlanImpl planImpl = (PlanImpl) plan;
+
+		Assert.assertTrue(planImpl.compact());
+		Assert.assertTrue(planImpl.isCompact());
+		Assert.assertTrue(plan.toString().contains("[nof_acts_legs=5]"));
+		Assert.assertTrue(planImpl.isCompact());
+
+		Assert.assertEquals(5, plan.getPlanElements().size());
+		Assert.assertFalse(planImpl.isCompact());
+
+		Activity home = (Activity) plan.getPlanElements().get(0);
+		Assert.assertEquals("h", home.getType());
+		Assert.assertEquals(Id.create("1", Link.class), home.getLinkId());
+		Assert.assertEquals(Id.create("f1", ActivityFacility.class), home.getFacilityId());
+		Assert.assertEquals(new Coord(0, 0), home.getCoord());
+		Assert.assertEquals(7 * 3600, home.getEndTime(), 0.0);
+		Assert.assertEquals("bar", home.getAttributes().getAttribute("foo"));
+
+		Leg car = (Leg) plan.getPlanElements().get(1);
+		Assert.assertEquals(TransportMode.car, car.getMode());
+		Assert.assertEquals(7 * 3600, car.getDepartureTime(), 0.0);
+		Assert.assertEquals(600, car.getTravelTime(), 0.0);
+		NetworkRoute route = (NetworkRoute) car.getRoute();
+		Assert.assertEquals(Id.create("1", Link.class), route.getStartLinkId());
+		Assert.assertEquals(Id.create("4", Link.class), route.getEndLinkId());
+		Assert.assertEquals(Arrays.asList(Id.create("2", Link.class), Id.create("3", Link.class)), route.getLinkIds());
+		Assert.assertEquals(Id.create("v1", Vehicle.class), route.getVehicleId());
+		Assert.assertEquals(1234.5, route.getDistance(), 0.0);
+		Assert.assertEquals(12.0, route.getTravelCost(), 0.0);
+
+		Activity work = (Activity) plan.getPlanElements().get(2);
+		Assert.assertEquals(new Coord(100, 200, 10), work.getCoord());
+		Assert.assertNull(work.getFacilityId());
+
+		Leg walk = (Leg) plan.getPlanElements().get(3);
+		Assert.assertNotNull(walk.getRoute());
+		Assert.assertEquals(Id.create("4", Link.class), walk.getRoute().getStartLinkId());
+		Assert.assertEquals(300, walk.getRoute().getDistance(), 0.0);
+	}
+
+	@Test
+	public void testCompactTwice_modifyAfterInflate() {
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(1, Person.class));
+		Plan plan = PopulationTestUtils.createPlan(person);
+		PlanImpl planImpl = (PlanImpl) plan;
+
+		Assert.assertTrue(planImpl.compact());
+		Assert.assertTrue(planImpl.compact());
+		((Activity) plan.getPlanElements().get(2)).setEndTime(18 * 3600);
+		PopulationUtils.createAndAddLeg(plan, TransportMode.walk);
+		PopulationUtils.createAndAddActivityFromLinkId(plan, "s", Id.create("1", Link.class));
+
+		Assert.assertTrue(planImpl.compact());
+		List<?> planElements = plan.getPlanElements();
+		Assert.assertEquals(7, planElements.size());
+		Assert.assertEquals(18 * 3600, ((Activity) planElements.get(2)).getEndTime(), 0.0);
+		Assert.assertEquals("s", ((Activity) planElements.get(6)).getType());
+	}
+
+}
@@ -0,0 +1,224 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DeltaPlanElementsTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+
+public class DeltaPlanElementsTest {
+
+	@Test
+	public void testDeflate_onlyDifferencesStored() {
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(1, Person.class));
+		Plan base = createPlan(person, 7 * 3600, "2");
+		Plan sameTimes = createPlan(person, 7 * 3600, "3");
+		Plan otherTimes = createPlan(person, 8 * 3600, "2");
+
+		CompactPlanElements b = CompactPlanElements.deflate(base.getPlanElements());
+		DeltaPlanElements d1 = DeltaPlanElements.deflate(sameTimes.getPlanElements(), b);
+		DeltaPlanElements d2 = DeltaPlanElements.deflate(otherTimes.getPlanElements(), b);
+		DeltaPlanElements d3 = DeltaPlanElements.deflate(base.getPlanElements(), b);
+
+		Assert.assertEquals(5, d1.size());
+		Assert.assertEquals(1, d1.getNumberOfOwnElements()); // the leg with the other route
+		Assert.assertEquals(2, d2.getNumberOfOwnElements()); // the first activity and the leg departing later
+		Assert.assertEquals(0, d3.getNumberOfOwnElements());
+
+		assertSamePlanElements(sameTimes.getPlanElements(), d1.inflate());
+		assertSamePlanElements(otherTimes.getPlanElements(), d2.inflate());
+		assertSamePlanElements(base.getPlanElements(), d3.inflate());
+	}
+
+	@Test
+	public void testDeflate_comparesByValue() {
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(1, Person.class));
+		Plan base = createWalkPlan(person);
+		Plan other = PopulationUtils.createPlan(person);
+		PopulationUtils.createAndAddActivityFromCoord(other, "s", new Coord(50, 50));
+		other.getPlanElements().addAll(createWalkPlan(person).getPlanElements());
+
+		CompactPlanElements b = CompactPlanElements.deflate(base.getPlanElements());
+		DeltaPlanElements d = DeltaPlanElements.deflate(other.getPlanElements(), b);
+
+		// the elements with attributes and the generic route are equal by value, only one position later than in the base
+		Assert.assertEquals(1, d.getNumberOfOwnElements());
+		List<PlanElement> inflated = d.inflate();
+		Assert.assertEquals(4, inflated.size());
+		Assert.assertEquals("s", ((Activity) inflated.get(0)).getType());
+		Assert.assertEquals("bar", ((Activity) inflated.get(1)).getAttributes().getAttribute("foo"));
+		Route route = ((Leg) inflated.get(2)).getRoute();
+		Assert.assertEquals("4 1", route.getRouteDescription());
+		Assert.assertEquals(300, route.getDistance(), 0.0);
+		Assert.assertEquals(Integer.valueOf(2), ((Leg) inflated.get(2)).getAttributes().getAttribute("legs"));
+
+		// every inflated plan gets a route of its own
+		((Leg) inflated.get(2)).getRoute().setDistance(500);
+		Assert.assertEquals(300, ((Leg) d.inflate().get(2)).getRoute().getDistance(), 0.0);
+		Assert.assertEquals(300, ((Leg) b.inflate().get(1)).getRoute().getDistance(), 0.0);
+
+		// other attribute values or route descriptions are differences
+		((Activity) other.getPlanElements().get(1)).getAttributes().putAttribute("foo", "baz");
+		((Leg) other.getPlanElements().get(2)).getRoute().setRouteDescription("4 2 1");
+		Assert.assertEquals(3, DeltaPlanElements.deflate(other.getPlanElements(), b).getNumberOfOwnElements());
+	}
+
+	@Test
+	public void testCompactNonSelectedPlans_delta() {
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(1, Person.class));
+		Plan selected = createPlan(person, 7 * 3600, "2");
+		Plan alternative = createPlan(person, 7 * 3600, "3");
+		Plan later = createPlan(person, 8 * 3600, "3");
+		person.addPlan(selected);
+		person.addPlan(alternative);
+		person.addPlan(later);
+		person.setSelectedPlan(selected);
+		Plan expectedAlternative = createPlan(person, 7 * 3600, "3");
+		Plan expectedLater = createPlan(person, 8 * 3600, "3");
+
+		Assert.assertEquals(2, PopulationUtils.compactNonSelectedPlans(person, PlansConfigGroup.PlanStorage.delta));
+		Assert.assertFalse(((PlanImpl) selected).isCompact());
+		// the first non-selected plan is stored in full and is the base of the others
+		Assert.assertNotNull(((PlanImpl) alternative).getCompactPlanElements());
+		Assert.assertTrue(((PlanImpl) later).isCompact());
+		Assert.assertNull(((PlanImpl) later).getCompactPlanElements());
+
+		// changes to the selected plan or to the inflated base must not show up in the stored plans
+		((Activity) selected.getPlanElements().get(0)).setEndTime(9 * 3600);
+		assertSamePlanElements(expectedAlternative.getPlanElements(), alternative.getPlanElements());
+		Assert.assertFalse(((PlanImpl) alternative).isCompact());
+		((Activity) alternative.getPlanElements().get(0)).setEndTime(10 * 3600);
+		assertSamePlanElements(expectedLater.getPlanElements(), later.getPlanElements());
+
+		Assert.assertEquals(0, PopulationUtils.compactNonSelectedPlans(person, PlansConfigGroup.PlanStorage.objects));
+	}
+
+	@Test
+	public void testCompactNonSelectedPlans_newBase() {
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(1, Person.class));
+		Plan selected = createPlan(person, 7 * 3600, "2");
+		Plan alternative = createPlan(person, 7 * 3600, "3");
+		Plan later = createPlan(person, 8 * 3600, "3");
+		person.addPlan(selected);
+		person.addPlan(alternative);
+		person.addPlan(later);
+		person.setSelectedPlan(selected);
+		Plan expectedSelected = createPlan(person, 7 * 3600, "2");
+		Plan expectedLater = createPlan(person, 8 * 3600, "3");
+
+		Assert.assertEquals(2, PopulationUtils.compactNonSelectedPlans(person, PlansConfigGroup.PlanStorage.delta));
+		Assert.assertNotNull(((PlanImpl) alternative).getCompactPlanElements());
+
+		// the base is selected, so the remaining plan becomes the new base and the formerly selected plan is based on it
+		person.setSelectedPlan(alternative);
+		alternative.getPlanElements();
+		Assert.assertEquals(2, PopulationUtils.compactNonSelectedPlans(person, PlansConfigGroup.PlanStorage.delta));
+		CompactPlanElements base = ((PlanImpl) later).getCompactPlanElements();
+		Assert.assertNotNull(base);
+		Assert.assertTrue(((PlanImpl) selected).isCompact());
+		Assert.assertNull(((PlanImpl) selected).getCompactPlanElements());
+		Assert.assertFalse("should already be based on the new base", ((PlanImpl) selected).rebase(base));
+
+		assertSamePlanElements(expectedSelected.getPlanElements(), selected.getPlanElements());
+		assertSamePlanElements(expectedLater.getPlanElements(), later.getPlanElements());
+	}
+
+	private static void assertSamePlanElements(List<PlanElement> expected, List<PlanElement> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			PlanElement e = expected.get(i);
+			PlanElement a = actual.get(i);
+			if (e instanceof Activity) {
+				Assert.assertEquals(((Activity) e).getType(), ((Activity) a).getType());
+				Assert.assertEquals(((Activity) e).getLinkId(), ((Activity) a).getLinkId());
+				Assert.assertEquals(((Activity) e).getCoord(), ((Activity) a).getCoord());
+				Assert.assertEquals(((Activity) e).getEndTime(), ((Activity) a).getEndTime(), 0.0);
+			} else {
+				Assert.assertEquals(((Leg) e).getMode(), ((Leg) a).getMode());
+				Assert.assertEquals(((Leg) e).getDepartureTime(), ((Leg) a).getDepartureTime(), 0.0);
+				NetworkRoute er = (NetworkRoute) ((Leg) e).getRoute();
+				NetworkRoute ar = (NetworkRoute) ((Leg) a).getRoute();
+				Assert.assertEquals(er.getStartLinkId(), ar.getStartLinkId());
+				Assert.assertEquals(er.getLinkIds(), ar.getLinkIds());
+				Assert.assertEquals(er.getEndLinkId(), ar.getEndLinkId());
+			}
+		}
+	}
+
+	private static Plan createPlan(Person person, double departure, String viaLink) {
+		Plan plan = PopulationUtils.createPlan(person);
+
+		Activity home = PopulationUtils.createAndAddActivityFromCoord(plan, "h", new Coord(0, 0));
+		home.setLinkId(Id.create("1", Link.class));
+		home.setEndTime(departure);
+
+		Leg car = PopulationUtils.createAndAddLeg(plan, TransportMode.car);
+		car.setDepartureTime(departure);
+		car.setRoute(RouteUtils.createLinkNetworkRouteImpl(Id.create("1", Link.class),
+				Arrays.asList(Id.create(viaLink, Link.class)), Id.create("4", Link.class)));
+
+		Activity work = PopulationUtils.createAndAddActivityFromCoord(plan, "w", new Coord(100, 200));
+		work.setLinkId(Id.create("4", Link.class));
+		work.setEndTime(17 * 3600);
+
+		Leg back = PopulationUtils.createAndAddLeg(plan, TransportMode.car);
+		back.setDepartureTime(17 * 3600);
+		back.setRoute(RouteUtils.createLinkNetworkRouteImpl(Id.create("4", Link.class),
+				Arrays.<Id<Link>>asList(), Id.create("1", Link.class)));
+
+		PopulationUtils.createAndAddActivityFromCoord(plan, "h", new Coord(0, 0)).setLinkId(Id.create("1", Link.class));
+		return plan;
+	}
+
+	private static Plan createWalkPlan(Person person) {
+		Plan plan = PopulationUtils.createPlan(person);
+
+		Activity home = PopulationUtils.createAndAddActivityFromCoord(plan, "h", new Coord(0, 0));
+		home.setEndTime(7 * 3600);
+		home.getAttributes().putAttribute("foo", "bar");
+
+		Leg walk = PopulationUtils.createAndAddLeg(plan, TransportMode.walk);
+		walk.getAttributes().putAttribute("legs", 2);
+		Route route = RouteUtils.createGenericRouteImpl(Id.create("4", Link.class), Id.create("1", Link.class));
+		route.setRouteDescription("4 1");
+		route.setDistance(300);
+		walk.setRoute(route);
+
+		PopulationUtils.createAndAddActivityFromCoord(plan, "w", new Coord(100, 200));
+		return plan;
+	}
+
+}
@@ -0,0 +1,213 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * OffHeapPopulationTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class OffHeapPopulationTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testCreatePopulation() {
+		PlansConfigGroup plansConfigGroup = new PlansConfigGroup();
+		Assert.assertTrue(PopulationUtils.createPopulation(plansConfigGroup, null) instanceof PopulationImpl);
+		plansConfigGroup.setPopulationStorage(PlansConfigGroup.PopulationStorage.offHeap);
+		Assert.assertTrue(PopulationUtils.createPopulation(plansConfigGroup, null) instanceof OffHeapPopulation);
+	}
+
+	@Test
+	public void testAddAndGet() {
+		OffHeapPopulation population = createPopulation();
+		population.addPerson(PopulationTestUtils.createPerson(population, "1"));
+
+		Assert.assertEquals(1, population.getPersons().size());
+		Assert.assertTrue(population.getPersons().containsKey(Id.create("1", Person.class)));
+		Assert.assertFalse(population.getPersons().containsKey(Id.create("2", Person.class)));
+		Assert.assertNull(population.getPersons().get(Id.create("2", Person.class)));
+
+		Person person = population.getPersons().get(Id.create("1", Person.class));
+		Assert.assertSame(person, population.getPersons().get(Id.create("1", Person.class)));
+		Assert.assertEquals("bar", person.getAttributes().getAttribute("foo"));
+		Assert.assertEquals(2, person.getPlans().size());
+		Assert.assertSame(person.getPlans().get(1), person.getSelectedPlan());
+		Assert.assertSame(person, person.getSelectedPlan().getPerson());
+		Assert.assertEquals(42.0, person.getSelectedPlan().getScore(), 0.0);
+		Assert.assertNull(person.getPlans().get(0).getScore());
+
+		Plan plan = person.getSelectedPlan();
+		Assert.assertEquals(5, plan.getPlanElements().size());
+		Activity home = (Activity) plan.getPlanElements().get(0);
+		Assert.assertEquals("h", home.getType());
+		Assert.assertEquals(new Coord(0, 0), home.getCoord());
+		Assert.assertEquals(Id.create("1", Link.class), home.getLinkId());
+		Assert.assertEquals(7 * 3600, home.getEndTime(), 0.0);
+		Assert.assertEquals(Integer.valueOf(3), home.getAttributes().getAttribute("n"));
+
+		Leg car = (Leg) plan.getPlanElements().get(1);
+		NetworkRoute route = (NetworkRoute) car.getRoute();
+		Assert.assertEquals(Arrays.asList(Id.create("2", Link.class), Id.create("3", Link.class)), route.getLinkIds());
+		Assert.assertEquals(Id.create("4", Link.class), route.getEndLinkId());
+		Assert.assertEquals(Id.create("v1", Vehicle.class), route.getVehicleId());
+		Assert.assertEquals(1234.5, route.getDistance(), 0.0);
+
+		Route walkRoute = ((Leg) plan.getPlanElements().get(3)).getRoute();
+		Assert.assertEquals(Id.create("4", Link.class), walkRoute.getStartLinkId());
+		Assert.assertEquals(300, walkRoute.getDistance(), 0.0);
+	}
+
+	@Test
+	public void testWriteBack_keepsModifications() {
+		OffHeapPopulation population = new OffHeapPopulation(PopulationUtils.getFactory(), null, 4096, 2);
+		for (int i = 1; i <= 4; i++) {
+			population.addPerson(PopulationTestUtils.createPerson(population, Integer.toString(i)));
+		}
+
+		Person person = population.getPersons().get(Id.create("2", Person.class));
+		person.getSelectedPlan().setScore(-1.0);
+		person.removePlan(person.getPlans().get(0));
+		Assert.assertSame(person, population.getPersons().get(Id.create("2", Person.class)));
+
+		// accessing two other persons writes person 2 back and releases it, but it is still referenced here
+		population.getPersons().get(Id.create("1", Person.class));
+		population.getPersons().get(Id.create("3", Person.class));
+		Person again = population.getPersons().get(Id.create("2", Person.class));
+		Assert.assertSame(person, again);
+		Assert.assertEquals(1, again.getPlans().size());
+		Assert.assertEquals(-1.0, again.getSelectedPlan().getScore(), 0.0);
+
+		// a modification that makes the person grow needs to move the record
+		for (int i = 0; i < 20; i++) {
+			again.addPlan(PopulationUtils.createPlan());
+		}
+		for (Person p : population.getPersons().values()) {
+			Assert.assertNotNull(p.getSelectedPlan());
+		}
+		Assert.assertEquals(21, population.getPersons().get(Id.create("2", Person.class)).getPlans().size());
+		Assert.assertEquals(2, population.getPersons().get(Id.create("1", Person.class)).getPlans().size());
+	}
+
+	@Test
+	public void testWriteBack_failsOnModificationAfterRelease() {
+		OffHeapPopulation population = new OffHeapPopulation(PopulationUtils.getFactory(), null, 4096, 2);
+		for (int i = 1; i <= 4; i++) {
+			population.addPerson(PopulationTestUtils.createPerson(population, Integer.toString(i)));
+		}
+
+		Person person = population.getPersons().get(Id.create("2", Person.class));
+		population.getPersons().get(Id.create("1", Person.class));
+		population.getPersons().get(Id.create("3", Person.class));
+		person.getSelectedPlan().setScore(-1.0);
+		try {
+			population.getPersons().get(Id.create("2", Person.class));
+			Assert.fail("expected an exception, the person was modified after it was written back");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testAddPerson_failsOnUnconvertibleAttribute() {
+		OffHeapPopulation population = createPopulation();
+		Person person = PopulationTestUtils.createPerson(population, "1");
+		person.getAttributes().putAttribute("unconvertible", new Object());
+		try {
+			population.addPerson(person);
+			Assert.fail("expected an exception, the attribute cannot be stored");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		Assert.assertEquals(0, population.getPersons().size());
+	}
+
+	@Test
+	public void testClose() {
+		File directory = new File(this.utils.getOutputDirectory());
+		OffHeapPopulation population = new OffHeapPopulation(PopulationUtils.getFactory(), directory, 4096, 10);
+		population.addPerson(PopulationTestUtils.createPerson(population, "1"));
+		Assert.assertEquals(1, directory.list().length);
+
+		population.close();
+		Assert.assertEquals(0, directory.list().length);
+		try {
+			population.getPersons().get(Id.create("1", Person.class));
+			Assert.fail("expected an exception, the population is closed");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		population.close();
+	}
+
+	@Test
+	public void testIterateAndRemove() {
+		OffHeapPopulation population = createPopulation();
+		for (int i = 0; i < 100; i++) {
+			population.addPerson(PopulationTestUtils.createPerson(population, "p" + i));
+		}
+		Assert.assertNotNull(population.removePerson(Id.create("p10", Person.class)));
+		Assert.assertNull(population.removePerson(Id.create("p10", Person.class)));
+		Iterator<? extends Person> iter = population.getPersons().values().iterator();
+		iter.next();
+		iter.remove();
+
+		Assert.assertEquals(98, population.getPersons().size());
+		List<Id<Person>> ids = new ArrayList<>(population.getPersons().keySet());
+		Assert.assertEquals(98, ids.size());
+		Assert.assertEquals(Id.create("p1", Person.class), ids.get(0));
+		Assert.assertEquals(Id.create("p11", Person.class), ids.get(9));
+		Assert.assertEquals(Id.create("p99", Person.class), ids.get(97));
+
+		population.addPerson(PopulationTestUtils.createPerson(population, "p10"));
+		Assert.assertEquals(99, population.getPersons().size());
+		try {
+			population.addPerson(PopulationTestUtils.createPerson(population, "p10"));
+			Assert.fail("expected exception, person already exists.");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	private static OffHeapPopulation createPopulation() {
+		// a small segment size, so that more than one segment is needed
+		return new OffHeapPopulation(PopulationUtils.getFactory(), null, 4096, OffHeapPopulation.DEFAULT_MAX_MATERIALIZED);
+	}
+
+}
@@ -0,0 +1,151 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationSnapshotTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.io.PopulationWriter;
+import org.matsim.utils.objectattributes.AttributeConverter;
+
+public class PopulationSnapshotTest {
+
+	@Test
+	public void testWritesLikeOriginal() {
+		Population population = createPopulation();
+		PopulationSnapshot snapshot = new PopulationSnapshot(population);
+
+		Assert.assertEquals(write(population), write(snapshot));
+	}
+
+	@Test
+	public void testNotAffectedByChanges() {
+		Population population = createPopulation();
+		String before = write(population);
+		PopulationSnapshot snapshot = new PopulationSnapshot(population);
+
+		population.removePerson(Id.create("2", Person.class));
+		population.getPersons().get(Id.create("1", Person.class)).getSelectedPlan().setScore(-1.0);
+		population.addPerson(PopulationTestUtils.createPerson(population, "4"));
+		population.getAttributes().putAttribute("bar", "foo");
+
+		Assert.assertEquals(before, write(snapshot));
+		Assert.assertEquals(3, snapshot.getPersons().size());
+		Assert.assertEquals(42.0, snapshot.getPersons().get(Id.create("1", Person.class)).getSelectedPlan().getScore(), 0.0);
+		Assert.assertNull(snapshot.getAttributes().getAttribute("bar"));
+	}
+
+	@Test
+	public void testCustomAttributes() {
+		Population population = createPopulation();
+		Person person = population.getPersons().get(Id.create("1", Person.class));
+		person.getAttributes().putAttribute("converted", new CustomAttribute("x"));
+		person.getSelectedPlan().getAttributes().putAttribute("skipped", new Object());
+		Map<Class<?>, AttributeConverter<?>> converters = new HashMap<>();
+		converters.put(CustomAttribute.class, new CustomAttributeConverter());
+
+		PopulationSnapshot snapshot = new PopulationSnapshot(population, converters);
+
+		Person copy = snapshot.getPersons().get(Id.create("1", Person.class));
+		Assert.assertEquals("x", ((CustomAttribute) copy.getAttributes().getAttribute("converted")).value);
+		Assert.assertEquals("bar", copy.getAttributes().getAttribute("foo"));
+		// like the plans writer, the snapshot leaves out attributes that cannot be converted
+		Assert.assertNull(copy.getSelectedPlan().getAttributes().getAttribute("skipped"));
+		Assert.assertEquals(42.0, copy.getSelectedPlan().getScore(), 0.0);
+	}
+
+	@Test
+	public void testGetPersons() {
+		PopulationSnapshot snapshot = new PopulationSnapshot(createPopulation());
+
+		List<String> ids = new ArrayList<>();
+		for (Id<Person> id : snapshot.getPersons().keySet()) {
+			ids.add(id.toString());
+		}
+		Assert.assertEquals("persons must be iterated in the order of their ids", "[1, 2, 3]", ids.toString());
+
+		Assert.assertTrue(snapshot.getPersons().containsKey(Id.create("2", Person.class)));
+		Assert.assertFalse(snapshot.getPersons().containsKey(Id.create("5", Person.class)));
+		Assert.assertFalse(snapshot.getPersons().containsKey(Id.create("2", Link.class)));
+		Assert.assertNull(snapshot.getPersons().get(Id.create("5", Person.class)));
+
+		Person person = snapshot.getPersons().get(Id.create("3", Person.class));
+		Assert.assertEquals("bar", person.getAttributes().getAttribute("foo"));
+		Assert.assertEquals(2, person.getPlans().size());
+		Assert.assertSame(person.getPlans().get(1), person.getSelectedPlan());
+		Assert.assertEquals(5, person.getSelectedPlan().getPlanElements().size());
+
+		try {
+			snapshot.addPerson(PopulationTestUtils.createPerson(snapshot, "5"));
+			Assert.fail("expected an exception, the snapshot is read-only");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	private static final class CustomAttribute {
+		private final String value;
+
+		CustomAttribute(final String value) {
+			this.value = value;
+		}
+	}
+
+	private static final class CustomAttributeConverter implements AttributeConverter<CustomAttribute> {
+		@Override
+		public CustomAttribute convert(final String value) {
+			return new CustomAttribute(value);
+		}
+
+		@Override
+		public String convertToString(final Object o) {
+			return ((CustomAttribute) o).value;
+		}
+	}
+
+	private static String write(final Population population) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new PopulationWriter(population).write(out);
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static Population createPopulation() {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		population.getAttributes().putAttribute("description", "snapshot test");
+		// not in the order of the ids, the writer sorts the persons
+		population.addPerson(PopulationTestUtils.createPerson(population, "3"));
+		population.addPerson(PopulationTestUtils.createPerson(population, "1"));
+		population.addPerson(PopulationTestUtils.createPerson(population, "2"));
+		return population;
+	}
+
+}
@@ -0,0 +1,102 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationTestUtils.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Creates the persons and plans that the tests of the different ways to store a population are run with.
+ */
+public final class PopulationTestUtils {
+
+	private PopulationTestUtils() {
+	}
+
+	/**
+	 * @return a plan home - car - work - walk - home of the given person (which is not added to the person).  It sets
+	 * everything a stored plan needs to keep: link and facility ids, coordinates with and without z, times, attributes,
+	 * a link network route with vehicle, distance and travel cost, and a generic route.
+	 */
+	public static Plan createPlan(final Person person) {
+		Plan plan = PopulationUtils.createPlan(person);
+
+		Activity home = PopulationUtils.createAndAddActivityFromCoord(plan, "h", new Coord(0, 0));
+		home.setLinkId(Id.create("1", Link.class));
+		home.setFacilityId(Id.create("f1", ActivityFacility.class));
+		home.setEndTime(7 * 3600);
+		home.getAttributes().putAttribute("foo", "bar");
+		home.getAttributes().putAttribute("n", 3);
+
+		Leg car = PopulationUtils.createAndAddLeg(plan, TransportMode.car);
+		car.setDepartureTime(7 * 3600);
+		car.setTravelTime(600);
+		NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(Id.create("1", Link.class),
+				Arrays.asList(Id.create("2", Link.class), Id.create("3", Link.class)), Id.create("4", Link.class));
+		route.setVehicleId(Id.create("v1", Vehicle.class));
+		route.setDistance(1234.5);
+		route.setTravelCost(12.0);
+		car.setRoute(route);
+
+		Activity work = PopulationUtils.createAndAddActivityFromCoord(plan, "w", new Coord(100, 200, 10));
+		work.setLinkId(Id.create("4", Link.class));
+		work.setEndTime(17 * 3600);
+
+		Leg walk = PopulationUtils.createAndAddLeg(plan, TransportMode.walk);
+		Route walkRoute = RouteUtils.createGenericRouteImpl(Id.create("4", Link.class), Id.create("1", Link.class));
+		walkRoute.setDistance(300);
+		walk.setRoute(walkRoute);
+
+		PopulationUtils.createAndAddActivityFromCoord(plan, "h", new Coord(0, 0));
+		return plan;
+	}
+
+	/**
+	 * @return a person with the attribute <code>foo=bar</code> and two plans: an empty one without score, and the plan
+	 * of {@link #createPlan(Person)} with score 42, which is selected.
+	 */
+	public static Person createPerson(final Population population, final String id) {
+		Person person = population.getFactory().createPerson(Id.create(id, Person.class));
+		person.getAttributes().putAttribute("foo", "bar");
+		person.addPlan(PopulationUtils.createPlan());
+
+		Plan plan = createPlan(person);
+		plan.setScore(42.0);
+		person.addPlan(plan);
+		person.setSelectedPlan(plan);
+		return person;
+	}
+
+}
@@ -1,14 +1,22 @@
 package org.matsim.core.population.io;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.*;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.testcases.MatsimTestUtils;
 
@@ -187,6 +195,61 @@ public class PopulationV6IOTest {
 				readPlan.getAttributes().getAttribute( "beauty" ) );
 	}
 
+	@Test
+	public void testParallelReading_sameOrderAndContent() {
+		final Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig() );
+		population.getAttributes().putAttribute( "type" , "synthetic" );
+		final PopulationFactory factory = population.getFactory();
+		for ( int i = 0 ; i < 2000 ; i++ ) {
+			// not in lexicographic order, so the test fails if the persons are mixed up somewhere
+			final Person person = factory.createPerson( Id.createPersonId( "p" + ( ( i * 7919 ) % 2000 ) ) );
+			person.getAttributes().putAttribute( "index" , i );
+			population.addPerson( person );
+			for ( int p = 0 ; p < 2 ; p++ ) {
+				final Plan plan = factory.createPlan();
+				person.addPlan( plan );
+				plan.setScore( i + p / 10.0 );
+				final Activity home = factory.createActivityFromCoord( "home" , new Coord( i , p ) );
+				home.setEndTime( 7 * 3600 + i );
+				home.getAttributes().putAttribute( "size" , (double) i );
+				plan.addActivity( home );
+				final Leg leg = factory.createLeg( TransportMode.car );
+				final NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(
+						Id.create( "l" + i , Link.class ),
+						Arrays.asList( Id.create( "m" + i , Link.class ) , Id.create( "n" + p , Link.class ) ),
+						Id.create( "o" + i , Link.class ) );
+				route.setDistance( 100 + i );
+				leg.setRoute( route );
+				plan.addLeg( leg );
+				plan.addActivity( factory.createActivityFromCoord( "work" , new Coord( p , i ) ) );
+			}
+		}
+
+		final String file = utils.getOutputDirectory()+"/population.xml";
+		new PopulationWriter( population ).writeV6( file );
+
+		final Scenario sequential = ScenarioUtils.createScenario( ConfigUtils.createConfig() );
+		new PopulationReader( sequential ).readFile( file );
+
+		final Scenario parallel = ScenarioUtils.createScenario( ConfigUtils.createConfig() );
+		final PopulationReader parallelReader = new PopulationReader( parallel );
+		parallelReader.setNumberOfThreads( 4 );
+		parallelReader.readFile( file );
+
+		Assert.assertEquals( new ArrayList<>( sequential.getPopulation().getPersons().keySet() ),
+				new ArrayList<>( parallel.getPopulation().getPersons().keySet() ) );
+		Assert.assertTrue( PopulationUtils.equalPopulation( sequential.getPopulation() , parallel.getPopulation() ) );
+		Assert.assertEquals( "synthetic" , parallel.getPopulation().getAttributes().getAttribute( "type" ) );
+
+		final Person lastPerson = parallel.getPopulation().getPersons().get( Id.createPersonId( "p" + ( ( 1999 * 7919 ) % 2000 ) ) );
+		Assert.assertEquals( 1999 , lastPerson.getAttributes().getAttribute( "index" ) );
+		final List<PlanElement> planElements = lastPerson.getPlans().get( 1 ).getPlanElements();
+		Assert.assertEquals( 1999.0 , ((Activity) planElements.get( 0 )).getAttributes().getAttribute( "size" ) );
+		final NetworkRoute readRoute = (NetworkRoute) ((Leg) planElements.get( 1 )).getRoute();
+		Assert.assertEquals( Arrays.asList( Id.create( "m1999" , Link.class ) , Id.create( "n1" , Link.class ) ) , readRoute.getLinkIds() );
+		Assert.assertEquals( 2099 , readRoute.getDistance() , MatsimTestUtils.EPSILON );
+	}
+
 	@Test
 	public void testPopulationAttributesIO() {
 		final Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig() );
@@ -0,0 +1,318 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinaryScenarioWriterReaderTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scenario;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.facilities.ActivityOption;
+import org.matsim.facilities.OpeningTimeImpl;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleCapacity;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.Vehicles;
+
+public class BinaryScenarioWriterReaderTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteRead() {
+		Scenario original = createScenario();
+		String filename = this.utils.getOutputDirectory() + "scenario.bin";
+		new BinaryScenarioWriter(original).write(filename);
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new BinaryScenarioReader(scenario).readFile(filename);
+
+		assertSameScenario(original, scenario);
+	}
+
+	@Test
+	public void testLoadScenario() {
+		Scenario original = createScenario();
+		String filename = this.utils.getOutputDirectory() + "scenario.bin";
+		new BinaryScenarioWriter(original).write(filename);
+
+		Config config = ConfigUtils.createConfig();
+		config.scenario().setBinaryInputFile(filename);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+
+		assertSameScenario(original, scenario);
+	}
+
+	@Test
+	public void testLoadScenario_keepsSubpopulation() {
+		Scenario original = createScenario();
+		String filename = this.utils.getOutputDirectory() + "scenario.bin";
+		new BinaryScenarioWriter(original).write(filename);
+
+		Config config = ConfigUtils.createConfig();
+		config.scenario().setBinaryInputFile(filename);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+
+		String subpopulationAttribute = config.plans().getSubpopulationAttributeName();
+		Assert.assertEquals("freight", scenario.getPopulation().getPersonAttributes().getAttribute("1", subpopulationAttribute));
+		Assert.assertNull(scenario.getPopulation().getPersonAttributes().getAttribute("0", subpopulationAttribute));
+	}
+
+	@Test
+	public void testRead_smallWindow() throws Exception {
+		Scenario original = createScenario();
+		String filename = this.utils.getOutputDirectory() + "scenario.bin";
+		new BinaryScenarioWriter(original).write(filename);
+
+		// values crossing the end of a window must be read correctly
+		try (MappedDataInput in = new MappedDataInput(new File(filename), 13)) {
+			Assert.assertEquals(BinaryScenarioFormat.MAGIC, in.readInt());
+			Assert.assertEquals(BinaryScenarioFormat.VERSION, in.readInt());
+			long tablePosition = in.readLong();
+			in.seek(tablePosition);
+			BinaryScenarioFormat.StringTableReader table = new BinaryScenarioFormat.StringTableReader(in);
+			Assert.assertTrue(table.size() > 0);
+			Assert.assertEquals(new File(filename).length(), in.position());
+		}
+	}
+
+	@Test
+	public void testReadLine() throws Exception {
+		File file = new File(this.utils.getOutputDirectory() + "lines.txt");
+		Files.write(file.toPath(), "first line\nsecond\r\n\nthird line crossing windows\rlast".getBytes(StandardCharsets.ISO_8859_1));
+
+		try (MappedDataInput in = new MappedDataInput(file, 8)) {
+			Assert.assertEquals("first line", in.readLine());
+			Assert.assertEquals("second", in.readLine());
+			Assert.assertEquals("", in.readLine());
+			Assert.assertEquals("third line crossing windows", in.readLine());
+			Assert.assertEquals("last", in.readLine());
+			Assert.assertNull(in.readLine());
+		}
+	}
+
+	private static void assertSameScenario(final Scenario expected, final Scenario actual) {
+		Network expectedNetwork = expected.getNetwork();
+		Network network = actual.getNetwork();
+		Assert.assertEquals(expectedNetwork.getCapacityPeriod(), network.getCapacityPeriod(), 0.0);
+		Assert.assertEquals(expectedNetwork.getNodes().keySet(), network.getNodes().keySet());
+		Assert.assertEquals(expectedNetwork.getLinks().keySet(), network.getLinks().keySet());
+		for (Link link : expectedNetwork.getLinks().values()) {
+			Link other = network.getLinks().get(link.getId());
+			Assert.assertEquals(link.getFromNode().getId(), other.getFromNode().getId());
+			Assert.assertEquals(link.getToNode().getId(), other.getToNode().getId());
+			Assert.assertEquals(link.getLength(), other.getLength(), 0.0);
+			Assert.assertEquals(link.getFreespeed(), other.getFreespeed(), 0.0);
+			Assert.assertEquals(link.getCapacity(), other.getCapacity(), 0.0);
+			Assert.assertEquals(link.getNumberOfLanes(), other.getNumberOfLanes(), 0.0);
+			Assert.assertEquals(link.getAllowedModes(), other.getAllowedModes());
+			Assert.assertEquals(link.getAttributes().toString(), other.getAttributes().toString());
+		}
+		Node node = network.getNodes().get(Id.create("2", Node.class));
+		Assert.assertEquals(new Coord(1000, 0), node.getCoord());
+
+		ActivityFacility facility = actual.getActivityFacilities().getFacilities().get(Id.create("work", ActivityFacility.class));
+		Assert.assertEquals(new Coord(1000, 10), facility.getCoord());
+		Assert.assertEquals(Id.create("2", Link.class), facility.getLinkId());
+		ActivityOption option = facility.getActivityOptions().get("work");
+		Assert.assertEquals(50, option.getCapacity(), 0.0);
+		Assert.assertEquals(1, option.getOpeningTimes().size());
+		Assert.assertEquals(8 * 3600, option.getOpeningTimes().first().getStartTime(), 0.0);
+		Assert.assertEquals("yes", facility.getAttributes().getAttribute("parking"));
+
+		VehicleType type = actual.getTransitVehicles().getVehicleTypes().get(Id.create("bus", VehicleType.class));
+		Assert.assertEquals(Integer.valueOf(40), type.getCapacity().getSeats());
+		Assert.assertNull(type.getCapacity().getStandingRoom());
+		Assert.assertEquals(2.5, type.getPcuEquivalents(), 0.0);
+		Assert.assertEquals(VehicleType.DoorOperationMode.parallel, type.getDoorOperationMode());
+		Assert.assertSame(type, actual.getTransitVehicles().getVehicles().get(Id.create("bus1", Vehicle.class)).getType());
+		Assert.assertEquals(1, actual.getVehicles().getVehicles().size());
+
+		TransitSchedule schedule = actual.getTransitSchedule();
+		Assert.assertEquals(2, schedule.getFacilities().size());
+		TransitStopFacility stop = schedule.getFacilities().get(Id.create("A", TransitStopFacility.class));
+		Assert.assertEquals("Stop A", stop.getName());
+		Assert.assertEquals(new Coord(990, 5, 12.5), stop.getCoord());
+		Assert.assertEquals(Id.create("1", Link.class), stop.getLinkId());
+		Assert.assertTrue(stop.getIsBlockingLane());
+		TransitLine line = schedule.getTransitLines().get(Id.create("blue", TransitLine.class));
+		Assert.assertEquals("Blue Line", line.getName());
+		TransitRoute route = line.getRoutes().get(Id.create("blue1", TransitRoute.class));
+		Assert.assertEquals("bus", route.getTransportMode());
+		Assert.assertEquals(Id.create("1", Link.class), route.getRoute().getStartLinkId());
+		Assert.assertEquals(Id.create("2", Link.class), route.getRoute().getEndLinkId());
+		Assert.assertEquals(2, route.getStops().size());
+		Assert.assertEquals(120, route.getStops().get(1).getArrivalOffset(), 0.0);
+		Assert.assertTrue(route.getStops().get(1).isAwaitDepartureTime());
+		Departure departure = route.getDepartures().get(Id.create("d1", Departure.class));
+		Assert.assertEquals(7 * 3600, departure.getDepartureTime(), 0.0);
+		Assert.assertEquals(Id.create("bus1", Vehicle.class), departure.getVehicleId());
+		Assert.assertEquals(90, schedule.getMinimalTransferTimes().get(Id.create("A", TransitStopFacility.class),
+				Id.create("B", TransitStopFacility.class)), 0.0);
+
+		Assert.assertTrue(PopulationUtils.equalPopulation(expected.getPopulation(), actual.getPopulation()));
+		Assert.assertEquals(expected.getPopulation().getPersons().keySet(), actual.getPopulation().getPersons().keySet());
+
+		Assert.assertEquals(4200.0, actual.getPopulation().getPersonAttributes().getAttribute("2", "income"));
+		Assert.assertEquals(12, actual.getActivityFacilities().getFacilityAttributes().getAttribute("work", "size"));
+		Assert.assertEquals("city", schedule.getTransitLinesAttributes().getAttribute("blue", "operator"));
+		Assert.assertEquals(true, schedule.getTransitStopsAttributes().getAttribute("A", "shelter"));
+	}
+
+	private static Scenario createScenario() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+
+		Network network = scenario.getNetwork();
+		NetworkFactory nf = network.getFactory();
+		Node n1 = nf.createNode(Id.create("1", Node.class), new Coord(0, 0));
+		Node n2 = nf.createNode(Id.create("2", Node.class), new Coord(1000, 0));
+		Node n3 = nf.createNode(Id.create("3", Node.class), new Coord(2000, 0));
+		network.addNode(n1);
+		network.addNode(n2);
+		network.addNode(n3);
+		Link l1 = nf.createLink(Id.create("1", Link.class), n1, n2);
+		l1.setLength(1000);
+		l1.setFreespeed(13.9);
+		l1.setCapacity(1800);
+		l1.setNumberOfLanes(2);
+		l1.setAllowedModes(new HashSet<>(Arrays.asList("car", "bus")));
+		l1.getAttributes().putAttribute("toll", 2.5);
+		Link l2 = nf.createLink(Id.create("2", Link.class), n2, n3);
+		l2.setLength(1200);
+		l2.setFreespeed(8.3);
+		l2.setCapacity(900);
+		l2.setNumberOfLanes(1);
+		network.addLink(l1);
+		network.addLink(l2);
+
+		ActivityFacilities facilities = scenario.getActivityFacilities();
+		ActivityFacility home = facilities.getFactory().createActivityFacility(Id.create("home", ActivityFacility.class), new Coord(0, 10));
+		home.addActivityOption(facilities.getFactory().createActivityOption("home"));
+		facilities.addActivityFacility(home);
+		ActivityFacility work = facilities.getFactory().createActivityFacility(Id.create("work", ActivityFacility.class),
+				new Coord(1000, 10), Id.create("2", Link.class));
+		ActivityOption workOption = facilities.getFactory().createActivityOption("work");
+		workOption.setCapacity(50);
+		workOption.addOpeningTime(new OpeningTimeImpl(8 * 3600, 18 * 3600));
+		work.addActivityOption(workOption);
+		work.getAttributes().putAttribute("parking", "yes");
+		facilities.addActivityFacility(work);
+
+		Vehicles transitVehicles = scenario.getTransitVehicles();
+		VehicleType bus = transitVehicles.getFactory().createVehicleType(Id.create("bus", VehicleType.class));
+		VehicleCapacity capacity = transitVehicles.getFactory().createVehicleCapacity();
+		capacity.setSeats(40);
+		bus.setCapacity(capacity);
+		bus.setPcuEquivalents(2.5);
+		bus.setDoorOperationMode(VehicleType.DoorOperationMode.parallel);
+		transitVehicles.addVehicleType(bus);
+		transitVehicles.addVehicle(transitVehicles.getFactory().createVehicle(Id.create("bus1", Vehicle.class), bus));
+
+		Vehicles vehicles = scenario.getVehicles();
+		VehicleType car = vehicles.getFactory().createVehicleType(Id.create("car", VehicleType.class));
+		vehicles.addVehicleType(car);
+		vehicles.addVehicle(vehicles.getFactory().createVehicle(Id.create("1", Vehicle.class), car));
+
+		TransitSchedule schedule = scenario.getTransitSchedule();
+		TransitScheduleFactory sf = schedule.getFactory();
+		TransitStopFacility stopA = sf.createTransitStopFacility(Id.create("A", TransitStopFacility.class), new Coord(990, 5, 12.5), true);
+		stopA.setLinkId(Id.create("1", Link.class));
+		stopA.setName("Stop A");
+		TransitStopFacility stopB = sf.createTransitStopFacility(Id.create("B", TransitStopFacility.class), new Coord(1990, 5), false);
+		stopB.setLinkId(Id.create("2", Link.class));
+		schedule.addStopFacility(stopA);
+		schedule.addStopFacility(stopB);
+		NetworkRoute busRoute = RouteUtils.createLinkNetworkRouteImpl(Id.create("1", Link.class), new ArrayList<>(), Id.create("2", Link.class));
+		List<TransitRouteStop> stops = new ArrayList<>();
+		stops.add(sf.createTransitRouteStop(stopA, 0, 0));
+		TransitRouteStop lastStop = sf.createTransitRouteStop(stopB, 120, 150);
+		lastStop.setAwaitDepartureTime(true);
+		stops.add(lastStop);
+		TransitRoute route = sf.createTransitRoute(Id.create("blue1", TransitRoute.class), busRoute, stops, "bus");
+		Departure departure = sf.createDeparture(Id.create("d1", Departure.class), 7 * 3600);
+		departure.setVehicleId(Id.create("bus1", Vehicle.class));
+		route.addDeparture(departure);
+		TransitLine line = sf.createTransitLine(Id.create("blue", TransitLine.class));
+		line.setName("Blue Line");
+		line.addRoute(route);
+		schedule.addTransitLine(line);
+		schedule.getMinimalTransferTimes().set(stopA.getId(), stopB.getId(), 90);
+
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		for (int i = 0; i < 3; i++) {
+			Person person = pf.createPerson(Id.create(i, Person.class));
+			person.getAttributes().putAttribute("age", 30 + i);
+			Plan plan = pf.createPlan();
+			Activity h = pf.createActivityFromLinkId("home", Id.create("1", Link.class));
+			h.setEndTime(7 * 3600 + i * 60);
+			plan.addActivity(h);
+			Leg leg = pf.createLeg("car");
+			leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(Id.create("1", Link.class), new ArrayList<>(), Id.create("2", Link.class)));
+			plan.addLeg(leg);
+			Activity w = pf.createActivityFromCoord("work", new Coord(1000, 10));
+			w.setFacilityId(Id.create("work", ActivityFacility.class));
+			plan.addActivity(w);
+			person.addPlan(plan);
+			scenario.getPopulation().addPerson(person);
+		}
+		String subpopulationAttribute = scenario.getConfig().plans().getSubpopulationAttributeName();
+		scenario.getPopulation().getPersonAttributes().putAttribute("1", subpopulationAttribute, "freight");
+		scenario.getPopulation().getPersonAttributes().putAttribute("2", "income", 4200.0);
+		facilities.getFacilityAttributes().putAttribute("work", "size", 12);
+		schedule.getTransitLinesAttributes().putAttribute("blue", "operator", "city");
+		schedule.getTransitStopsAttributes().putAttribute("A", "shelter", true);
+		return scenario;
+	}
+
+}
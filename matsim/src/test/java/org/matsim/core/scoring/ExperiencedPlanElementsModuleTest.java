@@ -33,6 +33,22 @@ public class ExperiencedPlanElementsModuleTest {
 		Assert.assertEquals("There are two activities.", 2, subscriber.activityCount);
 	}
 
+	@Test
+	public void testExperiencedPlanElementsModule_partitionedScoring() {
+		Config config = ConfigUtils.createConfig();
+		config.planCalcScore().setNumberOfScoringThreads(2);
+		com.google.inject.Injector injector = Injector.createInjector(config,
+				new ExperiencedPlanElementsModule(),
+				new EventsManagerModule(),
+				new ScenarioByInstanceModule(ScenarioUtils.createScenario(config)),
+				new ReplayEvents.Module());
+		Subscriber subscriber = new Subscriber();
+		injector.getInstance(EventsToActivities.class).addActivityHandler(subscriber);
+		ReplayEvents replayEvents = injector.getInstance(ReplayEvents.class);
+		replayEvents.playEventsFile(matsimTestUtils.getClassInputDirectory() + "events.xml", 0);
+		Assert.assertEquals("The events are left to the scoring partitions.", 0, subscriber.activityCount);
+	}
+
 
 	private static class Subscriber implements EventsToActivities.ActivityHandler {
 
@@ -5,18 +5,35 @@ import org.junit.Test;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.controler.ControlerListenerManagerImpl;
 import org.matsim.core.events.EventsUtils;
+import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.router.TripStructureUtils;
 import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.vehicles.Vehicle;
 
 /**
  * @author mrieser / Simunto GmbH
@@ -69,6 +86,144 @@ public class ScoringFunctionsForPopulationTest {
 		Assert.assertEquals("transit_walk", ((Leg) rs.lastTrip.getTripElements().get(4)).getMode());
 	}
 
+	@Test
+	public void testPartitionedScoring_sameScores() {
+		double[] sequential = scoreEvents(0);
+		double[] partitioned = scoreEvents(3);
+		Assert.assertArrayEquals(sequential, partitioned, 0.0);
+	}
+
+	@Test
+	public void testPartitionedScoring_passesLegsAndActivities() {
+		int[] sequential = new int[2];
+		scoreEvents(0, sequential);
+		int[] partitioned = new int[2];
+		scoreEvents(3, partitioned);
+		Assert.assertEquals("legs", 40, sequential[0]);
+		Assert.assertEquals("activities", 60, sequential[1]);
+		Assert.assertArrayEquals(sequential, partitioned);
+	}
+
+	private static double[] scoreEvents(int numberOfScoringThreads) {
+		return scoreEvents(numberOfScoringThreads, new int[2]);
+	}
+
+	/**
+	 * @param counts the number of legs and of activities passed to the handlers of the given EventsToLegs/EventsToActivities
+	 */
+	private static double[] scoreEvents(int numberOfScoringThreads, int[] counts) {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		scenario.getConfig().planCalcScore().setNumberOfScoringThreads(numberOfScoringThreads);
+		Network network = scenario.getNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.create(1, Node.class), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.create(2, Node.class), new Coord(1000, 0));
+		Node n3 = NetworkUtils.createAndAddNode(network, Id.create(3, Node.class), new Coord(3000, 0));
+		Id<Link> link1 = NetworkUtils.createAndAddLink(network, Id.create(1, Link.class), n1, n2, 1000, 10, 3600, 1).getId();
+		Id<Link> link2 = NetworkUtils.createAndAddLink(network, Id.create(2, Link.class), n2, n3, 2000, 10, 3600, 1).getId();
+
+		int nofPersons = 20;
+		Population population = scenario.getPopulation();
+		for (int i = 0; i < nofPersons; i++) {
+			population.addPerson(population.getFactory().createPerson(Id.create(i, Person.class)));
+		}
+
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		EventsToActivities eventsToActivities = new EventsToActivities();
+		EventsToLegs eventsToLegs = new EventsToLegs(scenario);
+		if (numberOfScoringThreads == 0) {
+			// as done by ExperiencedPlanElementsModule
+			eventsManager.addHandler(new EventsToLegsAndActivities(eventsToLegs, eventsToActivities));
+		}
+		eventsToLegs.addLegHandler(leg -> counts[0]++);
+		eventsToActivities.addActivityHandler(activity -> counts[1]++);
+		ScoringFunctionFactory scoringFunctionFactory = agentId -> new SummingScoringFunction();
+		ScoringFunctionsForPopulation sf = new ScoringFunctionsForPopulation(controlerListenerManager, eventsManager,
+				eventsToActivities, eventsToLegs, population, scoringFunctionFactory, scenario.getConfig().planCalcScore());
+
+		controlerListenerManager.fireControlerIterationStartsEvent(0);
+		eventsManager.initProcessing();
+		for (int i = 0; i < nofPersons; i++) {
+			Id<Person> personId = Id.create(i, Person.class);
+			Id<Vehicle> vehicleId = Id.create(i, Vehicle.class);
+			double t = 6 * 3600 + i * 60;
+			eventsManager.processEvent(new ActivityEndEvent(t, personId, link1, null, "home"));
+			eventsManager.processEvent(new PersonDepartureEvent(t, personId, link1, TransportMode.car));
+			eventsManager.processEvent(new VehicleEntersTrafficEvent(t, personId, link1, vehicleId, TransportMode.car, 1.0));
+			eventsManager.processEvent(new LinkLeaveEvent(t + 10, vehicleId, link1));
+			eventsManager.processEvent(new LinkEnterEvent(t + 10, vehicleId, link2));
+			eventsManager.processEvent(new VehicleLeavesTrafficEvent(t + 100 + i, personId, link2, vehicleId, TransportMode.car, 1.0));
+			eventsManager.processEvent(new PersonArrivalEvent(t + 100 + i, personId, link2, TransportMode.car));
+			eventsManager.processEvent(new ActivityStartEvent(t + 100 + i, personId, link2, null, "work"));
+			eventsManager.processEvent(new PersonMoneyEvent(t + 200, personId, -i));
+			eventsManager.processEvent(new ActivityEndEvent(t + 3600, personId, link2, null, "work"));
+			eventsManager.processEvent(new PersonDepartureEvent(t + 3600, personId, link2, TransportMode.walk));
+			eventsManager.processEvent(new TeleportationArrivalEvent(t + 4000, personId, 500 + i));
+			eventsManager.processEvent(new PersonArrivalEvent(t + 4000, personId, link1, TransportMode.walk));
+			eventsManager.processEvent(new ActivityStartEvent(t + 4000, personId, link1, null, "home"));
+		}
+		eventsManager.finishProcessing();
+		controlerListenerManager.fireControlerAfterMobsimEvent(0);
+		eventsToActivities.finish(); // done by an AfterMobsimListener if created by injection
+		sf.finishScoringFunctions();
+
+		double[] scores = new double[nofPersons];
+		for (int i = 0; i < nofPersons; i++) {
+			scores[i] = sf.getScoringFunctionForAgent(Id.create(i, Person.class)).getScore();
+			Assert.assertTrue(scores[i] != 0.0);
+		}
+		return scores;
+	}
+
+	private static class SummingScoringFunction implements ScoringFunction {
+		private double score = 0;
+
+		@Override
+		public void handleActivity(Activity activity) {
+			if (!Time.isUndefinedTime(activity.getStartTime()) && !Time.isUndefinedTime(activity.getEndTime())) {
+				this.score += activity.getEndTime() - activity.getStartTime();
+			} else {
+				this.score += 1;
+			}
+		}
+
+		@Override
+		public void handleLeg(Leg leg) {
+			this.score -= leg.getTravelTime() + leg.getRoute().getDistance();
+		}
+
+		@Override
+		public void handleTrip(TripStructureUtils.Trip trip) {
+			this.score += 1000;
+		}
+
+		@Override
+		public void agentStuck(double time) {
+			this.score -= 10000;
+		}
+
+		@Override
+		public void addMoney(double amount) {
+			this.score += amount;
+		}
+
+		@Override
+		public void finish() {
+		}
+
+		@Override
+		public double getScore() {
+			return this.score;
+		}
+
+		@Override
+		public void handleEvent(Event event) {
+			if (event instanceof LinkEnterEvent) {
+				this.score += 1;
+			}
+		}
+	}
+
 	private static class RecordingScoringFunction implements ScoringFunction {
 
 		int tripCounter = 0;
@@ -22,6 +22,10 @@ package org.matsim.core.trafficmonitoring;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 
@@ -571,4 +575,48 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 		Assert.assertEquals("Filtering analyzed transport modes is enabled, but no modes set. Therefore, use default (=car)", 100.0, 
 				ttc.getLinkTravelTimes().getLinkTravelTime(link2, 200, null, null), 1e-8);
 	}
+
+	public void testWriteAndReadTravelTimes() throws IOException {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		final Node fromNode = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		final Node toNode = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		Link link1 = NetworkUtils.createAndAddLink(network,Id.create("1", Link.class), fromNode, toNode, 1000.0, 100.0, 3600.0, 1.0 );
+		Link link2 = NetworkUtils.createAndAddLink(network,Id.create("2", Link.class), toNode, fromNode, 1000.0, 100.0, 3600.0, 1.0 );
+		double freeSpeedTT = NetworkUtils.getFreespeedTravelTime(link1);
+		Id<Vehicle> vehId = Id.create("1", Vehicle.class);
+
+		int timeBinSize = 15*60;
+		TravelTimeCalculator ttcalc = new TravelTimeCalculator(network, timeBinSize, 12*3600, scenario.getConfig().travelTimeCalculator());
+		double firstTimeBinStart = 7.0 * 3600;
+		ttcalc.handleEvent(new LinkEnterEvent(firstTimeBinStart, vehId, link1.getId()));
+		ttcalc.handleEvent(new LinkLeaveEvent(firstTimeBinStart + 50.0 * 60, vehId, link1.getId()));
+		ttcalc.handleEvent(new LinkEnterEvent(firstTimeBinStart + 3*timeBinSize, vehId, link1.getId()));
+		ttcalc.handleEvent(new LinkLeaveEvent(firstTimeBinStart + 3*timeBinSize + 10.0 * 60, vehId, link1.getId()));
+		ttcalc.handleEvent(new LinkEnterEvent(firstTimeBinStart + 3*timeBinSize + 60, vehId, link1.getId()));
+		ttcalc.handleEvent(new LinkLeaveEvent(firstTimeBinStart + 3*timeBinSize + 60 + 5.0 * 60, vehId, link1.getId()));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ttcalc.writeTravelTimes(new DataOutputStream(bytes));
+
+		TravelTimeCalculator restored = new TravelTimeCalculator(network, timeBinSize, 12*3600, scenario.getConfig().travelTimeCalculator());
+		restored.readTravelTimes(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+		for (int i = 0; i < 12*4; i++) {
+			double time = i * timeBinSize + 5*60;
+			assertEquals("wrong travel time at " + time, ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, time, null, null),
+					restored.getLinkTravelTimes().getLinkTravelTime(link1, time, null, null), 0.0);
+		}
+		assertEquals(50.0 * 60 - timeBinSize, restored.getLinkTravelTimes().getLinkTravelTime(link1, firstTimeBinStart + timeBinSize, null, null), EPSILON);
+		assertEquals(7.5 * 60, restored.getLinkTravelTimes().getLinkTravelTime(link1, firstTimeBinStart + 3*timeBinSize, null, null), EPSILON);
+		assertEquals(freeSpeedTT, restored.getLinkTravelTimes().getLinkTravelTime(link2, firstTimeBinStart, null, null), EPSILON);
+
+		TravelTimeCalculator otherBins = new TravelTimeCalculator(network, 5*60, 12*3600, scenario.getConfig().travelTimeCalculator());
+		try {
+			otherBins.readTravelTimes(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+			fail("expected an exception, the time bins differ");
+		} catch (IllegalArgumentException e) {
+			log.info("caught expected exception: " + e.getMessage());
+		}
+	}
 }
@@ -0,0 +1,172 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PackedRTreeTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.geometry.CoordUtils;
+
+/**
+ * Test for {@link PackedRTree}.
+ */
+public class PackedRTreeTest {
+
+	@Test
+	public void testEmpty() {
+		PackedRTree<String> tree = new PackedRTree.Builder<String>().build();
+		Assert.assertEquals(0, tree.size());
+		Assert.assertNull(tree.getNearest(0, 0));
+		Assert.assertTrue(tree.kNearest(0, 0, 3).isEmpty());
+		Assert.assertTrue(tree.getDisk(0, 0, 100).isEmpty());
+	}
+
+	@Test
+	public void testPoints() {
+		PackedRTree<String> tree = new PackedRTree.Builder<String>()
+				.addPoint(10, 10, "10.10")
+				.addPoint(50, 50, "50.50")
+				.addPoint(90, 10, "90.10")
+				.addPoint(20, 80, "20.80")
+				.build();
+		Assert.assertEquals(4, tree.size());
+		Assert.assertEquals("10.10", tree.getNearest(0, 0));
+		Assert.assertEquals("50.50", tree.getNearest(60, 40));
+		Assert.assertEquals("20.80", tree.getNearest(0, 100));
+
+		List<String> nearest = tree.kNearest(85, 20, 3);
+		Assert.assertEquals(3, nearest.size());
+		Assert.assertEquals("90.10", nearest.get(0));
+		Assert.assertEquals("50.50", nearest.get(1));
+		Assert.assertEquals("10.10", nearest.get(2));
+		Assert.assertEquals(4, tree.kNearest(85, 20, 10).size());
+
+		List<String> disk = tree.getDisk(30, 30, 30);
+		Assert.assertEquals(2, disk.size());
+		Assert.assertEquals("10.10", disk.get(0));
+		Assert.assertEquals("50.50", disk.get(1));
+	}
+
+	@Test
+	public void testFilter() {
+		PackedRTree<String> tree = new PackedRTree.Builder<String>()
+				.addPoint(10, 10, "10.10")
+				.addPoint(50, 50, "50.50")
+				.addPoint(90, 10, "90.10")
+				.addPoint(20, 80, "20.80")
+				.build();
+		Assert.assertEquals("50.50", tree.getNearest(0, 0, v -> !v.equals("10.10")));
+		Assert.assertNull(tree.getNearest(0, 0, v -> false));
+
+		List<String> nearest = tree.kNearest(85, 20, 3, v -> !v.equals("50.50"));
+		Assert.assertEquals(3, nearest.size());
+		Assert.assertEquals("90.10", nearest.get(0));
+		Assert.assertEquals("10.10", nearest.get(1));
+		Assert.assertEquals("20.80", nearest.get(2));
+
+		List<String> disk = tree.getDisk(30, 30, 30, v -> !v.equals("10.10"));
+		Assert.assertEquals(1, disk.size());
+		Assert.assertEquals("50.50", disk.get(0));
+	}
+
+	@Test
+	public void testTies_inOrderOfAddition() {
+		PackedRTree.Builder<String> builder = new PackedRTree.Builder<String>().setNodeCapacity(2);
+		builder.addPoint(10, 0, "east");
+		builder.addPoint(-10, 0, "west");
+		builder.addPoint(0, 10, "north");
+		builder.addPoint(0, -10, "south");
+		PackedRTree<String> tree = builder.build();
+		Assert.assertEquals("east", tree.getNearest(0, 0));
+		List<String> nearest = tree.kNearest(0, 0, 4);
+		Assert.assertEquals("east", nearest.get(0));
+		Assert.assertEquals("west", nearest.get(1));
+		Assert.assertEquals("north", nearest.get(2));
+		Assert.assertEquals("south", nearest.get(3));
+	}
+
+	@Test
+	public void testSegments() {
+		PackedRTree<String> tree = new PackedRTree.Builder<String>()
+				.addSegment(0, 0, 100, 0, "horizontal")
+				.addSegment(50, 10, 50, 100, "vertical")
+				.addPoint(90, 90, "point")
+				.build();
+		Assert.assertEquals("horizontal", tree.getNearest(30, 4));
+		Assert.assertEquals("vertical", tree.getNearest(45, 60));
+		Assert.assertEquals("point", tree.getNearest(85, 85));
+		// beyond the end of the segment, the distance to the end point counts
+		Assert.assertEquals("vertical", tree.getNearest(50, 106));
+		Assert.assertEquals(1, tree.getDisk(48, 8, 3).size());
+		Assert.assertEquals(2, tree.getDisk(48, 8, 9).size());
+	}
+
+	@Test
+	public void testRandom_sameAsBruteForce() {
+		Random r = new Random(4711);
+		List<Coord> points = new ArrayList<>();
+		PackedRTree.Builder<Integer> builder = new PackedRTree.Builder<Integer>().setNodeCapacity(4);
+		for (int i = 0; i < 5000; i++) {
+			Coord c = new Coord(r.nextDouble() * 10000, r.nextDouble() * 5000);
+			points.add(c);
+			builder.addPoint(c.getX(), c.getY(), i);
+		}
+		PackedRTree<Integer> tree = builder.build();
+		Assert.assertEquals(points.size(), tree.size());
+
+		List<Coord> queries = new ArrayList<>();
+		for (int q = 0; q < 200; q++) {
+			Coord query = new Coord(r.nextDouble() * 12000 - 1000, r.nextDouble() * 6000 - 500);
+			queries.add(query);
+			List<Integer> expected = new ArrayList<>();
+			for (int i = 0; i < points.size(); i++) {
+				expected.add(i);
+			}
+			expected.sort(Comparator.comparingDouble((Integer i) -> CoordUtils.calcEuclideanDistance(points.get(i), query)));
+
+			Assert.assertEquals(expected.get(0), tree.getNearest(query.getX(), query.getY()));
+			Assert.assertEquals(expected.subList(0, 10), tree.kNearest(query.getX(), query.getY(), 10));
+
+			double radius = 300;
+			List<Integer> disk = tree.getDisk(query.getX(), query.getY(), radius);
+			int inside = 0;
+			for (int i = 0; i < points.size(); i++) {
+				if (CoordUtils.calcEuclideanDistance(points.get(i), query) <= radius) {
+					Assert.assertEquals(Integer.valueOf(i), disk.get(inside));
+					inside++;
+				}
+			}
+			Assert.assertEquals(inside, disk.size());
+		}
+
+		List<Integer> batch = tree.getNearest(queries, 4);
+		Assert.assertEquals(queries.size(), batch.size());
+		for (int q = 0; q < queries.size(); q++) {
+			Assert.assertEquals(tree.getNearest(queries.get(q).getX(), queries.get(q).getY()), batch.get(q));
+		}
+	}
+
+}
@@ -0,0 +1,374 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * OsmPbfParserTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+
+/**
+ * Tests {@link OsmPbfParser} by converting the same random data from xml and from pbf.
+ */
+public class OsmPbfParserTest {
+
+	private static final String[] HIGHWAYS = {"motorway", "primary", "secondary", "residential", "footway"};
+
+	@Test
+	public void testParsePbf_sameAsXml() throws IOException {
+		Random r = new Random(4711);
+		OsmData data = new OsmData();
+		// a grid of nodes, with some nodes missing in the file and some not used by any way
+		for (int i = 0; i < 40; i++) {
+			for (int j = 0; j < 40; j++) {
+				long id = 1000 + i * 40 + j;
+				if (r.nextDouble() < 0.01) {
+					continue;
+				}
+				data.nodes.put(id, new long[] {4700000 + i * 37L + r.nextInt(5), 850000 + j * 53L + r.nextInt(5)});
+			}
+		}
+		for (int w = 0; w < 300; w++) {
+			List<Long> refs = new ArrayList<>();
+			int i = r.nextInt(40);
+			int j = r.nextInt(40);
+			boolean horizontal = r.nextBoolean();
+			for (int k = 0, n = 2 + r.nextInt(8); k < n && i < 40 && j < 40; k++) {
+				refs.add(1000L + i * 40 + j);
+				if (horizontal) { i++; } else { j++; }
+			}
+			Map<String, String> tags = new LinkedHashMap<>();
+			tags.put("highway", HIGHWAYS[r.nextInt(HIGHWAYS.length)]);
+			if (r.nextDouble() < 0.2) { tags.put("oneway", r.nextBoolean() ? "yes" : "-1"); }
+			if (r.nextDouble() < 0.2) { tags.put("lanes", Integer.toString(1 + r.nextInt(4))); }
+			if (r.nextDouble() < 0.2) { tags.put("maxspeed", Integer.toString(30 + 10 * r.nextInt(8))); }
+			if (r.nextDouble() < 0.2) { tags.put("name", "street " + w); }
+			data.ways.add(new OsmData.Way(500 + w, refs, tags));
+		}
+
+		for (boolean keepPaths : new boolean[] {false, true}) {
+			Network xmlNetwork = NetworkUtils.createNetwork();
+			OsmNetworkReader xmlReader = new OsmNetworkReader(xmlNetwork, new IdentityTransformation());
+			xmlReader.setKeepPaths(keepPaths);
+			byte[] xml = data.toXml();
+			xmlReader.parse(() -> new ByteArrayInputStream(xml));
+
+			Network pbfNetwork = NetworkUtils.createNetwork();
+			OsmNetworkReader pbfReader = new OsmNetworkReader(pbfNetwork, new IdentityTransformation());
+			pbfReader.setKeepPaths(keepPaths);
+			pbfReader.setNumberOfThreads(3);
+			byte[] pbf = data.toPbf();
+			pbfReader.parsePbf(() -> new ByteArrayInputStream(pbf));
+
+			Assert.assertTrue(xmlNetwork.getLinks().size() > 100);
+			assertSameNetwork(xmlNetwork, pbfNetwork);
+		}
+	}
+
+	@Test
+	public void testReadNodes_onlyReferenced() throws IOException {
+		OsmData data = new OsmData();
+		data.nodes.put(1L, new long[] {100000000, 200000000});
+		data.nodes.put(2L, new long[] {100000100, 200000100});
+		data.nodes.put(3L, new long[] {100000200, 200000200});
+		data.ways.add(new OsmData.Way(7, Arrays.asList(3L, 1L, 9L), tags("highway", "primary", "name", "a")));
+		data.ways.add(new OsmData.Way(8, Arrays.asList(1L, 2L), tags("highway", "footway")));
+		byte[] pbf = data.toPbf();
+
+		OsmPbfParser parser = new OsmPbfParser(new HashSet<>(Arrays.asList("primary")), Arrays.asList("highway"), 2);
+		parser.readWays(() -> new ByteArrayInputStream(pbf));
+		parser.readNodes(() -> new ByteArrayInputStream(pbf));
+
+		Assert.assertEquals(1, parser.getWays().size());
+		OsmNetworkReader.OsmWay way = parser.getWays().get(0);
+		Assert.assertEquals(7, way.id);
+		Assert.assertEquals(Arrays.asList(3L, 1L, 9L), way.nodes);
+		Assert.assertEquals("primary", way.tags.get("highway"));
+		Assert.assertFalse(way.tags.containsKey("name"));
+
+		Assert.assertEquals(3, parser.getNodeCount());
+		Assert.assertEquals(1, parser.getNodeId(0));
+		Assert.assertEquals(3, parser.getNodeId(1));
+		Assert.assertEquals(9, parser.getNodeId(2));
+		Assert.assertEquals(20.0, parser.getCoord(0).getX(), 1e-9);
+		Assert.assertEquals(10.0, parser.getCoord(0).getY(), 1e-9);
+		Assert.assertEquals(20.00002, parser.getCoord(1).getX(), 1e-9);
+		Assert.assertNull(parser.getCoord(2));
+		Assert.assertEquals(2, parser.nodeCounter.getCounter());
+	}
+
+	private static Map<String, String> tags(final String... keysAndValues) {
+		Map<String, String> tags = new LinkedHashMap<>();
+		for (int i = 0; i < keysAndValues.length; i += 2) {
+			tags.put(keysAndValues[i], keysAndValues[i + 1]);
+		}
+		return tags;
+	}
+
+	private static void assertSameNetwork(final Network expected, final Network actual) {
+		Assert.assertEquals(expected.getNodes().keySet(), actual.getNodes().keySet());
+		for (Node node : expected.getNodes().values()) {
+			Node other = actual.getNodes().get(node.getId());
+			Assert.assertEquals(node.getCoord().getX(), other.getCoord().getX(), 1e-9);
+			Assert.assertEquals(node.getCoord().getY(), other.getCoord().getY(), 1e-9);
+		}
+		Assert.assertEquals(expected.getLinks().keySet(), actual.getLinks().keySet());
+		for (Link link : expected.getLinks().values()) {
+			Link other = actual.getLinks().get(link.getId());
+			Assert.assertEquals(link.getFromNode().getId(), other.getFromNode().getId());
+			Assert.assertEquals(link.getToNode().getId(), other.getToNode().getId());
+			Assert.assertEquals(link.getLength(), other.getLength(), 1e-6);
+			Assert.assertEquals(link.getFreespeed(), other.getFreespeed(), 1e-9);
+			Assert.assertEquals(link.getCapacity(), other.getCapacity(), 1e-9);
+			Assert.assertEquals(link.getNumberOfLanes(), other.getNumberOfLanes(), 1e-9);
+			Assert.assertEquals(NetworkUtils.getOrigId(link), NetworkUtils.getOrigId(other));
+			Assert.assertEquals(NetworkUtils.getType(link), NetworkUtils.getType(other));
+		}
+	}
+
+	/**
+	 * OSM data with coordinates in units of 1e-7 degrees, which can be written as xml and as pbf.
+	 */
+	private static class OsmData {
+		final Map<Long, long[]> nodes = new LinkedHashMap<>(); // id -> lat, lon
+		final List<Way> ways = new ArrayList<>();
+
+		static class Way {
+			final long id;
+			final List<Long> refs;
+			final Map<String, String> tags;
+
+			Way(final long id, final List<Long> refs, final Map<String, String> tags) {
+				this.id = id;
+				this.refs = refs;
+				this.tags = tags;
+			}
+		}
+
+		byte[] toXml() {
+			StringBuilder xml = new StringBuilder("<?xml version='1.0' encoding='UTF-8'?>\n<osm version=\"0.6\">\n");
+			for (Map.Entry<Long, long[]> e : this.nodes.entrySet()) {
+				xml.append("  <node id=\"").append(e.getKey()).append("\" lat=\"").append(degrees(e.getValue()[0]))
+						.append("\" lon=\"").append(degrees(e.getValue()[1])).append("\"/>\n");
+			}
+			for (Way way : this.ways) {
+				xml.append("  <way id=\"").append(way.id).append("\">\n");
+				for (Long ref : way.refs) {
+					xml.append("    <nd ref=\"").append(ref).append("\"/>\n");
+				}
+				for (Map.Entry<String, String> tag : way.tags.entrySet()) {
+					xml.append("    <tag k=\"").append(tag.getKey()).append("\" v=\"").append(tag.getValue()).append("\"/>\n");
+				}
+				xml.append("  </way>\n");
+			}
+			xml.append("</osm>\n");
+			return xml.toString().getBytes(StandardCharsets.UTF_8);
+		}
+
+		private static String degrees(final long value) {
+			return java.math.BigDecimal.valueOf(value, 7).toPlainString();
+		}
+
+		/**
+		 * Writes the nodes in two blocks of dense nodes and one node as plain node, and the ways in a separate block.
+		 */
+		byte[] toPbf() throws IOException {
+			ByteArrayOutputStream file = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(file);
+
+			Proto header = new Proto();
+			header.bytes(4, "OsmSchema-V0.6".getBytes(StandardCharsets.UTF_8));
+			header.bytes(4, "DenseNodes".getBytes(StandardCharsets.UTF_8));
+			writeBlock(out, "OSMHeader", header.toByteArray(), false);
+
+			List<Long> ids = new ArrayList<>(this.nodes.keySet());
+			Long plainNode = ids.remove(ids.size() - 1);
+			int half = ids.size() / 2;
+			writeBlock(out, "OSMData", denseNodesBlock(ids.subList(0, half)), true);
+			writeBlock(out, "OSMData", denseNodesBlock(ids.subList(half, ids.size())), false);
+			{
+				Proto node = new Proto();
+				node.sint(1, plainNode);
+				node.sint(8, this.nodes.get(plainNode)[0]);
+				node.sint(9, this.nodes.get(plainNode)[1]);
+				Proto group = new Proto();
+				group.message(1, node);
+				Proto block = new Proto();
+				block.message(1, new Proto());
+				block.message(2, group);
+				writeBlock(out, "OSMData", block.toByteArray(), true);
+			}
+
+			List<String> strings = new ArrayList<>();
+			strings.add("");
+			Proto group = new Proto();
+			for (Way way : this.ways) {
+				Proto keys = new Proto();
+				Proto vals = new Proto();
+				for (Map.Entry<String, String> tag : way.tags.entrySet()) {
+					keys.varint(index(strings, tag.getKey()));
+					vals.varint(index(strings, tag.getValue()));
+				}
+				Proto refs = new Proto();
+				long last = 0;
+				for (Long ref : way.refs) {
+					refs.varint(zigzag(ref - last));
+					last = ref;
+				}
+				Proto w = new Proto();
+				w.field(1, 0);
+				w.varint(way.id);
+				w.message(2, keys);
+				w.message(3, vals);
+				w.message(8, refs);
+				group.message(3, w);
+			}
+			Proto table = new Proto();
+			for (String s : strings) {
+				table.bytes(1, s.getBytes(StandardCharsets.UTF_8));
+			}
+			Proto block = new Proto();
+			block.message(1, table);
+			block.message(2, group);
+			writeBlock(out, "OSMData", block.toByteArray(), true);
+			return file.toByteArray();
+		}
+
+		private byte[] denseNodesBlock(final List<Long> ids) {
+			Proto id = new Proto();
+			Proto lat = new Proto();
+			Proto lon = new Proto();
+			long lastId = 0;
+			long lastLat = 0;
+			long lastLon = 0;
+			for (Long nodeId : ids) {
+				// with a granularity of 100 nanodegrees, the values are stored in units of 1e-7 degrees
+				long[] coord = this.nodes.get(nodeId);
+				id.varint(zigzag(nodeId - lastId));
+				lat.varint(zigzag(coord[0] - lastLat));
+				lon.varint(zigzag(coord[1] - lastLon));
+				lastId = nodeId;
+				lastLat = coord[0];
+				lastLon = coord[1];
+			}
+			Proto dense = new Proto();
+			dense.message(1, id);
+			dense.message(8, lat);
+			dense.message(9, lon);
+			Proto group = new Proto();
+			group.message(2, dense);
+			Proto block = new Proto();
+			block.message(1, new Proto());
+			block.message(2, group);
+			return block.toByteArray();
+		}
+
+		private static int index(final List<String> strings, final String s) {
+			int index = strings.indexOf(s);
+			if (index < 0) {
+				strings.add(s);
+				index = strings.size() - 1;
+			}
+			return index;
+		}
+
+		private static void writeBlock(final DataOutputStream out, final String type, final byte[] data, final boolean compress) throws IOException {
+			Proto blob = new Proto();
+			if (compress) {
+				Deflater deflater = new Deflater();
+				deflater.setInput(data);
+				deflater.finish();
+				byte[] buffer = new byte[data.length + 64];
+				int length = deflater.deflate(buffer);
+				deflater.end();
+				blob.field(2, 0);
+				blob.varint(data.length);
+				blob.bytes(3, Arrays.copyOf(buffer, length));
+			} else {
+				blob.bytes(1, data);
+			}
+			byte[] blobBytes = blob.toByteArray();
+			Proto header = new Proto();
+			header.bytes(1, type.getBytes(StandardCharsets.UTF_8));
+			header.field(3, 0);
+			header.varint(blobBytes.length);
+			byte[] headerBytes = header.toByteArray();
+			out.writeInt(headerBytes.length);
+			out.write(headerBytes);
+			out.write(blobBytes);
+		}
+
+		private static long zigzag(final long n) {
+			return (n << 1) ^ (n >> 63);
+		}
+	}
+
+	/**
+	 * Encodes protocol buffer messages.
+	 */
+	private static class Proto extends ByteArrayOutputStream {
+		void varint(final long value) {
+			long v = value;
+			while ((v & ~0x7fL) != 0) {
+				write((int) ((v & 0x7f) | 0x80));
+				v >>>= 7;
+			}
+			write((int) v);
+		}
+
+		void field(final int field, final int wireType) {
+			varint((field << 3) | wireType);
+		}
+
+		void sint(final int field, final long value) {
+			field(field, 0);
+			varint(OsmData.zigzag(value));
+		}
+
+		void bytes(final int field, final byte[] bytes) {
+			field(field, 2);
+			varint(bytes.length);
+			write(bytes, 0, bytes.length);
+		}
+
+		void message(final int field, final Proto message) {
+			bytes(field, message.toByteArray());
+		}
+	}
+
+}
@@ -0,0 +1,85 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HistogramMetricTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for {@link HistogramMetric}.
+ */
+public class HistogramMetricTest {
+
+	@Test
+	public void testRecord() {
+		HistogramMetric histogram = new HistogramMetric("test");
+		Assert.assertEquals(0, histogram.getCount());
+		Assert.assertEquals(0, histogram.getMin());
+		Assert.assertEquals(0, histogram.getMax());
+		Assert.assertEquals(0, histogram.getPercentile(0.5));
+
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i);
+		}
+		histogram.record(-5);
+
+		Assert.assertEquals(1001, histogram.getCount());
+		Assert.assertEquals(500500, histogram.getSum());
+		Assert.assertEquals(0, histogram.getMin());
+		Assert.assertEquals(1000, histogram.getMax());
+		Assert.assertEquals(500.0, histogram.getMean(), 1.0);
+
+		// percentiles are upper bounds, less than twice the actual value
+		long p50 = histogram.getPercentile(0.5);
+		Assert.assertTrue(p50 >= 500 && p50 < 1000);
+		long p90 = histogram.getPercentile(0.9);
+		Assert.assertTrue(p90 >= 900 && p90 <= 1000);
+		Assert.assertEquals(1000, histogram.getPercentile(1.0));
+		Assert.assertEquals(0, histogram.getPercentile(0.0001));
+	}
+
+	@Test
+	public void testReset() {
+		HistogramMetric histogram = new HistogramMetric("test");
+		histogram.record(Long.MAX_VALUE);
+		Assert.assertEquals(Long.MAX_VALUE, histogram.getPercentile(0.5));
+		histogram.reset();
+		Assert.assertEquals(0, histogram.getCount());
+		Assert.assertEquals(0, histogram.getMax());
+		histogram.record(3);
+		Assert.assertEquals(3, histogram.getMin());
+		Assert.assertEquals(3, histogram.getMax());
+		Assert.assertEquals(3, histogram.getPercentile(0.5));
+	}
+
+	@Test
+	public void testRegistry() {
+		CounterMetric counter = MetricsRegistry.counter("test.counter");
+		Assert.assertSame(counter, MetricsRegistry.counter("test.counter"));
+		counter.add(5);
+		counter.increment();
+		Assert.assertEquals(6, counter.get());
+		Assert.assertTrue(MetricsRegistry.getCounters().contains(counter));
+		MetricsRegistry.reset();
+		Assert.assertEquals(0, counter.get());
+	}
+
+}
@@ -64,7 +64,7 @@ public class CountsControlerListenerTest {
 	public void testUseVolumesOfIteration() {
 		Config config = ConfigUtils.createConfig();
 		Scenario scenario = ScenarioUtils.createScenario(config);
-		CountsControlerListener ccl = new CountsControlerListener(config.global(), scenario.getNetwork(), config.controler(), config.counts(), null, null, null);
+		CountsControlerListener ccl = new CountsControlerListener(config.global(), scenario.getNetwork(), config.controler(), config.counts(), null, null, null, null);
 		
 		// test defaults
 		Assert.assertEquals(10, config.counts().getWriteCountsInterval());
@@ -324,6 +324,43 @@ public class CountsControlerListenerTest {
 		Assert.assertEquals(6.5, getVolume(config.controler().getOutputDirectory() + "ITERS/it.6/6.countscompareAWTV.txt"), 1e-8);
 	}
 	
+	@Test
+	public void testWriteComparisonInBackground() throws IOException {
+		Config config = this.util.createConfig(ExamplesUtils.getTestScenarioURL("triangle"));
+		config.network().setInputFile("network.xml");	// network file which is used by the counts file
+		config.controler().setNumberOfOutputWriterThreads(2);
+		config.global().setNumberOfThreads(2);
+
+		CountsConfigGroup cConfig = config.counts();
+
+		cConfig.setWriteCountsInterval(3);
+		cConfig.setAverageCountsOverIterations(2);
+		cConfig.setOutputFormat("all");
+		cConfig.setInputFile("counts.xml"); // just any file to activate the counts feature
+
+		final Controler controler = new Controler(ScenarioUtils.loadScenario(config));
+		controler.addOverridingModule(new AbstractModule() {
+			@Override
+			public void install() {
+				bind(Mobsim.class).toProvider(DummyMobsimFactory.class);
+			}
+		});
+		config.controler().setFirstIteration(0);
+		config.controler().setLastIteration(3);
+
+		controler.getConfig().controler().setCreateGraphs(false);
+		controler.getConfig().controler().setDumpDataAtEnd(false);
+		controler.getConfig().controler().setWriteEventsInterval(0);
+		config.controler().setWritePlansInterval(0);
+		controler.run();
+
+		// the output writers are flushed at shutdown, so all files of the last comparison must be complete
+		String iterationPath = config.controler().getOutputDirectory() + "ITERS/it.3/3.";
+		Assert.assertTrue(new File(iterationPath + "countscompare.kmz").length() > 0);
+		Assert.assertTrue(new File(iterationPath + "simulatedCounts.xml.gz").length() > 0);
+		Assert.assertEquals(3.5, getVolume(iterationPath + "countscompareAWTV.txt"), 1e-8);
+	}
+
 	@Test
 	public void testFilterAnalyzedModes() throws IOException {
 		Config config = util.createConfig(ExamplesUtils.getTestScenarioURL("triangle"));
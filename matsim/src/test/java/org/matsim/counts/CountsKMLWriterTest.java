@@ -20,9 +20,16 @@
 
 package org.matsim.counts;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.io.IOUtils;
 import org.matsim.counts.algorithms.CountSimComparisonKMLWriter;
 import org.matsim.counts.algorithms.CountsComparisonAlgorithm;
 import org.matsim.testcases.MatsimTestCase;
@@ -48,4 +55,44 @@ public class CountsKMLWriterTest extends MatsimTestCase {
 
 		assertTrue(new File(filename).length() > 0);
 	}
+
+	public void testPlacemarksAreWrittenPerHour() throws IOException {
+		CountsFixture fixture = new CountsFixture();
+		fixture.setUp();
+
+		CountsComparisonAlgorithm cca=fixture.getCCA();
+		cca.run();
+
+		String filename = this.getOutputDirectory() + "countscompare.kmz";
+		CountSimComparisonKMLWriter kmlWriter = new CountSimComparisonKMLWriter(
+				cca.getComparison(), fixture.getNetwork(), new IdentityTransformation());
+		kmlWriter.setIterationNumber(0);
+		kmlWriter.setNumberOfThreads(2);
+		kmlWriter.writeFile(filename);
+
+		try (ZipFile kmz = new ZipFile(filename)) {
+			String mainKml = readEntry(kmz, "main.kml");
+			for (int h = 1; h < 25; h++) {
+				for (String kml : new String[] {"relative_" + h + ".kml", "normalizedRelative_" + h + ".kml", "geh_" + h + ".kml"}) {
+					assertTrue("missing " + kml, readEntry(kmz, kml).contains("Placemark"));
+					assertTrue("no NetworkLink to " + kml, mainKml.contains(">" + kml + "<"));
+				}
+			}
+			assertFalse("placemarks must not be in the main kml", mainKml.contains("Placemark"));
+			for (CountSimComparison csc : cca.getComparison()) {
+				assertNotNull(kmz.getEntry(csc.getId() + ".png"));
+				assertNotNull(kmz.getEntry(csc.getId() + "_GEH.png"));
+			}
+		}
+	}
+
+	private static String readEntry(final ZipFile kmz, final String name) throws IOException {
+		ZipEntry entry = kmz.getEntry(name);
+		assertNotNull("missing " + name, entry);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (InputStream in = kmz.getInputStream(entry)) {
+			IOUtils.copyStream(in, out);
+		}
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
 }
@@ -1,9 +1,12 @@
 package org.matsim.facilities;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
 
 import org.junit.Assert;
 import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Link;
@@ -62,4 +65,44 @@ public class MatsimFacilitiesReaderTest {
 		ActivityFacility fac20 = facilities.getFacilities().get(Id.create(20, ActivityFacility.class));
 		Assert.assertNull(fac20.getLinkId());
 	}
+
+	@Test
+	public void testReadParallel() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		ActivityFacilities facilities = scenario.getActivityFacilities();
+		ActivityFacilitiesFactory factory = facilities.getFactory();
+		for (int i = 0; i < 500; i++) {
+			ActivityFacility fac = factory.createActivityFacility(Id.create((i * 7919) % 500, ActivityFacility.class),
+					new Coord(i, 2 * i), i % 2 == 0 ? Id.create("l" + i, Link.class) : null);
+			ActivityOption option = factory.createActivityOption("work");
+			option.setCapacity(i);
+			option.addOpeningTime(new OpeningTimeImpl(60 * i, 60 * i + 3600));
+			fac.addActivityOption(option);
+			fac.getAttributes().putAttribute("index", i);
+			facilities.addActivityFacility(fac);
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new FacilitiesWriter(facilities).write(out);
+
+		Scenario sequential = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new MatsimFacilitiesReader(sequential).parse(new ByteArrayInputStream(out.toByteArray()));
+
+		Scenario parallel = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		MatsimFacilitiesReader reader = new MatsimFacilitiesReader(parallel);
+		reader.setNumberOfThreads(3);
+		reader.parse(new ByteArrayInputStream(out.toByteArray()));
+
+		ActivityFacilities read = parallel.getActivityFacilities();
+		Assert.assertEquals(new ArrayList<>(sequential.getActivityFacilities().getFacilities().keySet()),
+				new ArrayList<>(read.getFacilities().keySet()));
+		for (ActivityFacility fac : facilities.getFacilities().values()) {
+			ActivityFacility readFac = read.getFacilities().get(fac.getId());
+			Assert.assertEquals(fac.getCoord(), readFac.getCoord());
+			Assert.assertEquals(fac.getLinkId(), readFac.getLinkId());
+			Assert.assertEquals(fac.getAttributes().getAttribute("index"), readFac.getAttributes().getAttribute("index"));
+			ActivityOption option = readFac.getActivityOptions().get("work");
+			Assert.assertEquals(fac.getActivityOptions().get("work").getCapacity(), option.getCapacity(), 0.0);
+			Assert.assertEquals(fac.getActivityOptions().get("work").getOpeningTimes(), option.getOpeningTimes());
+		}
+	}
 }
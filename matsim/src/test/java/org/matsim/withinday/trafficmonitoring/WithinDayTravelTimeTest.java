@@ -21,6 +21,7 @@
 package org.matsim.withinday.trafficmonitoring;
 
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -155,6 +156,33 @@ public class WithinDayTravelTimeTest extends MatsimTestCase {
 		controler.run();
 	}
 
+	@Test
+	public void testTripsAreKeptInLeaveOrder() {
+		WithinDayTravelTime.TravelTimeInfo travelTimeInfo = new WithinDayTravelTime.TravelTimeInfo(0, new AtomicLongArray(1));
+		int nextTrip = 0;
+		int firstTrip = 0;
+		// wrap around and grow the ring buffer several times
+		for (int round = 0; round < 5; round++) {
+			for (int i = 0; i < 7; i++) {
+				travelTimeInfo.addTrip(nextTrip, 10.0 * nextTrip);
+				nextTrip++;
+			}
+			for (int i = 0; i < 3; i++) {
+				assertEquals((double) firstTrip, travelTimeInfo.tripLeaveTimes[travelTimeInfo.firstTrip]);
+				assertEquals(10.0 * firstTrip, travelTimeInfo.tripTravelTimes[travelTimeInfo.firstTrip]);
+				travelTimeInfo.removeFirstTrip();
+				firstTrip++;
+			}
+		}
+		assertEquals(nextTrip - firstTrip, travelTimeInfo.numberOfTrips);
+		while (travelTimeInfo.numberOfTrips > 0) {
+			assertEquals((double) firstTrip, travelTimeInfo.tripLeaveTimes[travelTimeInfo.firstTrip]);
+			travelTimeInfo.removeFirstTrip();
+			firstTrip++;
+		}
+		assertEquals(nextTrip, firstTrip);
+	}
+
 	/**
 	 * Check travel times before and after a time step.
 	 * 
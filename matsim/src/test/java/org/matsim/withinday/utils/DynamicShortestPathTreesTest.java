@@ -0,0 +1,160 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DynamicShortestPathTreesTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.withinday.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class DynamicShortestPathTreesTest {
+
+	private static final int SIZE = 8;
+
+	@Test
+	public void testRepairedTreesEqualDijkstra() {
+		Network network = createGridNetwork();
+		List<Link> links = new ArrayList<>(network.getLinks().values());
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		LinkCosts costs = new LinkCosts(links);
+
+		DynamicShortestPathTrees trees = new DynamicShortestPathTrees(network, costs, costs, 3);
+		LeastCostPathCalculator dijkstra = new DijkstraFactory().createPathCalculator(network, costs, costs);
+
+		Random random = new Random(4711);
+		for (int round = 0; round < 200; round++) {
+			// route a few times to a handful of destinations, so trees are kept, repaired and evicted
+			for (int i = 0; i < 10; i++) {
+				Node fromNode = nodes.get(random.nextInt(nodes.size()));
+				Node toNode = nodes.get(random.nextInt(5));
+				Path expected = dijkstra.calcLeastCostPath(fromNode, toNode, 0.0, null, null);
+				Path path = trees.calcLeastCostPath(fromNode, toNode, 0.0, null, null);
+				Assert.assertEquals(expected.travelCost, path.travelCost, 1e-9);
+				Assert.assertEquals(fromNode, path.getFromNode());
+				Assert.assertEquals(toNode, path.getToNode());
+				Assert.assertEquals(path.nodes.size(), path.links.size() + 1);
+			}
+			Assert.assertTrue(trees.getNumberOfTrees() <= 3);
+
+			// make some links faster and some slower
+			List<Link> changedLinks = new ArrayList<>();
+			for (int i = 0; i < 1 + random.nextInt(5); i++) {
+				Link link = links.get(random.nextInt(links.size()));
+				costs.costs[link.getId().index()] = link.getLength() / (1.0 + random.nextInt(30));
+				changedLinks.add(link);
+			}
+			trees.notifyLinkTravelTimesChanged(changedLinks, 0.0);
+		}
+
+		// changing all links drops the trees
+		for (Link link : links) {
+			costs.costs[link.getId().index()] = link.getLength() / 10.0;
+		}
+		trees.notifyLinkTravelTimesChanged(links, 0.0);
+		Assert.assertEquals(0, trees.getNumberOfTrees());
+		Path path = trees.calcLeastCostPath(nodes.get(0), nodes.get(nodes.size() - 1), 0.0, null, null);
+		Path expected = dijkstra.calcLeastCostPath(nodes.get(0), nodes.get(nodes.size() - 1), 0.0, null, null);
+		Assert.assertEquals(expected.travelCost, path.travelCost, 1e-9);
+	}
+
+	@Test
+	public void testSameFromAndToNode() {
+		Network network = createGridNetwork();
+		LinkCosts costs = new LinkCosts(new ArrayList<>(network.getLinks().values()));
+		DynamicShortestPathTrees trees = new DynamicShortestPathTrees(network, costs, costs, 1);
+
+		Node node = network.getNodes().get(Id.create("3_3", Node.class));
+		Path path = trees.calcLeastCostPath(node, node, 0.0, null, null);
+		Assert.assertEquals(1, path.nodes.size());
+		Assert.assertEquals(0, path.links.size());
+		Assert.assertEquals(0.0, path.travelCost, 0.0);
+	}
+
+	private static Network createGridNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[SIZE][SIZE];
+		for (int x = 0; x < SIZE; x++) {
+			for (int y = 0; y < SIZE; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), new Coord(x * 100, y * 100));
+			}
+		}
+		int linkId = 0;
+		for (int x = 0; x < SIZE; x++) {
+			for (int y = 0; y < SIZE; y++) {
+				if (x + 1 < SIZE) {
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x][y], nodes[x + 1][y], 100, 10, 1000, 1);
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x + 1][y], nodes[x][y], 100, 10, 1000, 1);
+				}
+				if (y + 1 < SIZE) {
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x][y], nodes[x][y + 1], 100, 10, 1000, 1);
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x][y + 1], nodes[x][y], 100, 10, 1000, 1);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static class LinkCosts implements TravelTime, TravelDisutility {
+		private final double[] costs;
+
+		LinkCosts(List<Link> links) {
+			int maxIndex = 0;
+			for (Link link : links) {
+				maxIndex = Math.max(maxIndex, link.getId().index());
+			}
+			this.costs = new double[maxIndex + 1];
+			for (Link link : links) {
+				this.costs[link.getId().index()] = link.getLength() / link.getFreespeed();
+			}
+		}
+
+		@Override
+		public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+			return this.costs[link.getId().index()];
+		}
+
+		@Override
+		public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+			return this.costs[link.getId().index()];
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(Link link) {
+			return 0.0;
+		}
+	}
+
+}